@@ -0,0 +1,166 @@
+package com.watch.limusic.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.watch.limusic.util.PinyinUtil;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+/**
+ * 7 -> 13 逐版本迁移：歌曲、专辑、下载记录与歌单不丢失；迁移后由 DerivedDataRebuilder 补齐派生列与派生表
+ * 各版本表结构来自 app/schemas（androidTest 资源）
+ */
+@RunWith(AndroidJUnit4.class)
+public class MusicDatabaseMigrationTest {
+    private static final String TEST_DB = "migration-test";
+    private static final Migration[] ALL_MIGRATIONS = {
+            MusicDatabase.MIGRATION_7_8, MusicDatabase.MIGRATION_8_9, MusicDatabase.MIGRATION_9_10,
+            MusicDatabase.MIGRATION_10_11, MusicDatabase.MIGRATION_11_12, MusicDatabase.MIGRATION_12_13
+    };
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(InstrumentationRegistry.getInstrumentation(),
+            MusicDatabase.class.getCanonicalName(), new FrameworkSQLiteOpenHelperFactory());
+
+    private MusicDatabase database;
+
+    @After
+    public void tearDown() {
+        if (database != null) database.close();
+        InstrumentationRegistry.getInstrumentation().getTargetContext().deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void migrate7To13KeepsLibraryDownloadsAndPlaylists() throws IOException {
+        createVersion7();
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 13, true, ALL_MIGRATIONS);
+
+        assertEquals(2, count(db, "SELECT COUNT(*) FROM songs"));
+        try (Cursor c = db.query("SELECT title, duration, isCached, initial, sortKey, artistKey FROM songs WHERE id = 's1'")) {
+            assertTrue(c.moveToFirst());
+            assertEquals("晴天", c.getString(0));
+            assertEquals(269, c.getInt(1));
+            assertEquals(1, c.getInt(2));
+            assertEquals("Q", c.getString(3));
+            // 派生列迁移时留空，由 DerivedDataRebuilder 补算
+            assertTrue(c.isNull(4));
+            assertTrue(c.isNull(5));
+        }
+        try (Cursor c = db.query("SELECT name, songCount, sortKey FROM albums WHERE id = 'al1'")) {
+            assertTrue(c.moveToFirst());
+            assertEquals("叶惠美", c.getString(0));
+            assertEquals(2, c.getInt(1));
+            assertTrue(c.isNull(2));
+        }
+        try (Cursor c = db.query("SELECT status, filePath, fileSize, priority, contentType, checksum FROM downloads WHERE songId = 's1'")) {
+            assertTrue(c.moveToFirst());
+            assertEquals("DOWNLOADED", c.getString(0));
+            assertEquals("/sdcard/LiMusic/s1.mp3", c.getString(1));
+            assertEquals(4_200_000L, c.getLong(2));
+            assertEquals(2, c.getInt(3));
+            assertTrue(c.isNull(4));
+            assertTrue(c.isNull(5));
+        }
+        try (Cursor c = db.query("SELECT serverId, name, songCount, syncDirty FROM playlists WHERE localId = 1")) {
+            assertTrue(c.moveToFirst());
+            assertEquals("pl-1", c.getString(0));
+            assertEquals("通勤", c.getString(1));
+            assertEquals(2, c.getInt(2));
+            assertEquals(1, c.getInt(3));
+        }
+        assertEquals(2, count(db, "SELECT COUNT(*) FROM playlist_songs WHERE playlistLocalId = 1"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM artists"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM song_fts"));
+    }
+
+    @Test
+    public void rebuilderFillsDerivedDataAfterMigration() throws IOException {
+        createVersion7();
+        helper.runMigrationsAndValidate(TEST_DB, 13, true, ALL_MIGRATIONS).close();
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.databaseBuilder(context, MusicDatabase.class, TEST_DB)
+                .addMigrations(ALL_MIGRATIONS)
+                .build();
+        DerivedDataRebuilder rebuilder = new DerivedDataRebuilder(context, database, new SongSearchIndex(database));
+        assertFalse(rebuilder.isReady());
+        rebuilder.runBlocking();
+        assertTrue(rebuilder.isReady());
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+
+        try (Cursor c = db.query("SELECT id, title, initial, artist, sortKey, artistKey FROM songs")) {
+            assertEquals(2, c.getCount());
+            while (c.moveToNext()) {
+                assertEquals(SongSortKey.of(c.getString(2), c.getString(1), c.getString(0)), c.getString(4));
+                assertEquals(ArtistEntity.keyOf(c.getString(3)), c.getString(5));
+            }
+        }
+        try (Cursor c = db.query("SELECT name, sortKey FROM albums WHERE id = 'al1'")) {
+            assertTrue(c.moveToFirst());
+            assertEquals(SongSortKey.of(PinyinUtil.getFirstLetter(c.getString(0)), c.getString(0), "al1"), c.getString(1));
+        }
+        // 两首歌的艺术家名只差首尾空白，归并为一行
+        try (Cursor c = db.query("SELECT artistKey, name, songCount FROM artists")) {
+            assertEquals(1, c.getCount());
+            assertTrue(c.moveToFirst());
+            assertEquals("周杰伦", c.getString(0));
+            assertEquals("周杰伦", c.getString(1));
+            assertEquals(2, c.getInt(2));
+        }
+        assertEquals(2, count(db, "SELECT COUNT(*) FROM song_fts f JOIN songs s ON s.rowid = f.rowid"));
+        try (Cursor c = db.query("SELECT s.id FROM song_fts JOIN songs s ON s.rowid = song_fts.rowid WHERE song_fts MATCH 'qingtian*'")) {
+            assertTrue(c.moveToFirst());
+            assertEquals("s1", c.getString(0));
+        }
+        assertNull(firstString(db, "SELECT id FROM songs WHERE sortKey IS NULL OR artistKey IS NULL"));
+    }
+
+    // 版本 7 的库：一张专辑、两首歌（一首已下载）、一个含两首歌的歌单
+    private void createVersion7() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 7);
+        db.execSQL("INSERT INTO albums (id, name, artist, artistId, coverArt, songCount, duration, year, lastUpdated) "
+                + "VALUES ('al1', '叶惠美', '周杰伦', 'ar1', 'cover-al1', 2, 449, 2003, 1000)");
+        db.execSQL("INSERT INTO songs (id, title, album, artist, genre, duration, coverArt, streamUrl, albumId, isCached, lastUpdated, cacheTimestamp, initial) "
+                + "VALUES ('s1', '晴天', '叶惠美', '周杰伦', '', 269, 'cover-al1', NULL, 'al1', 1, 1000, 2000, 'Q')");
+        db.execSQL("INSERT INTO songs (id, title, album, artist, genre, duration, coverArt, streamUrl, albumId, isCached, lastUpdated, cacheTimestamp, initial) "
+                + "VALUES ('s2', 'Blue Moon', '叶惠美', ' 周杰伦 ', '', 180, 'cover-al1', NULL, 'al1', 0, 1000, 0, 'B')");
+        db.execSQL("INSERT INTO downloads (songId, title, artist, album, albumId, filePath, fileSize, status, downloadTimestamp, completedTimestamp, errorMessage, retryCount, streamUrl, coverArtUrl) "
+                + "VALUES ('s1', '晴天', '周杰伦', '叶惠美', 'al1', '/sdcard/LiMusic/s1.mp3', 4200000, 'DOWNLOADED', 3000, 4000, NULL, 0, NULL, NULL)");
+        db.execSQL("INSERT INTO playlists (localId, serverId, name, isPublic, songCount, createdAt, changedAt, syncDirty, isDeleted, owner) "
+                + "VALUES (1, 'pl-1', '通勤', 0, 2, 5000, 6000, 1, 0, 'watch')");
+        db.execSQL("INSERT INTO playlist_songs (playlistLocalId, songId, ordinal, addedAt) VALUES (1, 's1', 0, 5000)");
+        db.execSQL("INSERT INTO playlist_songs (playlistLocalId, songId, ordinal, addedAt) VALUES (1, 's2', 1, 5001)");
+        db.close();
+    }
+
+    private static int count(SupportSQLiteDatabase db, String sql) {
+        try (Cursor c = db.query(sql)) {
+            return c.moveToFirst() ? c.getInt(0) : -1;
+        }
+    }
+
+    private static String firstString(SupportSQLiteDatabase db, String sql) {
+        try (Cursor c = db.query(sql)) {
+            return c.moveToFirst() ? c.getString(0) : null;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.watch.limusic.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.watch.limusic.util.PinyinUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * "所有歌曲"分页：5 万行内存库上，SongKeysetPager 与改造前的 LIMIT/OFFSET 排序查询对比
+ * 结果写入 logcat（标签 SongPagingBenchmark），不设耗时阈值，只校验键集分页的顺序与完整性
+ */
+@RunWith(AndroidJUnit4.class)
+public class SongPagingBenchmark {
+    private static final String TAG = "SongPagingBenchmark";
+    private static final int ROWS = 50_000;
+    private static final int PAGE = 60;
+    private static final int ROUNDS = 5;
+    private static final int[] DEPTHS = {0, 10_000, 25_000, ROWS - PAGE};
+
+    // 改造前 SongDao.getSongsRange 的查询
+    private static final String LEGACY_RANGE = "SELECT * FROM songs ORDER BY "
+            + "CASE WHEN initial = '#' THEN 0 WHEN initial BETWEEN '0' AND '9' THEN 1 ELSE 2 END, "
+            + "initial, title COLLATE NOCASE LIMIT ? OFFSET ?";
+
+    private static final String[] WORDS = {"Love", "Night", "River", "Blue", "Summer", "夜曲", "晴天", "稻香", "海阔天空",
+            "Dream", "光年之外", "Rain", "告白气球", "12 Bar", "Tonight", "后来", "Moon", "七里香", "Home", "遇见"};
+
+    private MusicDatabase database;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, MusicDatabase.class).build();
+        List<SongEntity> batch = new ArrayList<>(1000);
+        for (int i = 0; i < ROWS; i++) {
+            String title = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+            SongEntity e = new SongEntity("s" + i, title, "Artist " + (i % 700), "Album " + (i % 3000),
+                    null, null, 200, null);
+            e.setInitial(PinyinUtil.getFirstLetter(title));
+            e.setSortKey(SongSortKey.of(e));
+            batch.add(e);
+            if (batch.size() == 1000) {
+                database.songDao().insertSongsIfAbsent(batch);
+                batch.clear();
+            }
+        }
+        database.songDao().insertSongsIfAbsent(batch);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void keysetWalkCoversEveryRowInOrder() {
+        SongKeysetPager pager = new SongKeysetPager(database.songDao());
+        String previous = null;
+        int seen = 0;
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int offset = 0; ; offset += PAGE) {
+            List<SongEntity> rows = pager.page(PAGE, offset);
+            if (rows.isEmpty()) break;
+            for (SongEntity e : rows) {
+                if (previous != null) assertTrue(e.getSortKey().compareTo(previous) > 0);
+                previous = e.getSortKey();
+                seen++;
+            }
+        }
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        assertEquals(ROWS, seen);
+        Log.i(TAG, String.format(Locale.US, "keyset sequential walk: %d pages, %.3f ms/page",
+                (ROWS + PAGE - 1) / PAGE, elapsed / 1e6 / ((ROWS + PAGE - 1) / PAGE)));
+    }
+
+    @Test
+    public void benchmarkPageAtDepth() {
+        SongKeysetPager warm = new SongKeysetPager(database.songDao());
+        for (int depth : DEPTHS) {
+            // 无锚点跳转：每轮新建 pager，只能经 sortKey 索引跳过 depth 行
+            double jump = bestMs(() -> new SongKeysetPager(database.songDao()).page(PAGE, depth));
+            // 相邻翻页：上一页已留下锚点
+            warm.page(PAGE, Math.max(0, depth - PAGE));
+            double next = bestMs(() -> warm.page(PAGE, depth));
+            double legacy = bestMs(() -> legacyPage(depth));
+            Log.i(TAG, String.format(Locale.US, "offset %5d: keyset jump %.2f ms, keyset next %.2f ms, LIMIT/OFFSET %.2f ms",
+                    depth, jump, next, legacy));
+            assertEquals(warm.page(PAGE, depth).get(0).getId(),
+                    new SongKeysetPager(database.songDao()).page(PAGE, depth).get(0).getId());
+        }
+    }
+
+    private int legacyPage(int offset) {
+        int n = 0;
+        try (Cursor c = database.query(new SimpleSQLiteQuery(LEGACY_RANGE, new Object[]{PAGE, offset}))) {
+            while (c.moveToNext()) n++;
+        }
+        return n;
+    }
+
+    private static double bestMs(Runnable op) {
+        op.run();
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            op.run();
+            best = Math.min(best, SystemClock.elapsedRealtimeNanos() - start);
+        }
+        return best / 1e6;
+    }
+}
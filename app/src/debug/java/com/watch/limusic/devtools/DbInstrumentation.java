@@ -0,0 +1,242 @@
+package com.watch.limusic.devtools;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.CancellationSignal;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * debug 构建的数据库插桩
+ * - 不开启 allowMainThreadQueries：主线程访问 DAO 由 Room 直接抛 IllegalStateException
+ * - 包装打开器：每条语句从执行到（查询则为游标关闭）的耗时记入 QueryStats
+ * Room 的 QueryCallback 只在执行前回调 SQL 与参数、不含耗时，这里在同一拦截点（打开器）自行计时
+ */
+public final class DbInstrumentation {
+
+	private DbInstrumentation() {}
+
+	public static void install(RoomDatabase.Builder<?> builder) {
+		builder.openHelperFactory(new TimedFactory(new FrameworkSQLiteOpenHelperFactory()));
+	}
+
+	private static final class TimedFactory implements SupportSQLiteOpenHelper.Factory {
+		private final SupportSQLiteOpenHelper.Factory delegate;
+
+		TimedFactory(SupportSQLiteOpenHelper.Factory delegate) {
+			this.delegate = delegate;
+		}
+
+		@NonNull
+		@Override
+		public SupportSQLiteOpenHelper create(@NonNull SupportSQLiteOpenHelper.Configuration configuration) {
+			return new TimedHelper(delegate.create(configuration));
+		}
+	}
+
+	private static final class TimedHelper implements SupportSQLiteOpenHelper {
+		private final SupportSQLiteOpenHelper delegate;
+		private volatile TimedDatabase wrapped;
+
+		TimedHelper(SupportSQLiteOpenHelper delegate) {
+			this.delegate = delegate;
+		}
+
+		// 底层返回的是同一个连接对象，包装也复用，避免每次取库都新建
+		private SupportSQLiteDatabase wrap(SupportSQLiteDatabase db) {
+			TimedDatabase w = wrapped;
+			if (w == null || w.delegate != db) {
+				w = new TimedDatabase(db);
+				wrapped = w;
+			}
+			return w;
+		}
+
+		@Override public String getDatabaseName() { return delegate.getDatabaseName(); }
+		@Override public void setWriteAheadLoggingEnabled(boolean enabled) { delegate.setWriteAheadLoggingEnabled(enabled); }
+		@Override public SupportSQLiteDatabase getWritableDatabase() { return wrap(delegate.getWritableDatabase()); }
+		@Override public SupportSQLiteDatabase getReadableDatabase() { return wrap(delegate.getReadableDatabase()); }
+		@Override public void close() { delegate.close(); }
+	}
+
+	// 游标在关闭时记录：Room 读完结果集后立即关闭，计时覆盖执行与取数
+	private static final class TimedCursor extends CursorWrapper {
+		private final String sql;
+		private final long startNanos;
+		private boolean recorded;
+
+		TimedCursor(Cursor cursor, String sql, long startNanos) {
+			super(cursor);
+			this.sql = sql;
+			this.startNanos = startNanos;
+		}
+
+		@Override
+		public void close() {
+			if (!recorded) {
+				recorded = true;
+				QueryStats.record(sql, System.nanoTime() - startNanos);
+			}
+			super.close();
+		}
+	}
+
+	private static final class TimedStatement implements SupportSQLiteStatement {
+		private final SupportSQLiteStatement delegate;
+		private final String sql;
+
+		TimedStatement(SupportSQLiteStatement delegate, String sql) {
+			this.delegate = delegate;
+			this.sql = sql;
+		}
+
+		@Override
+		public void execute() {
+			long t = System.nanoTime();
+			try { delegate.execute(); } finally { QueryStats.record(sql, System.nanoTime() - t); }
+		}
+
+		@Override
+		public int executeUpdateDelete() {
+			long t = System.nanoTime();
+			try { return delegate.executeUpdateDelete(); } finally { QueryStats.record(sql, System.nanoTime() - t); }
+		}
+
+		@Override
+		public long executeInsert() {
+			long t = System.nanoTime();
+			try { return delegate.executeInsert(); } finally { QueryStats.record(sql, System.nanoTime() - t); }
+		}
+
+		@Override
+		public long simpleQueryForLong() {
+			long t = System.nanoTime();
+			try { return delegate.simpleQueryForLong(); } finally { QueryStats.record(sql, System.nanoTime() - t); }
+		}
+
+		@Override
+		public String simpleQueryForString() {
+			long t = System.nanoTime();
+			try { return delegate.simpleQueryForString(); } finally { QueryStats.record(sql, System.nanoTime() - t); }
+		}
+
+		@Override public void bindNull(int index) { delegate.bindNull(index); }
+		@Override public void bindLong(int index, long value) { delegate.bindLong(index, value); }
+		@Override public void bindDouble(int index, double value) { delegate.bindDouble(index, value); }
+		@Override public void bindString(int index, String value) { delegate.bindString(index, value); }
+		@Override public void bindBlob(int index, byte[] value) { delegate.bindBlob(index, value); }
+		@Override public void clearBindings() { delegate.clearBindings(); }
+		@Override public void close() throws IOException { delegate.close(); }
+	}
+
+	private static final class TimedDatabase implements SupportSQLiteDatabase {
+		private final SupportSQLiteDatabase delegate;
+
+		TimedDatabase(SupportSQLiteDatabase delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public SupportSQLiteStatement compileStatement(String sql) {
+			return new TimedStatement(delegate.compileStatement(sql), sql);
+		}
+
+		@Override
+		public Cursor query(String query) {
+			long t = System.nanoTime();
+			return new TimedCursor(delegate.query(query), query, t);
+		}
+
+		@Override
+		public Cursor query(String query, Object[] bindArgs) {
+			long t = System.nanoTime();
+			return new TimedCursor(delegate.query(query, bindArgs), query, t);
+		}
+
+		@Override
+		public Cursor query(SupportSQLiteQuery query) {
+			long t = System.nanoTime();
+			return new TimedCursor(delegate.query(query), query.getSql(), t);
+		}
+
+		@Override
+		public Cursor query(SupportSQLiteQuery query, CancellationSignal cancellationSignal) {
+			long t = System.nanoTime();
+			return new TimedCursor(delegate.query(query, cancellationSignal), query.getSql(), t);
+		}
+
+		@Override
+		public void execSQL(String sql) throws SQLException {
+			long t = System.nanoTime();
+			try { delegate.execSQL(sql); } finally { QueryStats.record(sql, System.nanoTime() - t); }
+		}
+
+		@Override
+		public void execSQL(String sql, Object[] bindArgs) throws SQLException {
+			long t = System.nanoTime();
+			try { delegate.execSQL(sql, bindArgs); } finally { QueryStats.record(sql, System.nanoTime() - t); }
+		}
+
+		@Override
+		public long insert(String table, int conflictAlgorithm, ContentValues values) throws SQLException {
+			long t = System.nanoTime();
+			try { return delegate.insert(table, conflictAlgorithm, values); } finally { QueryStats.record("INSERT INTO " + table, System.nanoTime() - t); }
+		}
+
+		@Override
+		public int delete(String table, String whereClause, Object[] whereArgs) {
+			long t = System.nanoTime();
+			try { return delegate.delete(table, whereClause, whereArgs); } finally { QueryStats.record("DELETE FROM " + table + " WHERE " + whereClause, System.nanoTime() - t); }
+		}
+
+		@Override
+		public int update(String table, int conflictAlgorithm, ContentValues values, String whereClause, Object[] whereArgs) {
+			long t = System.nanoTime();
+			try { return delegate.update(table, conflictAlgorithm, values, whereClause, whereArgs); } finally { QueryStats.record("UPDATE " + table + " WHERE " + whereClause, System.nanoTime() - t); }
+		}
+
+		@Override public void beginTransaction() { delegate.beginTransaction(); }
+		@Override public void beginTransactionNonExclusive() { delegate.beginTransactionNonExclusive(); }
+		@Override public void beginTransactionWithListener(SQLiteTransactionListener transactionListener) { delegate.beginTransactionWithListener(transactionListener); }
+		@Override public void beginTransactionWithListenerNonExclusive(SQLiteTransactionListener transactionListener) { delegate.beginTransactionWithListenerNonExclusive(transactionListener); }
+		@Override public void endTransaction() { delegate.endTransaction(); }
+		@Override public void setTransactionSuccessful() { delegate.setTransactionSuccessful(); }
+		@Override public boolean inTransaction() { return delegate.inTransaction(); }
+		@Override public boolean isDbLockedByCurrentThread() { return delegate.isDbLockedByCurrentThread(); }
+		@Override public boolean yieldIfContendedSafely() { return delegate.yieldIfContendedSafely(); }
+		@Override public boolean yieldIfContendedSafely(long sleepAfterYieldDelay) { return delegate.yieldIfContendedSafely(sleepAfterYieldDelay); }
+		@Override public int getVersion() { return delegate.getVersion(); }
+		@Override public void setVersion(int version) { delegate.setVersion(version); }
+		@Override public long getMaximumSize() { return delegate.getMaximumSize(); }
+		@Override public long setMaximumSize(long numBytes) { return delegate.setMaximumSize(numBytes); }
+		@Override public long getPageSize() { return delegate.getPageSize(); }
+		@Override public void setPageSize(long numBytes) { delegate.setPageSize(numBytes); }
+		@Override public boolean isReadOnly() { return delegate.isReadOnly(); }
+		@Override public boolean isOpen() { return delegate.isOpen(); }
+		@Override public boolean needUpgrade(int newVersion) { return delegate.needUpgrade(newVersion); }
+		@Override public String getPath() { return delegate.getPath(); }
+		@Override public void setLocale(Locale locale) { delegate.setLocale(locale); }
+		@Override public void setMaxSqlCacheSize(int cacheSize) { delegate.setMaxSqlCacheSize(cacheSize); }
+		@Override public void setForeignKeyConstraintsEnabled(boolean enable) { delegate.setForeignKeyConstraintsEnabled(enable); }
+		@Override public boolean enableWriteAheadLogging() { return delegate.enableWriteAheadLogging(); }
+		@Override public void disableWriteAheadLogging() { delegate.disableWriteAheadLogging(); }
+		@Override public boolean isWriteAheadLoggingEnabled() { return delegate.isWriteAheadLoggingEnabled(); }
+		@Override public List<Pair<String, String>> getAttachedDbs() { return delegate.getAttachedDbs(); }
+		@Override public boolean isDatabaseIntegrityOk() { return delegate.isDatabaseIntegrityOk(); }
+		@Override public void close() throws IOException { delegate.close(); }
+	}
+}
@@ -88,6 +88,9 @@ public final class LogRecorder {
 		recording.set(false);
 		try { if (worker != null) worker.interrupt(); } catch (Throwable ignore) {}
 		cleanupProcess();
+		// 附上本次进程内的数据库语句耗时直方图（worker 已停，直接追加到文件末尾）
+		try { if (worker != null) worker.join(200); } catch (Throwable ignore) {}
+		try { if (fos != null) fos.write(("\n" + QueryStats.dump()).getBytes()); } catch (Throwable ignore) {}
 		closeQuietly(fos);
 		fos = null;
 		File out = null;
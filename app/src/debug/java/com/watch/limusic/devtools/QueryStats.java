@@ -0,0 +1,90 @@
+package com.watch.limusic.devtools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 每条 SQL 的耗时直方图（桶按 2 的幂划分：<1ms、<2ms … <256ms、>=256ms）
+ * 由 DbInstrumentation 记录，LogRecorder 停止录制时写入日志
+ */
+public final class QueryStats {
+	private static final int BUCKETS = 10;
+	// IN (?,?,...) 的参数个数不同视为同一条语句
+	private static final Pattern BIND_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+	private static final Pattern SPACES = Pattern.compile("\\s+");
+	private static final Map<String, Entry> STATS = new ConcurrentHashMap<>();
+
+	private static final class Entry {
+		final long[] buckets = new long[BUCKETS];
+		long count;
+		long totalNanos;
+		long maxNanos;
+
+		synchronized void add(long nanos) {
+			long ms = nanos / 1_000_000L;
+			int b = 0;
+			while (b < BUCKETS - 1 && ms >= (1L << b)) b++;
+			buckets[b]++;
+			count++;
+			totalNanos += nanos;
+			if (nanos > maxNanos) maxNanos = nanos;
+		}
+
+		// 第 p 分位所在桶的上界（毫秒），最后一个桶返回 -1 表示 >=256ms
+		synchronized long percentileUpperMs(double p) {
+			long target = (long) Math.ceil(count * p);
+			long seen = 0;
+			for (int b = 0; b < BUCKETS; b++) {
+				seen += buckets[b];
+				if (seen >= target) return b == BUCKETS - 1 ? -1 : (1L << b);
+			}
+			return -1;
+		}
+	}
+
+	private QueryStats() {}
+
+	static void record(String sql, long nanos) {
+		if (sql == null) return;
+		String key = SPACES.matcher(BIND_LIST.matcher(sql.trim()).replaceAll("?…")).replaceAll(" ");
+		Entry e = STATS.get(key);
+		if (e == null) {
+			Entry created = new Entry();
+			e = STATS.putIfAbsent(key, created);
+			if (e == null) e = created;
+		}
+		e.add(nanos);
+	}
+
+	public static void reset() {
+		STATS.clear();
+	}
+
+	/**
+	 * 按累计耗时从高到低输出，每行一条语句
+	 */
+	public static String dump() {
+		List<Map.Entry<String, Entry>> list = new ArrayList<>(STATS.entrySet());
+		list.sort((a, b) -> Long.compare(b.getValue().totalNanos, a.getValue().totalNanos));
+		StringBuilder sb = new StringBuilder("==== 数据库语句耗时（").append(list.size()).append(" 条）====\n");
+		for (Map.Entry<String, Entry> me : list) {
+			Entry e = me.getValue();
+			synchronized (e) {
+				sb.append(String.format(Locale.US, "n=%d total=%.1fms avg=%.2fms max=%.1fms p50%s p95%s |",
+						e.count, e.totalNanos / 1e6, e.count > 0 ? e.totalNanos / 1e6 / e.count : 0d, e.maxNanos / 1e6,
+						bound(e.percentileUpperMs(0.5)), bound(e.percentileUpperMs(0.95))));
+				for (long c : e.buckets) sb.append(' ').append(c);
+				sb.append(" | ").append(me.getKey()).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String bound(long upperMs) {
+		return upperMs < 0 ? ">=256ms" : "<" + upperMs + "ms";
+	}
+}
@@ -88,7 +88,7 @@ public class GeneralSettingsActivity extends AppCompatActivity {
             Toast.makeText(this, isChecked ? "已开启低耗模式" : "已关闭低耗模式", Toast.LENGTH_SHORT).show();
             // 通知主界面刷新
             try { Intent i = new Intent("com.watch.limusic.UI_SETTINGS_CHANGED"); i.putExtra("what","low_power"); sendBroadcast(i);} catch (Exception ignore) {}
-            try { sendBroadcast(new Intent("com.watch.limusic.PLAYBACK_STATE_CHANGED")); } catch (Exception ignore) {}
+            try { com.watch.limusic.service.PlaybackStateStore.getInstance().notifyListeners(); } catch (Exception ignore) {}
         });
 
         // 卡片点击 → 触发 Switch 点击（扩大可点击区域）
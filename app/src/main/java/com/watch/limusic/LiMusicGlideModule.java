@@ -4,14 +4,25 @@ import android.content.Context;
 
 import androidx.annotation.NonNull;
 
+import com.bumptech.glide.Glide;
 import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
 import com.bumptech.glide.annotation.GlideModule;
 import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
 import com.bumptech.glide.module.AppGlideModule;
 import com.bumptech.glide.request.RequestOptions;
+import com.watch.limusic.cover.CoverArtLoader;
+import com.watch.limusic.cover.CoverArtRef;
+
+import java.io.InputStream;
 
 @GlideModule
 public final class LiMusicGlideModule extends AppGlideModule {
+	// 手表屏幕小、封面为 64/150/300 三档：磁盘缓存 32MB 足够覆盖整个曲库的常用档位
+	private static final long DISK_CACHE_BYTES = 32L * 1024 * 1024;
+
 	@Override
 	public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
 		RequestOptions defaults = new RequestOptions()
@@ -19,9 +30,18 @@ public final class LiMusicGlideModule extends AppGlideModule {
 				.disallowHardwareConfig()
 				.dontAnimate();
 		builder.setDefaultRequestOptions(defaults);
-		// 如需进一步限制线程并发，可在后续版本升级 Glide 后再开启自定义执行器
+		// 内存缓存与位图池按屏幕数计算（默认 2 屏 / 4 屏对手表偏大）：RGB_565 下约可容纳一屏半的列表封面
+		builder.setMemorySizeCalculator(new MemorySizeCalculator.Builder(context)
+				.setMemoryCacheScreens(1.5f)
+				.setBitmapPoolScreens(1f));
+		builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_BYTES));
+	}
+
+	@Override
+	public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+		registry.prepend(CoverArtRef.class, InputStream.class, new CoverArtLoader.Factory(context));
 	}
 
 	@Override
 	public boolean isManifestParsingEnabled() { return false; }
-} 
\ No newline at end of file
+}
@@ -74,30 +74,9 @@ public class LyricsController {
 		}
 	};
 
-	// 新增：监听播放状态/会话ID广播（用于控制可视化视图）
-	private final android.content.BroadcastReceiver playbackReceiver = new android.content.BroadcastReceiver() {
-		@Override public void onReceive(android.content.Context ctx, android.content.Intent intent) {
-			String act = intent.getAction();
-			if ("com.watch.limusic.PLAYBACK_STATE_CHANGED".equals(act)) {
-				boolean isPlaying = intent.getBooleanExtra("isPlaying", false);
-				if (visualizerView != null) visualizerView.setPlaying(isPlaying);
-				// PCM抽头已提供数据，不再绑定Visualizer会话
-			} else if ("com.watch.limusic.AUDIO_SESSION_CHANGED".equals(act)) {
-				// 忽略：避免在不支持的设备上反复尝试初始化Visualizer
-			}
-		}
-	};
-
-	// 新增：订阅PCM抽头广播
-	private final android.content.BroadcastReceiver levelsReceiver = new android.content.BroadcastReceiver() {
-		@Override public void onReceive(android.content.Context ctx, android.content.Intent intent) {
-			if (!"com.watch.limusic.AUDIO_LEVELS".equals(intent.getAction())) return;
-			if (visualizerView == null || !visualizerEnabled) return;
-			float[] levels = intent.getFloatArrayExtra("levels");
-			if (levels != null) {
-				try { visualizerView.setLevels(levels); } catch (Throwable ignore) {}
-			}
-		}
+	// 订阅进程内播放状态（用于控制可视化视图）；PCM抽头已提供数据，不再绑定Visualizer会话
+	private final com.watch.limusic.service.PlaybackStateStore.Listener playbackListener = snapshot -> {
+		if (visualizerView != null) visualizerView.setPlaying(snapshot.isPlaying);
 	};
 
 	public LyricsController(Context ctx, PlayerBridge player) {
@@ -105,13 +84,7 @@ public class LyricsController {
 		this.player = player;
 		this.repo = new LyricsRepository(ctx);
 		try { context.registerReceiver(uiReceiver, new android.content.IntentFilter("com.watch.limusic.UI_SETTINGS_CHANGED")); } catch (Exception ignore) {}
-		try {
-			android.content.IntentFilter f = new android.content.IntentFilter();
-			f.addAction("com.watch.limusic.PLAYBACK_STATE_CHANGED");
-			f.addAction("com.watch.limusic.AUDIO_SESSION_CHANGED");
-			context.registerReceiver(playbackReceiver, f);
-		} catch (Exception ignore) {}
-		try { context.registerReceiver(levelsReceiver, new android.content.IntentFilter("com.watch.limusic.AUDIO_LEVELS")); } catch (Exception ignore) {}
+		com.watch.limusic.service.PlaybackStateStore.getInstance().addListener(playbackListener);
 	}
 
 	public void setUiBridge(UiBridge bridge) { this.uiBridge = bridge; }
@@ -265,8 +238,16 @@ public class LyricsController {
 		}
 	}
 
-	public void pause() { paused = true; handler.removeCallbacks(tickRunnable); if (visualizerView != null) visualizerView.setVisibleOnPage(false); try { context.unregisterReceiver(levelsReceiver); } catch (Exception ignore) {} }
-	public void resume() { paused = false; onPlaybackTick(); if (visualizerView != null) visualizerView.setVisibleOnPage(true); refreshVisualizerSettings(); try { context.registerReceiver(levelsReceiver, new android.content.IntentFilter("com.watch.limusic.AUDIO_LEVELS")); } catch (Exception ignore) {} }
+	// 宿主销毁时调用：注销设置广播并从进程级 PlaybackStateStore 移除监听，避免单例持有已销毁页面的视图
+	public void release() {
+		paused = true;
+		handler.removeCallbacks(tickRunnable);
+		try { context.unregisterReceiver(uiReceiver); } catch (Exception ignore) {}
+		com.watch.limusic.service.PlaybackStateStore.getInstance().removeListener(playbackListener);
+	}
+
+	public void pause() { paused = true; handler.removeCallbacks(tickRunnable); if (visualizerView != null) visualizerView.setVisibleOnPage(false); }
+	public void resume() { paused = false; onPlaybackTick(); if (visualizerView != null) visualizerView.setVisibleOnPage(true); refreshVisualizerSettings(); }
 
 	public void onPlaybackTick() { scheduleNextTick(); }
 
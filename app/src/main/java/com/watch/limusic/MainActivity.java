@@ -40,9 +40,9 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.request.RequestOptions;
-import com.bumptech.glide.signature.ObjectKey;
 import com.watch.limusic.adapter.SongAdapter;
 import com.watch.limusic.model.Song;
+import com.watch.limusic.service.PlaybackStateStore;
 import com.watch.limusic.service.PlayerService;
 import com.watch.limusic.api.NavidromeApi;
 import com.watch.limusic.api.SubsonicResponse;
@@ -147,7 +147,13 @@ public class MainActivity extends AppCompatActivity
     private int searchOffset = 0;
     private boolean searchLoading = false;
     private boolean searchHasMore = true;
-    private int searchRequestId = 0;
+    private volatile int searchRequestId = 0;
+    // 搜索单线程执行：新关键词会取消尚未开始的旧查询，已在执行的旧查询结果按 searchRequestId 丢弃
+    private final java.util.concurrent.ExecutorService searchExecutor = java.util.concurrent.Executors.newSingleThreadExecutor();
+    private java.util.concurrent.Future<?> searchFuture;
+    // 兜底歌曲缓存（见 getFallbackSong），仅在主线程读写
+    private String fallbackSongId;
+    private com.watch.limusic.database.SongEntity fallbackSong;
     private final android.os.Handler searchHandler = new android.os.Handler(android.os.Looper.getMainLooper());
     private final Runnable searchDebounce = new Runnable() {
         @Override public void run() { try { startSearch(true); } catch (Exception ignore) {} }
@@ -276,49 +282,7 @@ public class MainActivity extends AppCompatActivity
                     pendingDbUpdate = true;
                     return;
                 }
-                RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
-                if (adapter instanceof com.watch.limusic.adapter.AllSongsRangeAdapter) {
-                    int total = musicRepository.getSongCount();
-                    java.util.Map<String, Integer> letterOffsets = musicRepository.getLetterOffsetMap();
-                    com.watch.limusic.adapter.AllSongsRangeAdapter range = (com.watch.limusic.adapter.AllSongsRangeAdapter) adapter;
-                    // 若总数变化，采用差量更新避免全量闪烁
-                    int oldTotal = range.getTotalCount();
-                    if (total != oldTotal) {
-                        // 刷新前记录位置与偏移
-                        int firstPos = 0; int firstOffset = 0;
-                        try {
-                            if (recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager) {
-                                androidx.recyclerview.widget.LinearLayoutManager lm = (androidx.recyclerview.widget.LinearLayoutManager) recyclerView.getLayoutManager();
-                                firstPos = lm.findFirstVisibleItemPosition();
-                                android.view.View v = lm.findViewByPosition(firstPos);
-                                firstOffset = v != null ? v.getTop() : 0;
-                            }
-                        } catch (Exception ignore) {}
-                        range.applyTotalCountAndDiff(total);
-                        range.setLetterOffsetMap(letterOffsets);
-                        // 恢复位置
-                        try {
-                            if (recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager) {
-                                ((androidx.recyclerview.widget.LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(Math.max(0, firstPos), firstOffset);
-                            }
-                        } catch (Exception ignore) {}
-                    } else {
-                        range.setLetterOffsetMap(letterOffsets);
-                    }
-                    // 若存在待跳转的字母，入库完成后立即纠正到该字母首项并预取三页
-                    if ("songs".equals(currentView) && pendingJumpLetter != null) {
-                        Integer pos = letterOffsets.get(pendingJumpLetter);
-                        if (pos != null && pos >= 0 && pos < total) {
-                            if (recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager) {
-                                ((androidx.recyclerview.widget.LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(pos, 0);
-                            } else {
-                                recyclerView.scrollToPosition(pos);
-                            }
-                            range.prefetchAround(pos);
-                        }
-                        pendingJumpLetter = null;
-                    }
-                }
+                refreshAllSongsRangeFromDb(true);
             } catch (Exception e) {
                 Log.w(TAG, "刷新所有歌曲范围适配器失败: " + e.getMessage());
             }
@@ -404,234 +368,233 @@ public class MainActivity extends AppCompatActivity
         }
     };
 
-    private BroadcastReceiver playbackStateReceiver = new BroadcastReceiver() {
-        // 添加一个变量来控制进度条更新频率
-        private long lastProgressUpdateTime = 0;
-        private static final long PROGRESS_UPDATE_INTERVAL = 500; // 毫秒
-
+    // 播放状态：订阅进程内 PlaybackStateStore，进度由本地节拍按 (position, timestamp, speed) 外推
+    private final PlaybackStateStore.Listener playbackStateListener = snapshot -> {
+        renderPlaybackState(snapshot);
+        scheduleProgressTick(snapshot.isPlaying);
+    };
+    private final android.os.Handler progressHandler = new android.os.Handler(android.os.Looper.getMainLooper());
+    private long progressTickIntervalMs = 500;
+    private final Runnable progressTicker = new Runnable() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            if (intent.getAction().equals("com.watch.limusic.PLAYBACK_STATE_CHANGED")) {
-                long position = intent.getLongExtra("position", 0);
-                long duration = intent.getLongExtra("duration", 0);
-                boolean durationUnset = (duration <= 0) || (duration == com.google.android.exoplayer2.C.TIME_UNSET);
-                boolean isPlaying = intent.getBooleanExtra("isPlaying", false);
-                int mode = intent.getIntExtra("playbackMode", PlayerService.PLAYBACK_MODE_REPEAT_ALL);
-                String title = intent.getStringExtra("title");
-                String artist = intent.getStringExtra("artist");
-                String albumId = intent.getStringExtra("albumId");
-                String songIdFromSvc = intent.getStringExtra("songId");
-                long fallbackDurationMs = intent.getLongExtra("fallbackDurationMs", 0L);
-                boolean isSeekable = intent.getBooleanExtra("isSeekable", false);
-                String audioType = intent.getStringExtra("audioType");
-                lastAudioType = audioType;
-                lastIsSeekable = isSeekable;
-                lastDurationUnset = durationUnset;
-                if (songIdFromSvc != null && !songIdFromSvc.equals(lastSongIdFromBroadcast)) {
-                    lastSongIdFromBroadcast = songIdFromSvc;
-                    // 曲目变更时清空跨曲目的待提交seek
-                    pendingSeekMs = -1;
-                    pendingSeekSongId = null;
-                }
-                
-                // 更新播放/暂停按钮
-                playPauseButton.setImageResource(isPlaying ? R.drawable.ic_pause : R.drawable.ic_play);
-                
-                // 更新歌曲信息（只有当标题真正变化时才更新，避免重置滚动）
-                if (title != null && !title.equals(songTitle.getText().toString())) {
-                    songTitle.setText(title);
-                    // 重新设置滚动属性
-                    songTitle.setSelected(true);
-                }
-                if (artist != null) songArtist.setText(artist);
-                // 全屏播放器：同步标题/艺术家并保持标题走马灯
-                if (isFullPlayerVisible) {
-                    if (fullSongTitle != null && title != null && !title.equals(fullSongTitle.getText() != null ? fullSongTitle.getText().toString() : "")) {
-                        fullSongTitle.setText(title);
-                        try { fullSongTitle.setSelected(true); } catch (Exception ignore) {}
-                    }
-                    if (fullSongArtist != null && artist != null && !userIsSeeking) {
-                        fullSongArtist.setText(artist);
-                    }
-                }
-                
-                // 计算可用的时长：优先用 Exo 的 duration，若无则用服务端提供的 fallback，再不行保持为0（显示 --:--）
-                long effectiveDuration = (!durationUnset && duration > 0) ? duration : (fallbackDurationMs > 0 ? fallbackDurationMs : 0);
+        public void run() {
+            PlaybackStateStore.Snapshot s = PlaybackStateStore.getInstance().current();
+            renderPlaybackState(s);
+            if (s.isPlaying) progressHandler.postDelayed(this, progressTickIntervalMs);
+        }
+    };
 
-                // 曲目切换或时长未知时的保护：避免残留上一首的末尾进度
-                boolean isDurationUnknown = effectiveDuration <= 0;
-                boolean titleChanged = title != null && !title.equals(songTitle.getText() != null ? songTitle.getText().toString() : "");
-                if (isDurationUnknown || titleChanged) {
-                    try {
-                        seekBar.setMax((int) Math.max(0, effectiveDuration));
-                        seekBar.setProgress(0);
-                        progressBar.setMax((int) Math.max(0, effectiveDuration));
-                        progressBar.setProgress(0);
-                        progressBar.setVisibility(View.VISIBLE);
-                        progressBar.invalidate();
-                        // 时间显示：未知总时长时显示 00:00 / --:--
-                        if (timeDisplay != null) {
-                            if (effectiveDuration > 0) {
-                                updateTimeDisplay(0, effectiveDuration);
-                            } else {
-                                timeDisplay.setText("00:00 / --:--");
-                            }
-                        }
-                    } catch (Exception ignore) {}
-                }
+    private void scheduleProgressTick(boolean playing) {
+        progressHandler.removeCallbacks(progressTicker);
+        if (playing) progressHandler.postDelayed(progressTicker, progressTickIntervalMs);
+    }
 
-                // 优化进度条更新：只有在不拖动且满足更新间隔时才更新进度条
-                long currentTime = System.currentTimeMillis();
-                if (!userIsSeeking && currentTime - lastProgressUpdateTime >= PROGRESS_UPDATE_INTERVAL) {
-                    lastProgressUpdateTime = currentTime;
-                    if (!suppressProgressFromBroadcast || currentTime > suppressUntilMs) {
-                        suppressProgressFromBroadcast = false;
-                        if (seekBar != null && effectiveDuration > 0) {
-                    seekBar.setMax((int) effectiveDuration);
-                        seekBar.setProgress((int) position);
-                        }
-                        if (progressBar != null && effectiveDuration > 0) {
-                            progressBar.setMax((int) effectiveDuration);
-                        progressBar.setProgress((int) position);
-                        }
-                        if (isFullPlayerVisible && !userIsSeeking && effectiveDuration > 0) {
-                        if (fullSeekBar != null) fullSeekBar.setProgress((int) position);
-                        if (fullProgress != null) fullProgress.setProgress((int) position);
-                        }
-                    }
-                    if (timeDisplay != null && effectiveDuration > 0) {
-                        updateTimeDisplay(position, effectiveDuration);
+    // 控制进度条更新频率
+    private long lastProgressUpdateTime = 0;
+    private static final long PROGRESS_UPDATE_INTERVAL = 500; // 毫秒
+
+    private void renderPlaybackState(PlaybackStateStore.Snapshot snapshot) {
+        if (snapshot == null || snapshot.isEmpty()) return;
+        long position = snapshot.estimatePositionMs();
+        long duration = snapshot.durationMs;
+        boolean durationUnset = snapshot.durationUnset || (duration <= 0) || (duration == com.google.android.exoplayer2.C.TIME_UNSET);
+        boolean isPlaying = snapshot.isPlaying;
+        int mode = snapshot.playbackMode;
+        String title = snapshot.title;
+        String artist = snapshot.artist;
+        String albumId = snapshot.albumId;
+        String songIdFromSvc = snapshot.songId;
+        long fallbackDurationMs = snapshot.fallbackDurationMs;
+        boolean isSeekable = snapshot.isSeekable;
+        String audioType = snapshot.audioType;
+        lastAudioType = audioType;
+        lastIsSeekable = isSeekable;
+        lastDurationUnset = durationUnset;
+        if (songIdFromSvc != null && !songIdFromSvc.equals(lastSongIdFromBroadcast)) {
+            lastSongIdFromBroadcast = songIdFromSvc;
+            // 曲目变更时清空跨曲目的待提交seek
+            pendingSeekMs = -1;
+            pendingSeekSongId = null;
+        }
+        
+        // 更新播放/暂停按钮
+        playPauseButton.setImageResource(isPlaying ? R.drawable.ic_pause : R.drawable.ic_play);
+        
+        // 更新歌曲信息（只有当标题真正变化时才更新，避免重置滚动）
+        if (title != null && !title.equals(songTitle.getText().toString())) {
+            songTitle.setText(title);
+            // 重新设置滚动属性
+            songTitle.setSelected(true);
+        }
+        if (artist != null) songArtist.setText(artist);
+        // 全屏播放器：同步标题/艺术家并保持标题走马灯
+        if (isFullPlayerVisible) {
+            if (fullSongTitle != null && title != null && !title.equals(fullSongTitle.getText() != null ? fullSongTitle.getText().toString() : "")) {
+                fullSongTitle.setText(title);
+                try { fullSongTitle.setSelected(true); } catch (Exception ignore) {}
+            }
+            if (fullSongArtist != null && artist != null && !userIsSeeking) {
+                fullSongArtist.setText(artist);
+            }
+        }
+        
+        // 计算可用的时长：优先用 Exo 的 duration，若无则用服务端提供的 fallback，再不行保持为0（显示 --:--）
+        long effectiveDuration = (!durationUnset && duration > 0) ? duration : (fallbackDurationMs > 0 ? fallbackDurationMs : 0);
+
+        // 曲目切换或时长未知时的保护：避免残留上一首的末尾进度
+        boolean isDurationUnknown = effectiveDuration <= 0;
+        boolean titleChanged = title != null && !title.equals(songTitle.getText() != null ? songTitle.getText().toString() : "");
+        if (isDurationUnknown || titleChanged) {
+            try {
+                seekBar.setMax((int) Math.max(0, effectiveDuration));
+                seekBar.setProgress(0);
+                progressBar.setMax((int) Math.max(0, effectiveDuration));
+                progressBar.setProgress(0);
+                progressBar.setVisibility(View.VISIBLE);
+                progressBar.invalidate();
+                // 时间显示：未知总时长时显示 00:00 / --:--
+                if (timeDisplay != null) {
+                    if (effectiveDuration > 0) {
+                        updateTimeDisplay(0, effectiveDuration);
+                    } else {
+                        timeDisplay.setText("00:00 / --:--");
                     }
                 }
+            } catch (Exception ignore) {}
+        }
 
-                // 歌曲切换时刷新歌词数据
-                if (songIdFromSvc != null) {
-                    try {
-                        SharedPreferences sp2 = getSharedPreferences("player_prefs", MODE_PRIVATE);
-                        String lastSid = sp2.getString("last_song_id_for_lyrics", null);
-                        if (!songIdFromSvc.equals(lastSid)) {
-                            sp2.edit().putString("last_song_id_for_lyrics", songIdFromSvc).apply();
-                            if (lyricsController != null) {
-                                lyricsController.loadLyricsIfNeeded();
-                            }
-                        }
-                    } catch (Exception ignore) {}
+        // 优化进度条更新：只有在不拖动且满足更新间隔时才更新进度条
+        long currentTime = System.currentTimeMillis();
+        if (!userIsSeeking && currentTime - lastProgressUpdateTime >= PROGRESS_UPDATE_INTERVAL) {
+            lastProgressUpdateTime = currentTime;
+            if (!suppressProgressFromBroadcast || currentTime > suppressUntilMs) {
+                suppressProgressFromBroadcast = false;
+                if (seekBar != null && effectiveDuration > 0) {
+            seekBar.setMax((int) effectiveDuration);
+                seekBar.setProgress((int) position);
                 }
-
-                // 触发一次歌词tick（仅换行刷新）
-                if (lyricsController != null) {
-                    lyricsController.onPlaybackTick();
+                if (progressBar != null && effectiveDuration > 0) {
+                    progressBar.setMax((int) effectiveDuration);
+                progressBar.setProgress((int) position);
                 }
-
-                // 分发"当前播放"状态给当前列表适配器
-                try {
-                    RecyclerView.Adapter<?> adapter = recyclerView != null ? recyclerView.getAdapter() : null;
-                    if (adapter instanceof com.watch.limusic.adapter.AllSongsRangeAdapter) {
-                        ((com.watch.limusic.adapter.AllSongsRangeAdapter) adapter).setCurrentPlaying(songIdFromSvc, isPlaying);
-                        updateLocateButtonVisibility(songIdFromSvc);
-                    } else if (songAdapter != null && adapter == songAdapter) {
-                        songAdapter.setCurrentPlaying(songIdFromSvc, isPlaying);
-                        updateLocateButtonVisibility(songIdFromSvc);
-                    } else if ("downloads".equals(currentView) && downloadedSongAdapter != null) {
-                        downloadedSongAdapter.setCurrentPlaying(songIdFromSvc, isPlaying);
-                        updateLocateButtonVisibility(songIdFromSvc);
-                    }
-                } catch (Exception ignore) {}
-                
-                // 更新播放模式按钮
-                updatePlaybackModeButton();
-
-                // 若全屏播放器可见，同步刷新其UI与背景（当 songId 变化）
-                if (isFullPlayerVisible && fullPlayerOverlay != null) {
-                    if (btnPlayPauseFull != null) {
-                        btnPlayPauseFull.setImageResource(isPlaying ? R.drawable.ic_pause_rounded : R.drawable.ic_play_rounded);
-                    }
-                    // 音频类型徽标显示（广播未携带时尝试主动查询）
-                    try {
-                        boolean show = getSharedPreferences("player_prefs", MODE_PRIVATE).getBoolean("show_audio_type_badge", true);
-                        if (fullAudioBadge != null) {
-                            String badge = audioType;
-                            if ((badge == null || badge.isEmpty())) {
-                                badge = safeGetAudioType();
-                            }
-                            if (show && badge != null && !badge.isEmpty()) {
-                                fullAudioBadge.setText(badge);
-                                fullAudioBadge.setVisibility(View.VISIBLE);
-                            } else {
-                                fullAudioBadge.setVisibility(View.GONE);
-                            }
-                        }
-                    } catch (Exception ignore) {}
-                    if (effectiveDuration > 0) {
-                        if (fullSeekBar != null) fullSeekBar.setMax((int) effectiveDuration);
-                        if (fullProgress != null) fullProgress.setMax((int) effectiveDuration);
-                        if (!userIsSeeking && (currentTime - lastProgressUpdateTime > PROGRESS_UPDATE_INTERVAL || position == 0)) {
-                            if (fullSeekBar != null) fullSeekBar.setProgress((int) position);
-                            if (fullProgress != null) fullProgress.setProgress((int) position);
-                        }
-                    }
-                    // 若之前在时长未知时记录了待执行的 seek，且现在时长可用，则立即执行一次
-                    if (pendingSeekMs >= 0 && effectiveDuration > 0 && bound && playerService != null && isSeekable && !durationUnset) {
-                        int ps = pendingSeekMs;
-                        pendingSeekMs = -1;
-                        try { playerService.seekTo(Math.min(ps, (int) effectiveDuration)); } catch (Exception ignore) {}
-                    }
-                    updateFullPlaybackModeButton();
-                    // 背景：若歌曲变更则刷新
-                    if (songIdFromSvc != null && !songIdFromSvc.equals(lastBgSongId)) {
-                        lastBgSongId = songIdFromSvc;
-                        try { applyFullPlayerBackground(); } catch (Exception ignore) {}
-                    }
+                if (isFullPlayerVisible && !userIsSeeking && effectiveDuration > 0) {
+                if (fullSeekBar != null) fullSeekBar.setProgress((int) position);
+                if (fullProgress != null) fullProgress.setProgress((int) position);
                 }
-                // 全局：仅当待提交seek绑定的歌曲ID与当前广播的songId一致时，才执行延后seek
-                if (pendingSeekMs >= 0 && effectiveDuration > 0 && bound && playerService != null && isSeekable && !durationUnset) {
-                    boolean sameSong = (pendingSeekSongId != null && pendingSeekSongId.equals(songIdFromSvc));
-                    if (sameSong) {
-                        int ps2 = pendingSeekMs;
-                        pendingSeekMs = -1;
-                        pendingSeekSongId = null;
-                        try { playerService.seekTo(Math.min(ps2, (int) effectiveDuration)); } catch (Exception ignore) {}
+            }
+            if (timeDisplay != null && effectiveDuration > 0) {
+                updateTimeDisplay(position, effectiveDuration);
+            }
+        }
+
+        // 歌曲切换时刷新歌词数据
+        if (songIdFromSvc != null) {
+            try {
+                SharedPreferences sp2 = getSharedPreferences("player_prefs", MODE_PRIVATE);
+                String lastSid = sp2.getString("last_song_id_for_lyrics", null);
+                if (!songIdFromSvc.equals(lastSid)) {
+                    sp2.edit().putString("last_song_id_for_lyrics", songIdFromSvc).apply();
+                    if (lyricsController != null) {
+                        lyricsController.loadLyricsIfNeeded();
                     }
                 }
+            } catch (Exception ignore) {}
+        }
 
-                // 更新专辑封面与全屏播放器背景（基于albumId或songId变化）
-                if (albumId != null && !albumId.isEmpty() && !albumId.equals(lastAlbumId)) {
-                    lastAlbumId = albumId;
-                    String coverArtUrl;
-                    String localCover = MainActivity.this.localFileDetector.getDownloadedAlbumCoverPath(albumId);
-                    if (localCover != null) {
-                        coverArtUrl = "file://" + localCover;
-                    } else {
-                        coverArtUrl = NavidromeApi.getInstance(context).getCoverArtUrl(albumId);
+        // 触发一次歌词tick（仅换行刷新）
+        if (lyricsController != null) {
+            lyricsController.onPlaybackTick();
+        }
+
+        // 分发"当前播放"状态给当前列表适配器
+        try {
+            RecyclerView.Adapter<?> adapter = recyclerView != null ? recyclerView.getAdapter() : null;
+            if (adapter instanceof com.watch.limusic.adapter.AllSongsRangeAdapter) {
+                ((com.watch.limusic.adapter.AllSongsRangeAdapter) adapter).setCurrentPlaying(songIdFromSvc, isPlaying);
+                updateLocateButtonVisibility(songIdFromSvc);
+            } else if (songAdapter != null && adapter == songAdapter) {
+                songAdapter.setCurrentPlaying(songIdFromSvc, isPlaying);
+                updateLocateButtonVisibility(songIdFromSvc);
+            } else if ("downloads".equals(currentView) && downloadedSongAdapter != null) {
+                downloadedSongAdapter.setCurrentPlaying(songIdFromSvc, isPlaying);
+                updateLocateButtonVisibility(songIdFromSvc);
+            }
+        } catch (Exception ignore) {}
+        
+        // 更新播放模式按钮
+        updatePlaybackModeButton();
+
+        // 若全屏播放器可见，同步刷新其UI与背景（当 songId 变化）
+        if (isFullPlayerVisible && fullPlayerOverlay != null) {
+            if (btnPlayPauseFull != null) {
+                btnPlayPauseFull.setImageResource(isPlaying ? R.drawable.ic_pause_rounded : R.drawable.ic_play_rounded);
+            }
+            // 音频类型徽标显示（广播未携带时尝试主动查询）
+            try {
+                boolean show = getSharedPreferences("player_prefs", MODE_PRIVATE).getBoolean("show_audio_type_badge", true);
+                if (fullAudioBadge != null) {
+                    String badge = audioType;
+                    if ((badge == null || badge.isEmpty())) {
+                        badge = safeGetAudioType();
                     }
-                    boolean isLocal = coverArtUrl.startsWith("file://");
-                    if (isLocal) {
-                        Glide.with(context)
-                            .load(coverArtUrl)
-                            .override(150, 150)
-                            .placeholder(R.drawable.default_album_art)
-                            .error(R.drawable.default_album_art)
-                            .diskCacheStrategy(DiskCacheStrategy.NONE)
-                            .into(albumArt);
+                    if (show && badge != null && !badge.isEmpty()) {
+                        fullAudioBadge.setText(badge);
+                        fullAudioBadge.setVisibility(View.VISIBLE);
                     } else {
-                        Glide.with(context)
-                            .load(coverArtUrl)
-                            .override(150, 150)
-                            .placeholder(R.drawable.default_album_art)
-                            .error(R.drawable.default_album_art)
-                            .signature(new ObjectKey(albumId))
-                            .diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
-                            .into(albumArt);
-                    }
-                    // songId 或 albumId 变化时，立即刷新全屏播放器背景
-                    if (isFullPlayerVisible && (songIdFromSvc != null && !songIdFromSvc.equals(lastBgSongId))) {
-                        lastBgSongId = songIdFromSvc;
-                        try { applyFullPlayerBackground(); } catch (Exception ignore) {}
+                        fullAudioBadge.setVisibility(View.GONE);
                     }
                 }
+            } catch (Exception ignore) {}
+            if (effectiveDuration > 0) {
+                if (fullSeekBar != null) fullSeekBar.setMax((int) effectiveDuration);
+                if (fullProgress != null) fullProgress.setMax((int) effectiveDuration);
+                if (!userIsSeeking && (currentTime - lastProgressUpdateTime > PROGRESS_UPDATE_INTERVAL || position == 0)) {
+                    if (fullSeekBar != null) fullSeekBar.setProgress((int) position);
+                    if (fullProgress != null) fullProgress.setProgress((int) position);
+                }
+            }
+            // 若之前在时长未知时记录了待执行的 seek，且现在时长可用，则立即执行一次
+            if (pendingSeekMs >= 0 && effectiveDuration > 0 && bound && playerService != null && isSeekable && !durationUnset) {
+                int ps = pendingSeekMs;
+                pendingSeekMs = -1;
+                try { playerService.seekTo(Math.min(ps, (int) effectiveDuration)); } catch (Exception ignore) {}
+            }
+            updateFullPlaybackModeButton();
+            // 背景：若歌曲变更则刷新
+            if (songIdFromSvc != null && !songIdFromSvc.equals(lastBgSongId)) {
+                lastBgSongId = songIdFromSvc;
+                try { applyFullPlayerBackground(); } catch (Exception ignore) {}
             }
         }
-    };
+        // 全局：仅当待提交seek绑定的歌曲ID与当前广播的songId一致时，才执行延后seek
+        if (pendingSeekMs >= 0 && effectiveDuration > 0 && bound && playerService != null && isSeekable && !durationUnset) {
+            boolean sameSong = (pendingSeekSongId != null && pendingSeekSongId.equals(songIdFromSvc));
+            if (sameSong) {
+                int ps2 = pendingSeekMs;
+                pendingSeekMs = -1;
+                pendingSeekSongId = null;
+                try { playerService.seekTo(Math.min(ps2, (int) effectiveDuration)); } catch (Exception ignore) {}
+            }
+        }
+
+        // 更新专辑封面与全屏播放器背景（基于albumId或songId变化）
+        if (albumId != null && !albumId.isEmpty() && !albumId.equals(lastAlbumId)) {
+            lastAlbumId = albumId;
+            // 本地封面优先（由 CoverArtLoader 在后台判断），否则取 150 档网络封面
+            Glide.with(MainActivity.this)
+                .load(com.watch.limusic.cover.CoverArtRef.of(albumId, albumId, 150))
+                .override(150, 150)
+                .placeholder(R.drawable.default_album_art)
+                .error(R.drawable.default_album_art)
+                .diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
+                .into(albumArt);
+            // songId 或 albumId 变化时，立即刷新全屏播放器背景
+            if (isFullPlayerVisible && (songIdFromSvc != null && !songIdFromSvc.equals(lastBgSongId))) {
+                lastBgSongId = songIdFromSvc;
+                try { applyFullPlayerBackground(); } catch (Exception ignore) {}
+            }
+        }
+    }
 
     private com.watch.limusic.adapter.PlaylistAdapter playlistAdapter;
     private com.watch.limusic.repository.PlaylistRepository playlistRepository;
@@ -859,48 +822,10 @@ public class MainActivity extends AppCompatActivity
                 com.watch.limusic.adapter.AllSongsRangeAdapter ra = (com.watch.limusic.adapter.AllSongsRangeAdapter) adapter;
                 targetPos = ra.getPositionBySongId(sid);
                 if (targetPos < 0) {
-                    // 使用数据库精确计算全局索引，避免偏差
-                    int approx = -1;
-                    try {
-                        com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(this).songDao().getSongById(sid);
-                        if (se != null) {
-                            String title = se.getTitle() != null ? se.getTitle() : "";
-                            String ini = se.getInitial();
-                            if (ini == null || ini.isEmpty()) {
-                                try { ini = com.watch.limusic.util.PinyinUtil.getFirstLetter(title); } catch (Exception ignore) {}
-                            }
-                            int cat = 2;
-                            if ("#".equals(ini)) cat = 0; else if (ini.length() == 1 && Character.isDigit(ini.charAt(0))) cat = 1;
-                            approx = com.watch.limusic.database.MusicDatabase.getInstance(this).songDao().getGlobalIndex(cat, ini, title);
-                        }
-                    } catch (Exception ignore) {}
-                    if (approx < 0) {
-                        // 回退：以当前可见作为锚点
-                        try {
-                            int anchor = 0;
-                            if (recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager) {
-                                anchor = ((androidx.recyclerview.widget.LinearLayoutManager) recyclerView.getLayoutManager()).findFirstVisibleItemPosition();
-                            }
-                            approx = Math.max(0, anchor);
-                        } catch (Exception ignore) { approx = 0; }
-                    }
-                    try { ra.prefetchAround(approx); } catch (Exception ignore) {}
-                    try { smoothCenterTo(approx); } catch (Exception ignore) {}
-                    final String finalSid = sid;
-                    // 连续两次检查，加载到后立即居中
-                    recyclerView.postDelayed(() -> {
-                        int pos2 = ra.getPositionBySongId(finalSid);
-                        if (pos2 >= 0) { smoothCenterTo(pos2); return; }
-                        recyclerView.postDelayed(() -> {
-                            int pos3 = ra.getPositionBySongId(finalSid);
-                            if (pos3 >= 0) { smoothCenterTo(pos3); return; }
-                            // 第三次兜底检查
-                            recyclerView.postDelayed(() -> {
-                                int pos4 = ra.getPositionBySongId(finalSid);
-                                if (pos4 >= 0) smoothCenterTo(pos4);
-                            }, 320);
-                        }, 260);
-                    }, 160);
+                    // 使用数据库精确计算全局索引，避免偏差（后台读库，回到主线程定位）
+                    final String querySid = sid;
+                    dbRead(() -> musicRepository.getGlobalIndexOfSong(querySid),
+                            index -> locateInAllSongs(ra, querySid, index != null ? index : -1));
                     return;
                 }
             } else if (songAdapter != null) {
@@ -913,6 +838,136 @@ public class MainActivity extends AppCompatActivity
         } catch (Exception ignore) {}
     }
 
+    // "所有歌曲"中目标尚未加载：按全局索引预取并居中，加载到后再精确居中
+    private void locateInAllSongs(com.watch.limusic.adapter.AllSongsRangeAdapter ra, String sid, int approx) {
+        if (recyclerView.getAdapter() != ra) return; // 读库期间已切换视图
+        if (approx < 0) {
+            // 回退：以当前可见作为锚点
+            try {
+                int anchor = 0;
+                if (recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager) {
+                    anchor = ((androidx.recyclerview.widget.LinearLayoutManager) recyclerView.getLayoutManager()).findFirstVisibleItemPosition();
+                }
+                approx = Math.max(0, anchor);
+            } catch (Exception ignore) { approx = 0; }
+        }
+        try { ra.prefetchAround(approx); } catch (Exception ignore) {}
+        try { smoothCenterTo(approx); } catch (Exception ignore) {}
+        final String finalSid = sid;
+        // 连续两次检查，加载到后立即居中
+        recyclerView.postDelayed(() -> {
+            int pos2 = ra.getPositionBySongId(finalSid);
+            if (pos2 >= 0) { smoothCenterTo(pos2); return; }
+            recyclerView.postDelayed(() -> {
+                int pos3 = ra.getPositionBySongId(finalSid);
+                if (pos3 >= 0) { smoothCenterTo(pos3); return; }
+                // 第三次兜底检查
+                recyclerView.postDelayed(() -> {
+                    int pos4 = ra.getPositionBySongId(finalSid);
+                    if (pos4 >= 0) smoothCenterTo(pos4);
+                }, 320);
+            }, 260);
+        }, 160);
+    }
+
+    // 按库中最新总数与字母偏移刷新"所有歌曲"范围适配器：后台读库，回到主线程时适配器已切换则丢弃
+    private void refreshAllSongsRangeFromDb(boolean applyPendingJump) {
+        RecyclerView.Adapter<?> adapter = recyclerView != null ? recyclerView.getAdapter() : null;
+        if (!(adapter instanceof com.watch.limusic.adapter.AllSongsRangeAdapter)) return;
+        final com.watch.limusic.adapter.AllSongsRangeAdapter range = (com.watch.limusic.adapter.AllSongsRangeAdapter) adapter;
+        dbRead(() -> new android.util.Pair<>(musicRepository.getSongCount(), musicRepository.getLetterOffsetMap()), r -> {
+            if (r == null || recyclerView.getAdapter() != range) return;
+            int total = r.first;
+            java.util.Map<String, Integer> letterOffsets = r.second;
+            // 若总数变化，采用差量更新避免全量闪烁
+            int oldTotal = range.getTotalCount();
+            if (total != oldTotal) {
+                // 刷新前记录位置与偏移
+                int firstPos = 0; int firstOffset = 0;
+                try {
+                    if (recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager) {
+                        androidx.recyclerview.widget.LinearLayoutManager lm = (androidx.recyclerview.widget.LinearLayoutManager) recyclerView.getLayoutManager();
+                        firstPos = lm.findFirstVisibleItemPosition();
+                        android.view.View v = lm.findViewByPosition(firstPos);
+                        firstOffset = v != null ? v.getTop() : 0;
+                    }
+                } catch (Exception ignore) {}
+                range.applyTotalCountAndDiff(total);
+                range.setLetterOffsetMap(letterOffsets);
+                // 恢复位置
+                try {
+                    if (recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager) {
+                        ((androidx.recyclerview.widget.LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(Math.max(0, firstPos), firstOffset);
+                    }
+                } catch (Exception ignore) {}
+            } else {
+                range.setLetterOffsetMap(letterOffsets);
+            }
+            // 若存在待跳转的字母，入库完成后立即纠正到该字母首项并预取三页
+            if (applyPendingJump && "songs".equals(currentView) && pendingJumpLetter != null) {
+                Integer pos = letterOffsets.get(pendingJumpLetter);
+                if (pos != null && pos >= 0 && pos < total) {
+                    if (recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager) {
+                        ((androidx.recyclerview.widget.LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(pos, 0);
+                    } else {
+                        recyclerView.scrollToPosition(pos);
+                    }
+                    range.prefetchAround(pos);
+                }
+                pendingJumpLetter = null;
+            }
+        });
+    }
+
+    // 服务尚未给出当前歌曲信息时的兜底（时长/封面）：按上次歌曲 ID 后台读库并缓存，主线程只读缓存；
+    // 首次读取返回 null，读到后执行 onLoaded 刷新界面
+    private com.watch.limusic.database.SongEntity getFallbackSong(String sid, Runnable onLoaded) {
+        if (sid == null) return null;
+        if (sid.equals(fallbackSongId)) return fallbackSong;
+        fallbackSongId = sid;
+        fallbackSong = null;
+        dbRead(() -> com.watch.limusic.database.MusicDatabase.getInstance(this).songDao().getSongById(sid), se -> {
+            if (!sid.equals(fallbackSongId)) return;
+            fallbackSong = se;
+            if (se != null && onLoaded != null) onLoaded.run();
+        });
+        return null;
+    }
+
+    // 后台写库（单写线程，保持提交顺序），成功后主线程回调；失败时提示异常信息，不回调
+    private <T> void dbWrite(java.util.concurrent.Callable<T> write, java.util.function.Consumer<T> onResult) {
+        com.watch.limusic.database.DbExecutors.writer().execute(() -> {
+            try {
+                final T r = write.call();
+                runOnUiThread(() -> { if (!isFinishing() && !isDestroyed() && onResult != null) onResult.accept(r); });
+            } catch (Exception e) {
+                Log.w(TAG, "写库失败: " + e.getMessage());
+                runOnUiThread(() -> Toast.makeText(MainActivity.this, e.getMessage(), Toast.LENGTH_SHORT).show());
+            }
+        });
+    }
+
+    // 服务器歌单可能尚无本地行：后台补建后在主线程以本地 ID 回调（<= 0 表示未就绪）
+    private void resolvePlaylistLocalId(com.watch.limusic.database.PlaylistEntity playlist, java.util.function.LongConsumer onResolved) {
+        if (playlist.getLocalId() > 0) { onResolved.accept(playlist.getLocalId()); return; }
+        String sid = playlist.getServerId();
+        if (sid == null || sid.isEmpty()) { onResolved.accept(-1L); return; }
+        dbWrite(() -> playlistRepository.ensureLocalFromRemoteHeader(sid, playlist.getName(), playlist.isPublic(), playlist.getSongCount(), playlist.getChangedAt()), pid -> {
+            if (pid != null && pid > 0) playlist.setLocalId(pid);
+            onResolved.accept(pid != null ? pid : -1L);
+        });
+    }
+
+    // 后台读库、主线程消费结果（Activity 已销毁时丢弃）；读库失败时以 null 回调
+    private <T> void dbRead(java.util.concurrent.Callable<T> query, java.util.function.Consumer<T> onResult) {
+        com.watch.limusic.database.DbExecutors.reader().execute(() -> {
+            T result = null;
+            try { result = query.call(); } catch (Exception e) { Log.w(TAG, "读库失败: " + e.getMessage()); }
+            final T r = result;
+            runOnUiThread(() -> { if (!isFinishing() && !isDestroyed()) onResult.accept(r); });
+        });
+    }
+
     private void smoothCenterTo(int adapterPosition) {
         try {
             if (!(recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager)) {
@@ -1060,9 +1115,7 @@ public class MainActivity extends AppCompatActivity
             long reqPid = getIntent() != null ? getIntent().getLongExtra("open_playlist_local_id", -1L) : -1L;
             if (reqPid > 0) {
                 // 读取名称以更新标题
-                com.watch.limusic.database.PlaylistEntity pe = com.watch.limusic.database.MusicDatabase.getInstance(this).playlistDao().getByLocalId(reqPid);
-                String name = pe != null ? pe.getName() : "";
-                openPlaylistDetail(reqPid, name);
+                openPlaylistDetailByLocalId(reqPid);
                 // 清理一次性参数，避免后续 onResume 重复触发
                 getIntent().removeExtra("open_playlist_local_id");
             }
@@ -1153,12 +1206,9 @@ public class MainActivity extends AppCompatActivity
                         // 若配置尚未就绪，跳过本次预加载
                         if (!isApiConfiguredSafe()) return;
                         
-                        // 加载所有歌曲
-                        List<Song> songs = NavidromeApi.getInstance(this).getAllSongs();
-                        if (songs != null && !songs.isEmpty()) {
-                            musicRepository.saveSongsToDatabase(songs);
-                            Log.d(TAG, "启动时预加载 - 保存了 " + songs.size() + " 首歌曲到数据库");
-                        }
+                        // 同步全库歌曲（全量分页，之后走增量）
+                        boolean synced = com.watch.limusic.database.LibrarySyncManager.getInstance(this).syncBlocking(false);
+                        Log.d(TAG, "启动时预加载 - 曲库同步" + (synced ? "完成" : "未完成"));
                         
                         // 加载专辑
                         List<Album> albums = musicRepository.getAlbums("newest", 20, 0);
@@ -1198,9 +1248,12 @@ public class MainActivity extends AppCompatActivity
         // 延迟绑定服务：仅在需要播放或用户交互时再绑定
         // bindService();
         
-        // 注册播放状态接收器
-        IntentFilter filter = new IntentFilter("com.watch.limusic.PLAYBACK_STATE_CHANGED");
-        registerReceiver(playbackStateReceiver, filter);
+        // 订阅播放状态
+        try {
+            int pm = getSharedPreferences("player_prefs", MODE_PRIVATE).getInt("progress_broadcast_mode", 0);
+            progressTickIntervalMs = pm == 1 ? 1500 : (pm == 2 ? 2500 : 500);
+        } catch (Exception ignore) {}
+        PlaybackStateStore.getInstance().addListener(playbackStateListener);
         
         // 监听数据库更新
                     try { registerReceiver(dbSongsUpdatedReceiver, new IntentFilter("com.watch.limusic.DB_SONGS_UPDATED")); } catch (Exception ignore) {}
@@ -1213,35 +1266,7 @@ public class MainActivity extends AppCompatActivity
                         if (newState == RecyclerView.SCROLL_STATE_IDLE && pendingDbUpdate) {
                             pendingDbUpdate = false;
                             // 主动触发一次处理（相当于重发一遍 DB_SONGS_UPDATED 的处理）
-                            try {
-                                int total = musicRepository.getSongCount();
-                                java.util.Map<String, Integer> letterOffsets = musicRepository.getLetterOffsetMap();
-                                RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
-                                if (adapter instanceof com.watch.limusic.adapter.AllSongsRangeAdapter) {
-                                    com.watch.limusic.adapter.AllSongsRangeAdapter range = (com.watch.limusic.adapter.AllSongsRangeAdapter) adapter;
-                                    int oldTotal = range.getTotalCount();
-                                    if (total != oldTotal) {
-                                        int firstPos = 0; int firstOffset = 0;
-                                        try {
-                                            if (recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager) {
-                                                androidx.recyclerview.widget.LinearLayoutManager lm = (androidx.recyclerview.widget.LinearLayoutManager) recyclerView.getLayoutManager();
-                                                firstPos = lm.findFirstVisibleItemPosition();
-                                                android.view.View v = lm.findViewByPosition(firstPos);
-                                                firstOffset = v != null ? v.getTop() : 0;
-                                            }
-                                        } catch (Exception ignore2) {}
-                                        range.applyTotalCountAndDiff(total);
-                                        range.setLetterOffsetMap(letterOffsets);
-                                        try {
-                                            if (recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.LinearLayoutManager) {
-                                                ((androidx.recyclerview.widget.LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(Math.max(0, firstPos), firstOffset);
-                                            }
-                                        } catch (Exception ignore3) {}
-                                    } else {
-                                        range.setLetterOffsetMap(letterOffsets);
-                                    }
-                                }
-                            } catch (Exception ignore4) {}
+                            refreshAllSongsRangeFromDb(false);
                         }
                     }
                 });
@@ -1298,11 +1323,7 @@ public class MainActivity extends AppCompatActivity
                     Log.d(TAG, "数据库中歌曲数量不足，预加载歌曲");
                     try { com.watch.limusic.api.NavidromeApi.getInstance(this).reloadCredentials(); } catch (Exception ignore) {}
                     if (!isApiConfiguredSafe()) return;
-                    List<Song> songs = NavidromeApi.getInstance(this).getAllSongs();
-                    if (songs != null && !songs.isEmpty()) {
-                        musicRepository.saveSongsToDatabase(songs);
-                        Log.d(TAG, "预加载了 " + songs.size() + " 首歌曲到数据库");
-                    }
+                    com.watch.limusic.database.LibrarySyncManager.getInstance(this).syncBlocking(false);
                 }
             } catch (Exception e) {
                 Log.e(TAG, "预加载歌曲失败", e);
@@ -1328,12 +1349,9 @@ public class MainActivity extends AppCompatActivity
     protected void onStop() {
         super.onStop();
         
-        // 取消注册播放状态接收器
-        try {
-            unregisterReceiver(playbackStateReceiver);
-        } catch (IllegalArgumentException e) {
-            // 接收器可能未注册，忽略
-        }
+        // 取消订阅播放状态
+        PlaybackStateStore.getInstance().removeListener(playbackStateListener);
+        progressHandler.removeCallbacks(progressTicker);
         
         // 取消注册 DB 更新接收器
         try { unregisterReceiver(dbSongsUpdatedReceiver); } catch (Exception ignore) {}
@@ -1383,9 +1401,8 @@ public class MainActivity extends AppCompatActivity
                 } else if ("songs".equals(currentView)) {
                     new Thread(() -> {
                         try {
-                            if (isNetworkAvailable) {
-                                java.util.List<com.watch.limusic.model.Song> online = com.watch.limusic.api.NavidromeApi.getInstance(this).getAllSongs();
-                                if (online != null && !online.isEmpty()) musicRepository.saveSongsToDatabase(online);
+                            if (isNetworkAvailable && isApiConfiguredSafe()) {
+                                com.watch.limusic.database.LibrarySyncManager.getInstance(this).syncBlocking(false);
                             }
                         } catch (Exception ignore) {}
                         runOnUiThread(() -> {
@@ -1603,10 +1620,8 @@ public class MainActivity extends AppCompatActivity
                                 SharedPreferences sp = getSharedPreferences("player_prefs", MODE_PRIVATE);
                                 String sid = sp.getString("last_song_id", null);
                                 long fb = 0L;
-                                if (sid != null) {
-                                    com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(MainActivity.this).songDao().getSongById(sid);
-                                    if (se != null && se.getDuration() > 0) fb = (long) se.getDuration() * 1000L;
-                                }
+                                com.watch.limusic.database.SongEntity se = getFallbackSong(sid, null);
+                                if (se != null && se.getDuration() > 0) fb = (long) se.getDuration() * 1000L;
                                 updateTimeDisplay(progress, fb);
                             } catch (Exception ignore) { updateTimeDisplay(progress, 0); }
                         } else {
@@ -1636,10 +1651,8 @@ public class MainActivity extends AppCompatActivity
                         try {
                             SharedPreferences sp = getSharedPreferences("player_prefs", MODE_PRIVATE);
                             String sid = sp.getString("last_song_id", null);
-                            if (sid != null) {
-                                com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(MainActivity.this).songDao().getSongById(sid);
-                                if (se != null && se.getDuration() > 0) fb = (long) se.getDuration() * 1000L;
-                            }
+                            com.watch.limusic.database.SongEntity se = getFallbackSong(sid, null);
+                            if (se != null && se.getDuration() > 0) fb = (long) se.getDuration() * 1000L;
                         } catch (Exception ignore) {}
                         updateTimeDisplay(playerService.getCurrentPosition(), fb);
                     } else {
@@ -1745,14 +1758,12 @@ public class MainActivity extends AppCompatActivity
             songTitle.setText(playerService.getCurrentTitle());
             songArtist.setText(playerService.getCurrentArtist());
             
-            // 更新专辑封面（优先本地，再回退网络，并为网络添加稳定签名）
+            // 更新专辑封面（优先本地，再回退网络 150 档；缓存键稳定）
             String albumId = playerService.getCurrentSong() != null ? playerService.getCurrentSong().getAlbumId() : null;
             String key = (albumId != null && !albumId.isEmpty()) ? albumId : playerService.getCurrentSong() != null ? playerService.getCurrentSong().getCoverArtUrl() : null;
-            String localCover = (albumId != null && !albumId.isEmpty()) ? localFileDetector.getDownloadedAlbumCoverPath(albumId) : null;
-            String coverArtUrl = (localCover != null) ? ("file://" + localCover) : (key != null ? NavidromeApi.getInstance(this).getCoverArtUrl(key) : null);
+            com.watch.limusic.cover.CoverArtRef cover = com.watch.limusic.cover.CoverArtRef.of(key, albumId, 150);
             
-            if (coverArtUrl != null) {
-                boolean isLocal = coverArtUrl.startsWith("file://");
+            if (cover != null) {
                 RequestOptions optsLarge = new RequestOptions()
                     .format(DecodeFormat.PREFER_RGB_565)
                     .disallowHardwareConfig()
@@ -1760,18 +1771,10 @@ public class MainActivity extends AppCompatActivity
                     .override(150, 150)
                     .placeholder(R.drawable.default_album_art)
                     .error(R.drawable.default_album_art);
-                if (isLocal) {
-                    Glide.with(this)
-                        .load(coverArtUrl)
-                        .apply(optsLarge.diskCacheStrategy(DiskCacheStrategy.NONE))
-                        .into(albumArt);
-                } else {
-                    Glide.with(this)
-                        .load(coverArtUrl)
-                        .apply(optsLarge.diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
-                            .signature(new ObjectKey(key != null ? key : "")))
-                        .into(albumArt);
-                }
+                Glide.with(this)
+                    .load(cover)
+                    .apply(optsLarge.diskCacheStrategy(DiskCacheStrategy.AUTOMATIC))
+                    .into(albumArt);
             } else {
                 albumArt.setImageResource(R.drawable.default_album_art);
             }
@@ -1793,14 +1796,7 @@ public class MainActivity extends AppCompatActivity
                     try { playIndexOverride = downloadedSongAdapter.getPositionBySongId(song.getId()); } catch (Exception ignore) {}
                 } else if (adapter instanceof com.watch.limusic.adapter.AllSongsRangeAdapter) {
                     // 所有歌曲：不再在UI线程整表查询，直接请求服务端全局滑动窗口从当前位置播放
-                    // 在线/离线下的处理差异：离线下为了保证可播放性，仍回退构建本地列表并过滤
-                    if (!isNetworkAvailable) {
-                        // 离线回退：仅当需要离线保证时再取本地列表
-                    currentList = new java.util.ArrayList<>();
-                    int total = musicRepository.getSongCount();
-                    List<Song> range = musicRepository.getSongsRange(Math.max(0, total), 0);
-                    currentList.addAll(range);
-                    }
+                    // 在线/离线下的处理差异：离线下为了保证可播放性，仍回退构建本地列表（在下方设置播放时后台读取）
                 } else if (songAdapter != null) {
                     currentList = songAdapter.getSongList();
                 }
@@ -1835,39 +1831,23 @@ if (!(isDownloaded || isCached)) {
                 // 预先加载封面（省略代码保持不变）
                 if (song.getAlbumId() != null && !song.getAlbumId().isEmpty()) {
                     String albumId = song.getAlbumId();
-                    String key = albumId;
-                    String localCover = localFileDetector.getDownloadedAlbumCoverPath(albumId);
-                    String coverArtUrl = (localCover != null) ? ("file://" + localCover) : NavidromeApi.getInstance(this).getCoverArtUrl(key);
-                    boolean isLocal = coverArtUrl.startsWith("file://");
-                    if (isLocal) {
-                        Glide.with(this)
-                            .load(coverArtUrl)
-                            .override(150, 150)
-                            .placeholder(R.drawable.default_album_art)
-                            .error(R.drawable.default_album_art)
-                            .diskCacheStrategy(DiskCacheStrategy.NONE)
-                            .into(albumArt);
-                    } else {
-                        Glide.with(this)
-                            .load(coverArtUrl)
-                            .override(150, 150)
-                            .placeholder(R.drawable.default_album_art)
-                            .error(R.drawable.default_album_art)
-                            .signature(new ObjectKey(key))
-                            .diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
-                            .into(albumArt);
-                    }
+                    Glide.with(this)
+                        .load(com.watch.limusic.cover.CoverArtRef.of(albumId, albumId, 150))
+                        .override(150, 150)
+                        .placeholder(R.drawable.default_album_art)
+                        .error(R.drawable.default_album_art)
+                        .diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
+                        .into(albumArt);
                 }
                 // 设置播放
                 RecyclerView.Adapter<?> adp = recyclerView.getAdapter();
                 if (adp instanceof com.watch.limusic.adapter.AllSongsRangeAdapter) {
                     try {
                         if (!isNetworkAvailable) {
-                            if (currentList == null || currentList.isEmpty()) {
-                                int total = musicRepository.getSongCount();
-                                currentList = musicRepository.getSongsRange(Math.max(0, total), 0);
-                            }
-                            playerService.setPlaylist(currentList, position);
+                            final int startIndex = position;
+                            dbRead(() -> musicRepository.getSongsRange(Math.max(0, musicRepository.getSongCount()), 0), list -> {
+                                if (list != null && !list.isEmpty() && bound && playerService != null) playerService.setPlaylist(list, startIndex);
+                            });
                         } else {
                             playerService.playAllSongsFromGlobal(position);
                         }
@@ -2081,121 +2061,7 @@ if (!(isDownloaded || isCached)) {
                 Toast.makeText(this, "未选择歌曲", Toast.LENGTH_SHORT).show();
                 return true;
             }
-            // 选择歌单/新建
-            java.util.List<com.watch.limusic.database.PlaylistEntity> lists = com.watch.limusic.database.MusicDatabase.getInstance(this).playlistDao().getAll();
-            if (lists == null || lists.isEmpty()) {
-                new androidx.appcompat.app.AlertDialog.Builder(this)
-                    .setTitle("无歌单")
-                    .setMessage("无歌单，请先创建歌单")
-                    .setPositiveButton("新建", (d,w) -> {
-                        final android.widget.EditText input = new android.widget.EditText(this);
-                        input.setHint("输入歌单名称");
-                        new androidx.appcompat.app.AlertDialog.Builder(this)
-                            .setTitle("新建歌单")
-                            .setView(input)
-                            .setPositiveButton("创建", (d2,w2) -> {
-                                String name = input.getText() != null ? input.getText().toString() : "";
-                                try {
-                                    java.util.List<String> ordered = new java.util.ArrayList<>(selectedSongIds);
-                                    playlistRepository.createPlaylistAndAddSongs(name, false, ordered, (skipped, serverOk) -> runOnUiThread(() -> {
-                                        StringBuilder tip = new StringBuilder();
-                                        if (skipped != null && !skipped.isEmpty()) {
-                                            String joined = android.text.TextUtils.join("、", skipped);
-                                            tip.append("跳过已存在：").append(joined);
-                                        }
-                                        tip.append(tip.length()>0?"\n":"").append(serverOk?"歌单创建并保存成功":"本地已保存，服务器创建/同步未完成，可稍后重试");
-                                        showQueuedTip(tip.toString());
-                                        exitSelectionMode();
-                                    }));
-                                } catch (Exception e) { Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show(); }
-                            })
-                            .setNegativeButton("取消", null)
-                            .show();
-                    })
-                    .setNegativeButton("取消", null)
-                    .show();
-                return true;
-            }
-            // 去重：同名保留已绑定serverId的项；若均未绑定则保留最新changedAt
-            java.util.LinkedHashMap<String, com.watch.limusic.database.PlaylistEntity> dedup = new java.util.LinkedHashMap<>();
-            if (lists != null) {
-                java.util.Collections.sort(lists, (a,b) -> Long.compare(b.getChangedAt(), a.getChangedAt()));
-                for (com.watch.limusic.database.PlaylistEntity pe : lists) {
-                    String key = pe.getName();
-                    com.watch.limusic.database.PlaylistEntity existing = dedup.get(key);
-                    if (existing == null) { dedup.put(key, pe); }
-                    else {
-                        boolean existingBound = existing.getServerId() != null && !existing.getServerId().isEmpty();
-                        boolean currentBound = pe.getServerId() != null && !pe.getServerId().isEmpty();
-                        if (!existingBound && currentBound) { dedup.put(key, pe); }
-                    }
-                }
-            }
-            java.util.ArrayList<com.watch.limusic.database.PlaylistEntity> viewList = new java.util.ArrayList<>(dedup.values());
-            CharSequence[] names = new CharSequence[viewList.size()+1];
-            for (int i=0;i<viewList.size();i++) names[i] = viewList.get(i).getName() + " ("+viewList.get(i).getSongCount()+")";
-            names[viewList.size()] = "新建歌单";
-            // 使用自定义视图的简洁弹窗：搜索 + 列表 + 单选
-            android.view.View dialogView = getLayoutInflater().inflate(R.layout.dialog_add_to_playlist, null);
-            androidx.recyclerview.widget.RecyclerView rv = dialogView.findViewById(R.id.rv_playlists);
-            com.watch.limusic.adapter.PlaylistPickerAdapter picker = new com.watch.limusic.adapter.PlaylistPickerAdapter(viewList);
-            picker.setOnItemSelectedListener(entity -> {});
-            rv.setLayoutManager(new androidx.recyclerview.widget.LinearLayoutManager(this));
-            rv.setAdapter(picker);
-            try {
-                rv.setHasFixedSize(true);
-                rv.setItemAnimator(null);
-                rv.getRecycledViewPool().setMaxRecycledViews(0, 16);
-                // 适配手表屏：最大高度为屏幕高度的60%，超出则可滚动
-                int maxHeight = (int) (getResources().getDisplayMetrics().heightPixels * 0.6f);
-                rv.getLayoutParams().height = maxHeight;
-            } catch (Exception ignore) {}
-            androidx.appcompat.app.AlertDialog dlg = new androidx.appcompat.app.AlertDialog.Builder(this)
-                .setTitle("选择歌单")
-                .setView(dialogView)
-                .create();
-            dlg.setOnShowListener(dd -> {
-                android.widget.Button btnCancel = dialogView.findViewById(R.id.btn_cancel);
-                android.widget.Button btnNew = dialogView.findViewById(R.id.btn_new);
-                android.widget.Button btnAdd = dialogView.findViewById(R.id.btn_add);
-                btnAdd.setText("添加(" + selectedSongIds.size() + ")");
-                btnAdd.setEnabled(false);
-                picker.setOnItemSelectedListener(entity -> btnAdd.setEnabled(true));
-                btnCancel.setOnClickListener(v -> dlg.dismiss());
-                btnAdd.setOnClickListener(v -> {
-                    com.watch.limusic.database.PlaylistEntity sel = picker.getSelected();
-                    if (sel == null) return;
-                    performAddToPlaylist(sel.getLocalId());
-                    dlg.dismiss();
-                });
-                btnNew.setOnClickListener(v -> {
-                    final android.widget.EditText input = new android.widget.EditText(this);
-                    input.setHint("输入歌单名称");
-                    new androidx.appcompat.app.AlertDialog.Builder(this)
-                        .setTitle("新建歌单")
-                        .setView(input)
-                        .setPositiveButton("创建", (d2,w2) -> {
-                            String name = input.getText() != null ? input.getText().toString() : "";
-                            try {
-                                java.util.List<String> ordered = new java.util.ArrayList<>(selectedSongIds);
-                                playlistRepository.createPlaylistAndAddSongs(name, false, ordered, (skipped, serverOk) -> runOnUiThread(() -> {
-                                    StringBuilder tip = new StringBuilder();
-                                    if (skipped != null && !skipped.isEmpty()) {
-                                        String joined = android.text.TextUtils.join("、", skipped);
-                                        tip.append("跳过已存在：").append(joined);
-                                    }
-                                    tip.append(tip.length()>0?"\n":"").append(serverOk?"歌单创建并保存成功":"本地已保存，服务器创建/同步未完成，可稍后重试");
-                                    showQueuedTip(tip.toString());
-                                    exitSelectionMode();
-                                }));
-                                dlg.dismiss();
-                            } catch (Exception e) { Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show(); }
-                        })
-                        .setNegativeButton("取消", null)
-                        .show();
-                });
-            });
-            dlg.show();
+            dbRead(() -> com.watch.limusic.database.MusicDatabase.getInstance(this).playlistDao().getAll(), this::showAddToPlaylistPicker);
             return true;
         } else if (id == R.id.action_new_playlist) {
             // 歌单视图下的新建
@@ -2206,12 +2072,7 @@ if (!(isDownloaded || isCached)) {
                     .setView(input)
                     .setPositiveButton("创建", (d, w) -> {
                         String name = input.getText() != null ? input.getText().toString() : "";
-                        try {
-                            playlistRepository.createPlaylist(name, false);
-                            loadPlaylists();
-                        } catch (Exception e) {
-                            Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
-                        }
+                        dbWrite(() -> playlistRepository.createPlaylist(name, false), pe -> loadPlaylists());
                     })
                     .setNegativeButton("取消", null)
                     .show();
@@ -2240,43 +2101,45 @@ if (!(isDownloaded || isCached)) {
             if (selectionMode && id == R.id.action_delete_selected) {
                 if (!selectionMode || selectedSongIds == null || selectedSongIds.isEmpty()) return true;
                 final java.util.List<String> ids = new java.util.ArrayList<>(selectedSongIds);
-                final java.util.List<String> titles = com.watch.limusic.database.MusicDatabase.getInstance(this).songDao().getTitlesByIds(ids);
-                StringBuilder sb = new StringBuilder();
-                for (int i = 0; i < titles.size(); i++) {
-                    sb.append(i + 1).append(". ").append(titles.get(i)).append("\n");
-                }
-                android.widget.ScrollView sv = new android.widget.ScrollView(this);
-                android.widget.TextView tv = new android.widget.TextView(this);
-                tv.setText(sb.toString());
-                tv.setTextColor(getResources().getColor(R.color.text_primary));
-                tv.setTextSize(14);
-                int pad = (int) (getResources().getDisplayMetrics().density * 12);
-                tv.setPadding(pad, pad, pad, pad);
-                sv.addView(tv);
-                new androidx.appcompat.app.AlertDialog.Builder(this)
-                    .setTitle("确认删除以下歌曲？")
-                    .setView(sv)
-                    .setPositiveButton("删除", (d,w) -> {
-                        for (String sid : ids) {
-                            try {
-                                boolean deleted = com.watch.limusic.download.DownloadManager.getInstance(this).deleteDownload(sid);
-                                try { com.watch.limusic.database.DownloadRepository.getInstance(this).deleteDownload(sid); } catch (Exception ignore) {}
-                                Intent cacheIntent = new Intent("com.watch.limusic.CACHE_STATUS_CHANGED");
-                                cacheIntent.putExtra("songId", sid);
-                                cacheIntent.putExtra("isCached", false);
-                                sendBroadcast(cacheIntent);
-                            } catch (Exception ignore) {}
-                        }
-                        // 立即清空“已下载”适配器中的歌曲，避免UI残留
-                        try { if (downloadedSongAdapter != null) downloadedSongAdapter.processAndSubmitListKeepOrder(new java.util.ArrayList<>()); } catch (Exception ignore) {}
-                        refreshDownloadsData();
-                        // 为防止异步DB写入延迟，增加一次/二次延迟刷新
-                        try { recyclerView.postDelayed(this::refreshDownloadsData, 250); } catch (Exception ignore) {}
-                        try { recyclerView.postDelayed(this::refreshDownloadsData, 600); } catch (Exception ignore) {}
-                        exitSelectionMode();
-                    })
-                    .setNegativeButton("取消", null)
-                    .show();
+                dbRead(() -> com.watch.limusic.database.MusicDatabase.getInstance(this).songDao().getTitlesByIds(ids), titles -> {
+                    if (titles == null) return;
+                    StringBuilder sb = new StringBuilder();
+                    for (int i = 0; i < titles.size(); i++) {
+                        sb.append(i + 1).append(". ").append(titles.get(i)).append("\n");
+                    }
+                    android.widget.ScrollView sv = new android.widget.ScrollView(this);
+                    android.widget.TextView tv = new android.widget.TextView(this);
+                    tv.setText(sb.toString());
+                    tv.setTextColor(getResources().getColor(R.color.text_primary));
+                    tv.setTextSize(14);
+                    int pad = (int) (getResources().getDisplayMetrics().density * 12);
+                    tv.setPadding(pad, pad, pad, pad);
+                    sv.addView(tv);
+                    new androidx.appcompat.app.AlertDialog.Builder(this)
+                        .setTitle("确认删除以下歌曲？")
+                        .setView(sv)
+                        .setPositiveButton("删除", (d,w) -> {
+                            for (String sid : ids) {
+                                try {
+                                    boolean deleted = com.watch.limusic.download.DownloadManager.getInstance(this).deleteDownload(sid);
+                                    try { com.watch.limusic.database.DownloadRepository.getInstance(this).deleteDownload(sid); } catch (Exception ignore) {}
+                                    Intent cacheIntent = new Intent("com.watch.limusic.CACHE_STATUS_CHANGED");
+                                    cacheIntent.putExtra("songId", sid);
+                                    cacheIntent.putExtra("isCached", false);
+                                    sendBroadcast(cacheIntent);
+                                } catch (Exception ignore) {}
+                            }
+                            // 立即清空“已下载”适配器中的歌曲，避免UI残留
+                            try { if (downloadedSongAdapter != null) downloadedSongAdapter.processAndSubmitListKeepOrder(new java.util.ArrayList<>()); } catch (Exception ignore) {}
+                            refreshDownloadsData();
+                            // 为防止异步DB写入延迟，增加一次/二次延迟刷新
+                            try { recyclerView.postDelayed(this::refreshDownloadsData, 250); } catch (Exception ignore) {}
+                            try { recyclerView.postDelayed(this::refreshDownloadsData, 600); } catch (Exception ignore) {}
+                            exitSelectionMode();
+                        })
+                        .setNegativeButton("取消", null)
+                        .show();
+                });
                 return true;
             }
             // 旧的三个独立下载操作按钮已合并为 action_download_ops
@@ -2305,6 +2168,124 @@ if (!(isDownloaded || isCached)) {
         return super.onOptionsItemSelected(item);
     }
 
+    // 选择歌单/新建：歌单列表后台读取后在主线程弹窗
+    private void showAddToPlaylistPicker(java.util.List<com.watch.limusic.database.PlaylistEntity> lists) {
+        if (!selectionMode || selectedSongIds == null || selectedSongIds.isEmpty()) return;
+        if (lists == null || lists.isEmpty()) {
+            new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("无歌单")
+                .setMessage("无歌单，请先创建歌单")
+                .setPositiveButton("新建", (d,w) -> {
+                    final android.widget.EditText input = new android.widget.EditText(this);
+                    input.setHint("输入歌单名称");
+                    new androidx.appcompat.app.AlertDialog.Builder(this)
+                        .setTitle("新建歌单")
+                        .setView(input)
+                        .setPositiveButton("创建", (d2,w2) -> {
+                            String name = input.getText() != null ? input.getText().toString() : "";
+                            try {
+                                java.util.List<String> ordered = new java.util.ArrayList<>(selectedSongIds);
+                                playlistRepository.createPlaylistAndAddSongs(name, false, ordered, (skipped, serverOk) -> runOnUiThread(() -> {
+                                    StringBuilder tip = new StringBuilder();
+                                    if (skipped != null && !skipped.isEmpty()) {
+                                        String joined = android.text.TextUtils.join("、", skipped);
+                                        tip.append("跳过已存在：").append(joined);
+                                    }
+                                    tip.append(tip.length()>0?"\n":"").append(serverOk?"歌单创建并保存成功":"本地已保存，服务器创建/同步未完成，可稍后重试");
+                                    showQueuedTip(tip.toString());
+                                    exitSelectionMode();
+                                }));
+                            } catch (Exception e) { Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show(); }
+                        })
+                        .setNegativeButton("取消", null)
+                        .show();
+                })
+                .setNegativeButton("取消", null)
+                .show();
+            return;
+        }
+        // 去重：同名保留已绑定serverId的项；若均未绑定则保留最新changedAt
+        java.util.LinkedHashMap<String, com.watch.limusic.database.PlaylistEntity> dedup = new java.util.LinkedHashMap<>();
+        if (lists != null) {
+            java.util.Collections.sort(lists, (a,b) -> Long.compare(b.getChangedAt(), a.getChangedAt()));
+            for (com.watch.limusic.database.PlaylistEntity pe : lists) {
+                String key = pe.getName();
+                com.watch.limusic.database.PlaylistEntity existing = dedup.get(key);
+                if (existing == null) { dedup.put(key, pe); }
+                else {
+                    boolean existingBound = existing.getServerId() != null && !existing.getServerId().isEmpty();
+                    boolean currentBound = pe.getServerId() != null && !pe.getServerId().isEmpty();
+                    if (!existingBound && currentBound) { dedup.put(key, pe); }
+                }
+            }
+        }
+        java.util.ArrayList<com.watch.limusic.database.PlaylistEntity> viewList = new java.util.ArrayList<>(dedup.values());
+        CharSequence[] names = new CharSequence[viewList.size()+1];
+        for (int i=0;i<viewList.size();i++) names[i] = viewList.get(i).getName() + " ("+viewList.get(i).getSongCount()+")";
+        names[viewList.size()] = "新建歌单";
+        // 使用自定义视图的简洁弹窗：搜索 + 列表 + 单选
+        android.view.View dialogView = getLayoutInflater().inflate(R.layout.dialog_add_to_playlist, null);
+        androidx.recyclerview.widget.RecyclerView rv = dialogView.findViewById(R.id.rv_playlists);
+        com.watch.limusic.adapter.PlaylistPickerAdapter picker = new com.watch.limusic.adapter.PlaylistPickerAdapter(viewList);
+        picker.setOnItemSelectedListener(entity -> {});
+        rv.setLayoutManager(new androidx.recyclerview.widget.LinearLayoutManager(this));
+        rv.setAdapter(picker);
+        try {
+            rv.setHasFixedSize(true);
+            rv.setItemAnimator(null);
+            rv.getRecycledViewPool().setMaxRecycledViews(0, 16);
+            // 适配手表屏：最大高度为屏幕高度的60%，超出则可滚动
+            int maxHeight = (int) (getResources().getDisplayMetrics().heightPixels * 0.6f);
+            rv.getLayoutParams().height = maxHeight;
+        } catch (Exception ignore) {}
+        androidx.appcompat.app.AlertDialog dlg = new androidx.appcompat.app.AlertDialog.Builder(this)
+            .setTitle("选择歌单")
+            .setView(dialogView)
+            .create();
+        dlg.setOnShowListener(dd -> {
+            android.widget.Button btnCancel = dialogView.findViewById(R.id.btn_cancel);
+            android.widget.Button btnNew = dialogView.findViewById(R.id.btn_new);
+            android.widget.Button btnAdd = dialogView.findViewById(R.id.btn_add);
+            btnAdd.setText("添加(" + selectedSongIds.size() + ")");
+            btnAdd.setEnabled(false);
+            picker.setOnItemSelectedListener(entity -> btnAdd.setEnabled(true));
+            btnCancel.setOnClickListener(v -> dlg.dismiss());
+            btnAdd.setOnClickListener(v -> {
+                com.watch.limusic.database.PlaylistEntity sel = picker.getSelected();
+                if (sel == null) return;
+                performAddToPlaylist(sel.getLocalId());
+                dlg.dismiss();
+            });
+            btnNew.setOnClickListener(v -> {
+                final android.widget.EditText input = new android.widget.EditText(this);
+                input.setHint("输入歌单名称");
+                new androidx.appcompat.app.AlertDialog.Builder(this)
+                    .setTitle("新建歌单")
+                    .setView(input)
+                    .setPositiveButton("创建", (d2,w2) -> {
+                        String name = input.getText() != null ? input.getText().toString() : "";
+                        try {
+                            java.util.List<String> ordered = new java.util.ArrayList<>(selectedSongIds);
+                            playlistRepository.createPlaylistAndAddSongs(name, false, ordered, (skipped, serverOk) -> runOnUiThread(() -> {
+                                StringBuilder tip = new StringBuilder();
+                                if (skipped != null && !skipped.isEmpty()) {
+                                    String joined = android.text.TextUtils.join("、", skipped);
+                                    tip.append("跳过已存在：").append(joined);
+                                }
+                                tip.append(tip.length()>0?"\n":"").append(serverOk?"歌单创建并保存成功":"本地已保存，服务器创建/同步未完成，可稍后重试");
+                                showQueuedTip(tip.toString());
+                                exitSelectionMode();
+                            }));
+                            dlg.dismiss();
+                        } catch (Exception e) { Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show(); }
+                    })
+                    .setNegativeButton("取消", null)
+                    .show();
+            });
+        });
+        dlg.show();
+    }
+
     @Override
     public boolean onNavigationItemSelected(MenuItem item) {
         int id = item.getItemId();
@@ -2478,9 +2459,11 @@ if (!(isDownloaded || isCached)) {
                         // 覆盖数据
                         albumAdapter.setAlbums(albums);
                         
-                        // 在线时预取专辑封面，供离线显示（异步，不阻塞UI）
+                        // 在线时预取专辑封面，供离线显示（封面服务后台有界执行，列表覆盖时先取消旧页）
                         if (isNetworkAvailable) {
-                            new Thread(() -> prefetchAlbumCovers(albums)).start();
+                            com.watch.limusic.cover.CoverArtService covers = com.watch.limusic.cover.CoverArtService.getInstance(MainActivity.this);
+                            covers.cancelPrefetch();
+                            covers.prefetch(albums);
                         }
                         
                         // 更新加载状态
@@ -2559,7 +2542,7 @@ if (!(isDownloaded || isCached)) {
                         // 添加到现有专辑列表
                         albumAdapter.addAlbums(moreAlbums);
                         if (isNetworkAvailable) {
-                            new Thread(() -> prefetchAlbumCovers(moreAlbums)).start();
+                            com.watch.limusic.cover.CoverArtService.getInstance(MainActivity.this).prefetch(moreAlbums);
                         }
                         
                         // 更新加载状态
@@ -2789,10 +2772,10 @@ if (!(isDownloaded || isCached)) {
                     long pid = sp.getLong("last_playlist_local_id", -1L);
                     if (pid > 0) {
                         resetUiForNewView();
-                        com.watch.limusic.database.PlaylistEntity pe = com.watch.limusic.database.MusicDatabase.getInstance(this).playlistDao().getByLocalId(pid);
-                        String name = pe != null ? pe.getName() : "";
-                        openPlaylistDetail(pid, name);
-                        postRestoreScroll(pos, off);
+                        dbRead(() -> com.watch.limusic.database.MusicDatabase.getInstance(this).playlistDao().getByLocalId(pid), pe -> {
+                            openPlaylistDetail(pid, pe != null ? pe.getName() : "");
+                            postRestoreScroll(pos, off);
+                        });
                     } else { resetUiForNewView(); loadPlaylists(); }
                     break;
                 case "artists":
@@ -2915,16 +2898,7 @@ if (!(isDownloaded || isCached)) {
                 try { totalNow = musicRepository.getSongCount(); } catch (Exception ignore) {}
                 if (totalNow == 0) {
                     if (!isApiConfiguredSafe()) return;
-                    java.util.List<com.watch.limusic.model.Song> online;
-                    try {
-                        online = com.watch.limusic.api.NavidromeApi.getInstance(this).getAllSongsQuick();
-                    } catch (Exception quickEx) {
-                        try { online = com.watch.limusic.api.NavidromeApi.getInstance(this).getAllSongs(); }
-                        catch (Exception e) { online = null; }
-                    }
-                    if (online != null && !online.isEmpty()) {
-                        musicRepository.saveSongsToDatabase(online);
-                    }
+                    com.watch.limusic.database.LibrarySyncManager.getInstance(this).syncBlocking(false);
                     return;
                 }
 
@@ -2935,16 +2909,8 @@ if (!(isDownloaded || isCached)) {
                 if (now - last < 15 * 60 * 1000L) return;
 
                 if (!isApiConfiguredSafe()) return;
-                java.util.List<com.watch.limusic.model.Song> online;
-                try {
-                    online = com.watch.limusic.api.NavidromeApi.getInstance(this).getAllSongsQuick();
-                } catch (Exception quickEx) {
-                    // 快速通道失败，降级一次常规通道（不抛出以免打断UI）
-                    try { online = com.watch.limusic.api.NavidromeApi.getInstance(this).getAllSongs(); }
-                    catch (Exception e) { online = null; }
-                }
-                if (online != null && !online.isEmpty()) {
-                    musicRepository.saveSongsToDatabase(online);
+                // 增量同步：曲库未变化时仅一次 getScanStatus 往返
+                if (com.watch.limusic.database.LibrarySyncManager.getInstance(this).syncBlocking(false)) {
                     sp.edit().putLong("last_songs_refresh_ts", now).apply();
                 }
             } catch (Exception ignore) {}
@@ -3041,6 +3007,8 @@ if (!(isDownloaded || isCached)) {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        searchHandler.removeCallbacks(searchDebounce);
+        searchExecutor.shutdownNow();
         
         // 取消绑定服务
         if (bound) {
@@ -3077,6 +3045,11 @@ if (!(isDownloaded || isCached)) {
         try {
             downloadsRefreshExecutor.shutdownNow();
         } catch (Exception ignore) {}
+        // 歌词页的播放状态监听挂在进程级单例上，随页面一起释放（本页的 playbackStateListener 已在 onStop 移除）
+        if (lyricsController != null) {
+            lyricsController.release();
+            lyricsController = null;
+        }
     }
 
     // 确保播放进度条可见的方法
@@ -3300,48 +3273,6 @@ if (!(isDownloaded || isCached)) {
         }).start();
     }
 
-    // 预取并保存专辑封面
-    private void prefetchAlbumCovers(List<Album> albums) {
-        try {
-            LocalFileDetector detector = new LocalFileDetector(this);
-            for (Album album : albums) {
-                String albumId = album.getId();
-                if (albumId == null || albumId.isEmpty()) continue;
-                // 已存在跳过
-                if (detector.getDownloadedAlbumCoverPath(albumId) != null) continue;
-                try {
-                    // 复用 DownloadManager 的封面下载逻辑，通过HTTP保存
-                    String coverUrl = NavidromeApi.getInstance(this).getCoverArtUrl(
-                            album.getCoverArt() != null && !album.getCoverArt().isEmpty() ? album.getCoverArt() : albumId
-                    );
-                    if (coverUrl == null || coverUrl.isEmpty()) continue;
-                    java.net.URL url = new java.net.URL(coverUrl);
-                    java.net.HttpURLConnection conn = (java.net.HttpURLConnection) url.openConnection();
-                    conn.setConnectTimeout(10000);
-                    conn.setReadTimeout(30000);
-                    conn.connect();
-                    if (conn.getResponseCode() != java.net.HttpURLConnection.HTTP_OK) {
-                        conn.disconnect();
-                        continue;
-                    }
-                    java.io.File coversDir = new java.io.File(getExternalFilesDir(null), "downloads/covers");
-                    if (!coversDir.exists()) coversDir.mkdirs();
-                    java.io.File outFile = new java.io.File(coversDir, albumId + ".jpg");
-                    try (java.io.InputStream in = conn.getInputStream();
-                         java.io.FileOutputStream out = new java.io.FileOutputStream(outFile)) {
-                        byte[] buf = new byte[8192];
-                        int len;
-                        while ((len = in.read(buf)) != -1) {
-                            out.write(buf, 0, len);
-                        }
-                    } finally {
-                        conn.disconnect();
-                    }
-                } catch (Exception ignore) {}
-            }
-        } catch (Exception ignoreOuter) {}
-    }
-
     private void showSkeleton() {
         if (skeletonContainer != null) skeletonContainer.setVisibility(View.VISIBLE);
         if (emptyContainer != null) emptyContainer.setVisibility(View.GONE);
@@ -3481,21 +3412,13 @@ if (!(isDownloaded || isCached)) {
 
         playlistAdapter = new com.watch.limusic.adapter.PlaylistAdapter(this, new com.watch.limusic.adapter.PlaylistAdapter.OnPlaylistListener() {
             @Override public void onClick(com.watch.limusic.database.PlaylistEntity playlist) {
-                long pid = playlist.getLocalId();
-                if (pid <= 0) {
-                    try {
-                        String sid = playlist.getServerId();
-                        if (sid != null && !sid.isEmpty()) {
-                            pid = playlistRepository.ensureLocalFromRemoteHeader(sid, playlist.getName(), playlist.isPublic(), playlist.getSongCount(), playlist.getChangedAt());
-                            playlist.setLocalId(pid);
-                        }
-                    } catch (Exception ignore) {}
-                }
-                if (pid > 0) {
-                    openPlaylistDetail(pid, playlist.getName());
-                } else {
-                    Toast.makeText(MainActivity.this, "歌单数据未就绪，请稍后", Toast.LENGTH_SHORT).show();
-                }
+                resolvePlaylistLocalId(playlist, pid -> {
+                    if (pid > 0) {
+                        openPlaylistDetail(pid, playlist.getName());
+                    } else {
+                        Toast.makeText(MainActivity.this, "歌单数据未就绪，请稍后", Toast.LENGTH_SHORT).show();
+                    }
+                });
             }
             @Override public void onLongClick(View anchor, com.watch.limusic.database.PlaylistEntity playlist) {
                 String[] items = new String[]{"删除", playlist.isPublic() ? "设为私有" : "设为公开", "重命名", "手动同步"};
@@ -3506,39 +3429,25 @@ if (!(isDownloaded || isCached)) {
                                 new AlertDialog.Builder(MainActivity.this)
                                         .setTitle("确认删除")
                                         .setMessage("确认删除歌单'" + playlist.getName() + "'吗？")
-                                        .setPositiveButton("删除", (d, w) -> {
-                                            long pid = playlist.getLocalId();
-                                            if (pid <= 0) {
-                                                try {
-                                                    String sid = playlist.getServerId();
-                                                    if (sid != null && !sid.isEmpty()) {
-                                                        pid = playlistRepository.ensureLocalFromRemoteHeader(sid, playlist.getName(), playlist.isPublic(), playlist.getSongCount(), playlist.getChangedAt());
-                                                        playlist.setLocalId(pid);
-                                                    }
-                                                } catch (Exception ignore) {}
+                                        .setPositiveButton("删除", (d, w) -> resolvePlaylistLocalId(playlist, pid -> {
+                                            if (pid > 0) {
+                                                dbWrite(() -> { playlistRepository.delete(pid); return null; }, r -> loadPlaylists());
+                                            } else {
+                                                loadPlaylists();
                                             }
-                                            if (pid > 0) { playlistRepository.delete(pid); }
-                                            loadPlaylists();
-                                        })
+                                        }))
                                         .setNegativeButton("取消", null)
                                         .show();
                             } else if (which == 1) {
-                                long pid = playlist.getLocalId();
-                                if (pid <= 0) {
-                                    try {
-                                        String sid = playlist.getServerId();
-                                        if (sid != null && !sid.isEmpty()) {
-                                            pid = playlistRepository.ensureLocalFromRemoteHeader(sid, playlist.getName(), playlist.isPublic(), playlist.getSongCount(), playlist.getChangedAt());
-                                            playlist.setLocalId(pid);
-                                        }
-                                    } catch (Exception ignore) {}
-                                }
-                                if (pid > 0) {
-                                    boolean target = !playlist.isPublic();
-                                    playlistRepository.setPublic(pid, target);
-                                    playlist.setPublic(target);
-                                }
-                                loadPlaylists();
+                                resolvePlaylistLocalId(playlist, pid -> {
+                                    if (pid > 0) {
+                                        boolean target = !playlist.isPublic();
+                                        playlist.setPublic(target);
+                                        dbWrite(() -> { playlistRepository.setPublic(pid, target); return null; }, r -> loadPlaylists());
+                                    } else {
+                                        loadPlaylists();
+                                    }
+                                });
                             } else if (which == 2) {
                                 final android.widget.EditText input = new android.widget.EditText(MainActivity.this);
                                 input.setText(playlist.getName());
@@ -3546,29 +3455,20 @@ if (!(isDownloaded || isCached)) {
                                         .setTitle("重命名")
                                         .setView(input)
                                         .setPositiveButton("确定", (d, w) -> {
-                                            try { playlistRepository.rename(playlist.getLocalId(), input.getText().toString()); loadPlaylists(); }
-                                            catch (Exception e) { Toast.makeText(MainActivity.this, e.getMessage(), Toast.LENGTH_SHORT).show(); }
+                                            String newName = input.getText().toString();
+                                            dbWrite(() -> playlistRepository.rename(playlist.getLocalId(), newName), r -> loadPlaylists());
                                         })
                                         .setNegativeButton("取消", null)
                                         .show();
                             } else if (which == 3) {
-                                long pid = playlist.getLocalId();
-                                if (pid <= 0) {
-                                    try {
-                                        String sid = playlist.getServerId();
-                                        if (sid != null && !sid.isEmpty()) {
-                                            pid = playlistRepository.ensureLocalFromRemoteHeader(sid, playlist.getName(), playlist.isPublic(), playlist.getSongCount(), playlist.getChangedAt());
-                                            playlist.setLocalId(pid);
-                                        }
-                                    } catch (Exception ignore) {}
-                                }
-                                if (pid > 0) {
+                                resolvePlaylistLocalId(playlist, pid -> {
+                                    if (pid <= 0) return;
                                     Toast.makeText(MainActivity.this, "正在同步...", Toast.LENGTH_SHORT).show();
                                     playlistRepository.manualBindAndSync(pid, (ok, msg) -> runOnUiThread(() -> {
                                         Toast.makeText(MainActivity.this, msg != null ? msg : (ok ? "同步完成" : "同步失败"), Toast.LENGTH_SHORT).show();
                                         loadPlaylists();
                                     }));
-                                }
+                                });
                             }
                         }).show();
             }
@@ -3896,7 +3796,7 @@ if (!(isDownloaded || isCached)) {
             return;
         }
         Toast.makeText(this, "已保存到本地，正在同步…", Toast.LENGTH_SHORT).show();
-        playlistRepository.addSongsAtHeadFiltered(targetPlaylistLocalId, ordered, (skippedTitles, serverOk) -> {
+        com.watch.limusic.database.DbExecutors.writer().execute(() -> playlistRepository.addSongsAtHeadFiltered(targetPlaylistLocalId, ordered, (skippedTitles, serverOk) -> {
             runOnUiThread(() -> {
                 StringBuilder tip = new StringBuilder();
                 if (skippedTitles != null && !skippedTitles.isEmpty()) {
@@ -3907,13 +3807,14 @@ if (!(isDownloaded || isCached)) {
                 showQueuedTip(tip.toString());
                 // 若当前打开的是目标歌单详情，刷新之（不自动跳转）
                 if ("playlist_detail".equals(currentView) && currentPlaylistLocalId == targetPlaylistLocalId) {
-                    java.util.List<com.watch.limusic.model.Song> s2 = playlistRepository.getSongsInPlaylist(targetPlaylistLocalId, 500, 0);
-                    if (songAdapter != null) songAdapter.processAndSubmitListKeepOrder(s2);
+                    dbRead(() -> playlistRepository.getSongsInPlaylist(targetPlaylistLocalId, 500, 0), s2 -> {
+                        if (s2 != null && songAdapter != null) songAdapter.processAndSubmitListKeepOrder(s2);
+                    });
                 }
                 // 退出选择模式
                 exitSelectionMode();
             });
-        });
+        }));
     }
 
     private void updateNavigationForSelectionMode() {
@@ -4005,26 +3906,23 @@ if (!(isDownloaded || isCached)) {
             if (songTitle != null) songTitle.setText(title != null ? title : "");
             if (songArtist != null) songArtist.setText(artist != null ? artist : "");
 
-            // 封面：优先本地，不做网络请求以降低启动成本
+            // 封面：仅本地（不带封面ID，不做网络请求以降低启动成本）
             if (albumArt != null) {
-                boolean loaded = false;
-                if (albumId != null && !albumId.isEmpty()) {
-                    String localCover = new LocalFileDetector(this).getDownloadedAlbumCoverPath(albumId);
-                    if (localCover != null) {
-                        Glide.with(this)
-                                .load("file://" + localCover)
-                                .apply(new com.bumptech.glide.request.RequestOptions()
-                                        .format(com.bumptech.glide.load.DecodeFormat.PREFER_RGB_565)
-                                        .disallowHardwareConfig()
-                                        .dontAnimate()
-                                        .override(150, 150)
-                                        .placeholder(R.drawable.default_album_art)
-                                        .error(R.drawable.default_album_art))
-                                .into(albumArt);
-                        loaded = true;
-                    }
+                com.watch.limusic.cover.CoverArtRef localOnly = com.watch.limusic.cover.CoverArtRef.of(null, albumId, 150);
+                if (localOnly != null) {
+                    Glide.with(this)
+                            .load(localOnly)
+                            .apply(new com.bumptech.glide.request.RequestOptions()
+                                    .format(com.bumptech.glide.load.DecodeFormat.PREFER_RGB_565)
+                                    .disallowHardwareConfig()
+                                    .dontAnimate()
+                                    .override(150, 150)
+                                    .placeholder(R.drawable.default_album_art)
+                                    .error(R.drawable.default_album_art))
+                            .into(albumArt);
+                } else {
+                    albumArt.setImageResource(R.drawable.default_album_art);
                 }
-                if (!loaded) albumArt.setImageResource(R.drawable.default_album_art);
             }
 
             // 播放模式按钮图标
@@ -4042,10 +3940,10 @@ if (!(isDownloaded || isCached)) {
                 repeatModeButton.setImageResource(iconRes);
             }
 
-            // 进度条与时间文本（尽力估计 duration）
+            // 进度条与时间文本（尽力估计 duration；首次进入时 DB 时长在后台读取，读到后若服务仍未绑定再刷新一次）
             int durationMs = 0;
             try {
-                com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(this).songDao().getSongById(songId);
+                com.watch.limusic.database.SongEntity se = getFallbackSong(songId, () -> { if (!bound) restorePlayerUiFromPrefs(); });
                 if (se != null) durationMs = Math.max(0, se.getDuration() * 1000); // DB 为秒，UI 用毫秒
             } catch (Exception ignore) {}
 
@@ -4070,14 +3968,16 @@ if (!(isDownloaded || isCached)) {
 		if (intent == null) return;
 		try {
 			long reqPid = intent.getLongExtra("open_playlist_local_id", -1L);
-			if (reqPid > 0) {
-				com.watch.limusic.database.PlaylistEntity pe = com.watch.limusic.database.MusicDatabase.getInstance(this).playlistDao().getByLocalId(reqPid);
-				String name = pe != null ? pe.getName() : "";
-				openPlaylistDetail(reqPid, name);
-			}
+			if (reqPid > 0) openPlaylistDetailByLocalId(reqPid);
 		} catch (Exception ignore) {}
     }
 
+    // 外部请求打开歌单详情：后台读取歌单名后在主线程打开
+    private void openPlaylistDetailByLocalId(long localId) {
+        dbRead(() -> com.watch.limusic.database.MusicDatabase.getInstance(this).playlistDao().getByLocalId(localId),
+                pe -> openPlaylistDetail(localId, pe != null ? pe.getName() : ""));
+    }
+
     // 当返回前台且处于播放状态时，自动绑定服务以恢复UI心跳更新
     private void maybeBindIfPlaying() {
         try {
@@ -4359,10 +4259,8 @@ if (!(isDownloaded || isCached)) {
                                 try {
                                     SharedPreferences sp = getSharedPreferences("player_prefs", MODE_PRIVATE);
                                     String sid = sp.getString("last_song_id", null);
-                                    if (sid != null) {
-                                        com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(MainActivity.this).songDao().getSongById(sid);
-                                        if (se != null && se.getDuration() > 0) fb = (long) se.getDuration() * 1000L;
-                                    }
+                                    com.watch.limusic.database.SongEntity se = getFallbackSong(sid, null);
+                                    if (se != null && se.getDuration() > 0) fb = (long) se.getDuration() * 1000L;
                                 } catch (Exception ignore) {}
                             }
                             long useDur = dur > 0 ? dur : fb;
@@ -4480,10 +4378,8 @@ if (!(isDownloaded || isCached)) {
                     SharedPreferences sp = getSharedPreferences("player_prefs", MODE_PRIVATE);
                     sid = sp.getString("last_song_id", null);
                 }
-                if (sid != null) {
-                    com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(this).songDao().getSongById(sid);
-                    if (se != null && se.getDuration() > 0) fb = (long) se.getDuration() * 1000L;
-                }
+                com.watch.limusic.database.SongEntity se = getFallbackSong(sid, this::trySyncFullPlayerUi);
+                if (se != null && se.getDuration() > 0) fb = (long) se.getDuration() * 1000L;
             } catch (Exception ignore) {}
             max = (int) Math.max(0, fb);
         } else {
@@ -4574,18 +4470,16 @@ if (!(isDownloaded || isCached)) {
             if (key == null) {
                 try {
                     String sid = sp.getString("last_song_id", null);
-                    if (sid != null) {
-                        com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(this).songDao().getSongById(sid);
-                        if (se != null) {
-                            albumId = se.getAlbumId();
-                            key = (albumId != null && !albumId.isEmpty()) ? albumId : se.getCoverArt();
-                        }
+                    com.watch.limusic.database.SongEntity se = getFallbackSong(sid, this::applyFullPlayerBackground);
+                    if (se != null) {
+                        albumId = se.getAlbumId();
+                        key = (albumId != null && !albumId.isEmpty()) ? albumId : se.getCoverArt();
                     }
                 } catch (Exception ignore) {}
             }
-            String localCover = (albumId != null && !albumId.isEmpty()) ? localFileDetector.getDownloadedAlbumCoverPath(albumId) : null;
-            String coverArtUrl = (localCover != null) ? ("file://" + localCover) : (key != null ? NavidromeApi.getInstance(this).getCoverArtUrl(key) : null);
-            if (coverArtUrl == null) {
+            // 全屏背景取 300 档（本地封面存在时仍优先本地）
+            com.watch.limusic.cover.CoverArtRef cover = com.watch.limusic.cover.CoverArtRef.of(key, albumId, 300);
+            if (cover == null) {
                 // 无可用封面，置黑背景
                 BlurUtils.clearEffect(fullBgImage);
                 fullBgImage.setImageDrawable(null);
@@ -4594,7 +4488,7 @@ if (!(isDownloaded || isCached)) {
             }
             if (!blurEnabled) {
                 BlurUtils.clearEffect(fullBgImage);
-                Glide.with(this).load(coverArtUrl).diskCacheStrategy(localCover != null ? DiskCacheStrategy.NONE : DiskCacheStrategy.AUTOMATIC).into(fullBgImage);
+                Glide.with(this).load(cover).diskCacheStrategy(DiskCacheStrategy.AUTOMATIC).into(fullBgImage);
                 return;
             }
             final String finalKey = key; final float finalIntensity01 = intensity01; com.bumptech.glide.request.target.CustomTarget<android.graphics.Bitmap> target = new com.bumptech.glide.request.target.CustomTarget<android.graphics.Bitmap>() {
@@ -4614,8 +4508,8 @@ if (!(isDownloaded || isCached)) {
             };
             Glide.with(this)
                 .asBitmap()
-                .load(coverArtUrl)
-                .diskCacheStrategy(localCover != null ? DiskCacheStrategy.NONE : DiskCacheStrategy.AUTOMATIC)
+                .load(cover)
+                .diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
                 .into(target);
         } catch (Exception ignore) {}
     }
@@ -4723,7 +4617,7 @@ if (!(isDownloaded || isCached)) {
             // 歌词页可见时恢复刷新
             if (lyricsController != null) lyricsController.resume();
             // 主动触发一次播放状态广播，确保可视化尽快拿到会话ID
-            try { sendBroadcast(new Intent("com.watch.limusic.PLAYBACK_STATE_CHANGED")); } catch (Exception ignore) {}
+            try { com.watch.limusic.service.PlaybackStateStore.getInstance().notifyListeners(); } catch (Exception ignore) {}
         }
     }
 
@@ -5220,6 +5114,9 @@ if (!(isDownloaded || isCached)) {
         if (!"search".equals(currentView)) return;
         String q = searchInput != null && searchInput.getText() != null ? searchInput.getText().toString().trim() : "";
         if (reset) {
+            searchRequestId++;
+            if (searchFuture != null) searchFuture.cancel(false);
+            searchLoading = false;
             searchQuery = q;
             searchOffset = 0;
             searchHasMore = true;
@@ -5247,12 +5144,14 @@ if (!(isDownloaded || isCached)) {
         if (searchLoading) return;
         searchLoading = true;
         final int reqId = ++searchRequestId;
+        final int offset = searchOffset;
         // 移除"加载中"动效：首轮与分页均不显示 LOADING
         getOrInitSearchFooter().setState(com.watch.limusic.adapter.SearchFooterAdapter.State.HIDDEN);
-        new Thread(() -> {
-            java.util.List<com.watch.limusic.model.Song> page = musicRepository.searchSongsPaged(q, SEARCH_PAGE_SIZE, searchOffset);
+        searchFuture = searchExecutor.submit(() -> {
+            if (reqId != searchRequestId) return;
+            java.util.List<com.watch.limusic.model.Song> page = musicRepository.searchSongsPaged(q, SEARCH_PAGE_SIZE, offset);
             runOnUiThread(() -> {
-                if (reqId != searchRequestId) { searchLoading = false; return; }
+                if (reqId != searchRequestId) return;
                 java.util.List<com.watch.limusic.model.Song> finalPage = (page != null) ? page : new java.util.ArrayList<>();
                 // footer状态：加载完成后根据是否有下一页决定
                 if (finalPage.isEmpty() && searchOffset == 0) {
@@ -5263,6 +5162,7 @@ if (!(isDownloaded || isCached)) {
                         emptyMessageView.setText(R.string.search_no_result);
                         emptyContainer.setVisibility(View.VISIBLE);
                     }
+                    searchLoading = false;
                     return;
                 }
                 if (emptyContainer != null) emptyContainer.setVisibility(View.GONE);
@@ -5271,7 +5171,7 @@ if (!(isDownloaded || isCached)) {
                 searchHasMore = finalPage.size() >= SEARCH_PAGE_SIZE;
                 // 提交新结果，并在提交完成后回顶与设置 Footer（以 Diff 完成为准）
                 songAdapter.processAndSubmitListKeepOrder(new java.util.ArrayList<>(searchResults), () -> {
-                    try { searchLoading = false; } catch (Exception ignore) {}
+                    if (reqId == searchRequestId) searchLoading = false;
                     recyclerView.post(() -> {
                         try {
                             if (reset) {
@@ -5299,7 +5199,7 @@ if (!(isDownloaded || isCached)) {
                     updateLocateButtonVisibility(sid);
                 } catch (Exception ignore) {}
             });
-        }).start();
+        });
     }
 
     private void loadMoreSearchResults() {
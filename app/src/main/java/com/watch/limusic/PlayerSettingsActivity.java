@@ -441,7 +441,7 @@ public class PlayerSettingsActivity extends AppCompatActivity {
 
 	private void notifyUi() {
 		try { Intent i = new Intent("com.watch.limusic.UI_SETTINGS_CHANGED"); i.putExtra("what","player_bg"); sendBroadcast(i);} catch (Exception ignore) {}
-		try { sendBroadcast(new Intent("com.watch.limusic.PLAYBACK_STATE_CHANGED")); } catch (Exception ignore) {}
+		try { com.watch.limusic.service.PlaybackStateStore.getInstance().notifyListeners(); } catch (Exception ignore) {}
 	}
 
 	private void notifyUiLyric() {
@@ -458,7 +458,7 @@ public class PlayerSettingsActivity extends AppCompatActivity {
 
 	private void notifyUiVisualizer() {
 		try { Intent i = new Intent("com.watch.limusic.UI_SETTINGS_CHANGED"); i.putExtra("what","visualizer"); sendBroadcast(i);} catch (Exception ignore) {}
-		try { sendBroadcast(new Intent("com.watch.limusic.PLAYBACK_STATE_CHANGED")); } catch (Exception ignore) {}
+		try { com.watch.limusic.service.PlaybackStateStore.getInstance().notifyListeners(); } catch (Exception ignore) {}
 		try {
 			SharedPreferences sp = getSharedPreferences(PREFS, MODE_PRIVATE);
 			boolean low = sp.getBoolean("low_power_mode_enabled", false);
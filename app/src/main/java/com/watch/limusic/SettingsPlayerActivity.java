@@ -41,7 +41,7 @@ public class SettingsPlayerActivity extends AppCompatActivity {
             updateBgBlurSummary();
             // 通知主界面
             sendBroadcast(new Intent("com.watch.limusic.UI_SETTINGS_CHANGED").putExtra("what", "bg_blur_enabled"));
-            sendBroadcast(new Intent("com.watch.limusic.PLAYBACK_STATE_CHANGED"));
+            com.watch.limusic.service.PlaybackStateStore.getInstance().notifyListeners();
         });
 
         if (seekBgBlurIntensity != null) {
@@ -57,7 +57,7 @@ public class SettingsPlayerActivity extends AppCompatActivity {
                     SharedPreferences sp = getSharedPreferences(PREFS, MODE_PRIVATE);
                     sp.edit().putInt(KEY_BG_BLUR_INTENSITY, seekBar.getProgress()).apply();
                     sendBroadcast(new Intent("com.watch.limusic.UI_SETTINGS_CHANGED").putExtra("what", "bg_blur_intensity"));
-                    sendBroadcast(new Intent("com.watch.limusic.PLAYBACK_STATE_CHANGED"));
+                    com.watch.limusic.service.PlaybackStateStore.getInstance().notifyListeners();
                 }
             });
         }
@@ -7,6 +7,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.annotation.NonNull;
 
@@ -14,11 +15,10 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.request.RequestOptions;
-import com.bumptech.glide.signature.ObjectKey;
 import com.watch.limusic.R;
+import com.watch.limusic.cover.CoverArtRef;
+import com.watch.limusic.cover.CoverArtService;
 import com.watch.limusic.model.Album;
-import com.watch.limusic.api.NavidromeApi;
-import com.watch.limusic.download.LocalFileDetector;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -91,6 +91,40 @@ public class AlbumAdapter extends RecyclerView.Adapter<AlbumAdapter.ViewHolder>
         return albums.size();
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(coverScrollListener);
+    }
+
+    // 切换到其他列表（setAdapter 替换）时取消尚未完成的封面预取
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(coverScrollListener);
+        CoverArtService.getInstance(context).cancelPrefetch();
+    }
+
+    // 惯性滚动时暂停封面预取，停下后优先保存可见行
+    private final RecyclerView.OnScrollListener coverScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView rv, int newState) {
+            CoverArtService covers = CoverArtService.getInstance(context);
+            if (newState == RecyclerView.SCROLL_STATE_SETTLING) {
+                covers.setPaused(true);
+                return;
+            }
+            if (newState != RecyclerView.SCROLL_STATE_IDLE) return;
+            covers.setPaused(false);
+            if (!(rv.getLayoutManager() instanceof LinearLayoutManager)) return;
+            LinearLayoutManager lm = (LinearLayoutManager) rv.getLayoutManager();
+            int first = lm.findFirstVisibleItemPosition();
+            int last = lm.findLastVisibleItemPosition();
+            if (first == RecyclerView.NO_POSITION || last < first || first >= albums.size()) return;
+            covers.prioritize(new ArrayList<>(albums.subList(first, Math.min(last + 1, albums.size()))));
+        }
+    };
+
     class ViewHolder extends RecyclerView.ViewHolder {
         private final ImageView albumCoverView;
         private final TextView albumTitleView;
@@ -136,36 +170,21 @@ public class AlbumAdapter extends RecyclerView.Adapter<AlbumAdapter.ViewHolder>
             }
             albumInfoView.setText(infoText);
             
-            // 使用Glide加载图片：优先本地封面，其次网络URL（仅在存在coverArtId时），否则占位图
-            String albumId = album.getId();
-            String coverId = album.getCoverArt();
-            String localCover = null;
-            if (albumId != null && !albumId.isEmpty()) {
-                localCover = new LocalFileDetector(context).getDownloadedAlbumCoverPath(albumId);
-            }
-
-            RequestOptions opts = new RequestOptions()
-                    .format(DecodeFormat.PREFER_RGB_565)
-                    .disallowHardwareConfig()
-                    .dontAnimate()
-                    .override(40, 40)
-                    .placeholder(R.drawable.default_album_art)
-                    .error(R.drawable.default_album_art);
-
-            if (localCover != null) {
-                Glide.with(context)
-                    .load("file://" + localCover)
-                    .apply(opts.diskCacheStrategy(DiskCacheStrategy.NONE))
-                    .into(albumCoverView);
-            } else if (coverId != null && !coverId.isEmpty()) {
-                String url = NavidromeApi.getInstance(context).getCoverArtUrl(coverId);
+            // 封面：本地封面优先，其次网络（仅在存在coverArtId时，列表行取 64 档），都没有则占位图
+            CoverArtRef cover = CoverArtRef.of(album.getCoverArt(), album.getId(), 40);
+            if (cover != null) {
                 Glide.with(context)
-                    .load(url)
-                    .apply(opts.diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
-                            .signature(new ObjectKey(coverId)))
+                    .load(cover)
+                    .apply(new RequestOptions()
+                            .format(DecodeFormat.PREFER_RGB_565)
+                            .disallowHardwareConfig()
+                            .dontAnimate()
+                            .override(40, 40)
+                            .placeholder(R.drawable.default_album_art)
+                            .error(R.drawable.default_album_art)
+                            .diskCacheStrategy(DiskCacheStrategy.AUTOMATIC))
                     .into(albumCoverView);
             } else {
-                // 无封面ID且本地无封面：直接使用占位图，避免请求远端导致显示Navidrome默认封面
                 albumCoverView.setImageResource(R.drawable.default_album_art);
             }
         }
@@ -16,7 +16,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.watch.limusic.R;
 import com.watch.limusic.database.MusicRepository;
 import com.watch.limusic.download.DownloadManager;
-import com.watch.limusic.download.LocalFileDetector;
+import com.watch.limusic.download.DownloadIndex;
 import com.watch.limusic.model.DownloadInfo;
 import com.watch.limusic.model.Song;
 import com.watch.limusic.model.SongWithIndex;
@@ -37,12 +37,10 @@ import android.graphics.Typeface;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ConcurrentSkipListSet;
 
 public class AllSongsRangeAdapter extends RecyclerView.Adapter<AllSongsRangeAdapter.ViewHolder> {
 	private final Context context;
 	private final MusicRepository musicRepository;
-	private final LocalFileDetector localFileDetector;
 	private final DownloadManager downloadManager;
 	private SongAdapter.OnSongClickListener songClickListener;
 	private SongAdapter.OnDownloadClickListener downloadClickListener;
@@ -64,8 +62,8 @@ public class AllSongsRangeAdapter extends RecyclerView.Adapter<AllSongsRangeAdap
 			}, "AllSongsRangeAdapter-IO");
 		}
 	});
-	// 新增：内存集合，避免逐条文件系统查询
-	private final Set<String> downloadedSongIds = new ConcurrentSkipListSet<>();
+	// 进程级已下载索引，逐条绑定为内存查询
+	private final DownloadIndex downloadIndex;
 
 	// 选择模式支持
 	private boolean selectionMode = false;
@@ -81,17 +79,14 @@ public class AllSongsRangeAdapter extends RecyclerView.Adapter<AllSongsRangeAdap
 	public AllSongsRangeAdapter(Context context, MusicRepository repository, SongAdapter.OnSongClickListener listener) {
 		this.context = context;
 		this.musicRepository = repository;
-		this.localFileDetector = new LocalFileDetector(context);
 		this.downloadManager = DownloadManager.getInstance(context);
+		this.downloadIndex = DownloadIndex.getInstance(context);
 		this.songClickListener = listener;
 		// 启用稳定ID，减少全量刷新和回收导致的闪烁/跳位
 		setHasStableIds(true);
-		// 异步预扫描下载目录，填充内存集合
+		// 在后台触发索引首次加载，避免首屏绑定时在主线程扫描目录
 		bgExecutor.execute(() -> {
-			try {
-				java.util.List<String> ids = localFileDetector.getAllDownloadedSongIds();
-				if (ids != null) downloadedSongIds.addAll(ids);
-			} catch (Throwable ignore) {}
+			try { downloadIndex.size(); } catch (Throwable ignore) {}
 		});
 	}
 
@@ -356,7 +351,7 @@ public class AllSongsRangeAdapter extends RecyclerView.Adapter<AllSongsRangeAdap
 			});
 			return;
 		}
-		boolean isDownloaded = downloadedSongIds.contains(song.getId());
+		boolean isDownloaded = downloadIndex.isDownloaded(song.getId());
 		if (isDownloaded) {
 			holder.downloadComplete.setVisibility(View.VISIBLE);
 			holder.downloadComplete.setOnClickListener(v -> {
@@ -378,10 +373,12 @@ public class AllSongsRangeAdapter extends RecyclerView.Adapter<AllSongsRangeAdap
 		bgExecutor.execute(() -> {
 			List<Song> songs = musicRepository.getSongsRange(pageSize, aligned);
 			List<SongWithIndex> items = new ArrayList<>();
+			// 整页共用一次索引引用，逐行为无锁内存查询，不与播放线程争用 SimpleCache 锁
+			com.watch.limusic.cache.CachedSongIndex cachedIndex = com.watch.limusic.cache.CacheManager.getInstance(context).getCachedSongIndex();
 			for (int i = 0; i < songs.size(); i++) {
 				Song s = songs.get(i);
-				boolean isDownloaded = downloadedSongIds.contains(s.getId());
-				boolean cachedByKey = com.watch.limusic.cache.CacheManager.getInstance(context).isCachedByAnyKey(s.getId());
+				boolean isDownloaded = downloadIndex.isDownloaded(s.getId());
+				boolean cachedByKey = cachedIndex.contains(s.getId());
 				boolean cached = isDownloaded || cachedByKey;
 				SongWithIndex swi = new SongWithIndex(s, aligned + i, cached);
 				items.add(swi);
@@ -432,13 +429,6 @@ public class AllSongsRangeAdapter extends RecyclerView.Adapter<AllSongsRangeAdap
 				break;
 			}
 		}
-		// 同步维护内存集合
-		try {
-			if (songId != null && !songId.isEmpty()) {
-				boolean nowDownloaded = localFileDetector.isSongDownloaded(songId);
-				if (nowDownloaded) downloadedSongIds.add(songId); else downloadedSongIds.remove(songId);
-			}
-		} catch (Throwable ignore) {}
 	}
 
 	public void updateSongDownloadProgress(String songId, int progress) {
@@ -133,14 +133,7 @@ public class DownloadTaskAdapter extends ListAdapter<DownloadInfo, DownloadTaskA
                 try { h.action.setImageTintList(ColorStateList.valueOf(ContextCompat.getColor(context, R.color.download_progress_paused))); } catch (Exception ignore) {}
                 h.action.setContentDescription("继续");
                 h.action.setOnClickListener(v -> {
-                    try {
-                        com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(v.getContext()).songDao().getSongById(info.getSongId());
-                        if (se != null) {
-                            com.watch.limusic.model.Song s = new com.watch.limusic.model.Song(se.getId(), se.getTitle(), se.getArtist(), se.getAlbum(), se.getCoverArt(), se.getStreamUrl(), se.getDuration());
-                            s.setAlbumId(se.getAlbumId());
-                            com.watch.limusic.download.DownloadManager.getInstance(v.getContext()).resumeDownload(s);
-                        }
-                    } catch (Exception ignore) {}
+                    resumeDownloadById(v.getContext(), info.getSongId());
                     // 立即切换本地UI为“下载中”态，等待广播二次校正
                     try {
                         DownloadInfo clone = new DownloadInfo(info);
@@ -158,14 +151,7 @@ public class DownloadTaskAdapter extends ListAdapter<DownloadInfo, DownloadTaskA
                 try { h.action.setImageTintList(ColorStateList.valueOf(ContextCompat.getColor(context, R.color.download_progress_running))); } catch (Exception ignore) {}
                 h.action.setContentDescription("重试");
                 h.action.setOnClickListener(v -> {
-                    try {
-                        com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(v.getContext()).songDao().getSongById(info.getSongId());
-                        if (se != null) {
-                            com.watch.limusic.model.Song s = new com.watch.limusic.model.Song(se.getId(), se.getTitle(), se.getArtist(), se.getAlbum(), se.getCoverArt(), se.getStreamUrl(), se.getDuration());
-                            s.setAlbumId(se.getAlbumId());
-                            com.watch.limusic.download.DownloadManager.getInstance(v.getContext()).resumeDownload(s);
-                        }
-                    } catch (Exception ignore) {}
+                    resumeDownloadById(v.getContext(), info.getSongId());
                     try {
                         DownloadInfo clone = new DownloadInfo(info);
                         clone.setStatus(DownloadStatus.DOWNLOADING);
@@ -225,6 +211,21 @@ public class DownloadTaskAdapter extends ListAdapter<DownloadInfo, DownloadTaskA
         return -1;
     }
 
+    // 继续/重试：后台按 ID 读取歌曲后恢复下载
+    private static void resumeDownloadById(Context ctx, String songId) {
+        final Context app = ctx.getApplicationContext();
+        com.watch.limusic.database.DbExecutors.reader().execute(() -> {
+            try {
+                com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(app).songDao().getSongById(songId);
+                if (se != null) {
+                    com.watch.limusic.model.Song s = new com.watch.limusic.model.Song(se.getId(), se.getTitle(), se.getArtist(), se.getAlbum(), se.getCoverArt(), se.getStreamUrl(), se.getDuration());
+                    s.setAlbumId(se.getAlbumId());
+                    com.watch.limusic.download.DownloadManager.getInstance(app).resumeDownload(s);
+                }
+            } catch (Exception ignore) {}
+        });
+    }
+
     private static String nonNull(String s) { return s != null ? s : ""; }
 
     private static String formatSize(long bytes) {
@@ -15,7 +15,7 @@ import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.request.RequestOptions;
 import com.watch.limusic.R;
-import com.watch.limusic.api.NavidromeApi;
+import com.watch.limusic.cover.CoverArtRef;
 import com.watch.limusic.database.PlaylistEntity;
 
 import java.util.ArrayList;
@@ -69,12 +69,8 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.ViewHo
 		if (p.getServerId() != null) {
 			coverId = coverArtByServerId.get(p.getServerId());
 		}
-		Object source;
-		if (coverId != null && !coverId.isEmpty()) {
-			source = NavidromeApi.getInstance(context).getCoverArtUrl(coverId);
-		} else {
-			source = R.drawable.default_album_art;
-		}
+		Object source = CoverArtRef.of(coverId, null, 40);
+		if (source == null) source = R.drawable.default_album_art;
 
 		RequestOptions opts = new RequestOptions()
 				.format(DecodeFormat.PREFER_RGB_565)
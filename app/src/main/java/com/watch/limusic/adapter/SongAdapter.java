@@ -22,12 +22,11 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.request.RequestOptions;
-import com.bumptech.glide.signature.ObjectKey;
 import com.watch.limusic.R;
 import com.watch.limusic.database.CacheDetector;
 import com.watch.limusic.model.Song;
 import com.watch.limusic.model.SongWithIndex;
-import com.watch.limusic.api.NavidromeApi;
+import com.watch.limusic.cover.CoverArtRef;
 import com.watch.limusic.database.MusicRepository;
 import com.watch.limusic.download.DownloadManager;
 import com.watch.limusic.download.LocalFileDetector;
@@ -282,29 +281,19 @@ public class SongAdapter extends ListAdapter<SongWithIndex, SongAdapter.ViewHold
 
         if (showCoverArt) {
             holder.albumArt.setVisibility(View.VISIBLE);
-            String albumId = song.getAlbumId();
-            String coverId = song.getCoverArtUrl();
-            String localCover = (albumId != null && !albumId.isEmpty()) ? localFileDetector.getDownloadedAlbumCoverPath(albumId) : null;
-
-            RequestOptions opts = new RequestOptions()
-                    .format(DecodeFormat.PREFER_RGB_565)
-                    .disallowHardwareConfig()
-                    .dontAnimate()
-                    .override(36, 36)
-                    .placeholder(R.drawable.default_album_art)
-                    .error(R.drawable.default_album_art);
-
-            if (localCover != null) {
+            // 本地封面优先，其次网络（列表行取 64 档）；无本地封面且无封面ID时显示占位图
+            CoverArtRef cover = CoverArtRef.of(song.getCoverArtUrl(), song.getAlbumId(), 36);
+            if (cover != null) {
+                RequestOptions opts = new RequestOptions()
+                        .format(DecodeFormat.PREFER_RGB_565)
+                        .disallowHardwareConfig()
+                        .dontAnimate()
+                        .override(36, 36)
+                        .placeholder(R.drawable.default_album_art)
+                        .error(R.drawable.default_album_art);
                 Glide.with(context)
-                        .load("file://" + localCover)
-                        .apply(opts.diskCacheStrategy(DiskCacheStrategy.NONE))
-                        .into(holder.albumArt);
-            } else if (coverId != null && !coverId.isEmpty()) {
-                String url = NavidromeApi.getInstance(context).getCoverArtUrl(coverId);
-                Glide.with(context)
-                        .load(url)
-                        .apply(opts.diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
-                                .signature(new ObjectKey(coverId)))
+                        .load(cover)
+                        .apply(opts.diskCacheStrategy(DiskCacheStrategy.AUTOMATIC))
                         .into(holder.albumArt);
             } else {
                 holder.albumArt.setImageResource(R.drawable.default_album_art);
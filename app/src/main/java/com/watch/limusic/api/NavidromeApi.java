@@ -7,16 +7,13 @@ import android.util.Log;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
 import com.watch.limusic.model.Song;
 import com.watch.limusic.model.Album;
 
 import java.io.IOException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.List;
-import java.util.Random;
 import java.util.ArrayList;
-import java.util.concurrent.TimeUnit;
 
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
@@ -39,6 +36,8 @@ public class NavidromeApi {
     private String username;
     private String password;
     private int serverPort;
+    // 预解析的签名/URL 构建器，凭据变化时整体替换
+    private volatile SubsonicUrlSigner signer;
 
     public static NavidromeApi getInstance(Context context) {
         if (instance == null) {
@@ -47,6 +46,9 @@ public class NavidromeApi {
         return instance;
     }
 
+    // 共享的 OkHttpClient（连接池/调度器），供下载引擎等派生专用客户端
+    public OkHttpClient getHttpClient() { return client; }
+
     // 新增：暴露当前用户名，供仓库在筛选远端歌单 owner 时使用
     public String getCurrentUsername() { return username; }
 
@@ -84,6 +86,7 @@ public class NavidromeApi {
         username = prefs.getString("username", "");
         password = prefs.getString("password", "");
         serverPort = Integer.parseInt(prefs.getString("server_port", "4533"));
+        signer = SubsonicUrlSigner.create(serverUrl, serverPort, username, password, CLIENT_NAME, API_VERSION);
     }
 
     // 显式刷新凭据，供外部在配置更新广播到达时调用
@@ -102,66 +105,33 @@ public class NavidromeApi {
     }
 
     private String generateSalt() {
-        Random random = new Random();
-        return String.valueOf(random.nextInt(900000000) + 100000000);
+        return SubsonicUrlSigner.newSalt();
     }
 
     private String generateToken(String password, String salt) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            String input = password + salt;
-            byte[] bytes = md.digest(input.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : bytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            Log.e(TAG, "Error generating token", e);
-            return null;
-        }
+        return SubsonicUrlSigner.token(password, salt);
     }
 
-    private HttpUrl.Builder getBaseUrlBuilder() {
-        // 使用内存中的最新配置（通过构造与广播刷新）
-        String hostOnly = serverUrl == null ? "" : serverUrl.replace("http://", "").replace("https://", "");
-        int slashIdx = hostOnly.indexOf('/');
-        if (slashIdx >= 0) hostOnly = hostOnly.substring(0, slashIdx);
-        int colonIdx = hostOnly.indexOf(':');
-        if (colonIdx >= 0) hostOnly = hostOnly.substring(0, colonIdx);
-        if (hostOnly == null || hostOnly.isEmpty()) {
-            // 兜底再读一次
+    // 使用内存中的最新配置（通过构造与广播刷新）；未配置时兜底再读一次
+    private SubsonicUrlSigner requireSigner() {
+        SubsonicUrlSigner s = signer;
+        if (s == null) {
             reloadCredentials();
-            hostOnly = serverUrl == null ? "" : serverUrl.replace("http://", "").replace("https://", "");
-            slashIdx = hostOnly.indexOf('/');
-            if (slashIdx >= 0) hostOnly = hostOnly.substring(0, slashIdx);
-            colonIdx = hostOnly.indexOf(':');
-            if (colonIdx >= 0) hostOnly = hostOnly.substring(0, colonIdx);
-            if (hostOnly == null || hostOnly.isEmpty()) {
+            s = signer;
+            if (s == null) {
                 throw new IllegalStateException("Navidrome server is not configured yet");
             }
         }
-        return new HttpUrl.Builder()
-                .scheme(serverUrl != null && serverUrl.startsWith("https") ? "https" : "http")
-                .host(hostOnly)
-                .port(serverPort)
-                .addPathSegment("rest");
+        return s;
+    }
+
+    private HttpUrl.Builder getBaseUrlBuilder() {
+        return requireSigner().restBuilder();
     }
 
     // 统一构建请求（带签名参数）
     private Request.Builder getRequestBuilder(String endpoint) {
-        String salt = generateSalt();
-        String token = generateToken(password, salt);
-        HttpUrl url = getBaseUrlBuilder()
-                .addPathSegment(endpoint)
-                .addQueryParameter("u", username)
-                .addQueryParameter("t", token)
-                .addQueryParameter("s", salt)
-                .addQueryParameter("v", API_VERSION)
-                .addQueryParameter("c", CLIENT_NAME)
-                .addQueryParameter("f", "json")
-                .build();
-        return new Request.Builder().url(url);
+        return new Request.Builder().url(requireSigner().newSignedRequest(endpoint).build());
     }
 
     // 兼容旧版 Gson：parse json 字符串为 JsonObject
@@ -189,20 +159,11 @@ public class NavidromeApi {
                 })
                 .build();
 
-        String salt;
-        {
-            java.util.Random random = new java.util.Random();
-            salt = String.valueOf(random.nextInt(900000000) + 100000000);
-        }
+        String salt = SubsonicUrlSigner.newSalt();
         String token;
         try {
-            java.security.MessageDigest md = java.security.MessageDigest.getInstance("MD5");
-            String input = password + salt;
-            byte[] bytes = md.digest(input.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : bytes) sb.append(String.format("%02x", b));
-            token = sb.toString();
-        } catch (java.security.NoSuchAlgorithmException e) {
+            token = SubsonicUrlSigner.token(password, salt);
+        } catch (IllegalStateException e) {
             throw new IOException("无法生成校验令牌", e);
         }
 
@@ -269,21 +230,9 @@ public class NavidromeApi {
         }
     }
 
-    public String getCoverArtUrl(String coverArtId) {
-        String salt = generateSalt();
-        String token = generateToken(password, salt);
-
-        return getBaseUrlBuilder()
-                .addPathSegment("getCoverArt")
-                .addQueryParameter("u", username)
-                .addQueryParameter("t", token)
-                .addQueryParameter("s", salt)
-                .addQueryParameter("v", API_VERSION)
-                .addQueryParameter("c", CLIENT_NAME)
-                .addQueryParameter("id", coverArtId)
-                .addQueryParameter("size", "150")  // 合适的封面大小
-                .build()
-                .toString();
+    // 封面尺寸由调用方按目标视图分档（见 cover.CoverArtRef）
+    public String getCoverArtUrl(String coverArtId, int size) {
+        return requireSigner().coverArtUrl(coverArtId, size);
     }
 
     public List<Song> getAlbumSongs(String albumId) throws IOException {
@@ -309,38 +258,21 @@ public class NavidromeApi {
             if (!response.isSuccessful()) {
                 throw new IOException("Unexpected response " + response);
             }
-            AlbumResponse albumResponse = gson.fromJson(
-                response.body().string(), 
-                new TypeToken<AlbumResponse>(){}.getType()
-            );
-            if (albumResponse != null && 
-                albumResponse.getResponse() != null && 
-                albumResponse.getResponse().getAlbum() != null) {
-                AlbumData album = albumResponse.getResponse().getAlbum();
-                List<Song> songs = album.getSongs();
-                for (Song song : songs) {
-                    song.setAlbumId(album.getId());
-                }
-                return songs;
+            List<Song> songs = new ArrayList<>();
+            JsonReader reader = new JsonReader(response.body().charStream());
+            if (SubsonicJsonDecoder.seekResponseField(reader, "album") == null) return songs;
+            com.google.gson.JsonObject head = SubsonicJsonDecoder.readObjectWithList(reader, gson, "song", Song.class, songs::add);
+            String id = head.has("id") && head.get("id").isJsonPrimitive() ? head.get("id").getAsString() : albumId;
+            for (Song song : songs) {
+                song.setAlbumId(id);
             }
-            return new ArrayList<>();
+            return songs;
         }
     }
 
+    // 媒体 URL 使用会话级签名：同一凭据下 URL 稳定，构建只需字符串拼接
     public String getStreamUrl(String songId) {
-        String salt = generateSalt();
-        String token = generateToken(password, salt);
-
-        return getBaseUrlBuilder()
-                .addPathSegment("stream")
-                .addQueryParameter("u", username)
-                .addQueryParameter("t", token)
-                .addQueryParameter("s", salt)
-                .addQueryParameter("v", API_VERSION)
-                .addQueryParameter("c", CLIENT_NAME)
-                .addQueryParameter("id", songId)
-                .build()
-                .toString();
+        return requireSigner().streamUrl(songId);
     }
 
     /**
@@ -407,36 +339,40 @@ public class NavidromeApi {
     }
 
     public String getTranscodedStreamUrl(String songId, String format, int maxBitRateKbps) {
-        String salt = generateSalt();
-        String token = generateToken(password, salt);
+        return requireSigner().transcodedStreamUrl(songId, format, maxBitRateKbps);
+    }
 
-        return getBaseUrlBuilder()
-                .addPathSegment("stream")
-                .addQueryParameter("u", username)
-                .addQueryParameter("t", token)
-                .addQueryParameter("s", salt)
-                .addQueryParameter("v", API_VERSION)
-                .addQueryParameter("c", CLIENT_NAME)
-                .addQueryParameter("id", songId)
-                .addQueryParameter("format", format)
-                .addQueryParameter("maxBitRate", String.valueOf(maxBitRateKbps))
-                .build()
-                .toString();
+    /**
+     * 分页拉取全库歌曲（search3 空查询，按服务器稳定顺序翻页）
+     * 返回数量小于 size 即表示已到末页
+     */
+    public List<Song> getSongsPage(int size, int offset) throws IOException {
+        List<Song> songs = new ArrayList<>(size);
+        getSongsPage(size, offset, songs::add);
+        return songs;
     }
 
-    public List<Song> getAllSongs() throws IOException {
+    /**
+     * 流式版本：边读响应体边将歌曲交给 sink（无需等待整页下载完成）
+     * @return 本页歌曲数
+     */
+    public int getSongsPage(int size, int offset, SubsonicJsonDecoder.ElementSink<Song> sink) throws IOException {
         String salt = generateSalt();
         String token = generateToken(password, salt);
 
         HttpUrl url = getBaseUrlBuilder()
-                .addPathSegment("getRandomSongs")
+                .addPathSegment("search3")
                 .addQueryParameter("u", username)
                 .addQueryParameter("t", token)
                 .addQueryParameter("s", salt)
                 .addQueryParameter("v", API_VERSION)
                 .addQueryParameter("c", CLIENT_NAME)
                 .addQueryParameter("f", "json")
-                .addQueryParameter("size", "500")
+                .addQueryParameter("query", "")
+                .addQueryParameter("artistCount", "0")
+                .addQueryParameter("albumCount", "0")
+                .addQueryParameter("songCount", String.valueOf(size))
+                .addQueryParameter("songOffset", String.valueOf(offset))
                 .build();
 
         Request request = new Request.Builder()
@@ -447,61 +383,28 @@ public class NavidromeApi {
             if (!response.isSuccessful()) {
                 throw new IOException("Unexpected response " + response);
             }
-            SongsResponse songsResponse = gson.fromJson(
-                response.body().string(), 
-                new TypeToken<SongsResponse>(){}.getType()
-            );
-            if (songsResponse != null && 
-                songsResponse.getResponse() != null && 
-                songsResponse.getResponse().getSongs() != null) {
-                List<Song> songs = songsResponse.getResponse().getSongs();
-                return songs;
-            }
-            return new ArrayList<>();
+            JsonReader reader = new JsonReader(response.body().charStream());
+            if (SubsonicJsonDecoder.seekResponseField(reader, "searchResult3") == null) return 0;
+            int[] count = {0};
+            SubsonicJsonDecoder.readObjectWithList(reader, gson, "song", Song.class, song -> {
+                count[0]++;
+                sink.accept(song);
+            });
+            return count[0];
         }
     }
 
-    public List<Song> getAllSongsQuick() throws IOException {
-        String salt = generateSalt();
-        String token = generateToken(password, salt);
-
-        HttpUrl url = getBaseUrlBuilder()
-                .addPathSegment("getRandomSongs")
-                .addQueryParameter("u", username)
-                .addQueryParameter("t", token)
-                .addQueryParameter("s", salt)
-                .addQueryParameter("v", API_VERSION)
-                .addQueryParameter("c", CLIENT_NAME)
-                .addQueryParameter("f", "json")
-                .addQueryParameter("size", "500")
-                .build();
-
-        Request request = new Request.Builder()
-                .url(url)
-                .build();
-
-        OkHttpClient quickClient = client.newBuilder()
-                .connectTimeout(2, TimeUnit.SECONDS)
-                .readTimeout(6, TimeUnit.SECONDS)
-                .writeTimeout(6, TimeUnit.SECONDS)
-                .callTimeout(8, TimeUnit.SECONDS)
-                .build();
-
-        try (Response response = quickClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Unexpected response " + response);
-            }
-            SongsResponse songsResponse = gson.fromJson(
-                response.body().string(), 
-                new com.google.gson.reflect.TypeToken<SongsResponse>(){}.getType()
-            );
-            if (songsResponse != null && 
-                songsResponse.getResponse() != null && 
-                songsResponse.getResponse().getSongs() != null) {
-                List<Song> songs = songsResponse.getResponse().getSongs();
-                return songs;
-            }
-            return new ArrayList<>();
+    /**
+     * 获取服务器扫描状态（getScanStatus），用于判断曲库自上次同步后是否发生变化
+     * 服务器不支持或失败时返回 null
+     */
+    public ScanStatus getScanStatus() throws IOException {
+        Request request = getRequestBuilder("getScanStatus").build();
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) return null;
+            ScanStatusEnvelope env = gson.fromJson(response.body().string(), ScanStatusEnvelope.class);
+            if (env == null || env.response == null || !env.response.isSuccess()) return null;
+            return env.response.scanStatus;
         }
     }
 
@@ -521,28 +424,17 @@ public class NavidromeApi {
         Request request = new Request.Builder().url(url).build();
         try (Response response = client.newCall(request).execute()) {
             if (!response.isSuccessful()) throw new IOException("Unexpected response " + response);
-            String json = response.body().string();
-            // 兼容：当 playlists.playlist 为单对象而非数组时，包装成数组
-            try {
-                com.google.gson.JsonObject root = parseJsonObjectCompat(json);
-                if (root != null) {
-                    com.google.gson.JsonObject sr = root.has("subsonic-response") && root.get("subsonic-response").isJsonObject()
-                            ? root.getAsJsonObject("subsonic-response") : null;
-                    if (sr != null && sr.has("playlists") && sr.get("playlists").isJsonObject()) {
-                        com.google.gson.JsonObject pls = sr.getAsJsonObject("playlists");
-                        if (pls.has("playlist")) {
-                            com.google.gson.JsonElement pl = pls.get("playlist");
-                            if (pl != null && pl.isJsonObject()) {
-                                com.google.gson.JsonArray arr = new com.google.gson.JsonArray();
-                                arr.add(pl.getAsJsonObject());
-                                pls.add("playlist", arr);
-                                json = root.toString();
-                            }
-                        }
-                    }
-                }
-            } catch (Exception ignore) {}
-            PlaylistsEnvelope env = gson.fromJson(json, new TypeToken<PlaylistsEnvelope>(){}.getType());
+            // 流式解码：playlists.playlist 为单对象或数组均可
+            JsonReader reader = new JsonReader(response.body().charStream());
+            PlaylistsEnvelope env = new PlaylistsEnvelope();
+            env.response = new PlaylistsResponse();
+            env.response.status = SubsonicJsonDecoder.seekResponseField(reader, "playlists");
+            if (env.response.status != null) {
+                List<Playlist> list = new ArrayList<>();
+                SubsonicJsonDecoder.readObjectWithList(reader, gson, "playlist", Playlist.class, list::add);
+                env.response.playlists = new Playlists();
+                env.response.playlists.list = list;
+            }
             return env;
         }
     }
@@ -563,28 +455,20 @@ public class NavidromeApi {
         Request request = new Request.Builder().url(url).build();
         try (Response response = client.newCall(request).execute()) {
             if (!response.isSuccessful()) throw new IOException("Unexpected response " + response);
-            String json = response.body().string();
-            // 兼容：当 playlist.entry 为单对象而非数组时，包装成数组
-            try {
-                com.google.gson.JsonObject root = parseJsonObjectCompat(json);
-                if (root != null) {
-                    com.google.gson.JsonObject sr = root.has("subsonic-response") && root.get("subsonic-response").isJsonObject()
-                            ? root.getAsJsonObject("subsonic-response") : null;
-                    if (sr != null && sr.has("playlist") && sr.get("playlist").isJsonObject()) {
-                        com.google.gson.JsonObject pl = sr.getAsJsonObject("playlist");
-                        if (pl.has("entry")) {
-                            com.google.gson.JsonElement en = pl.get("entry");
-                            if (en != null && en.isJsonObject()) {
-                                com.google.gson.JsonArray arr = new com.google.gson.JsonArray();
-                                arr.add(en.getAsJsonObject());
-                                pl.add("entry", arr);
-                                json = root.toString();
-                            }
-                        }
-                    }
+            // 流式解码：entry 逐条读取，单对象或数组均可；其余头部字段体量很小，单独绑定
+            JsonReader reader = new JsonReader(response.body().charStream());
+            PlaylistEnvelope env = new PlaylistEnvelope();
+            env.response = new PlaylistResponse();
+            env.response.status = SubsonicJsonDecoder.seekResponseField(reader, "playlist");
+            if (env.response.status != null) {
+                List<Song> entries = new ArrayList<>();
+                com.google.gson.JsonObject head = SubsonicJsonDecoder.readObjectWithList(reader, gson, "entry", Song.class, entries::add);
+                RemotePlaylist pl = gson.fromJson(head, RemotePlaylist.class);
+                if (pl != null) {
+                    pl.entries = entries;
+                    env.response.playlist = pl;
                 }
-            } catch (Exception ignore) {}
-            PlaylistEnvelope env = gson.fromJson(json, new TypeToken<PlaylistEnvelope>(){}.getType());
+            }
             return env;
         }
     }
@@ -770,46 +654,23 @@ public class NavidromeApi {
         }
     }
 
-    private static class AlbumResponse {
+    private static class ScanStatusEnvelope {
         @SerializedName("subsonic-response")
-        private AlbumResponseData response;
-        public AlbumResponseData getResponse() { return response; }
+        private ScanStatusResponse response;
     }
-    private static class AlbumResponseData {
+    private static class ScanStatusResponse {
         private String status;
-        private String version;
-        private AlbumData album;
-        private Error error;
+        private ScanStatus scanStatus;
         public boolean isSuccess() { return "ok".equals(status); }
-        public AlbumData getAlbum() { return album; }
     }
-    private static class SongsResponse {
-        @SerializedName("subsonic-response")
-        private SongsResponseData response;
-        public SongsResponseData getResponse() { return response; }
-    }
-    private static class SongsResponseData {
-        private String status;
-        private String version;
-        @SerializedName("randomSongs")
-        private SongsData songsData;
-        private Error error;
-        public boolean isSuccess() { return "ok".equals(status); }
-        public List<Song> getSongs() { return songsData != null ? songsData.getSongs() : new ArrayList<>(); }
-    }
-    private static class SongsData {
-        @SerializedName("song")
-        private List<Song> songs;
-        public List<Song> getSongs() { return songs != null ? songs : new ArrayList<>(); }
-    }
-    private static class AlbumData {
-        private String id;
-        private String name;
-        private String artist;
-        @SerializedName("song")
-        private List<Song> songs;
-        public String getId() { return id; }
-        public List<Song> getSongs() { return songs != null ? songs : new ArrayList<>(); }
+    public static class ScanStatus {
+        private boolean scanning;
+        private long count;
+        // ISO8601 字符串（Navidrome 扩展字段，部分服务器可能缺失）
+        private String lastScan;
+        public boolean isScanning() { return scanning; }
+        public long getCount() { return count; }
+        public String getLastScan() { return lastScan; }
     }
 
     public Integer getSongDurationSeconds(String songId) throws IOException {
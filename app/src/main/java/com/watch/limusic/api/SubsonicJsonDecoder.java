@@ -0,0 +1,112 @@
+package com.watch.limusic.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Subsonic 响应的流式解码工具（基于 JsonReader）
+ * - 直接从响应体字符流逐元素读取，不生成整段 String 与 DOM 树
+ * - 列表字段兼容“单对象/数组”两种形态（只有一个元素时部分服务器返回对象）
+ * - 元素逐个交给 ElementSink，调用方可边下载边处理
+ */
+public final class SubsonicJsonDecoder {
+
+    public interface ElementSink<T> {
+        void accept(T item) throws IOException;
+    }
+
+    private SubsonicJsonDecoder() {}
+
+    /**
+     * 进入 subsonic-response 并定位到指定字段，成功时 reader 停在该字段的值之前
+     * @return 定位成功返回 status（字段出现在 status 之前时视为 "ok"）；未找到返回 null
+     */
+    public static String seekResponseField(JsonReader reader, String field) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) return null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (!"subsonic-response".equals(name) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            String status = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (field.equals(key)) {
+                    return status != null ? status : "ok";
+                }
+                if ("status".equals(key) && reader.peek() == JsonToken.STRING) {
+                    status = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * 读取列表值（数组/单对象/null），逐个元素交给 sink
+     * @return 读取到的元素个数
+     */
+    public static <T> int readList(JsonReader reader, Gson gson, Class<T> type, ElementSink<T> sink) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        if (token == JsonToken.BEGIN_OBJECT) {
+            T item = gson.fromJson(reader, type);
+            if (item == null) return 0;
+            sink.accept(item);
+            return 1;
+        }
+        if (token != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return 0;
+        }
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            T item = gson.fromJson(reader, type);
+            if (item != null) {
+                sink.accept(item);
+                count++;
+            }
+        }
+        reader.endArray();
+        return count;
+    }
+
+    /**
+     * 读取一个对象：listField 的元素流式交给 sink，其余（体量很小的）字段收集为头部 JsonObject 返回
+     */
+    public static <T> JsonObject readObjectWithList(JsonReader reader, Gson gson, String listField,
+                                                    Class<T> type, ElementSink<T> sink) throws IOException {
+        JsonObject head = new JsonObject();
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return head;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (listField.equals(name)) {
+                readList(reader, gson, type, sink);
+            } else {
+                JsonElement value = gson.fromJson(reader, JsonElement.class);
+                if (value != null) head.add(name, value);
+            }
+        }
+        reader.endObject();
+        return head;
+    }
+}
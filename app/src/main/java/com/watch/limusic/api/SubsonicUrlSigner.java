@@ -0,0 +1,175 @@
+package com.watch.limusic.api;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Subsonic 请求签名与 URL 构建器
+ * - 服务器地址在凭据变更时解析一次（rest 基址与固定查询串预先编码）
+ * - MD5 摘要按线程复用，十六进制输出查表，无 String.format
+ * - 媒体 URL（stream/getCoverArt）使用会话级 salt/token：同一会话内 URL 稳定且只需拼接字符串
+ * 实例不可变，凭据变化时由 NavidromeApi 整体替换
+ */
+public final class SubsonicUrlSigner {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 not available", e);
+            }
+        }
+    };
+
+    private final HttpUrl restRoot;      // scheme://host:port/rest
+    private final String restPrefix;     // "scheme://host:port/rest/"，媒体 URL 直接拼接
+    private final String username;
+    private final String password;
+    private final String clientName;
+    private final String apiVersion;
+    // 会话级签名参数（已编码的查询串，不含 '?'）
+    private final String sessionQuery;
+
+    private SubsonicUrlSigner(HttpUrl restRoot, String username, String password, String clientName, String apiVersion) {
+        this.restRoot = restRoot;
+        this.restPrefix = restRoot.toString() + "/";
+        this.username = username;
+        this.password = password;
+        this.clientName = clientName;
+        this.apiVersion = apiVersion;
+        String salt = newSalt();
+        HttpUrl signed = restRoot.newBuilder()
+                .addQueryParameter("u", username)
+                .addQueryParameter("t", token(password, salt))
+                .addQueryParameter("s", salt)
+                .addQueryParameter("v", apiVersion)
+                .addQueryParameter("c", clientName)
+                .build();
+        this.sessionQuery = signed.encodedQuery();
+    }
+
+    /**
+     * 解析服务器配置；未配置主机时返回 null
+     */
+    public static SubsonicUrlSigner create(String serverUrl, int serverPort, String username, String password,
+                                           String clientName, String apiVersion) {
+        String hostOnly = serverUrl == null ? "" : serverUrl.replace("http://", "").replace("https://", "");
+        int slashIdx = hostOnly.indexOf('/');
+        if (slashIdx >= 0) hostOnly = hostOnly.substring(0, slashIdx);
+        int colonIdx = hostOnly.indexOf(':');
+        if (colonIdx >= 0) hostOnly = hostOnly.substring(0, colonIdx);
+        if (hostOnly.isEmpty()) return null;
+        try {
+            HttpUrl base = new HttpUrl.Builder()
+                    .scheme(serverUrl.startsWith("https") ? "https" : "http")
+                    .host(hostOnly)
+                    .port(serverPort)
+                    .addPathSegment("rest")
+                    .build();
+            return new SubsonicUrlSigner(base, username != null ? username : "", password != null ? password : "",
+                    clientName, apiVersion);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 新建 API 请求构建器（每次独立 salt），仅剩接口特有参数需要追加
+     */
+    public HttpUrl.Builder newSignedRequest(String endpoint) {
+        String salt = newSalt();
+        return newRequest(endpoint)
+                .addQueryParameter("u", username)
+                .addQueryParameter("t", token(password, salt))
+                .addQueryParameter("s", salt)
+                .addQueryParameter("v", apiVersion)
+                .addQueryParameter("c", clientName)
+                .addQueryParameter("f", "json");
+    }
+
+    /**
+     * 预解析好的 rest 基址上追加接口路径（不带签名参数）
+     */
+    private HttpUrl.Builder newRequest(String endpoint) {
+        return restRoot.newBuilder().addPathSegment(endpoint);
+    }
+
+    /**
+     * rest 基址构建器（与旧 getBaseUrlBuilder 语义一致，由调用方追加路径与参数）
+     */
+    public HttpUrl.Builder restBuilder() {
+        return restRoot.newBuilder();
+    }
+
+    public String streamUrl(String songId) {
+        StringBuilder sb = mediaUrl("stream", songId, 48);
+        return sb.toString();
+    }
+
+    public String transcodedStreamUrl(String songId, String format, int maxBitRateKbps) {
+        StringBuilder sb = mediaUrl("stream", songId, 80);
+        sb.append("&format=");
+        appendEncoded(sb, format);
+        sb.append("&maxBitRate=").append(maxBitRateKbps);
+        return sb.toString();
+    }
+
+    public String coverArtUrl(String coverArtId, int size) {
+        StringBuilder sb = mediaUrl("getCoverArt", coverArtId, 64);
+        sb.append("&size=").append(size);
+        return sb.toString();
+    }
+
+    private StringBuilder mediaUrl(String endpoint, String id, int extra) {
+        StringBuilder sb = new StringBuilder(restPrefix.length() + sessionQuery.length() + extra);
+        sb.append(restPrefix).append(endpoint).append('?').append(sessionQuery).append("&id=");
+        appendEncoded(sb, id);
+        return sb;
+    }
+
+    /**
+     * 查询参数编码：常见 ID（字母数字与 -._~）直接追加，仅在出现其他字符时回退 OkHttp 编码
+     */
+    private static void appendEncoded(StringBuilder sb, String value) {
+        if (value == null) return;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            boolean plain = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '.' || c == '_' || c == '~';
+            if (!plain) {
+                String encoded = new HttpUrl.Builder().scheme("http").host("h")
+                        .addQueryParameter("x", value).build().encodedQuery();
+                sb.append(encoded, 2, encoded.length());
+                return;
+            }
+        }
+        sb.append(value);
+    }
+
+    static String newSalt() {
+        return String.valueOf(ThreadLocalRandom.current().nextInt(100000000, 1000000000));
+    }
+
+    /**
+     * token = md5(password + salt)，十六进制小写
+     */
+    static String token(String password, String salt) {
+        MessageDigest md = MD5.get();
+        md.reset();
+        byte[] bytes = md.digest((password + salt).getBytes(StandardCharsets.UTF_8));
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xFF;
+            out[i * 2] = HEX[v >>> 4];
+            out[i * 2 + 1] = HEX[v & 0x0F];
+        }
+        return new String(out);
+    }
+}
@@ -1,43 +1,54 @@
 package com.watch.limusic.audio;
 
-import android.content.Context;
-import android.content.Intent;
-import android.os.Handler;
-import android.os.Looper;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 音频线程 -> 可视化视图的频带电平通道（进程内、单生产者/单消费者、无锁三缓冲）
+ * - 生产者（ExoPlayer 音频线程）写自己独占的缓冲，写完后与“中间槽”交换并打上新数据标记
+ * - 消费者（视图 frameTick，主线程）仅在有新数据时与中间槽交换，读取自己独占的缓冲
+ * - 两端都不加锁、不分配内存、不切换线程；消费者来不及读时旧帧被直接覆盖
+ */
 public final class AudioLevelBus {
-	public static final String ACTION_AUDIO_LEVELS = "com.watch.limusic.AUDIO_LEVELS";
-	private static volatile Context app;
-	private static final Handler main = new Handler(Looper.getMainLooper());
-	private static volatile long lastPostMs = 0L;
-	private static volatile int maxFps = 30;
+	private static final int MAX_BARS = 64;
+	private static final int INDEX_MASK = 0x3;
+	private static final int DIRTY = 0x4;
 
-	public static void init(Context applicationContext) {
-		app = applicationContext.getApplicationContext();
-	}
+	private static final float[][] slots = new float[3][MAX_BARS];
+	private static final int[] counts = new int[3];
+	// 中间槽下标 | DIRTY（有未读数据）
+	private static final AtomicInteger middle = new AtomicInteger(1);
+	// 仅由生产者线程访问
+	private static int producerSlot = 0;
+	// 仅由消费者线程访问
+	private static int consumerSlot = 2;
+	private static volatile int maxFps = 30;
 
 	public static void setMaxFps(int fps) { maxFps = Math.max(5, Math.min(60, fps)); }
 	public static int getMaxFps() { return maxFps; }
 
-	public static void publish(final float[] bars, final boolean isPlaying) {
-		final Context c = app;
-		if (c == null || bars == null) return;
-		long now = System.currentTimeMillis();
-		long minInterval = 1000L / Math.max(1, maxFps);
-		if (now - lastPostMs < minInterval) return;
-		lastPostMs = now;
-		final float[] copy = new float[bars.length];
-		System.arraycopy(bars, 0, copy, 0, bars.length);
-		main.post(new Runnable() {
-			@Override public void run() {
-				try {
-					Intent i = new Intent(ACTION_AUDIO_LEVELS);
-					i.putExtra("isPlaying", isPlaying);
-					i.putExtra("levels", copy);
-					c.sendBroadcast(i);
-				} catch (Throwable ignore) {}
-			}
-		});
+	/**
+	 * 生产者：发布一帧频带电平（仅由音频线程调用）
+	 */
+	public static void publish(final float[] bars) {
+		if (bars == null) return;
+		int slot = producerSlot;
+		int n = Math.min(bars.length, MAX_BARS);
+		System.arraycopy(bars, 0, slots[slot], 0, n);
+		counts[slot] = n;
+		producerSlot = middle.getAndSet(slot | DIRTY) & INDEX_MASK;
+	}
+
+	/**
+	 * 消费者：若有新帧则复制到 out（仅由主线程调用）
+	 * @return 复制的频带数；没有新数据返回 -1
+	 */
+	public static int poll(float[] out) {
+		if (out == null || (middle.get() & DIRTY) == 0) return -1;
+		int slot = middle.getAndSet(consumerSlot) & INDEX_MASK;
+		consumerSlot = slot;
+		int n = Math.min(out.length, counts[slot]);
+		System.arraycopy(slots[slot], 0, out, 0, n);
+		return n;
 	}
 
 	private AudioLevelBus() {}
@@ -3,9 +3,14 @@ package com.watch.limusic.audio;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.audio.AudioProcessor;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.ShortBuffer;
 
+/**
+ * 可视化分析用的音频旁路：只读取 PCM 做频谱分析，不修改也不复制音频
+ * - getOutput 直接返回送入的同一个缓冲对象，由 AudioSink 写出时推进其 position（零拷贝）
+ * - 可视化关闭或低耗模式下 configure 返回 NOT_SET，isActive() 为 false，AudioSink 在下次配置/flush 时整体跳过本处理器；
+ *   处于激活状态时关闭可视化则只转发、不分析
+ * - 支持 16/24/32 位整型与 float PCM（小端），取第一个声道做低成本下混
+ */
 public final class AudioTapProcessor implements AudioProcessor {
 	private static final int DEFAULT_BARS = 16; // 降耗：降低默认频带数
 	private static final int FRAME_SIZE = 512;  // 降耗：缩短分析帧长
@@ -30,19 +35,27 @@ public final class AudioTapProcessor implements AudioProcessor {
 	private int channels = 2;
 	private boolean playing = false;
 
+	private volatile boolean enabled = true;
+	private boolean active = false;
 	private AudioFormat inputFormat = AudioFormat.NOT_SET;
-	private AudioFormat outputFormat = AudioFormat.NOT_SET;
 	private ByteBuffer outputBuffer = EMPTY_BUFFER;
 	private boolean inputEnded = false;
+	// AudioTrack 未写完时 AudioSink 会把同一缓冲（position 前移）再次送入，此时不重复分析；
+	// 上游处理器会复用同一个缓冲对象装下一段音频，因此该缓冲被写空后即清除记录
+	private ByteBuffer lastInput = null;
+	private int lastInputPosition;
+	private int lastInputLimit;
 
 	private float[] bandCentersHz = null;
-	private double[] coeff = null;
+	// 频谱引擎（一次 FFT 覆盖全部频带），仅在采样率/频带数变化时重建
+	private SpectrumAnalyzer analyzer = null;
+	private float[] bandDb = new float[barCount];
 	private final float[] mono = new float[FRAME_SIZE];
 	private int monoFill = 0;
 	// 发布节流
 	private long lastPublishMs = 0L;
-	// 复用：Hann窗与加窗后的帧缓冲，避免在频带循环内重复计算
-	private double[] hannWin = null;
+	// 预计算的 Hann 窗与加窗后的帧缓冲，逐帧分析不分配内存
+	private final float[] hannWin = buildHann(FRAME_SIZE);
 	private final float[] winBuf = new float[FRAME_SIZE];
 	// 新增：双时间常数与峰值保持的状态
 	private float[] smoothed = new float[barCount];
@@ -52,6 +65,10 @@ public final class AudioTapProcessor implements AudioProcessor {
 	private boolean[] gateOpen = new boolean[barCount];
 
 	public void setPlaying(boolean p) { this.playing = p; }
+	/**
+	 * 可视化开关（含低耗模式）：关闭立即停止分析；开启需等到下一次配置（切歌/seek）时才重新接入音频链路
+	 */
+	public void setEnabled(boolean e) { this.enabled = e; }
 	public void setBarCount(int c) {
 		int n = Math.max(8, Math.min(64, c));
 		if (n != barCount) { barCount = n; bars = new float[barCount]; smoothed = new float[barCount]; held = new float[barCount]; holdUntilMs = new long[barCount]; gateOpen = new boolean[barCount]; updateBands(); }
@@ -60,48 +77,86 @@ public final class AudioTapProcessor implements AudioProcessor {
 
 	@Override public AudioFormat configure(AudioFormat inputAudioFormat) throws UnhandledAudioFormatException {
 		inputFormat = inputAudioFormat;
-		outputFormat = inputAudioFormat;
-		if (inputAudioFormat.encoding == C.ENCODING_PCM_16BIT) {
-			sampleRateHz = inputAudioFormat.sampleRate;
-			channels = Math.max(1, inputAudioFormat.channelCount);
+		active = enabled && bytesPerSample(inputAudioFormat.encoding) > 0;
+		if (!active) return AudioFormat.NOT_SET;
+		int rate = inputAudioFormat.sampleRate;
+		int ch = Math.max(1, inputAudioFormat.channelCount);
+		if (rate != sampleRateHz || ch != channels || analyzer == null) {
+			sampleRateHz = rate;
+			channels = ch;
 			updateBands();
 		}
-		return outputFormat;
+		return inputAudioFormat;
 	}
 
-	@Override public boolean isActive() { return true; }
+	@Override public boolean isActive() { return active; }
 
 	@Override public void queueInput(ByteBuffer inputBuffer) {
-		if (inputBuffer == null) return;
-		int remaining = inputBuffer.remaining();
-		if (remaining == 0) { outputBuffer = EMPTY_BUFFER; return; }
-		// 分析但保持透传
-		if (inputFormat.encoding == C.ENCODING_PCM_16BIT) {
-			ShortBuffer sb = inputBuffer.asShortBuffer();
-			int total = sb.remaining();
-			int step = Math.max(1, channels); // 低成本下混：取一个通道
-			for (int i = 0; i < total; i += step) {
-				float v = sb.get(i) / 32768f;
-				mono[monoFill++] = v;
-				if (monoFill >= FRAME_SIZE) {
-					analyzeFrame(mono, FRAME_SIZE);
-					monoFill = 0;
-				}
+		forgetDrainedInput();
+		if (inputBuffer == null || !inputBuffer.hasRemaining()) { outputBuffer = EMPTY_BUFFER; return; }
+		// 原样转发：不复制，由下游写出时消费同一缓冲
+		outputBuffer = inputBuffer;
+		if (!enabled || !playing) return;
+		int pos = inputBuffer.position();
+		int limit = inputBuffer.limit();
+		if (inputBuffer == lastInput && limit == lastInputLimit && pos >= lastInputPosition) return;
+		lastInput = inputBuffer;
+		lastInputPosition = pos;
+		lastInputLimit = limit;
+		tap(inputBuffer, pos, limit);
+	}
+
+	// 转发出去的缓冲已被下游写空：再次送入同一对象时必是上游装入的新数据
+	private void forgetDrainedInput() {
+		if (lastInput != null && !lastInput.hasRemaining()) lastInput = null;
+	}
+
+	// 按绝对下标读取第一个声道的样本，不改变缓冲状态、不分配视图对象
+	private void tap(ByteBuffer in, int pos, int limit) {
+		final int encoding = inputFormat.encoding;
+		final int sampleBytes = bytesPerSample(encoding);
+		final int frameBytes = sampleBytes * channels;
+		for (int i = pos; i + sampleBytes <= limit; i += frameBytes) {
+			float v;
+			switch (encoding) {
+				case C.ENCODING_PCM_16BIT:
+					v = (short) ((in.get(i) & 0xFF) | (in.get(i + 1) << 8)) / 32768f;
+					break;
+				case C.ENCODING_PCM_24BIT:
+					v = ((in.get(i) & 0xFF) | ((in.get(i + 1) & 0xFF) << 8) | (in.get(i + 2) << 16)) / 8388608f;
+					break;
+				case C.ENCODING_PCM_32BIT:
+					v = readIntLe(in, i) / 2147483648f;
+					break;
+				default: // C.ENCODING_PCM_FLOAT
+					v = Float.intBitsToFloat(readIntLe(in, i));
+					break;
+			}
+			mono[monoFill++] = v;
+			if (monoFill >= FRAME_SIZE) {
+				analyzeFrame(mono, FRAME_SIZE);
+				monoFill = 0;
 			}
 		}
-		if (outputBuffer.capacity() < remaining) {
-			outputBuffer = ByteBuffer.allocateDirect(remaining).order(ByteOrder.nativeOrder());
+	}
+
+	private static int readIntLe(ByteBuffer in, int i) {
+		return (in.get(i) & 0xFF) | ((in.get(i + 1) & 0xFF) << 8) | ((in.get(i + 2) & 0xFF) << 16) | (in.get(i + 3) << 24);
+	}
+
+	private static int bytesPerSample(int encoding) {
+		switch (encoding) {
+			case C.ENCODING_PCM_16BIT: return 2;
+			case C.ENCODING_PCM_24BIT: return 3;
+			case C.ENCODING_PCM_32BIT:
+			case C.ENCODING_PCM_FLOAT: return 4;
+			default: return 0;
 		}
-		outputBuffer.clear();
-		outputBuffer.put(inputBuffer.asReadOnlyBuffer());
-		outputBuffer.flip();
-		inputBuffer.position(inputBuffer.limit());
 	}
 
 	private void updateBands() {
 		if (barCount <= 0 || sampleRateHz <= 0) return;
 		bandCentersHz = new float[barCount];
-		coeff = new double[barCount];
 		float nyq = sampleRateHz * 0.5f;
 		float fMin = F_MIN_HZ;
 		float fMax = Math.min(F_MAX_HZ, nyq * 0.98f); // 上限略降以降噪且降耗
@@ -110,15 +165,23 @@ public final class AudioTapProcessor implements AudioProcessor {
 		for (int i = 0; i < barCount; i++) {
 			float fc = (float)(fMin * Math.pow(ratio, i));
 			bandCentersHz[i] = Math.min(fc, nyq * 0.98f);
-			double w = 2.0 * Math.PI * (bandCentersHz[i] / sampleRateHz);
-			coeff[i] = 2.0 * Math.cos(w);
 		}
-		// 窗函数缓存无效化（如帧长/采样率变化）
-		hannWin = null;
+		SpectrumAnalyzer next = new FftSpectrumAnalyzer();
+		next.configure(FRAME_SIZE, sampleRateHz, bandCentersHz);
+		bandDb = new float[barCount];
+		analyzer = next;
 		// 状态清零
 		for (int i = 0; i < barCount; i++) { bars[i] = 0f; smoothed[i] = 0f; held[i] = 0f; holdUntilMs[i] = 0L; gateOpen[i] = false; }
 	}
 
+	private static float[] buildHann(int n) {
+		float[] w = new float[n];
+		for (int i = 0; i < n; i++) {
+			w[i] = (float) (0.5 * (1.0 - Math.cos(2.0 * Math.PI * i / (n - 1.0))));
+		}
+		return w;
+	}
+
 	private float alphaFromMs(long dtMs, float tauMs) {
 		if (dtMs <= 0) return 1f;
 		float a = (float) (1.0 - Math.exp(-dtMs / Math.max(1.0, tauMs)));
@@ -126,7 +189,8 @@ public final class AudioTapProcessor implements AudioProcessor {
 	}
 
 	private void analyzeFrame(float[] frame, int n) {
-		if (bandCentersHz == null || coeff == null) return;
+		final SpectrumAnalyzer engine = analyzer;
+		if (bandCentersHz == null || engine == null) return;
 		// 发布节流，按UI设定FPS控制分析发布频率
 		int fps = Math.max(5, Math.min(60, com.watch.limusic.audio.AudioLevelBus.getMaxFps()));
 		long now = System.currentTimeMillis();
@@ -135,38 +199,21 @@ public final class AudioTapProcessor implements AudioProcessor {
 		lastPublishMs = now;
 
 		// 1) 去直流
-		double mean = 0.0;
+		float mean = 0f;
 		for (int i = 0; i < n; i++) mean += frame[i];
 		mean /= Math.max(1, n);
-		// 2) 预计算/复用 Hann 窗
-		if (hannWin == null || hannWin.length != n) {
-			hannWin = new double[n];
-			for (int i = 0; i < n; i++) {
-				hannWin[i] = 0.5 * (1.0 - Math.cos(2.0 * Math.PI * i / (n - 1.0)));
-			}
-		}
-		// 3) 生成加窗后的帧缓冲，供所有频带复用
+		// 2) 加窗
 		for (int i = 0; i < n; i++) {
-			double x = (frame[i] - mean) * hannWin[i];
-			winBuf[i] = (float) x;
+			winBuf[i] = (frame[i] - mean) * hannWin[i];
 		}
-		// 4) 频带 Goertzel + 能量整形 + 双时间常数 + 峰值保持(缓释) + 门限滞回
+		// 3) 频谱引擎求各频带 dBFS
+		engine.analyze(winBuf, bandDb);
+		// 4) 能量整形 + 双时间常数 + 峰值保持(缓释) + 门限滞回
 		float aUp = alphaFromMs(minInterval, ATTACK_MS);
 		float aDn = alphaFromMs(minInterval, RELEASE_MS);
 		float aHold = alphaFromMs(minInterval, HOLD_RELEASE_MS);
 		for (int b = 0; b < barCount; b++) {
-			double c = coeff[b];
-			double s0, s1 = 0.0, s2 = 0.0;
-			for (int i = 0; i < n; i++) {
-				double x = winBuf[i];
-				s0 = x + c * s1 - s2;
-				s2 = s1;
-				s1 = s0;
-			}
-			double power = s1 * s1 + s2 * s2 - c * s1 * s2;
-			double mag = Math.sqrt(Math.max(0.0, power)) / (n * 0.5);
-			double db = 20.0 * Math.log10(mag + 1e-9);
-			if (db > 0) db = 0;
+			float db = bandDb[b];
 
 			// 门限滞回：决定是否开门
 			boolean open = gateOpen[b];
@@ -187,7 +234,7 @@ public final class AudioTapProcessor implements AudioProcessor {
 				if (fc < 70f) adjustDb += LOW_SHELF_DB;           // 低频强抑制
 				else if (fc < 90f) adjustDb += (LOW_SHELF_DB * 0.5f); // 70–90Hz 半量抑制
 				else if (fc <= 160f) adjustDb += KICK_BOOST_DB;   // 鼓点加权
-				db = Math.max((float)MIN_DB, Math.min(0.0f, (float)(db + adjustDb)));
+				db = Math.max((float)MIN_DB, Math.min(0.0f, db + adjustDb));
 				targetLevel = (float)((db - MIN_DB) / (-MIN_DB)); // 归一化0..1
 				// 轻微增强高频响应（右侧），最多约+8%
 				float hfBoost = 1.0f + 0.08f * (b / (float)Math.max(1, barCount - 1));
@@ -201,7 +248,7 @@ public final class AudioTapProcessor implements AudioProcessor {
 			smoothed[b] = sm;
 			bars[b] = applyHoldAndGet(now, b, sm, aHold);
 		}
-		com.watch.limusic.audio.AudioLevelBus.publish(bars, playing);
+		com.watch.limusic.audio.AudioLevelBus.publish(bars);
 	}
 
 	private float applyHoldAndGet(long now, int idx, float value, float releaseAlpha) {
@@ -223,8 +270,8 @@ public final class AudioTapProcessor implements AudioProcessor {
 	}
 
 	@Override public void queueEndOfStream() { inputEnded = true; }
-	@Override public ByteBuffer getOutput() { ByteBuffer out = outputBuffer; outputBuffer = EMPTY_BUFFER; return out; }
-	@Override public boolean isEnded() { return inputEnded && outputBuffer == EMPTY_BUFFER; }
-	@Override public void flush() { outputBuffer = EMPTY_BUFFER; inputEnded = false; monoFill = 0; }
-	@Override public void reset() { flush(); inputFormat = AudioFormat.NOT_SET; outputFormat = AudioFormat.NOT_SET; bars = new float[barCount]; smoothed = new float[barCount]; held = new float[barCount]; holdUntilMs = new long[barCount]; gateOpen = new boolean[barCount]; updateBands(); }
+	@Override public ByteBuffer getOutput() { forgetDrainedInput(); ByteBuffer out = outputBuffer; outputBuffer = EMPTY_BUFFER; return out; }
+	@Override public boolean isEnded() { forgetDrainedInput(); return inputEnded && outputBuffer == EMPTY_BUFFER; }
+	@Override public void flush() { outputBuffer = EMPTY_BUFFER; inputEnded = false; monoFill = 0; lastInput = null; }
+	@Override public void reset() { flush(); inputFormat = AudioFormat.NOT_SET; active = false; bars = new float[barCount]; smoothed = new float[barCount]; held = new float[barCount]; holdUntilMs = new long[barCount]; gateOpen = new boolean[barCount]; updateBands(); }
 } 
\ No newline at end of file
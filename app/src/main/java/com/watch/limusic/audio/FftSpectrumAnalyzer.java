@@ -0,0 +1,142 @@
+package com.watch.limusic.audio;
+
+/**
+ * 实数 FFT 频谱分析：一次变换得到全部频点，再按对数频带聚合
+ * - n 点实数序列打包为 n/2 点复数序列（偶数样本为实部、奇数样本为虚部），做一次原地基 2 FFT 后拆分出实数谱，
+ *   计算量约为同长度复数 FFT 的一半
+ * - 位反转表与两组旋转因子表在 configure 时预计算，analyze 只读表、只写预分配的 float 数组
+ * - 频带边界取相邻中心频率的几何中点，带内取最大功率（与改造前逐带 Goertzel 的读数口径一致）；
+ *   低频处频带窄于频点间隔时退化为最近频点
+ */
+final class FftSpectrumAnalyzer implements SpectrumAnalyzer {
+	private int frameSize;
+	private int half;
+	private int[] bitRev = new int[0];
+	// n/2 点复数 FFT 的旋转因子 e^{-2πij/(n/2)}，j < n/4
+	private float[] twCos = new float[0];
+	private float[] twSin = new float[0];
+	// 实数谱拆分用的旋转因子 e^{-2πik/n}，k < n/2
+	private float[] splitCos = new float[0];
+	private float[] splitSin = new float[0];
+	private float[] re = new float[0];
+	private float[] im = new float[0];
+	private float[] power = new float[0];
+	private int[] bandLo = new int[0];
+	private int[] bandHi = new int[0];
+	private float normDb;
+
+	@Override public void configure(int frameSize, int sampleRateHz, float[] bandCentersHz) {
+		if (Integer.bitCount(frameSize) != 1 || frameSize < 4) {
+			throw new IllegalArgumentException("帧长必须是 2 的幂: " + frameSize);
+		}
+		this.frameSize = frameSize;
+		this.half = frameSize / 2;
+		int bits = Integer.numberOfTrailingZeros(half);
+		bitRev = new int[half];
+		for (int i = 0; i < half; i++) {
+			bitRev[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+		}
+		twCos = new float[half / 2];
+		twSin = new float[half / 2];
+		for (int j = 0; j < half / 2; j++) {
+			double a = 2.0 * Math.PI * j / half;
+			twCos[j] = (float) Math.cos(a);
+			twSin[j] = (float) Math.sin(a);
+		}
+		splitCos = new float[half];
+		splitSin = new float[half];
+		for (int k = 0; k < half; k++) {
+			double a = 2.0 * Math.PI * k / frameSize;
+			splitCos[k] = (float) Math.cos(a);
+			splitSin[k] = (float) Math.sin(a);
+		}
+		re = new float[half];
+		im = new float[half];
+		power = new float[half + 1];
+		normDb = (float) (20.0 * Math.log10(frameSize * 0.5));
+
+		int bars = bandCentersHz.length;
+		bandLo = new int[bars];
+		bandHi = new int[bars];
+		float binHz = sampleRateHz / (float) frameSize;
+		for (int b = 0; b < bars; b++) {
+			float fc = bandCentersHz[b];
+			float lo = b > 0 ? (float) Math.sqrt(bandCentersHz[b - 1] * fc)
+					: (bars > 1 ? fc * fc / (float) Math.sqrt(fc * bandCentersHz[1]) : fc);
+			float hi = b < bars - 1 ? (float) Math.sqrt(fc * bandCentersHz[b + 1])
+					: (bars > 1 ? fc * fc / (float) Math.sqrt(bandCentersHz[b - 1] * fc) : fc);
+			int kLo = Math.max(1, (int) Math.ceil(lo / binHz));
+			int kHi = Math.min(half, (int) Math.floor(hi / binHz));
+			if (kHi < kLo) {
+				int nearest = Math.max(1, Math.min(half, Math.round(fc / binHz)));
+				kLo = nearest;
+				kHi = nearest;
+			}
+			bandLo[b] = kLo;
+			bandHi[b] = kHi;
+		}
+	}
+
+	@Override public void analyze(float[] frame, float[] outDb) {
+		final int m = half;
+		final float[] re = this.re;
+		final float[] im = this.im;
+		// 1) 打包并按位反转顺序放置
+		for (int i = 0; i < m; i++) {
+			int j = bitRev[i];
+			re[j] = frame[2 * i];
+			im[j] = frame[2 * i + 1];
+		}
+		// 2) n/2 点原地基 2 FFT
+		for (int size = 2; size <= m; size <<= 1) {
+			int h = size >> 1;
+			int step = m / size;
+			for (int start = 0; start < m; start += size) {
+				for (int j = 0, t = 0; j < h; j++, t += step) {
+					float wr = twCos[t];
+					float wi = -twSin[t];
+					int a = start + j;
+					int b = a + h;
+					float tr = wr * re[b] - wi * im[b];
+					float ti = wr * im[b] + wi * re[b];
+					re[b] = re[a] - tr;
+					im[b] = im[a] - ti;
+					re[a] += tr;
+					im[a] += ti;
+				}
+			}
+		}
+		// 3) 拆分为实数谱的功率：X[k] = E[k] + e^{-2πik/n}·O[k]
+		float dc = re[0] + im[0];
+		float nyq = re[0] - im[0];
+		power[0] = dc * dc;
+		power[m] = nyq * nyq;
+		for (int k = 1; k < m; k++) {
+			float zr = re[k], zi = im[k];
+			float cr = re[m - k], ci = -im[m - k];
+			float er = 0.5f * (zr + cr);
+			float ei = 0.5f * (zi + ci);
+			// O = (Z − conj(Z[m−k])) / 2i
+			float or = 0.5f * (zi - ci);
+			float oi = -0.5f * (zr - cr);
+			float wr = splitCos[k];
+			float wi = -splitSin[k];
+			float xr = er + wr * or - wi * oi;
+			float xi = ei + wr * oi + wi * or;
+			power[k] = xr * xr + xi * xi;
+		}
+		// 4) 对数频带聚合
+		for (int b = 0; b < bandLo.length; b++) {
+			float p = 0f;
+			for (int k = bandLo[b], end = bandHi[b]; k <= end; k++) {
+				if (power[k] > p) p = power[k];
+			}
+			outDb[b] = powerToDb(p, normDb);
+		}
+	}
+
+	static float powerToDb(float power, float normDb) {
+		float db = (float) (10.0 * Math.log10(Math.max(power, 1e-20f))) - normDb;
+		return db > 0f ? 0f : db;
+	}
+}
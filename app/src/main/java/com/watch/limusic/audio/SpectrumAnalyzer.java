@@ -0,0 +1,18 @@
+package com.watch.limusic.audio;
+
+/**
+ * 频谱分析引擎：输入已去直流、已加窗的单声道帧，输出各频带的 dBFS
+ * - configure 仅在采样率/频带数变化时调用，所有表与缓冲在此分配
+ * - analyze 在 ExoPlayer 音频线程上逐帧调用，实现不得分配内存
+ * - 目前只有 FftSpectrumAnalyzer：512 点帧下逐带 Goertzel 仅在 2~3 个频带以内占优，
+ *   而频带数下限为 8（见 FftSpectrumAnalyzerBenchmark）
+ */
+interface SpectrumAnalyzer {
+	void configure(int frameSize, int sampleRateHz, float[] bandCentersHz);
+
+	/**
+	 * @param frame 加窗后的帧，长度为 configure 时的 frameSize
+	 * @param outDb 输出：各频带幅度（dBFS，≤0），长度不小于频带数
+	 */
+	void analyze(float[] frame, float[] outDb);
+}
@@ -25,6 +25,8 @@ public class CacheManager {
 
     private static volatile SimpleCache cache;
     private static volatile DatabaseProvider databaseProvider;
+    // 已缓存 songId 索引：随缓存初始化与 span 增删维护，跨缓存重建复用同一实例
+    private static final CachedSongIndex songIndex = new CachedSongIndex();
     private static volatile CacheManager INSTANCE;
     private final Context context;
 
@@ -62,7 +64,7 @@ public class CacheManager {
                 }
                 File dir = new File(context.getCacheDir(), "media");
                 try {
-                    cache = new SimpleCache(dir, evictor, databaseProvider);
+                    cache = new SimpleCache(dir, songIndex.wrap(evictor), databaseProvider);
                 } catch (IllegalStateException e) {
                     // 若并发竞争仍触发（极小概率），等待已创建实例可见后复用
                     Log.w(TAG, "Detected concurrent SimpleCache creation, reuse existing instance if available", e);
@@ -91,6 +93,7 @@ public class CacheManager {
                 .setCache(getCache())
                 .setUpstreamDataSourceFactory(upstreamFactory)
                 .setCacheWriteDataSinkFactory(new CacheDataSink.Factory().setCache(getCache()))
+                .setCacheKeyFactory(StreamCacheKeyFactory.INSTANCE)
                 .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
     }
 
@@ -101,18 +104,8 @@ public class CacheManager {
         }
 
         try {
-            Cache cache = getCache();
-            String key = buildCacheKey(url);
-            
-            // 检查缓存中是否有此key
-            boolean hasKey = cache.getKeys().contains(key);
-            
-            if (hasKey) {
-                // 检查是否有缓存数据
-                boolean hasCachedSpans = cache.getCachedSpans(key).size() > 0;
-                return hasCachedSpans;
-            }
-            return false;
+            // 与播放器写入时同一键策略（不含签名参数），直接按键查询缓存片段
+            return !getCache().getCachedSpans(buildCacheKey(url)).isEmpty();
         } catch (Exception e) {
             Log.e(TAG, "检查缓存状态失败: " + url, e);
             return false;
@@ -131,17 +124,32 @@ public class CacheManager {
         }
     }
     
-    // 统一口径：按 songId 检查任意自定义缓存键（mp3/raw/flac）是否命中
+    // 统一口径：按 songId 检查任意自定义缓存键（mp3/raw/flac）是否已完整缓存（内存索引，无锁）
     public boolean isCachedByAnyKey(String songId) {
         if (songId == null || songId.isEmpty()) return false;
-        return isCachedByKey("stream_mp3_" + songId)
-                || isCachedByKey("stream_raw_" + songId)
-                || isCachedByKey("stream_flac_" + songId);
+        return getCachedSongIndex().contains(songId);
+    }
+
+    // 获取已缓存 songId 索引（确保缓存已初始化，从而索引已建好）
+    public CachedSongIndex getCachedSongIndex() {
+        try { getCache(); } catch (Exception e) { Log.w(TAG, "缓存初始化失败，索引可能为空", e); }
+        return songIndex;
     }
     
-    // 构建缓存键
+    // 构建缓存键（与 StreamCacheKeyFactory 一致；非 stream 地址回退为完整 URL）
     private String buildCacheKey(String url) {
-        return url;
+        String key = StreamCacheKeyFactory.forUrl(url);
+        return key != null ? key : url;
+    }
+
+    /**
+     * 已完整缓存的 songId 集合快照（用于批量同步 isCached 标记）
+     */
+    public java.util.Set<String> getCachedSongIds() {
+        CachedSongIndex index = getCachedSongIndex();
+        // SimpleCache 在自身锁内完成目录加载，这里取一次锁确保初始化回调已全部进入索引
+        try { getCache().getCacheSpace(); } catch (Exception ignore) {}
+        return index.snapshot();
     }
 
     // 获取最大缓存大小
@@ -198,6 +206,7 @@ public class CacheManager {
                 Log.e(TAG, "释放缓存出错", e);
             }
             cache = null;
+            songIndex.clear();
         }
     }
 
@@ -0,0 +1,186 @@
+package com.watch.limusic.cache;
+
+import android.util.Log;
+
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.CacheSpan;
+import com.google.android.exoplayer2.upstream.cache.ContentMetadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存中的“已缓存 songId”索引
+ * - 通过包装 CacheEvictor 接收 SimpleCache 全部 span 增删回调（包括初始化时加载目录的每个 span），
+ *   因此缓存创建完成即建好索引，此后随播放写入/淘汰实时更新
+ * - 只有某个缓存键的已缓存字节覆盖其完整内容长度才算“已缓存”；QueuePrefetcher 写入的开头片段
+ *   或播放中途跳走留下的残段不算，避免 isCached 把只能播几十秒的歌曲标成可离线播放
+ * - 查询为无锁 ConcurrentHashMap 读取，不再在 SimpleCache 全局锁下调用 getCachedSpans
+ * - 状态变化（songId 由无到有/由有到无）合并后按批回调，供数据库批量更新 isCached
+ */
+public final class CachedSongIndex {
+    private static final String TAG = "CachedSongIndex";
+    private static final long FLUSH_DELAY_MS = 1500;
+
+    public interface OnChangedListener {
+        void onCacheStatusChanged(List<String> nowCached, List<String> nowUncached);
+    }
+
+    // 缓存键 -> 已缓存字节数（同一键下的 span 互不重叠）
+    private final ConcurrentHashMap<String, Long> keyBytes = new ConcurrentHashMap<>();
+    // 已完整缓存的缓存键
+    private final Set<String> completeKeys = ConcurrentHashMap.newKeySet();
+    // songId -> 该歌曲已完整缓存的缓存键数（mp3/raw/flac 任一完整即可离线播放）
+    private final ConcurrentHashMap<String, Integer> completeCounts = new ConcurrentHashMap<>();
+    // 待回调的状态变化：songId -> 最新状态（同一批内多次变化只保留最后一次）
+    private final Map<String, Boolean> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+    private volatile OnChangedListener listener;
+    private boolean flushScheduled;
+
+    public boolean contains(String songId) {
+        return songId != null && completeCounts.containsKey(songId);
+    }
+
+    public Set<String> snapshot() {
+        return new HashSet<>(completeCounts.keySet());
+    }
+
+    public int size() {
+        return completeCounts.size();
+    }
+
+    public void setOnChangedListener(OnChangedListener l) {
+        this.listener = l;
+    }
+
+    /**
+     * 缓存实例释放时清空（重新创建缓存时会由初始化回调重建）
+     */
+    void clear() {
+        keyBytes.clear();
+        completeKeys.clear();
+        completeCounts.clear();
+        synchronized (pending) {
+            pending.clear();
+        }
+    }
+
+    CacheEvictor wrap(CacheEvictor delegate) {
+        return new IndexingEvictor(delegate);
+    }
+
+    private void onSpanAdded(Cache cache, CacheSpan span) {
+        String songId = StreamCacheKeyFactory.songIdOf(span.key);
+        if (songId == null) return;
+        long bytes = keyBytes.merge(span.key, span.length, Long::sum);
+        updateComplete(cache, span.key, songId, bytes);
+    }
+
+    private void onSpanRemoved(Cache cache, CacheSpan span) {
+        String songId = StreamCacheKeyFactory.songIdOf(span.key);
+        if (songId == null) return;
+        Long bytes = keyBytes.computeIfPresent(span.key, (k, v) -> v > span.length ? v - span.length : null);
+        updateComplete(cache, span.key, songId, bytes != null ? bytes : 0);
+    }
+
+    /**
+     * 对比已缓存字节与内容长度（CacheDataSource 在打开或读到流末尾时写入，早于最后一个 span 提交）；
+     * 长度未知时视为未完整。回调已持有 SimpleCache 锁，读取元数据不会额外阻塞
+     */
+    private void updateComplete(Cache cache, String key, String songId, long bytes) {
+        long length = ContentMetadata.getContentLength(cache.getContentMetadata(key));
+        boolean complete = length > 0 && bytes >= length;
+        if (complete) {
+            if (!completeKeys.add(key)) return;
+            Integer now = completeCounts.merge(songId, 1, Integer::sum);
+            if (now != null && now == 1) markChanged(songId, true);
+        } else {
+            if (!completeKeys.remove(key)) return;
+            Integer now = completeCounts.computeIfPresent(songId, (k, v) -> v > 1 ? v - 1 : null);
+            if (now == null) markChanged(songId, false);
+        }
+    }
+
+    private void markChanged(String songId, boolean cached) {
+        if (listener == null) return;
+        synchronized (pending) {
+            pending.put(songId, cached);
+            if (flushScheduled) return;
+            flushScheduled = true;
+        }
+        flusher.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        List<String> cached = new ArrayList<>();
+        List<String> uncached = new ArrayList<>();
+        synchronized (pending) {
+            flushScheduled = false;
+            for (Map.Entry<String, Boolean> e : pending.entrySet()) {
+                if (e.getValue()) cached.add(e.getKey()); else uncached.add(e.getKey());
+            }
+            pending.clear();
+        }
+        OnChangedListener l = listener;
+        if (l == null || (cached.isEmpty() && uncached.isEmpty())) return;
+        try {
+            l.onCacheStatusChanged(Collections.unmodifiableList(cached), Collections.unmodifiableList(uncached));
+        } catch (Exception e) {
+            Log.w(TAG, "回调缓存状态变化失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 透传给原淘汰器，同时维护索引；回调在 SimpleCache 锁内执行，这里只做常数时间操作
+     */
+    private final class IndexingEvictor implements CacheEvictor {
+        private final CacheEvictor delegate;
+
+        IndexingEvictor(CacheEvictor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean requiresCacheSpanTouches() {
+            return delegate.requiresCacheSpanTouches();
+        }
+
+        @Override
+        public void onCacheInitialized() {
+            delegate.onCacheInitialized();
+        }
+
+        @Override
+        public void onStartFile(Cache cache, String key, long position, long length) {
+            delegate.onStartFile(cache, key, position, length);
+        }
+
+        @Override
+        public void onSpanAdded(Cache cache, CacheSpan span) {
+            CachedSongIndex.this.onSpanAdded(cache, span);
+            delegate.onSpanAdded(cache, span);
+        }
+
+        @Override
+        public void onSpanRemoved(Cache cache, CacheSpan span) {
+            CachedSongIndex.this.onSpanRemoved(cache, span);
+            delegate.onSpanRemoved(cache, span);
+        }
+
+        @Override
+        public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {
+            delegate.onSpanTouched(cache, oldSpan, newSpan);
+        }
+    }
+}
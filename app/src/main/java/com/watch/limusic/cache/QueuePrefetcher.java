@@ -0,0 +1,187 @@
+package com.watch.limusic.cache;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheWriter;
+import com.google.android.exoplayer2.upstream.cache.ContentMetadata;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.watch.limusic.util.NetworkUtils;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 播放队列预缓存：把接下来 1~3 首的开头（不计流量网络下为整首）提前写入 SimpleCache
+ * - 每轮预缓存共用一份新写入预算（缓存上限的 1/4），已缓存的部分不占预算，已缓存够量的目标直接跳过，
+ *   避免每次切歌都把用户已缓存的歌曲挤出 LRU
+ * - 目标由 PlayerService 按播放器实际顺序（含随机顺序）给出，缓存键沿用 MediaItem 的 customCacheKey，
+ *   与播放时 CacheDataSource 读取的键完全一致
+ * - 单线程顺序执行，队列变化时通过代号 + CacheWriter.cancel() 中止旧任务
+ * - 设置项（player_prefs）：prefetch_next_count（0~3，0 为关闭）、prefetch_seconds；低耗模式下不预缓存
+ */
+public class QueuePrefetcher {
+    private static final String TAG = "QueuePrefetcher";
+    private static final String PREFS = "player_prefs";
+    public static final String KEY_PREFETCH_COUNT = "prefetch_next_count";
+    public static final String KEY_PREFETCH_SECONDS = "prefetch_seconds";
+    private static final String KEY_LOW_POWER = "low_power_mode_enabled";
+
+    public static final int MAX_PREFETCH_COUNT = 3;
+    private static final int DEFAULT_PREFETCH_COUNT = 2;
+    private static final int DEFAULT_PREFETCH_SECONDS = 30;
+    // 未知码率时按 320kbps 估算预缓存字节数
+    private static final int FALLBACK_KBPS = 320;
+    // 单轮预缓存新写入字节的上限 = 缓存上限 / BUDGET_DIVISOR
+    private static final int BUDGET_DIVISOR = 4;
+
+    /**
+     * 单个预缓存目标（与播放器中的 MediaItem 一一对应）
+     */
+    public static final class Target {
+        final String uri;
+        final String cacheKey;
+        final int bitRateKbps;
+
+        public Target(String uri, String cacheKey, int bitRateKbps) {
+            this.uri = uri;
+            this.cacheKey = cacheKey;
+            this.bitRateKbps = bitRateKbps;
+        }
+    }
+
+    private final Context context;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(() -> {
+            try { android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND); } catch (Throwable ignore) {}
+            r.run();
+        }, "QueuePrefetcher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile CacheWriter activeWriter;
+    private CacheDataSource.Factory dataSourceFactory;
+
+    public QueuePrefetcher(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * 当前设置下需要预缓存的首数（低耗模式或关闭时为 0）
+     */
+    public int getPrefetchCount() {
+        SharedPreferences sp = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        if (sp.getBoolean(KEY_LOW_POWER, false)) return 0;
+        int n = sp.getInt(KEY_PREFETCH_COUNT, DEFAULT_PREFETCH_COUNT);
+        return Math.max(0, Math.min(MAX_PREFETCH_COUNT, n));
+    }
+
+    /**
+     * 以新的目标列表替换当前任务（旧任务立即取消）
+     */
+    public void prefetch(List<Target> targets) {
+        final int gen = generation.incrementAndGet();
+        cancelActiveWriter();
+        if (targets == null || targets.isEmpty()) return;
+        final List<Target> copy = new ArrayList<>(targets);
+        worker.execute(() -> runJob(gen, copy));
+    }
+
+    /**
+     * 队列变化或服务销毁时取消全部预缓存
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        cancelActiveWriter();
+    }
+
+    public void release() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    private void cancelActiveWriter() {
+        CacheWriter w = activeWriter;
+        if (w != null) w.cancel();
+    }
+
+    private void runJob(int gen, List<Target> targets) {
+        if (gen != generation.get()) return;
+        if (!NetworkUtils.isNetworkAvailable(context)) return;
+        boolean unmetered = NetworkUtils.isUnmeteredNetwork(context);
+        int seconds = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+                .getInt(KEY_PREFETCH_SECONDS, DEFAULT_PREFETCH_SECONDS);
+        CacheManager cm = CacheManager.getInstance(context);
+        SimpleCache cache = cm.getCache();
+        long budget = cm.getMaxCacheBytes() / BUDGET_DIVISOR;
+        for (Target t : targets) {
+            if (gen != generation.get()) return;
+            if (budget <= 0) {
+                Log.d(TAG, "本轮预缓存预算已用完，跳过其余目标");
+                return;
+            }
+            // 整首模式：长度已知时取整首，未知时以剩余预算为上限
+            long want = unmetered ? ContentMetadata.getContentLength(cache.getContentMetadata(t.cacheKey))
+                    : bytesFor(t.bitRateKbps, seconds);
+            if (want == 0) continue;
+            if (want == C.LENGTH_UNSET) want = budget;
+            long cachedBefore = cache.getCachedBytes(t.cacheKey, 0, want);
+            if (cachedBefore >= want) continue;
+            long limit = Math.min(want, cachedBefore + budget);
+            warm(gen, t, limit);
+            budget -= Math.max(0, cache.getCachedBytes(t.cacheKey, 0, limit) - cachedBefore);
+        }
+    }
+
+    private void warm(int gen, Target t, long length) {
+        DataSpec spec = new DataSpec.Builder()
+                .setUri(Uri.parse(t.uri))
+                .setKey(t.cacheKey)
+                .setPosition(0)
+                .setLength(length)
+                .build();
+        CacheWriter writer = new CacheWriter(getDataSourceFactory().createDataSource(), spec, null, null);
+        activeWriter = writer;
+        // cancel() 可能在 activeWriter 赋值之前发生，赋值后再检查一次代号
+        if (gen != generation.get()) {
+            activeWriter = null;
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            writer.cache();
+            Log.d(TAG, "预缓存完成: " + t.cacheKey + " (≤" + (length / 1024) + "KB)"
+                    + " 耗时 " + (System.currentTimeMillis() - start) + "ms");
+        } catch (InterruptedIOException e) {
+            Log.d(TAG, "预缓存已取消: " + t.cacheKey);
+        } catch (Exception e) {
+            // 请求区间超出文件长度等情况：已写入部分保留，继续下一首
+            Log.w(TAG, "预缓存失败: " + t.cacheKey + ", " + e.getMessage());
+        } finally {
+            if (activeWriter == writer) activeWriter = null;
+        }
+    }
+
+    private synchronized CacheDataSource.Factory getDataSourceFactory() {
+        if (dataSourceFactory == null) {
+            dataSourceFactory = CacheManager.getInstance(context).buildCacheDataSourceFactory();
+        }
+        return dataSourceFactory;
+    }
+
+    private static long bytesFor(int kbps, int seconds) {
+        if (seconds <= 0) return 0;
+        int rate = kbps > 0 ? kbps : FALLBACK_KBPS;
+        return (long) rate * 1000L / 8L * seconds;
+    }
+}
@@ -38,12 +38,14 @@ public class SmartDataSourceFactory implements DataSource.Factory {
 				.setCache(cache)
 				.setUpstreamDataSourceFactory(httpFactory)
 				.setCacheWriteDataSinkFactory(new CacheDataSink.Factory().setCache(cache))
+				.setCacheKeyFactory(StreamCacheKeyFactory.INSTANCE)
 				.setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
 		// 只读缓存：不写入磁盘，低耗模式使用
 		this.cacheFactoryReadOnly = new CacheDataSource.Factory()
 				.setCache(cache)
 				.setUpstreamDataSourceFactory(httpFactory)
 				// 不设置写入sink，即仅读缓存
+				.setCacheKeyFactory(StreamCacheKeyFactory.INSTANCE)
 				.setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
 	}
 
@@ -0,0 +1,73 @@
+package com.watch.limusic.cache;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.cache.CacheKeyFactory;
+
+/**
+ * 统一的流媒体缓存键策略：由 songId + 格式 + 码率 派生，不含签名参数 t/s
+ * 键格式：
+ * - 原始流：       stream_raw_{songId}
+ * - FLAC：         stream_flac_{songId}
+ * - 转码默认码率： stream_{format}_{songId}（如 stream_mp3_xxx，兼容既有缓存）
+ * - 转码其他码率： stream_{format}-{kbps}_{songId}
+ * MediaItem 自带 customCacheKey 时优先使用；非 Subsonic stream 地址回退为完整 URL
+ */
+public final class StreamCacheKeyFactory implements CacheKeyFactory {
+    public static final StreamCacheKeyFactory INSTANCE = new StreamCacheKeyFactory();
+
+    private static final String PREFIX = "stream_";
+    private static final int DEFAULT_TRANSCODE_KBPS = 320;
+
+    private StreamCacheKeyFactory() {}
+
+    @Override
+    public String buildCacheKey(DataSpec dataSpec) {
+        if (dataSpec.key != null) return dataSpec.key;
+        String key = forUri(dataSpec.uri);
+        return key != null ? key : dataSpec.uri.toString();
+    }
+
+    public static String forSong(String songId, String format, int maxBitRateKbps) {
+        String fmt = format == null || format.isEmpty() || "raw".equalsIgnoreCase(format) ? "raw" : format.toLowerCase();
+        StringBuilder sb = new StringBuilder(PREFIX.length() + fmt.length() + 32);
+        sb.append(PREFIX).append(fmt);
+        if (!"raw".equals(fmt) && !"flac".equals(fmt) && maxBitRateKbps > 0 && maxBitRateKbps != DEFAULT_TRANSCODE_KBPS) {
+            sb.append('-').append(maxBitRateKbps);
+        }
+        return sb.append('_').append(songId).toString();
+    }
+
+    /**
+     * 从 Subsonic stream 地址派生缓存键；不是 stream 地址时返回 null
+     */
+    public static String forUrl(String url) {
+        if (url == null || url.isEmpty()) return null;
+        return forUri(Uri.parse(url));
+    }
+
+    private static String forUri(Uri uri) {
+        if (uri == null || uri.isOpaque()) return null;
+        String path = uri.getPath();
+        if (path == null || !(path.endsWith("/stream") || path.endsWith("/stream.view"))) return null;
+        String id = uri.getQueryParameter("id");
+        if (id == null || id.isEmpty()) return null;
+        int kbps = 0;
+        try {
+            String br = uri.getQueryParameter("maxBitRate");
+            if (br != null) kbps = Integer.parseInt(br);
+        } catch (NumberFormatException ignore) {}
+        return forSong(id, uri.getQueryParameter("format"), kbps);
+    }
+
+    /**
+     * 从缓存键反解 songId；非本策略生成的键返回 null
+     */
+    public static String songIdOf(String cacheKey) {
+        if (cacheKey == null || !cacheKey.startsWith(PREFIX)) return null;
+        int sep = cacheKey.indexOf('_', PREFIX.length());
+        if (sep < 0 || sep == cacheKey.length() - 1) return null;
+        return cacheKey.substring(sep + 1);
+    }
+}
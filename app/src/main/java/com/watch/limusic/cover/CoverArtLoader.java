@@ -0,0 +1,151 @@
+package com.watch.limusic.cover;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.ContentLengthInputStream;
+import com.watch.limusic.api.NavidromeApi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * CoverArtRef -> InputStream：本地封面优先，否则按档位向服务端请求 getCoverArt（复用 API 的 OkHttp 连接池）
+ * 本地来源为 DataSource.LOCAL，AUTOMATIC 策略下不再复制一份源数据到 Glide 磁盘缓存
+ */
+public final class CoverArtLoader implements ModelLoader<CoverArtRef, InputStream> {
+    private final Context context;
+
+    CoverArtLoader(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull CoverArtRef ref, int width, int height, @NonNull Options options) {
+        return new LoadData<>(new ObjectKey(ref.cacheKey()), new Fetcher(context, ref));
+    }
+
+    @Override
+    public boolean handles(@NonNull CoverArtRef ref) {
+        return true;
+    }
+
+    public static final class Factory implements ModelLoaderFactory<CoverArtRef, InputStream> {
+        private final Context context;
+
+        public Factory(Context context) {
+            this.context = context.getApplicationContext();
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<CoverArtRef, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new CoverArtLoader(context);
+        }
+
+        @Override
+        public void teardown() {}
+    }
+
+    private static final class Fetcher implements DataFetcher<InputStream> {
+        private final Context context;
+        private final CoverArtRef ref;
+        private volatile Call call;
+        private volatile boolean cancelled;
+        private volatile DataSource dataSource = DataSource.REMOTE;
+        private InputStream stream;
+        private ResponseBody body;
+
+        Fetcher(Context context, CoverArtRef ref) {
+            this.context = context;
+            this.ref = ref;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super InputStream> callback) {
+            if (ref.getAlbumId() != null) {
+                File local = CoverArtService.getInstance(context).coverFile(ref.getAlbumId());
+                if (local.length() > 0) {
+                    try {
+                        stream = new FileInputStream(local);
+                        dataSource = DataSource.LOCAL;
+                        callback.onDataReady(stream);
+                        return;
+                    } catch (FileNotFoundException ignore) {
+                        // 刚被删除：回退网络
+                    }
+                }
+            }
+            if (ref.getCoverArtId() == null) {
+                callback.onLoadFailed(new FileNotFoundException("无本地封面: " + ref.getAlbumId()));
+                return;
+            }
+            try {
+                NavidromeApi api = NavidromeApi.getInstance(context);
+                Request request = new Request.Builder()
+                        .url(api.getCoverArtUrl(ref.getCoverArtId(), ref.getSize()))
+                        .build();
+                Call c = api.getHttpClient().newCall(request);
+                call = c;
+                if (cancelled) c.cancel();
+                Response resp = c.execute();
+                body = resp.body();
+                if (!resp.isSuccessful() || body == null) {
+                    resp.close();
+                    callback.onLoadFailed(new HttpException(resp.message(), resp.code()));
+                    return;
+                }
+                stream = ContentLengthInputStream.obtain(body.byteStream(), body.contentLength());
+                callback.onDataReady(stream);
+            } catch (IOException | IllegalStateException e) {
+                // IllegalStateException：服务器尚未配置
+                callback.onLoadFailed(e instanceof IOException ? (IOException) e : new IOException(e));
+            }
+        }
+
+        @Override
+        public void cleanup() {
+            try {
+                if (stream != null) stream.close();
+            } catch (IOException ignore) {}
+            if (body != null) body.close();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Call c = call;
+            if (c != null) c.cancel();
+        }
+
+        @NonNull
+        @Override
+        public Class<InputStream> getDataClass() {
+            return InputStream.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+    }
+}
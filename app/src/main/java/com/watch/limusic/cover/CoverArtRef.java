@@ -0,0 +1,76 @@
+package com.watch.limusic.cover;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 封面的 Glide 加载模型（由 CoverArtLoader 解析）
+ * - 服务端尺寸按目标视图分档：64（列表行）/ 150（播放栏、专辑页）/ 300（全屏背景），同档共用缓存
+ * - 带 albumId 时优先读取离线封面库 downloads/covers/{albumId}.jpg，不存在再走网络
+ * - 缓存键只由封面 ID 与档位决定，不含会话签名参数
+ */
+public final class CoverArtRef {
+    private static final int[] SIZE_BUCKETS = {64, 150, 300};
+
+    private final String coverArtId;
+    private final String albumId;
+    private final int size;
+
+    private CoverArtRef(String coverArtId, String albumId, int size) {
+        this.coverArtId = coverArtId;
+        this.albumId = albumId;
+        this.size = size;
+    }
+
+    /**
+     * @param coverArtId 服务端封面 ID（可为空，此时只用本地封面）
+     * @param albumId    本地封面文件名（可为空，此时只走网络）
+     * @param targetPx   目标视图的边长（像素）
+     * @return 两者都为空时返回 null（调用方直接显示占位图）
+     */
+    public static CoverArtRef of(String coverArtId, String albumId, int targetPx) {
+        String id = coverArtId == null || coverArtId.isEmpty() ? null : coverArtId;
+        String album = albumId == null || albumId.isEmpty() ? null : albumId;
+        if (id == null && album == null) return null;
+        return new CoverArtRef(id, album, bucketFor(targetPx));
+    }
+
+    static int bucketFor(int targetPx) {
+        for (int b : SIZE_BUCKETS) {
+            if (targetPx <= b) return b;
+        }
+        return SIZE_BUCKETS[SIZE_BUCKETS.length - 1];
+    }
+
+    public String getCoverArtId() { return coverArtId; }
+    public String getAlbumId() { return albumId; }
+    public int getSize() { return size; }
+
+    String cacheKey() {
+        return coverArtId != null ? "cover_" + coverArtId + "_" + size : "cover_album_" + albumId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CoverArtRef)) return false;
+        CoverArtRef r = (CoverArtRef) o;
+        return size == r.size && equalsNullable(coverArtId, r.coverArtId) && equalsNullable(albumId, r.albumId);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = coverArtId != null ? coverArtId.hashCode() : 0;
+        h = 31 * h + (albumId != null ? albumId.hashCode() : 0);
+        return 31 * h + size;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return cacheKey() + (albumId != null ? " (album " + albumId + ")" : "");
+    }
+
+    private static boolean equalsNullable(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,270 @@
+package com.watch.limusic.cover;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.FutureTarget;
+import com.watch.limusic.model.Album;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统一的封面服务
+ * - 界面统一以 CoverArtRef 交给 Glide（CoverArtLoader 解析），缓存键不含会话签名参数 t/s，重启后磁盘缓存仍命中
+ * - 离线封面库（downloads/covers/{albumId}.jpg）经 Glide downloadOnly 取 150 档源数据：与同档界面加载（播放栏、专辑页）
+ *   共用同一份磁盘缓存；保存后各档加载都直接读本地文件
+ * - 保存任务有界（2 个工作线程）、按优先级出队：下载歌曲时的保存 > 可见行 > 翻页预取；同一专辑的请求合并为一个任务
+ * - 列表快速滑动（惯性滚动）期间暂停预取，停止后按可见行优先继续；列表离开时取消尚未执行的预取
+ */
+public final class CoverArtService {
+    private static final String TAG = "CoverArtService";
+    public static final int DEFAULT_SIZE = 150;
+    private static final int WORKERS = 2;
+    private static final long FETCH_TIMEOUT_SEC = 40;
+
+    public static final int PRIORITY_OFFLINE = 0;
+    public static final int PRIORITY_VISIBLE = 1;
+    public static final int PRIORITY_PREFETCH = 2;
+
+    private static volatile CoverArtService INSTANCE;
+
+    private static final class Task implements Comparable<Task> {
+        final String albumId;
+        final String coverArtId;
+        final long seq;
+        int priority;
+        boolean done;
+        boolean cancelled;
+        FutureTarget<File> target;
+
+        Task(String albumId, String coverArtId, int priority, long seq) {
+            this.albumId = albumId;
+            this.coverArtId = coverArtId;
+            this.priority = priority;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int c = Integer.compare(priority, o.priority);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private final Context context;
+    private final File coversDir;
+    private final PriorityQueue<Task> waiting = new PriorityQueue<>();
+    // 排队与执行中的任务，按 albumId 合并
+    private final Map<String, Task> tasks = new HashMap<>();
+    private long nextSeq;
+    private boolean paused;
+
+    public static CoverArtService getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (CoverArtService.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new CoverArtService(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private CoverArtService(Context context) {
+        this.context = context;
+        this.coversDir = new File(context.getExternalFilesDir(null), "downloads/covers");
+        for (int i = 1; i <= WORKERS; i++) {
+            Thread t = new Thread(this::workLoop, "CoverArt-" + i);
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            t.start();
+        }
+    }
+
+    public File coverFile(String albumId) {
+        return new File(coversDir, albumId + ".jpg");
+    }
+
+    /**
+     * 翻页后预取本页专辑封面到离线封面库（按列表顺序）
+     */
+    public void prefetch(List<Album> albums) {
+        if (albums == null || albums.isEmpty()) return;
+        synchronized (this) {
+            for (Album a : albums) enqueueLocked(a, PRIORITY_PREFETCH);
+            notifyAll();
+        }
+    }
+
+    /**
+     * 列表停止滚动时提升可见行的保存优先级
+     */
+    public void prioritize(List<Album> visible) {
+        if (visible == null || visible.isEmpty()) return;
+        synchronized (this) {
+            for (Album a : visible) enqueueLocked(a, PRIORITY_VISIBLE);
+            notifyAll();
+        }
+    }
+
+    /**
+     * 惯性滚动期间暂停预取；下载歌曲时的封面保存不受影响
+     */
+    public synchronized void setPaused(boolean paused) {
+        if (this.paused == paused) return;
+        this.paused = paused;
+        if (!paused) notifyAll();
+    }
+
+    /**
+     * 取消全部预取（排队中的直接移除，执行中的中止网络请求）；下载歌曲时的封面保存保留
+     */
+    public synchronized void cancelPrefetch() {
+        paused = false;
+        Iterator<Task> it = waiting.iterator();
+        while (it.hasNext()) {
+            Task t = it.next();
+            if (t.priority == PRIORITY_OFFLINE) continue;
+            it.remove();
+            finishLocked(t, true);
+        }
+        for (Task t : new ArrayList<>(tasks.values())) {
+            if (t.priority == PRIORITY_OFFLINE || t.done) continue;
+            t.cancelled = true;
+            if (t.target != null) t.target.cancel(true);
+        }
+        notifyAll();
+    }
+
+    /**
+     * 下载歌曲后保存专辑封面（阻塞至完成，与同一专辑排队中的预取合并）
+     * @return 本地封面是否可用
+     */
+    public boolean saveForOffline(String albumId, String coverArtId) {
+        if (albumId == null || albumId.isEmpty()) return false;
+        File out = coverFile(albumId);
+        if (out.length() > 0) return true;
+        Task task;
+        synchronized (this) {
+            task = enqueueLocked(albumId, coverArtId, PRIORITY_OFFLINE);
+            notifyAll();
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(FETCH_TIMEOUT_SEC + 5);
+            try {
+                while (task != null && !task.done) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0) break;
+                    wait(left);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return out.length() > 0;
+    }
+
+    private Task enqueueLocked(Album album, int priority) {
+        String albumId = album.getId();
+        String coverId = album.getCoverArt();
+        return enqueueLocked(albumId, coverId != null && !coverId.isEmpty() ? coverId : albumId, priority);
+    }
+
+    private Task enqueueLocked(String albumId, String coverArtId, int priority) {
+        if (albumId == null || albumId.isEmpty()) return null;
+        Task t = tasks.get(albumId);
+        // 已取消但仍在收尾的任务不复用
+        if (t != null && !t.cancelled) {
+            // 已在排队则只升不降；执行中的任务提升为离线保存后不再被取消
+            if (priority < t.priority) {
+                if (waiting.remove(t)) {
+                    t.priority = priority;
+                    waiting.add(t);
+                } else {
+                    t.priority = priority;
+                }
+            }
+            return t;
+        }
+        if (coverFile(albumId).length() > 0) return null;
+        t = new Task(albumId, coverArtId, priority, nextSeq++);
+        tasks.put(albumId, t);
+        waiting.add(t);
+        return t;
+    }
+
+    private void finishLocked(Task t, boolean cancelled) {
+        t.done = true;
+        t.cancelled |= cancelled;
+        if (tasks.get(t.albumId) == t) tasks.remove(t.albumId);
+        notifyAll();
+    }
+
+    private void workLoop() {
+        while (true) {
+            Task t;
+            synchronized (this) {
+                try {
+                    while ((t = waiting.peek()) == null || (paused && t.priority != PRIORITY_OFFLINE)) wait();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                waiting.poll();
+            }
+            try {
+                fetch(t);
+            } catch (Exception e) {
+                if (!t.cancelled) Log.w(TAG, "保存封面失败: " + t.albumId + ", " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    finishLocked(t, false);
+                }
+            }
+        }
+    }
+
+    private void fetch(Task t) throws Exception {
+        File out = coverFile(t.albumId);
+        if (out.length() > 0) return;
+        // 不带 albumId：目标正是本地文件，只取网络源
+        CoverArtRef ref = CoverArtRef.of(t.coverArtId, null, DEFAULT_SIZE);
+        if (ref == null) return;
+        FutureTarget<File> target = Glide.with(context).downloadOnly().load(ref).submit();
+        synchronized (this) {
+            t.target = target;
+            if (t.cancelled) target.cancel(true);
+        }
+        try {
+            File src = target.get(FETCH_TIMEOUT_SEC, TimeUnit.SECONDS);
+            if (!coversDir.exists()) coversDir.mkdirs();
+            File tmp = new File(coversDir, t.albumId + ".jpg.part");
+            try {
+                copy(src, tmp);
+                if (!tmp.renameTo(out)) throw new IOException("重命名封面文件失败");
+            } finally {
+                if (tmp.exists()) tmp.delete();
+            }
+        } finally {
+            Glide.with(context).clear(target);
+        }
+    }
+
+    private static void copy(File src, File dst) throws IOException {
+        try (InputStream in = new FileInputStream(src); OutputStream os = new FileOutputStream(dst)) {
+            byte[] buf = new byte[8192];
+            int len;
+            while ((len = in.read(buf)) != -1) os.write(buf, 0, len);
+        }
+    }
+}
@@ -26,12 +26,20 @@ public interface AlbumDao {
     
     @Update
     void updateAlbum(AlbumEntity album);
+
+    @Update
+    void updateAlbums(List<AlbumEntity> albums);
     
-    @Query("SELECT * FROM albums ORDER BY name COLLATE NOCASE ASC")
+    // 按持久化排序键（'#'/数字/A-Z 分组，中文按拼音）
+    @Query("SELECT * FROM albums ORDER BY sortKey")
     List<AlbumEntity> getAllAlbums();
     
     @Query("SELECT * FROM albums WHERE id = :albumId")
     AlbumEntity getAlbumById(String albumId);
+
+    // 批量判断专辑是否存在（调用方控制 IN 参数个数）
+    @Query("SELECT id FROM albums WHERE id IN (:albumIds)")
+    List<String> getExistingAlbumIds(List<String> albumIds);
     
     @Query("SELECT * FROM albums WHERE name LIKE '%' || :query || '%' OR artist LIKE '%' || :query || '%' ORDER BY name COLLATE NOCASE ASC")
     List<AlbumEntity> searchAlbums(String query);
@@ -2,12 +2,13 @@ package com.watch.limusic.database;
 
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 /**
  * 专辑数据库实体类，用于离线存储专辑信息
  */
-@Entity(tableName = "albums")
+@Entity(tableName = "albums", indices = {@Index("sortKey")})
 public class AlbumEntity {
     @PrimaryKey
     @NonNull
@@ -20,6 +21,7 @@ public class AlbumEntity {
     private int duration;
     private int year;
     private long lastUpdated; // 上次从服务器更新的时间戳
+    private String sortKey; // 离线专辑列表排序键，见 SongSortKey（构造时生成，读库时由 Room 覆盖为已存值）
 
     public AlbumEntity(@NonNull String id, String name, String artist, String artistId,
                       String coverArt, int songCount, int duration, int year) {
@@ -32,6 +34,7 @@ public class AlbumEntity {
         this.duration = duration;
         this.year = year;
         this.lastUpdated = System.currentTimeMillis();
+        this.sortKey = SongSortKey.of(this);
     }
 
     @NonNull
@@ -106,4 +109,12 @@ public class AlbumEntity {
     public void setLastUpdated(long lastUpdated) {
         this.lastUpdated = lastUpdated;
     }
-} 
\ No newline at end of file
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public void setSortKey(String sortKey) {
+        this.sortKey = sortKey;
+    }
+}
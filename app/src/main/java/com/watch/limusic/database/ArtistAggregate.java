@@ -0,0 +1,53 @@
+package com.watch.limusic.database;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * artists 聚合表的增量维护：songs 表的插入/删除/改艺术家通过触发器调整对应行的 songCount，
+ * 计数归零的行随之删除。songs 只经忽略冲突插入 + 整行更新写入（不做 REPLACE），计数不依赖 recursive_triggers
+ */
+final class ArtistAggregate {
+    static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS `artists` (`artistKey` TEXT NOT NULL, `name` TEXT, "
+            + "`songCount` INTEGER NOT NULL, `sortLetter` TEXT, `sortKey` TEXT, PRIMARY KEY(`artistKey`))";
+    static final String CREATE_INDEX = "CREATE INDEX IF NOT EXISTS `index_artists_sortKey` ON `artists` (`sortKey`)";
+
+    // 触发器内语句的冲突子句会被外层语句（如 Room 的 INSERT OR IGNORE）覆盖，建行不依赖冲突子句
+    private static final String ADD = "INSERT INTO artists(artistKey, name, songCount) "
+            + "SELECT COALESCE(new.artistKey, ''), TRIM(COALESCE(new.artist, '')), 0 "
+            + "WHERE NOT EXISTS (SELECT 1 FROM artists WHERE artistKey = COALESCE(new.artistKey, '')); "
+            + "UPDATE artists SET songCount = songCount + 1 WHERE artistKey = COALESCE(new.artistKey, ''); ";
+    private static final String REMOVE = "UPDATE artists SET songCount = songCount - 1 WHERE artistKey = COALESCE(old.artistKey, ''); "
+            + "DELETE FROM artists WHERE artistKey = COALESCE(old.artistKey, '') AND songCount <= 0; ";
+    private static final String[] TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS songs_artist_insert AFTER INSERT ON songs BEGIN " + ADD + "END",
+            "CREATE TRIGGER IF NOT EXISTS songs_artist_delete AFTER DELETE ON songs BEGIN " + REMOVE + "END",
+            "CREATE TRIGGER IF NOT EXISTS songs_artist_update AFTER UPDATE OF artistKey ON songs "
+                    + "WHEN COALESCE(old.artistKey, '') <> COALESCE(new.artistKey, '') BEGIN " + REMOVE + ADD + "END"
+    };
+
+    private ArtistAggregate() {}
+
+    static void createTriggers(SupportSQLiteDatabase db) {
+        for (String sql : TRIGGERS) db.execSQL(sql);
+    }
+
+    /**
+     * 由 songs 表全量重建（迁移时使用，须在 songs.artistKey 填好之后、触发器创建之前）
+     */
+    static void rebuild(SupportSQLiteDatabase db) {
+        db.execSQL("DELETE FROM artists");
+        db.execSQL("INSERT INTO artists(artistKey, name, songCount) "
+                + "SELECT COALESCE(artistKey, ''), TRIM(COALESCE(MIN(artist), '')), COUNT(*) FROM songs GROUP BY COALESCE(artistKey, '')");
+    }
+
+    /**
+     * 排序规则同原艺术家列表：'#' 组（含数字开头）在前，其后 A-Z，组内按拼音比较文本
+     */
+    static void fillSortKey(ArtistEntity artist) {
+        String name = artist.getName();
+        String letter = com.watch.limusic.util.PinyinUtil.getFirstLetter(name);
+        if (letter == null || letter.isEmpty() || Character.isDigit(letter.charAt(0))) letter = "#";
+        artist.setSortLetter(letter);
+        artist.setSortKey(SongSortKey.of(letter, name, artist.getArtistKey()));
+    }
+}
@@ -0,0 +1,24 @@
+package com.watch.limusic.database;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * 艺术家聚合表访问接口（行与计数由触发器维护，这里只读与补写排序键）
+ */
+@Dao
+public interface ArtistDao {
+
+    @Query("SELECT * FROM artists WHERE songCount > 0 ORDER BY sortKey")
+    List<ArtistEntity> getArtists();
+
+    // 新出现、尚未计算排序键的艺术家
+    @Query("SELECT * FROM artists WHERE sortKey IS NULL")
+    List<ArtistEntity> getArtistsWithoutSortKey();
+
+    // 只写排序列，不覆盖触发器维护的 songCount
+    @Query("UPDATE artists SET sortLetter = :sortLetter, sortKey = :sortKey WHERE artistKey = :artistKey")
+    void updateSortKey(String artistKey, String sortLetter, String sortKey);
+}
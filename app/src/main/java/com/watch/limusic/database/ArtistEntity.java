@@ -0,0 +1,79 @@
+package com.watch.limusic.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Locale;
+
+/**
+ * 艺术家聚合实体：按规范化名称（artistKey）归并的歌曲数与排序键
+ * - 行的增删与 songCount 由 songs 表上的触发器增量维护（见 ArtistAggregate）
+ * - sortLetter/sortKey 需要拼音，新出现的艺术家由仓库在读取前补算
+ */
+@Entity(tableName = "artists", indices = {@Index("sortKey")})
+public class ArtistEntity {
+    @PrimaryKey
+    @NonNull
+    private String artistKey;
+    private String name; // 展示名（该艺术家首次入库时的原始名称去首尾空白）
+    private int songCount;
+    private String sortLetter;
+    private String sortKey;
+
+    public ArtistEntity(@NonNull String artistKey, String name, int songCount) {
+        this.artistKey = artistKey;
+        this.name = name;
+        this.songCount = songCount;
+    }
+
+    /**
+     * 艺术家名称的归并键：去首尾空白、不区分大小写；空名称归为 ""
+     */
+    @NonNull
+    public static String keyOf(String artist) {
+        return artist != null ? artist.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    @NonNull
+    public String getArtistKey() {
+        return artistKey;
+    }
+
+    public void setArtistKey(@NonNull String artistKey) {
+        this.artistKey = artistKey;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getSongCount() {
+        return songCount;
+    }
+
+    public void setSongCount(int songCount) {
+        this.songCount = songCount;
+    }
+
+    public String getSortLetter() {
+        return sortLetter;
+    }
+
+    public void setSortLetter(String sortLetter) {
+        this.sortLetter = sortLetter;
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public void setSortKey(String sortKey) {
+        this.sortKey = sortKey;
+    }
+}
@@ -3,71 +3,40 @@ package com.watch.limusic.database;
 import android.content.Context;
 import android.util.Log;
 
-import com.google.android.exoplayer2.upstream.cache.Cache;
 import com.watch.limusic.cache.CacheManager;
 import com.watch.limusic.model.Song;
-import com.watch.limusic.api.NavidromeApi;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 缓存检测工具类，负责检测歌曲是否已缓存并同步数据库状态
  */
 public class CacheDetector {
     private static final String TAG = "CacheDetector";
+    private static final int MAX_BIND_ARGS = 900;
     
     private final MusicDatabase database;
     private final CacheManager cacheManager;
+    private final SongSearchIndex searchIndex;
 
     public CacheDetector(Context context) {
         this.database = MusicDatabase.getInstance(context);
         this.cacheManager = CacheManager.getInstance(context);
+        this.searchIndex = SongSearchIndex.getInstance(context);
     }
 
     /**
      * 检测歌曲是否已缓存
+     * 缓存键由 songId + 格式派生（不含签名参数），直接按键查询，无需读库或构建流地址
      * @param songId 歌曲ID
      * @return 是否已缓存
      */
     public boolean isSongCached(String songId) {
         try {
-            SongEntity song = database.songDao().getSongById(songId);
-            if (song != null) {
-                // 获取流URL
-                String streamUrl = song.getStreamUrl();
-                if (streamUrl == null || streamUrl.isEmpty()) {
-                    // 如果数据库中没有流URL，尝试从API构建
-                    streamUrl = NavidromeApi.getInstance(cacheManager.getContext()).getStreamUrl(songId);
-                    // 更新数据库中的URL
-                    if (streamUrl != null && !streamUrl.isEmpty()) {
-                        song.setStreamUrl(streamUrl);
-                        // 如果数据库有更新方法则调用，否则忽略
-                        try {
-                            database.songDao().updateSong(song);
-                        } catch (Exception e) {
-                            Log.w(TAG, "无法更新歌曲流URL: " + e.getMessage());
-                        }
-                    }
-                }
-                
-                // 直接检查ExoPlayer缓存中是否存在
-                boolean isActuallyCached = streamUrl != null && !streamUrl.isEmpty() && 
-                                         cacheManager.isCached(streamUrl);
-                
-                // 如果数据库标记与实际缓存状态不一致，更新数据库
-                if (song.isCached() != isActuallyCached) {
-                    song.setCached(isActuallyCached);
-                    database.songDao().updateCacheStatus(songId, isActuallyCached);
-                    Log.d(TAG, "更新歌曲缓存状态: " + song.getTitle() + ", 缓存=" + isActuallyCached);
-                }
-                
-                return isActuallyCached;
-            } else {
-                // 如果数据库中没有这首歌，直接检查缓存
-                String streamUrl = NavidromeApi.getInstance(cacheManager.getContext()).getStreamUrl(songId);
-                return streamUrl != null && !streamUrl.isEmpty() && cacheManager.isCached(streamUrl);
-            }
+            return cacheManager.isCachedByAnyKey(songId);
         } catch (Exception e) {
             Log.e(TAG, "检查缓存状态时出错", e);
         }
@@ -81,18 +50,19 @@ public class CacheDetector {
     public List<Song> getAllCachedSongs() {
         List<Song> cachedSongs = new ArrayList<>();
         try {
+            Set<String> actual = cacheManager.getCachedSongIds();
             List<SongEntity> cachedEntities = database.songDao().getCachedSongs();
+            List<String> stale = new ArrayList<>();
             for (SongEntity entity : cachedEntities) {
                 // 再次确认是否真的已缓存
-                if (cacheManager.isCached(entity.getStreamUrl())) {
+                if (actual.contains(entity.getId())) {
                     cachedSongs.add(EntityConverter.toSong(entity));
                 } else {
-                    // 更新数据库状态
-                    entity.setCached(false);
-                    database.songDao().updateCacheStatus(entity.getId(), false);
-                    Log.d(TAG, "歌曲缓存状态不一致，已更新: " + entity.getTitle());
+                    stale.add(entity.getId());
                 }
             }
+            updateInChunks(stale, false);
+            if (!stale.isEmpty()) Log.d(TAG, "缓存状态不一致，已批量更新 " + stale.size() + " 首");
         } catch (Exception e) {
             Log.e(TAG, "获取缓存歌曲时出错", e);
         }
@@ -101,26 +71,51 @@ public class CacheDetector {
 
     /**
      * 同步所有歌曲的缓存状态
-     * 这是一个潜在的耗时操作，应在后台线程执行
+     * 一次遍历缓存键得到实际集合，与库内 isCached=1 的集合做差，只批量更新差异行
+     * 应在后台线程执行
      */
     public void syncCacheStatus() {
         try {
-            List<SongEntity> allSongs = database.songDao().getAllSongs();
-            Cache cache = cacheManager.getCache();
-            
-            for (SongEntity song : allSongs) {
-                boolean isCached = cacheManager.isCached(song.getStreamUrl());
-                
-                if (song.isCached() != isCached) {
-                    song.setCached(isCached);
-                    database.songDao().updateCacheStatus(song.getId(), isCached);
-                    Log.d(TAG, "已更新歌曲缓存状态: " + song.getTitle() + ", 缓存=" + isCached);
-                }
+            Set<String> actual = cacheManager.getCachedSongIds();
+            Set<String> flagged = new HashSet<>(database.songDao().getCachedSongIds());
+            List<String> toClear = new ArrayList<>();
+            for (String id : flagged) {
+                if (!actual.contains(id)) toClear.add(id);
+            }
+            List<String> toSet = new ArrayList<>();
+            for (String id : actual) {
+                if (!flagged.contains(id)) toSet.add(id);
             }
+            database.runInTransaction(() -> {
+                updateInChunks(toClear, false);
+                updateInChunks(toSet, true);
+            });
+            Log.d(TAG, "缓存状态同步完成: 置位 " + toSet.size() + "，清除 " + toClear.size());
         } catch (Exception e) {
             Log.e(TAG, "同步缓存状态时出错", e);
         }
     }
+
+    /**
+     * 应用缓存索引批量回调的状态变化（一次事务内按块更新）
+     */
+    public void applyCacheChanges(List<String> nowCached, List<String> nowUncached) {
+        try {
+            database.runInTransaction(() -> {
+                updateInChunks(nowCached, true);
+                updateInChunks(nowUncached, false);
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "批量更新缓存状态失败", e);
+        }
+    }
+
+    // SQLite 绑定参数上限 999，按块更新
+    private void updateInChunks(List<String> ids, boolean isCached) {
+        for (int i = 0; i < ids.size(); i += MAX_BIND_ARGS) {
+            database.songDao().updateCacheStatusForIds(ids.subList(i, Math.min(ids.size(), i + MAX_BIND_ARGS)), isCached);
+        }
+    }
     
     /**
      * 更新单首歌曲的缓存状态
@@ -138,7 +133,13 @@ public class CacheDetector {
                 // 歌曲不在数据库中，添加它
                 SongEntity newEntity = EntityConverter.toSongEntity(song);
                 newEntity.setCached(isCached);
-                database.songDao().insertSong(newEntity);
+                long[] rowIds = database.songDao().insertSongsIfAbsent(java.util.Collections.singletonList(newEntity));
+                if (rowIds[0] == -1L) {
+                    // 并发写库已插入该行：只更新缓存标记
+                    database.songDao().updateCacheStatus(song.getId(), isCached);
+                } else {
+                    searchIndex.index(java.util.Collections.singletonList(newEntity));
+                }
                 Log.d(TAG, "歌曲不在数据库中，已添加并设置缓存状态: " + song.getTitle());
             }
         } catch (Exception e) {
@@ -0,0 +1,39 @@
+package com.watch.limusic.database;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据库线程分层
+ * - writer：单线程，所有后台写库按提交顺序执行，写事务之间不互相争锁
+ * - reader：小线程池，界面读库在此执行；WAL 模式下读与写可并发，不被长写事务阻塞
+ * 主线程不得直接访问 DAO（debug 构建中 Room 直接抛异常，见 devtools.DbInstrumentation）
+ */
+public final class DbExecutors {
+    private static final int READER_THREADS = 2;
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(named("db-writer"));
+    private static final ExecutorService READER = Executors.newFixedThreadPool(READER_THREADS, named("db-reader"));
+
+    private DbExecutors() {}
+
+    public static Executor writer() {
+        return WRITER;
+    }
+
+    public static Executor reader() {
+        return READER;
+    }
+
+    private static ThreadFactory named(String prefix) {
+        final AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,198 @@
+package com.watch.limusic.database;
+
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.watch.limusic.util.PinyinUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 派生数据的后台重建（"索引重建"阶段）
+ * - 迁移只做结构变更：新增的派生列留空，规则变化时把旧值置 NULL，不在迁移里逐行计算，升级后原有数据立即可用
+ * - 启动后在写线程上分批补算：歌曲排序键 -> 专辑排序键 -> 艺术家归并键（补过则重建 artists 聚合）-> 全文检索索引
+ * - 每批一个事务、批与批之间重新排队，其他写入可以插在中间执行
+ * - 排序键与艺术家归并键补齐前 isReady() 为 false，依赖这些列的读取（键集分页、全局索引、艺术家聚合）退回旧查询
+ */
+public final class DerivedDataRebuilder {
+    private static final String TAG = "DerivedDataRebuilder";
+    private static final int BATCH_SIZE = 500;
+
+    private enum Stage { SONG_SORT_KEYS, ALBUM_SORT_KEYS, ARTIST_KEYS, SEARCH_INDEX, DONE }
+
+    private static volatile DerivedDataRebuilder INSTANCE;
+
+    private final Context context;
+    private final MusicDatabase database;
+    private final SongSearchIndex searchIndex;
+    private Stage stage = Stage.SONG_SORT_KEYS;
+    private int songKeysFilled;
+    private int artistKeysFilled;
+    private boolean started;
+    private volatile boolean ready;
+
+    public static DerivedDataRebuilder getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (DerivedDataRebuilder.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DerivedDataRebuilder(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private DerivedDataRebuilder(Context context) {
+        this(context, MusicDatabase.getInstance(context), SongSearchIndex.getInstance(context));
+    }
+
+    DerivedDataRebuilder(Context context, MusicDatabase database, SongSearchIndex searchIndex) {
+        this.context = context;
+        this.database = database;
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * 每个进程只需执行一次；之后的写库路径都会直接写好派生列
+     */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        DbExecutors.writer().execute(this::step);
+    }
+
+    /**
+     * songs.sortKey/artistKey、albums.sortKey 与 artists 聚合是否已补齐（全文检索另见 SongSearchIndex.isReady）
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 在调用线程上依次跑完全部阶段（迁移测试用），出错直接抛出
+     */
+    void runBlocking() {
+        while (stage != Stage.DONE) runStage();
+    }
+
+    // 只在写线程上执行
+    private void step() {
+        try {
+            runStage();
+        } catch (Exception e) {
+            // 出错时放弃本次重建，下次启动从头补（已补的行不会重复计算）
+            Log.w(TAG, "派生数据重建失败(" + stage + "): " + e.getMessage());
+            return;
+        }
+        if (stage != Stage.DONE) DbExecutors.writer().execute(this::step);
+    }
+
+    // 执行当前阶段的一批，本阶段补完时推进到下一阶段
+    private void runStage() {
+        switch (stage) {
+            case SONG_SORT_KEYS: {
+                int n = fillSongSortKeys();
+                songKeysFilled += n;
+                if (n < BATCH_SIZE) {
+                    if (songKeysFilled > 0) Log.i(TAG, "补算歌曲排序键: " + songKeysFilled + " 首");
+                    stage = Stage.ALBUM_SORT_KEYS;
+                }
+                break;
+            }
+            case ALBUM_SORT_KEYS:
+                if (fillAlbumSortKeys() < BATCH_SIZE) stage = Stage.ARTIST_KEYS;
+                break;
+            case ARTIST_KEYS: {
+                int n = fillArtistKeys();
+                artistKeysFilled += n;
+                if (n < BATCH_SIZE) {
+                    // 补键期间触发器按空键增减的计数不可靠，补完后由 songs 全量重算一次
+                    if (artistKeysFilled > 0) {
+                        database.runInTransaction(() -> ArtistAggregate.rebuild(writable()));
+                        Log.i(TAG, "补算艺术家归并键并重建聚合: " + artistKeysFilled + " 首");
+                    }
+                    ready = true;
+                    // 读取从旧查询切换到排序键，顺序可能略有差异，通知列表重新加载
+                    if (songKeysFilled > 0 || artistKeysFilled > 0) notifySongsUpdated();
+                    stage = Stage.SEARCH_INDEX;
+                }
+                break;
+            }
+            case SEARCH_INDEX:
+                searchIndex.indexMissing();
+                stage = Stage.DONE;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private SupportSQLiteDatabase writable() {
+        return database.getOpenHelper().getWritableDatabase();
+    }
+
+    private int fillSongSortKeys() {
+        List<String[]> rows = select("SELECT id, title, initial FROM songs WHERE sortKey IS NULL LIMIT " + BATCH_SIZE, 3);
+        update("UPDATE songs SET sortKey = ? WHERE id = ?", rows, r -> SongSortKey.of(r[2], r[1], r[0]));
+        return rows.size();
+    }
+
+    private int fillAlbumSortKeys() {
+        List<String[]> rows = select("SELECT id, name FROM albums WHERE sortKey IS NULL LIMIT " + BATCH_SIZE, 2);
+        update("UPDATE albums SET sortKey = ? WHERE id = ?", rows, r -> SongSortKey.of(PinyinUtil.getFirstLetter(r[1]), r[1], r[0]));
+        return rows.size();
+    }
+
+    private int fillArtistKeys() {
+        List<String[]> rows = select("SELECT id, artist FROM songs WHERE artistKey IS NULL LIMIT " + BATCH_SIZE, 2);
+        update("UPDATE songs SET artistKey = ? WHERE id = ?", rows, r -> ArtistEntity.keyOf(r[1]));
+        return rows.size();
+    }
+
+    private List<String[]> select(String sql, int columns) {
+        List<String[]> rows = new ArrayList<>();
+        try (Cursor c = writable().query(sql)) {
+            while (c.moveToNext()) {
+                String[] r = new String[columns];
+                for (int i = 0; i < columns; i++) r[i] = c.getString(i);
+                rows.add(r);
+            }
+        }
+        return rows;
+    }
+
+    private interface KeyFunction {
+        String keyOf(String[] row);
+    }
+
+    private void update(String sql, List<String[]> rows, KeyFunction key) {
+        if (rows.isEmpty()) return;
+        SupportSQLiteDatabase db = writable();
+        database.runInTransaction(() -> {
+            try (SupportSQLiteStatement st = db.compileStatement(sql)) {
+                for (String[] r : rows) {
+                    st.bindString(1, key.keyOf(r));
+                    st.bindString(2, r[0]);
+                    st.executeUpdateDelete();
+                    st.clearBindings();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private void notifySongsUpdated() {
+        try {
+            Intent intent = new Intent("com.watch.limusic.DB_SONGS_UPDATED");
+            intent.putExtra("totalCount", database.songDao().getSongCount());
+            context.sendBroadcast(intent);
+        } catch (Exception ignore) {}
+    }
+}
@@ -89,12 +89,30 @@ public interface DownloadDao {
     @Query("UPDATE downloads SET status = :status WHERE songId = :songId")
     void updateDownloadStatus(String songId, DownloadStatus status);
 
+    /**
+     * 同时更新下载状态与调度优先级
+     */
+    @Query("UPDATE downloads SET status = :status, priority = :priority WHERE songId = :songId")
+    void updateDownloadStatusAndPriority(String songId, DownloadStatus status, int priority);
+
     /**
      * 更新下载进度信息
      */
     @Query("UPDATE downloads SET status = :status, filePath = :filePath, fileSize = :fileSize, completedTimestamp = :timestamp WHERE songId = :songId")
     void updateDownloadProgress(String songId, DownloadStatus status, String filePath, long fileSize, long timestamp);
 
+    /**
+     * 标记下载完成并记录容器类型与校验和
+     */
+    @Query("UPDATE downloads SET status = 'DOWNLOADED', filePath = :filePath, fileSize = :fileSize, contentType = :contentType, checksum = :checksum, completedTimestamp = :timestamp, errorMessage = NULL WHERE songId = :songId")
+    void updateDownloadCompleted(String songId, String filePath, long fileSize, String contentType, String checksum, long timestamp);
+
+    /**
+     * 已下载歌曲的文件路径（主键查询，未下载返回 null）
+     */
+    @Query("SELECT filePath FROM downloads WHERE songId = :songId AND status = 'DOWNLOADED'")
+    String getDownloadedFilePath(String songId);
+
     /**
      * 更新下载错误信息
      */
@@ -1,9 +1,11 @@
 package com.watch.limusic.database;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 
+import com.watch.limusic.model.DownloadPriority;
 import com.watch.limusic.model.DownloadStatus;
 
 /**
@@ -28,11 +30,18 @@ public class DownloadEntity {
     private int retryCount;
     private String streamUrl;
     private String coverArtUrl;
+    // 调度优先级（DownloadPriority.level），进程被杀后按此恢复排队
+    @ColumnInfo(defaultValue = "2")
+    private int priority;
+    // 下载完成时识别到的容器类型（Content-Type 或文件头推断）与校验和（"crc32:xxxxxxxx"）
+    private String contentType;
+    private String checksum;
 
     public DownloadEntity() {
         this.status = DownloadStatus.NOT_DOWNLOADED;
         this.downloadTimestamp = System.currentTimeMillis();
         this.retryCount = 0;
+        this.priority = DownloadPriority.USER_BATCH.getLevel();
     }
 
     @NonNull
@@ -148,6 +157,30 @@ public class DownloadEntity {
         this.coverArtUrl = coverArtUrl;
     }
 
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
     /**
      * 检查是否下载完成
      */
@@ -4,13 +4,13 @@ import android.content.Context;
 import android.util.Log;
 
 import com.watch.limusic.model.DownloadInfo;
+import com.watch.limusic.model.DownloadPriority;
 import com.watch.limusic.model.DownloadStatus;
 import com.watch.limusic.model.Song;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 /**
  * 下载数据存储库
@@ -21,12 +21,13 @@ public class DownloadRepository {
     
     private final MusicDatabase database;
     private final DownloadDao downloadDao;
-    private final ExecutorService executorService;
+    private final Executor executorService;
 
     private DownloadRepository(Context context) {
         this.database = MusicDatabase.getInstance(context);
         this.downloadDao = database.downloadDao();
-        this.executorService = Executors.newFixedThreadPool(2);
+        // 单写线程：同一任务的状态写入按提交顺序落库，不会出现 WAITING 覆盖 DOWNLOADED 之类的乱序
+        this.executorService = DbExecutors.writer();
     }
 
     public static synchronized DownloadRepository getInstance(Context context) {
@@ -59,6 +60,44 @@ public class DownloadRepository {
         });
     }
 
+    /**
+     * 添加下载记录并直接置为排队中（状态与优先级一次写入）
+     */
+    public void addDownload(Song song, DownloadPriority priority) {
+        executorService.execute(() -> {
+            try {
+                DownloadEntity entity = new DownloadEntity();
+                entity.setSongId(song.getId());
+                entity.setTitle(song.getTitle());
+                entity.setArtist(song.getArtist());
+                entity.setAlbum(song.getAlbum());
+                entity.setAlbumId(song.getAlbumId());
+                entity.setCoverArtUrl(song.getCoverArtUrl());
+                entity.setStatus(DownloadStatus.WAITING);
+                entity.setPriority(priority.getLevel());
+
+                downloadDao.insertDownload(entity);
+                Log.d(TAG, "添加下载记录: " + song.getTitle() + " (" + priority + ")");
+            } catch (Exception e) {
+                Log.e(TAG, "添加下载记录失败", e);
+            }
+        });
+    }
+
+    /**
+     * 更新下载状态与优先级
+     */
+    public void updateDownloadState(String songId, DownloadStatus status, DownloadPriority priority) {
+        executorService.execute(() -> {
+            try {
+                downloadDao.updateDownloadStatusAndPriority(songId, status, priority.getLevel());
+                Log.d(TAG, "更新下载状态: " + songId + " -> " + status + " (" + priority + ")");
+            } catch (Exception e) {
+                Log.e(TAG, "更新下载状态失败", e);
+            }
+        });
+    }
+
     /**
      * 更新下载状态
      */
@@ -89,6 +128,33 @@ public class DownloadRepository {
         });
     }
 
+    /**
+     * 标记下载完成（含容器类型与校验和）
+     */
+    public void markDownloadCompleted(String songId, String filePath, long fileSize, String contentType, String checksum) {
+        executorService.execute(() -> {
+            try {
+                downloadDao.updateDownloadCompleted(songId, filePath, fileSize, contentType, checksum,
+                        System.currentTimeMillis());
+                Log.d(TAG, "标记下载完成: " + songId + " (" + contentType + ", " + checksum + ")");
+            } catch (Exception e) {
+                Log.e(TAG, "标记下载完成失败", e);
+            }
+        });
+    }
+
+    /**
+     * 已下载歌曲的文件路径（未下载返回 null）
+     */
+    public String getDownloadedFilePath(String songId) {
+        try {
+            return downloadDao.getDownloadedFilePath(songId);
+        } catch (Exception e) {
+            Log.e(TAG, "查询下载路径失败", e);
+            return null;
+        }
+    }
+
     /**
      * 标记下载失败
      */
@@ -258,6 +324,7 @@ public class DownloadRepository {
         info.setDownloadTimestamp(entity.getDownloadTimestamp());
         info.setErrorMessage(entity.getErrorMessage());
         info.setRetryCount(entity.getRetryCount());
+        info.setPriority(DownloadPriority.fromLevel(entity.getPriority()));
         
         return info;
     }
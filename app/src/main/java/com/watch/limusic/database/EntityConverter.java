@@ -125,6 +125,8 @@ public class EntityConverter {
         } catch (Exception ignore) {
             entity.setInitial("#");
         }
+        entity.setSortKey(SongSortKey.of(entity));
+        entity.setArtistKey(ArtistEntity.keyOf(song.getArtist()));
         
         return entity;
     }
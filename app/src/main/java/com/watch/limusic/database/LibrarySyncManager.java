@@ -0,0 +1,346 @@
+package com.watch.limusic.database;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.watch.limusic.api.NavidromeApi;
+import com.watch.limusic.api.SubsonicResponse;
+import com.watch.limusic.model.Album;
+import com.watch.limusic.model.Song;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 曲库同步引擎：全量分页 + 增量拉取 + 删除对账
+ *
+ * 全量：search3 空查询按页翻完整个曲库，页请求以有界流水线并发（最多 MAX_IN_FLIGHT 页在途），
+ *      响应体边读边解码，每 WRITE_BATCH 首交给写线程落库（不等整页读完）；全部写完后删除本轮未触达的歌曲。
+ * 增量：以 getScanStatus 的 lastScan/count 作为高水位，未变化则直接结束；
+ *      变化时按 getAlbumList2(newest) 拉取比上次高水位更新的专辑并写入其歌曲，
+ *      若之后本地数量与服务器仍不一致（存在删除或修改），回退为一次全量对账。
+ * 进度：写库每处理完一块（全量为一批，增量为 MusicRepository 的一块）广播一次 ACTION_SYNC_PROGRESS（已写入数 / 服务器总数，未知为 -1）。
+ */
+public class LibrarySyncManager {
+    public static final String ACTION_SYNC_PROGRESS = "com.watch.limusic.LIBRARY_SYNC_PROGRESS";
+    public static final String EXTRA_SAVED = "saved";
+    public static final String EXTRA_TOTAL = "total";
+
+    private static final String TAG = "LibrarySyncManager";
+    private static final String PREFS = "library_sync";
+    private static final String KEY_LAST_SCAN = "last_scan";
+    private static final String KEY_SERVER_COUNT = "server_count";
+    private static final String KEY_NEWEST_CREATED = "newest_album_created";
+    private static final String KEY_LAST_FULL_SYNC_TS = "last_full_sync_ts";
+
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_IN_FLIGHT = 2;
+    // 流式写库：每批歌曲数与写线程上最多积压的批数
+    private static final int WRITE_BATCH = 100;
+    private static final int MAX_PENDING_BATCHES = 8;
+    private static final int ALBUM_PAGE_SIZE = 50;
+    // 全量对账的最长间隔：超过则即使高水位未变也重走一次全量
+    private static final long FULL_SYNC_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000L;
+
+    private static volatile LibrarySyncManager INSTANCE;
+
+    private final Context context;
+    private final NavidromeApi api;
+    private final MusicRepository repository;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public static LibrarySyncManager getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (LibrarySyncManager.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new LibrarySyncManager(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private LibrarySyncManager(Context context) {
+        this.context = context.getApplicationContext();
+        this.api = NavidromeApi.getInstance(this.context);
+        this.repository = MusicRepository.getInstance(this.context);
+    }
+
+    private SharedPreferences prefs() {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 清除高水位（服务器切换或清库时调用），下次同步将走全量
+     */
+    public void resetSyncState() {
+        prefs().edit().clear().apply();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * 在调用线程执行一次同步（需在后台线程调用，且不能是 DbExecutors.writer()：全量同步要等写线程落库）
+     * @param forceFull 是否强制全量
+     * @return 同步是否完整成功；已有同步在进行或未配置服务器时返回 false
+     */
+    public boolean syncBlocking(boolean forceFull) {
+        if (!api.isConfigured()) return false;
+        if (!running.compareAndSet(false, true)) {
+            Log.d(TAG, "已有同步在进行，忽略本次请求");
+            return false;
+        }
+        try {
+            NavidromeApi.ScanStatus status = null;
+            try { status = api.getScanStatus(); } catch (Exception e) { Log.w(TAG, "获取扫描状态失败: " + e.getMessage()); }
+
+            int localCount = repository.getSongCount();
+            SharedPreferences sp = prefs();
+            long lastFull = sp.getLong(KEY_LAST_FULL_SYNC_TS, 0L);
+            boolean needFull = forceFull
+                    || localCount == 0
+                    || lastFull == 0L
+                    || System.currentTimeMillis() - lastFull > FULL_SYNC_MAX_AGE_MS;
+
+            if (!needFull && status != null) {
+                if (status.isScanning()) {
+                    Log.d(TAG, "服务器正在扫描，推迟增量同步");
+                    return false;
+                }
+                String lastScan = sp.getString(KEY_LAST_SCAN, null);
+                long lastCount = sp.getLong(KEY_SERVER_COUNT, -1L);
+                boolean unchanged = status.getLastScan() != null
+                        && status.getLastScan().equals(lastScan)
+                        && status.getCount() == lastCount
+                        && status.getCount() == localCount;
+                if (unchanged) {
+                    Log.d(TAG, "曲库未变化（lastScan=" + lastScan + ", count=" + lastCount + "），跳过同步");
+                    return true;
+                }
+            }
+
+            int serverCount = status != null && status.getCount() > 0 ? (int) status.getCount() : -1;
+            boolean ok;
+            if (needFull) {
+                ok = runFullSync(serverCount);
+            } else {
+                ok = runDeltaSync(serverCount);
+                // 增量后数量仍对不上：存在删除或修改，回退全量对账
+                if (ok && status != null && status.getCount() > 0 && repository.getSongCount() != status.getCount()) {
+                    Log.i(TAG, "增量后数量与服务器不一致，执行全量对账");
+                    ok = runFullSync(serverCount);
+                }
+            }
+            if (ok) {
+                saveHighWaterMark(status);
+            }
+            return ok;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 全量：有界流水线分页拉取，边解码边按小批交给写线程落库，全部写完后删除未触达行
+     */
+    private boolean runFullSync(int serverCount) {
+        long syncStart = System.currentTimeMillis();
+        ExecutorService fetchers = Executors.newFixedThreadPool(MAX_IN_FLIGHT);
+        BatchWriter writer = new BatchWriter(serverCount);
+        ArrayDeque<Future<Integer>> inFlight = new ArrayDeque<>();
+        int nextOffset = 0;
+        boolean exhausted = false;
+        boolean ok = false;
+        try {
+            for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+                inFlight.add(submitPage(fetchers, nextOffset, writer));
+                nextOffset += PAGE_SIZE;
+            }
+            while (!inFlight.isEmpty()) {
+                int count = inFlight.poll().get();
+                if (count < PAGE_SIZE) exhausted = true;
+                if (!exhausted) {
+                    inFlight.add(submitPage(fetchers, nextOffset, writer));
+                    nextOffset += PAGE_SIZE;
+                }
+            }
+            ok = writer.awaitAll();
+        } catch (Exception e) {
+            Log.e(TAG, "全量同步失败（已写入 " + writer.written() + " 首，不做删除对账）", e);
+        } finally {
+            for (Future<Integer> f : inFlight) f.cancel(true);
+            fetchers.shutdownNow();
+            // 分批写库不逐批通知，结束时（含失败时已写入的部分）统一通知一次
+            if (writer.written() > 0) repository.notifySongsUpdated();
+        }
+        if (!ok) return false;
+        int removed = repository.reconcileDeletedSongs(syncStart);
+        prefs().edit()
+                .putLong(KEY_LAST_FULL_SYNC_TS, System.currentTimeMillis())
+                .putString(KEY_NEWEST_CREATED, fetchNewestAlbumCreated())
+                .apply();
+        Log.i(TAG, "全量同步完成：写入 " + writer.written() + " 首，删除 " + removed + " 首，耗时 "
+                + (System.currentTimeMillis() - syncStart) + "ms");
+        return true;
+    }
+
+    // 一页一个请求：解码出的歌曲每满 WRITE_BATCH 首交给写线程，不等整页响应体读完
+    private Future<Integer> submitPage(ExecutorService fetchers, int offset, BatchWriter writer) {
+        return fetchers.submit(() -> {
+            List<Song> batch = new ArrayList<>(WRITE_BATCH);
+            int count = api.getSongsPage(PAGE_SIZE, offset, song -> {
+                batch.add(song);
+                if (batch.size() >= WRITE_BATCH) {
+                    writer.submit(new ArrayList<>(batch));
+                    batch.clear();
+                }
+            });
+            writer.submit(batch);
+            return count;
+        });
+    }
+
+    /**
+     * 分批写库：批按提交顺序在 DbExecutors.writer() 上串行执行，每批一个事务；
+     * 积压批数有上限，写库跟不上时阻塞解码线程，由 TCP 把读取压回服务器
+     */
+    private final class BatchWriter {
+        private final int serverCount;
+        private final Semaphore permits = new Semaphore(MAX_PENDING_BATCHES);
+        private final List<Future<Boolean>> pending = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger written = new AtomicInteger();
+        private volatile boolean failed;
+
+        BatchWriter(int serverCount) {
+            this.serverCount = serverCount;
+        }
+
+        // 在解码线程调用
+        void submit(List<Song> batch) throws IOException {
+            if (failed) throw new IOException("写库失败，停止拉取");
+            if (batch.isEmpty()) return;
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("同步已取消");
+            }
+            FutureTask<Boolean> task = new FutureTask<>(() -> {
+                try {
+                    int before = written.get();
+                    boolean saved = repository.saveSongsBlocking(batch,
+                            (n, total) -> publishProgress(before + n, serverCount), false);
+                    if (saved) written.addAndGet(batch.size()); else failed = true;
+                    return saved;
+                } finally {
+                    permits.release();
+                }
+            });
+            pending.add(task);
+            DbExecutors.writer().execute(task);
+        }
+
+        // 等待已提交的批全部落库
+        boolean awaitAll() throws InterruptedException, ExecutionException {
+            List<Future<Boolean>> all;
+            synchronized (pending) {
+                all = new ArrayList<>(pending);
+            }
+            for (Future<Boolean> f : all) {
+                if (!f.get()) return false;
+            }
+            return !failed;
+        }
+
+        int written() {
+            return written.get();
+        }
+    }
+
+    /**
+     * 增量：拉取比高水位更新的专辑及其歌曲
+     */
+    private boolean runDeltaSync(int serverCount) {
+        String mark = prefs().getString(KEY_NEWEST_CREATED, null);
+        if (mark == null || mark.isEmpty()) return runFullSync(serverCount);
+        String newest = null;
+        List<Album> fresh = new ArrayList<>();
+        try {
+            int offset = 0;
+            boolean reached = false;
+            while (!reached) {
+                SubsonicResponse<List<Album>> resp = api.getAlbumList("newest", ALBUM_PAGE_SIZE, offset);
+                List<Album> page = resp != null && resp.isSuccess() ? resp.getData() : null;
+                if (page == null || page.isEmpty()) break;
+                for (Album a : page) {
+                    String created = a.getCreated();
+                    if (newest == null && created != null) newest = created;
+                    // ISO8601 UTC 字符串可直接按字典序比较
+                    if (created == null || created.compareTo(mark) <= 0) { reached = true; break; }
+                    fresh.add(a);
+                }
+                if (page.size() < ALBUM_PAGE_SIZE) break;
+                offset += ALBUM_PAGE_SIZE;
+            }
+            int written = 0;
+            for (Album a : fresh) {
+                List<Song> songs = api.getAlbumSongs(a.getId());
+                // 增量时只知道本轮写入数，总数按未知上报
+                final int before = written;
+                if (!repository.saveSongsBlocking(songs, (saved, total) -> publishProgress(before + saved, -1))) return false;
+                written += songs.size();
+            }
+            if (newest != null) prefs().edit().putString(KEY_NEWEST_CREATED, newest).apply();
+            Log.i(TAG, "增量同步完成：新专辑 " + fresh.size() + " 张，写入 " + written + " 首");
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "增量同步失败", e);
+            return false;
+        }
+    }
+
+    // 在写库事务内回调：只发广播，不做其他工作
+    private void publishProgress(int saved, int total) {
+        try {
+            Intent intent = new Intent(ACTION_SYNC_PROGRESS);
+            intent.putExtra(EXTRA_SAVED, saved);
+            intent.putExtra(EXTRA_TOTAL, total);
+            context.sendBroadcast(intent);
+        } catch (Exception ignore) {}
+    }
+
+    private String fetchNewestAlbumCreated() {
+        try {
+            SubsonicResponse<List<Album>> resp = api.getAlbumList("newest", 1, 0);
+            List<Album> page = resp != null && resp.isSuccess() ? resp.getData() : null;
+            if (page != null && !page.isEmpty()) return page.get(0).getCreated();
+        } catch (Exception e) {
+            Log.w(TAG, "获取最新专辑时间失败: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private void saveHighWaterMark(NavidromeApi.ScanStatus status) {
+        if (status == null) return;
+        prefs().edit()
+                .putString(KEY_LAST_SCAN, status.getLastScan())
+                .putLong(KEY_SERVER_COUNT, status.getCount())
+                .apply();
+    }
+}
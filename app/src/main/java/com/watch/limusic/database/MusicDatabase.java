@@ -1,21 +1,80 @@
 package com.watch.limusic.database;
 
 import android.content.Context;
+import android.database.Cursor;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 /**
  * 音乐数据库类，管理所有数据库相关操作
  */
-@Database(entities = {AlbumEntity.class, SongEntity.class, DownloadEntity.class, PlaylistEntity.class, PlaylistSongEntity.class}, version = 7, exportSchema = false)
+@Database(entities = {AlbumEntity.class, SongEntity.class, DownloadEntity.class, PlaylistEntity.class, PlaylistSongEntity.class, SongFtsEntity.class, ArtistEntity.class}, version = 13, exportSchema = true)
 @TypeConverters({DatabaseConverters.class})
 public abstract class MusicDatabase extends RoomDatabase {
     
     private static final String DATABASE_NAME = "limusic_database";
     private static volatile MusicDatabase INSTANCE;
+
+    // 7 -> 8：下载记录增加调度优先级
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE downloads ADD COLUMN priority INTEGER NOT NULL DEFAULT 2");
+        }
+    };
+
+    // 8 -> 9：下载记录增加容器类型与校验和
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE downloads ADD COLUMN contentType TEXT");
+            db.execSQL("ALTER TABLE downloads ADD COLUMN checksum TEXT");
+        }
+    };
+
+    // 9 -> 10：歌曲增加持久化排序键（键集分页）。迁移只加列与索引，键值由 DerivedDataRebuilder 在启动后分批补算
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE songs ADD COLUMN sortKey TEXT");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_songs_sortKey` ON `songs` (`sortKey`)");
+        }
+    };
+
+    // 10 -> 11：歌曲全文检索表。索引内容（含拼音）由 SongSearchIndex 在启动后台补齐，迁移只建表
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL(SongSearchIndex.CREATE_TABLE);
+        }
+    };
+
+    // 11 -> 12：排序键改为拼音比较文本，旧键置空待后台重算；专辑增加同规则的排序键
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("UPDATE songs SET sortKey = NULL");
+            db.execSQL("ALTER TABLE albums ADD COLUMN sortKey TEXT");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_albums_sortKey` ON `albums` (`sortKey`)");
+        }
+    };
+
+    // 12 -> 13：歌曲增加艺术家归并键，新建 artists 聚合表；归并键补算与聚合表生成由 DerivedDataRebuilder 完成
+    static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE songs ADD COLUMN artistKey TEXT");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_songs_artistKey_sortKey` ON `songs` (`artistKey`, `sortKey`)");
+            db.execSQL(ArtistAggregate.CREATE_TABLE);
+            db.execSQL(ArtistAggregate.CREATE_INDEX);
+        }
+    };
     
     // 数据访问对象
     public abstract AlbumDao albumDao();
@@ -23,6 +82,7 @@ public abstract class MusicDatabase extends RoomDatabase {
     public abstract DownloadDao downloadDao();
     public abstract PlaylistDao playlistDao();
     public abstract PlaylistSongDao playlistSongDao();
+    public abstract ArtistDao artistDao();
     
     /**
      * 获取数据库单例实例
@@ -31,17 +91,51 @@ public abstract class MusicDatabase extends RoomDatabase {
         if (INSTANCE == null) {
             synchronized (MusicDatabase.class) {
                 if (INSTANCE == null) {
-                    // 创建数据库实例，使用内存缓存策略提高性能
-                    INSTANCE = Room.databaseBuilder(
+                    // 创建数据库实例：WAL 日志（读写并发），查询/事务执行器走统一的读写线程分层
+                    RoomDatabase.Builder<MusicDatabase> builder = Room.databaseBuilder(
                             context.getApplicationContext(),
                             MusicDatabase.class,
                             DATABASE_NAME)
-                            .fallbackToDestructiveMigration() // 版本变化时重建数据库
-                            .allowMainThreadQueries() // 这个仅用于快速开发，生产环境应该在后台线程操作
-                            .build();
+                            .addMigrations(MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12, MIGRATION_12_13)
+                            .addCallback(new Callback() {
+                                @Override
+                                public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                                    // 派生表（全文检索、艺术家聚合）的同步触发器，新建、迁移、重建后均需存在；
+                                    // 触发器不依赖任何连接级 PRAGMA（songs 表不做 REPLACE 写入）
+                                    SongSearchIndex.createTriggers(db);
+                                    ArtistAggregate.createTriggers(db);
+                                    applyConnectionPragmas(db);
+                                }
+                            })
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                            .setQueryExecutor(DbExecutors.reader())
+                            .setTransactionExecutor(DbExecutors.writer())
+                            // 仅 7 之前（无迁移脚本）的旧库与降级时重建；其余版本必须走迁移，保留离线曲库与歌单
+                            .fallbackToDestructiveMigrationFrom(1, 2, 3, 4, 5, 6)
+                            .fallbackToDestructiveMigrationOnDowngrade();
+                    // debug：计时插桩且主线程访问直接报错；release：保留主线程查询兜底
+                    com.watch.limusic.devtools.DbInstrumentation.install(builder);
+                    INSTANCE = builder.build();
                 }
             }
         }
         return INSTANCE;
     }
+
+    /**
+     * 连接级调优（仅为性能，正确性不依赖它）：页缓存 4MB、内存映射读 16MB（库文件更小时只映射实际大小）。
+     * onOpen 只作用于 Room 打开时拿到的那一条连接，WAL 连接池中的其他连接保持系统默认；
+     * synchronous 不在这里设置，系统对 WAL 库的每条连接都已设为 NORMAL
+     */
+    private static void applyConnectionPragmas(SupportSQLiteDatabase db) {
+        try {
+            db.execSQL("PRAGMA cache_size = -4096");
+            // mmap_size 会返回结果行，execSQL 不接受，用查询执行
+            try (Cursor c = db.query("PRAGMA mmap_size = 16777216")) {
+                c.moveToFirst();
+            }
+        } catch (Exception e) {
+            android.util.Log.w("MusicDatabase", "设置连接参数失败: " + e.getMessage());
+        }
+    }
 } 
\ No newline at end of file
@@ -4,19 +4,25 @@ import android.content.Context;
 import android.util.Log;
 import android.content.Intent;
 
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+
 import com.watch.limusic.api.NavidromeApi;
 import com.watch.limusic.api.SubsonicResponse;
+import com.watch.limusic.cache.CacheManager;
+import com.watch.limusic.cache.CachedSongIndex;
 import com.watch.limusic.model.Album;
 import com.watch.limusic.model.Song;
 import com.watch.limusic.model.ArtistItem;
+import com.watch.limusic.util.PinyinUtil;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * 音乐数据存储库，协调网络API和本地数据库之间的数据交互
@@ -32,9 +38,16 @@ public class MusicRepository {
     private final NavidromeApi api;
     private final CacheDetector cacheDetector;
     private final Context context;
+    // "所有歌曲"键集分页（锚点随歌曲表变化作废）
+    private final SongKeysetPager songPager;
+    private final SongSearchIndex searchIndex;
+    // 派生列补齐前，依赖排序键/归并键的读取退回旧查询
+    private final DerivedDataRebuilder derivedData;
+    // 批量入库的分块大小（不超过 SQLite IN 参数上限）
+    private static final int SAVE_CHUNK_SIZE = 500;
     
     // 线程池，用于异步操作
-    private final ExecutorService executorService;
+    private final Executor executorService;
     
     // 网络状态
     private boolean isNetworkAvailable = true;
@@ -61,7 +74,23 @@ public class MusicRepository {
         this.database = MusicDatabase.getInstance(context);
         this.api = NavidromeApi.getInstance(context);
         this.cacheDetector = new CacheDetector(context);
-        this.executorService = Executors.newFixedThreadPool(3); // 创建3线程的线程池
+        this.executorService = DbExecutors.writer(); // 后台写库统一走单写线程
+        this.songPager = new SongKeysetPager(database.songDao());
+        this.searchIndex = SongSearchIndex.getInstance(context);
+        // 补算迁移留空的派生数据（排序键、艺术家聚合、全文检索），之后通常为空操作
+        this.derivedData = DerivedDataRebuilder.getInstance(context);
+        derivedData.start();
+        // 注册观察者会在数据库上同步触发器，放到后台执行
+        executorService.execute(() -> database.getInvalidationTracker().addObserver(new InvalidationTracker.Observer("songs") {
+            @Override public void onInvalidated(@NonNull Set<String> tables) {
+                songPager.invalidate();
+            }
+        }));
+        // 冷启动时按统一缓存键重建 isCached 标记（一次索引快照 + 差异批量更新，开销很小）
+        syncAllSongsCacheStatus();
+        // 此后缓存写入/淘汰由索引合并回调，批量落库
+        CacheManager.getInstance(context).getCachedSongIndex().setOnChangedListener((nowCached, nowUncached) ->
+                executorService.execute(() -> cacheDetector.applyCacheChanges(nowCached, nowUncached)));
     }
     
     /**
@@ -132,11 +161,11 @@ public class MusicRepository {
         executorService.execute(() -> {
             try {
                 List<AlbumEntity> entities = EntityConverter.toAlbumEntities(albums);
-                // 避免 REPLACE 触发外键删除引发约束失败：先 IGNORE 插入占位，再 UPDATE 对齐
-                database.albumDao().insertAlbumsIfAbsent(entities);
-                for (AlbumEntity e : entities) {
-                    try { database.albumDao().updateAlbum(e); } catch (Exception ignore) {}
-                }
+                // 避免 REPLACE 触发外键删除引发约束失败：先 IGNORE 插入占位，再 UPDATE 对齐（同一事务内批量执行）
+                database.runInTransaction(() -> {
+                    database.albumDao().insertAlbumsIfAbsent(entities);
+                    database.albumDao().updateAlbums(entities);
+                });
                 Log.d(TAG, "成功保存 " + albums.size() + " 张专辑到数据库");
             } catch (Exception e) {
                 Log.e(TAG, "保存专辑到数据库失败", e);
@@ -218,63 +247,161 @@ public class MusicRepository {
      */
     public void saveSongsToDatabase(List<Song> songs) {
         if (songs == null || songs.isEmpty()) return;
-        
-        executorService.execute(() -> {
-            try {
-                List<SongEntity> entities = EntityConverter.toSongEntities(songs);
-                
-                // 先补齐缺失的专辑占位，避免外键约束失败
-                try {
-                    List<AlbumEntity> placeholders = new ArrayList<>();
-                    for (Song s : songs) {
-                        String albumId = s.getAlbumId();
-                        if (albumId == null || albumId.isEmpty()) continue;
-                        // 若专辑不存在则构造一个轻量占位，不覆盖已有专辑
-                        AlbumEntity exist = database.albumDao().getAlbumById(albumId);
-                        if (exist == null) {
-                            String name = s.getAlbum() != null ? s.getAlbum() : "";
-                            String artist = s.getArtist() != null ? s.getArtist() : "";
-                            String cover = s.getCoverArtUrl();
-                            placeholders.add(new AlbumEntity(albumId, name, artist, "", cover, 0, 0, 0));
-                        }
-                    }
-                    if (!placeholders.isEmpty()) {
-                        database.albumDao().insertAlbumsIfAbsent(placeholders);
-                    }
-                } catch (Exception eIgnore) {
-                    Log.w(TAG, "插入专辑占位失败(忽略继续): " + eIgnore.getMessage());
-                }
-                
-                // 更新缓存状态与 initial
-                for (SongEntity entity : entities) {
-                    boolean isCached = cacheDetector.isSongCached(entity.getId());
-                    entity.setCached(isCached);
-                    if (entity.getInitial() == null || entity.getInitial().isEmpty()) {
-                        try {
-                            String first = com.watch.limusic.util.PinyinUtil.getFirstLetter(entity.getTitle());
-                            entity.setInitial(first != null ? first : "#");
-                        } catch (Exception ignore) {
-                            entity.setInitial("#");
-                        }
-                    }
-                }
-                
-                database.songDao().insertAllSongs(entities);
-                Log.d(TAG, "成功保存 " + songs.size() + " 首歌曲到数据库");
+        executorService.execute(() -> saveSongsBlocking(songs));
+    }
 
-                // 通知UI数据已更新（总数与字母偏移可据此刷新）
-                try {
-                    int total = database.songDao().getSongCount();
-                    Intent intent = new Intent("com.watch.limusic.DB_SONGS_UPDATED");
-                    intent.putExtra("totalCount", total);
-                    context.sendBroadcast(intent);
-                } catch (Exception e) {
-                    Log.w(TAG, "发送DB_SONGS_UPDATED广播失败: " + e.getMessage());
+    /**
+     * 批量写库的分块进度（在调用线程、事务内回调）
+     */
+    public interface SaveProgressListener {
+        void onProgress(int saved, int total);
+    }
+
+    public boolean saveSongsBlocking(List<Song> songs) {
+        return saveSongsBlocking(songs, null, true);
+    }
+
+    public boolean saveSongsBlocking(List<Song> songs, SaveProgressListener listener) {
+        return saveSongsBlocking(songs, listener, true);
+    }
+
+    /**
+     * 同步写入歌曲（调用方线程执行），供曲库同步按页顺序落库；整批一个事务，按块处理并回调进度
+     * - 专辑占位：每块一次 IN 查询找出缺失专辑，只为缺失的插入占位
+     * - 缓存标记：直接查内存中的已缓存索引
+     * - 歌曲 upsert：忽略冲突插入 + 已存在行整行更新，不做 REPLACE 的删除重插（不级联、rowid 不变）；
+     *   服务器未给出时长（≤0）时保留本地已回写的时长
+     * - 搜索索引只补写新行与文本变化的行；提交后发一次更新通知（notifyUi 为 false 时由调用方合并后调用 notifySongsUpdated）
+     * @return 是否写入成功
+     */
+    public boolean saveSongsBlocking(List<Song> songs, SaveProgressListener listener, boolean notifyUi) {
+        if (songs == null || songs.isEmpty()) return true;
+        try {
+            List<SongEntity> entities = EntityConverter.toSongEntities(songs);
+            int[] inserted = new int[1];
+            database.runInTransaction(() -> {
+                for (int from = 0; from < entities.size(); from += SAVE_CHUNK_SIZE) {
+                    List<SongEntity> chunk = entities.subList(from, Math.min(entities.size(), from + SAVE_CHUNK_SIZE));
+                    insertMissingAlbums(chunk);
+                    inserted[0] += upsertChunk(chunk);
+                    if (listener != null) listener.onProgress(from + chunk.size(), entities.size());
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "保存歌曲到数据库失败", e);
+            });
+            Log.d(TAG, "成功保存 " + songs.size() + " 首歌曲到数据库（新增 " + inserted[0] + " 首）");
+            if (notifyUi) notifySongsUpdated();
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "保存歌曲到数据库失败", e);
+            return false;
+        }
+    }
+
+    /**
+     * 通知UI数据已更新（总数与字母偏移可据此刷新）
+     */
+    public void notifySongsUpdated() {
+        try {
+            int total = database.songDao().getSongCount();
+            Intent intent = new Intent("com.watch.limusic.DB_SONGS_UPDATED");
+            intent.putExtra("totalCount", total);
+            context.sendBroadcast(intent);
+        } catch (Exception e) {
+            Log.w(TAG, "发送DB_SONGS_UPDATED广播失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 歌曲 upsert（调用方线程执行，调用方负责事务与专辑占位）：忽略冲突插入 + 已存在行整行更新，
+     * 不用 REPLACE 的删除重插；缓存标记取内存索引，未知时长沿用库中已知值，只补写缺失的搜索索引行
+     * @return 新插入的行数
+     */
+    public int upsertSongs(List<SongEntity> entities) {
+        if (entities == null || entities.isEmpty()) return 0;
+        int inserted = 0;
+        for (int from = 0; from < entities.size(); from += SAVE_CHUNK_SIZE) {
+            inserted += upsertChunk(entities.subList(from, Math.min(entities.size(), from + SAVE_CHUNK_SIZE)));
+        }
+        return inserted;
+    }
+
+    private int upsertChunk(List<SongEntity> chunk) {
+        CachedSongIndex cachedIndex = CacheManager.getInstance(context).getCachedSongIndex();
+        List<String> ids = new ArrayList<>(chunk.size());
+        for (SongEntity entity : chunk) {
+            entity.setCached(cachedIndex.contains(entity.getId()));
+            if (entity.getSortKey() == null) entity.setSortKey(SongSortKey.of(entity));
+            if (entity.getArtistKey() == null) entity.setArtistKey(ArtistEntity.keyOf(entity.getArtist()));
+            ids.add(entity.getId());
+        }
+        long[] rowIds = database.songDao().insertSongsIfAbsent(chunk);
+        List<SongEntity> existing = new ArrayList<>();
+        int inserted = 0;
+        for (int i = 0; i < rowIds.length; i++) {
+            if (rowIds[i] == -1L) existing.add(chunk.get(i)); else inserted++;
+        }
+        if (!existing.isEmpty()) {
+            keepKnownDurations(existing);
+            database.songDao().updateSongs(existing);
+        }
+        searchIndex.indexMissing(ids);
+        return inserted;
+    }
+
+    // 整行更新前：服务器时长未知的行沿用库中已知时长，避免被 0 覆盖
+    private void keepKnownDurations(List<SongEntity> rows) {
+        Map<String, SongEntity> unknown = new HashMap<>();
+        for (SongEntity e : rows) {
+            if (e.getDuration() <= 0) unknown.put(e.getId(), e);
+        }
+        if (unknown.isEmpty()) return;
+        for (SongDuration known : database.songDao().getKnownDurations(new ArrayList<>(unknown.keySet()))) {
+            SongEntity e = unknown.get(known.id);
+            if (e != null) e.setDuration(known.duration);
+        }
+    }
+
+    // 补齐缺失的专辑占位（不覆盖已有专辑），避免外键约束失败；chunk 不超过 IN 参数上限
+    private void insertMissingAlbums(List<SongEntity> chunk) {
+        Map<String, SongEntity> byAlbum = new HashMap<>();
+        for (SongEntity e : chunk) {
+            String albumId = e.getAlbumId();
+            if (albumId != null && !albumId.isEmpty() && !byAlbum.containsKey(albumId)) byAlbum.put(albumId, e);
+        }
+        if (byAlbum.isEmpty()) return;
+        for (String exist : database.albumDao().getExistingAlbumIds(new ArrayList<>(byAlbum.keySet()))) {
+            byAlbum.remove(exist);
+        }
+        if (byAlbum.isEmpty()) return;
+        List<AlbumEntity> placeholders = new ArrayList<>(byAlbum.size());
+        for (Map.Entry<String, SongEntity> e : byAlbum.entrySet()) {
+            SongEntity s = e.getValue();
+            String name = s.getAlbum() != null ? s.getAlbum() : "";
+            String artist = s.getArtist() != null ? s.getArtist() : "";
+            placeholders.add(new AlbumEntity(e.getKey(), name, artist, "", s.getCoverArt(), 0, 0, 0));
+        }
+        database.albumDao().insertAlbumsIfAbsent(placeholders);
+    }
+
+    /**
+     * 全量同步完成后对账：删除本轮未再出现（服务器已删除）的歌曲
+     * 仍被歌单明细引用的歌曲保留，避免外键约束失败
+     * @return 删除的行数
+     */
+    public int reconcileDeletedSongs(long syncStartTs) {
+        try {
+            int removed = database.songDao().deleteSongsNotUpdatedSince(syncStartTs);
+            if (removed > 0) {
+                Log.i(TAG, "曲库对账删除 " + removed + " 首服务器已不存在的歌曲");
+                int total = database.songDao().getSongCount();
+                Intent intent = new Intent("com.watch.limusic.DB_SONGS_UPDATED");
+                intent.putExtra("totalCount", total);
+                context.sendBroadcast(intent);
             }
-        });
+            return removed;
+        } catch (Exception e) {
+            Log.e(TAG, "曲库对账失败", e);
+            return 0;
+        }
     }
     
     /**
@@ -368,10 +495,19 @@ public class MusicRepository {
         }
     }
 
-    // 新增：分页搜索歌曲（本地数据库）
+    // 新增：分页搜索歌曲（本地数据库）。索引就绪后走全文检索（支持拼音全拼/首字母），否则退回 LIKE
     public List<Song> searchSongsPaged(String keyword, int limit, int offset) {
         try {
-            List<SongEntity> entities = database.songDao().searchSongsPaged(keyword, limit, offset);
+            String match = SongSearchTokens.matchQuery(keyword, null);
+            List<SongEntity> entities;
+            if (match != null && searchIndex.isReady()) {
+                entities = database.songDao().searchSongsFts(match,
+                        SongSearchTokens.matchQuery(keyword, "title"),
+                        SongSearchTokens.matchQuery(keyword, "artist"),
+                        keyword.trim(), limit, offset);
+            } else {
+                entities = database.songDao().searchSongsPaged(keyword, limit, offset);
+            }
             return EntityConverter.toSongs(entities);
         } catch (Exception e) {
             Log.e(TAG, "分页搜索歌曲失败", e);
@@ -414,9 +550,12 @@ public class MusicRepository {
     }
     
     // 轻量方案新增：范围加载（返回 UI 需要的模型）
+    // 升级后排序键补齐前走旧的 LIMIT/OFFSET 排序查询
     public List<Song> getSongsRange(int limit, int offset) {
         try {
-            List<SongEntity> entities = database.songDao().getSongsRange(limit, offset);
+            List<SongEntity> entities = derivedData.isReady()
+                    ? songPager.page(limit, offset)
+                    : database.songDao().getSongsRangeLegacy(limit, offset);
             return EntityConverter.toSongs(entities);
         } catch (Exception e) {
             Log.e(TAG, "范围加载歌曲失败", e);
@@ -480,6 +619,8 @@ public class MusicRepository {
                 database.playlistSongDao().deleteAll();
                 database.songDao().deleteAllSongs();
                 try { database.playlistDao().deleteAll(); } catch (Exception ignore) {}
+                // 新服务器需从头全量同步
+                try { LibrarySyncManager.getInstance(context).resetSyncState(); } catch (Exception ignore) {}
                 // 通知UI刷新（仅针对“所有歌曲”范围适配器）
                 try {
                     int total = database.songDao().getSongCount();
@@ -493,67 +634,81 @@ public class MusicRepository {
             }
         });
     }
-    
+
     /**
-     * 关闭存储库，清理资源
+     * 歌曲在"所有歌曲"排序中的全局索引（之前的行数），不存在返回 -1；排序键补齐前按旧排序规则计算
      */
-    public void shutdown() {
-        executorService.shutdown();
+    public int getGlobalIndexOfSong(String songId) {
+        SongDao dao = database.songDao();
+        SongEntity entity = dao.getSongById(songId);
+        if (entity == null) return -1;
+        if (derivedData.isReady()) return dao.getGlobalIndexOfSong(songId);
+        String title = entity.getTitle() != null ? entity.getTitle() : "";
+        String ini = entity.getInitial();
+        if (ini == null || ini.isEmpty()) ini = PinyinUtil.getFirstLetter(title);
+        int cat = 2;
+        if ("#".equals(ini)) cat = 0; else if (ini.length() == 1 && Character.isDigit(ini.charAt(0))) cat = 1;
+        return dao.getGlobalIndexLegacy(cat, ini, title);
     }
 
     // 新增：获取艺术家聚合并生成 UI 模型（一次性列表）
+    // 读 artists 聚合表（触发器增量维护、按 sortKey 索引有序），仅为新出现的艺术家补算排序键
     public List<ArtistItem> getArtists() {
         List<ArtistItem> result = new ArrayList<>();
         try {
-            List<ArtistCount> raw = database.songDao().getArtistCounts();
-            if (raw == null) return result;
-            // 归并（大小写、空白）
-            Map<String, Integer> agg = new HashMap<>();
-            Map<String, String> display = new HashMap<>();
-            for (ArtistCount ac : raw) {
-                String name = ac != null ? ac.name : null;
-                String norm = (name != null ? name.trim() : "").toLowerCase();
-                if (norm.isEmpty()) { norm = "(unknown)"; }
-                int cnt = ac != null ? Math.max(0, ac.songCount) : 0;
-                agg.put(norm, agg.getOrDefault(norm, 0) + cnt);
-                if (!display.containsKey(norm)) {
-                    display.put(norm, (name != null && !name.trim().isEmpty()) ? name.trim() : "(未知艺术家)");
-                }
+            if (!derivedData.isReady()) return getArtistsLegacy();
+            ArtistDao dao = database.artistDao();
+            List<ArtistEntity> pending = dao.getArtistsWithoutSortKey();
+            if (pending != null && !pending.isEmpty()) {
+                database.runInTransaction(() -> {
+                    for (ArtistEntity a : pending) {
+                        ArtistAggregate.fillSortKey(a);
+                        dao.updateSortKey(a.getArtistKey(), a.getSortLetter(), a.getSortKey());
+                    }
+                });
             }
-            // 构建 UI 项并排序
-            ArrayList<ArtistItem> items = new ArrayList<>();
-            for (Map.Entry<String,Integer> e : agg.entrySet()) {
-                String disp = display.get(e.getKey());
-                String letter;
-                try {
-                    letter = com.watch.limusic.util.PinyinUtil.getFirstLetter(disp);
-                } catch (Exception ex) { letter = "#"; }
-                if (letter == null || letter.isEmpty()) letter = "#";
-                // 统一数字归 #
-                char c = letter.charAt(0);
-                if (Character.isDigit(c)) letter = "#";
-                items.add(new ArtistItem(disp, e.getValue(), letter));
+            List<ArtistEntity> rows = dao.getArtists();
+            if (rows == null) return result;
+            for (ArtistEntity a : rows) {
+                result.add(new ArtistItem(a.getName(), a.getSongCount(), a.getSortLetter()));
             }
-            // 排序：组 0=#；组 2=A-Z；组内不区分大小写
-            items.sort((a,b) -> {
-                int ca = ("#".equals(a.getSortLetter())) ? 0 : 2;
-                int cb = ("#".equals(b.getSortLetter())) ? 0 : 2;
-                if (ca != cb) return Integer.compare(ca, cb);
-                int tl = a.getSortLetter().compareToIgnoreCase(b.getSortLetter());
-                if (tl != 0) return tl;
-                return a.getName().compareToIgnoreCase(b.getName());
-            });
-            result.addAll(items);
         } catch (Exception e) {
             Log.e(TAG, "获取艺术家聚合失败", e);
         }
         return result;
     }
 
+    // 归并键与 artists 聚合补齐前：songs 表 GROUP BY 后在内存中按归并键合并，排序规则与聚合表一致
+    private List<ArtistItem> getArtistsLegacy() {
+        Map<String, ArtistEntity> merged = new HashMap<>();
+        List<ArtistCount> raw = database.songDao().getArtistCountsLegacy();
+        if (raw != null) {
+            for (ArtistCount ac : raw) {
+                String key = ArtistEntity.keyOf(ac.name);
+                ArtistEntity a = merged.get(key);
+                if (a == null) {
+                    merged.put(key, new ArtistEntity(key, ac.name != null ? ac.name.trim() : "", ac.songCount));
+                } else {
+                    a.setSongCount(a.getSongCount() + ac.songCount);
+                }
+            }
+        }
+        List<ArtistEntity> rows = new ArrayList<>(merged.values());
+        for (ArtistEntity a : rows) ArtistAggregate.fillSortKey(a);
+        rows.sort((x, y) -> x.getSortKey().compareTo(y.getSortKey()));
+        List<ArtistItem> result = new ArrayList<>(rows.size());
+        for (ArtistEntity a : rows) {
+            if (a.getSongCount() > 0) result.add(new ArtistItem(a.getName(), a.getSongCount(), a.getSortLetter()));
+        }
+        return result;
+    }
+
     // 新增：按艺术家获取本地歌曲列表（忽略大小写与空白）
     public List<Song> getSongsByArtist(String artistName) {
         try {
-            List<SongEntity> entities = database.songDao().getSongsByArtist(artistName);
+            List<SongEntity> entities = derivedData.isReady()
+                    ? database.songDao().getSongsByArtistKey(ArtistEntity.keyOf(artistName))
+                    : database.songDao().getSongsByArtistLegacy(artistName);
             return EntityConverter.toSongs(entities);
         } catch (Exception e) {
             Log.e(TAG, "按艺术家取歌失败", e);
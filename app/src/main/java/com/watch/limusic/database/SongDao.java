@@ -14,11 +14,13 @@ import java.util.List;
 @Dao
 public interface SongDao {
     
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertSong(SongEntity song);
-    
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertAllSongs(List<SongEntity> songs);
+    // 批量 upsert：先忽略冲突插入（返回 -1 的为已存在行），已存在的再整行更新；songs 表不用 REPLACE 写入
+    // （删除重插会改 rowid，且删除触发器要依赖连接级的 recursive_triggers）
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long[] insertSongsIfAbsent(List<SongEntity> songs);
+
+    @Update
+    void updateSongs(List<SongEntity> songs);
     
     @Update
     void updateSong(SongEntity song);
@@ -52,6 +54,23 @@ public interface SongDao {
            "  title COLLATE NOCASE\n" +
            "LIMIT :limit OFFSET :offset")
     List<SongEntity> searchSongsPaged(String query, int limit, int offset);
+
+    // 全文检索分页（含拼音）：match 为全列表达式，titleMatch/artistMatch 为限定列的同一表达式（见 SongSearchTokens）
+    // 排序：原文前缀（标题/艺术家/专辑）> 标题命中 > 艺术家命中 > 其他，同档按"所有歌曲"顺序
+    @Query("SELECT s.* FROM song_fts JOIN songs s ON s.rowid = song_fts.rowid\n" +
+           "WHERE song_fts MATCH :match\n" +
+           "ORDER BY\n" +
+           "  CASE\n" +
+           "    WHEN s.title LIKE :query || '%' THEN 0\n" +
+           "    WHEN s.artist LIKE :query || '%' THEN 1\n" +
+           "    WHEN s.album LIKE :query || '%' THEN 2\n" +
+           "    WHEN song_fts.rowid IN (SELECT rowid FROM song_fts WHERE song_fts MATCH :titleMatch) THEN 3\n" +
+           "    WHEN song_fts.rowid IN (SELECT rowid FROM song_fts WHERE song_fts MATCH :artistMatch) THEN 4\n" +
+           "    ELSE 5\n" +
+           "  END,\n" +
+           "  s.sortKey\n" +
+           "LIMIT :limit OFFSET :offset")
+    List<SongEntity> searchSongsFts(String match, String titleMatch, String artistMatch, String query, int limit, int offset);
     
     @Query("UPDATE songs SET isCached = :isCached WHERE id = :songId")
     void updateCacheStatus(String songId, boolean isCached);
@@ -59,8 +78,23 @@ public interface SongDao {
     @Query("UPDATE songs SET streamUrl = :streamUrl WHERE id = :songId")
     void updateStreamUrl(String songId, String streamUrl);
 
+    // 时长回写：仅覆盖未知时长（单位：秒）
+    @Query("UPDATE songs SET duration = :durationSec WHERE id = :songId AND duration <= 0")
+    int updateDurationIfUnknown(String songId, int durationSec);
+
+    // 已知的本地时长（播放时回写），批量覆盖更新前用于保留（ids 不超过 IN 参数上限）
+    @Query("SELECT id, duration FROM songs WHERE id IN (:ids) AND duration > 0")
+    List<SongDuration> getKnownDurations(List<String> ids);
+
     @Query("SELECT * FROM songs WHERE isCached = 1 ORDER BY title")
     List<SongEntity> getCachedSongs();
+
+    // 批量同步缓存标记：仅取当前标记为已缓存的 ID，按差异批量更新
+    @Query("SELECT id FROM songs WHERE isCached = 1")
+    List<String> getCachedSongIds();
+
+    @Query("UPDATE songs SET isCached = :isCached WHERE id IN (:songIds)")
+    void updateCacheStatusForIds(List<String> songIds, boolean isCached);
     
     @Query("SELECT * FROM songs WHERE isCached = 1 AND albumId = :albumId")
     List<SongEntity> getCachedSongsByAlbumId(String albumId);
@@ -73,6 +107,10 @@ public interface SongDao {
     
     @Query("DELETE FROM songs")
     void deleteAllSongs();
+
+    // 曲库同步对账：删除本轮同步未触达的歌曲（保留仍被歌单引用的行）
+    @Query("DELETE FROM songs WHERE lastUpdated < :ts AND id NOT IN (SELECT songId FROM playlist_songs)")
+    int deleteSongsNotUpdatedSince(long ts);
     
     @Query("SELECT COUNT(*) FROM songs WHERE isCached = 1")
     int getCachedSongCount();
@@ -80,18 +118,25 @@ public interface SongDao {
     @Query("SELECT COUNT(*) FROM songs")
     int getSongCount();
 
-    // 轻量方案新增：范围查询（维持与 UI 一致的排序规则）
-    @Query("SELECT * FROM songs\n" +
-           "ORDER BY\n" +
-           "  CASE\n" +
-           "    WHEN initial = '#' THEN 0\n" +
-           "    WHEN initial BETWEEN '0' AND '9' THEN 1\n" +
-           "    ELSE 2\n" +
-           "  END,\n" +
-           "  initial,\n" +
-           "  title COLLATE NOCASE\n" +
-           "LIMIT :limit OFFSET :offset")
-    List<SongEntity> getSongsRange(int limit, int offset);
+    // "所有歌曲"键集分页：按 sortKey 索引定位，代价与页所在位置无关（排序规则见 SongSortKey）
+    @Query("SELECT * FROM songs ORDER BY sortKey LIMIT :limit")
+    List<SongEntity> getSongsFirstPage(int limit);
+
+    @Query("SELECT * FROM songs WHERE sortKey > :afterKey ORDER BY sortKey LIMIT :limit")
+    List<SongEntity> getSongsAfter(String afterKey, int limit);
+
+    // 升级后排序键补齐前（DerivedDataRebuilder 未就绪）的兜底：旧的 initial/标题排序
+    @Query("SELECT * FROM songs ORDER BY "
+            + "CASE WHEN initial = '#' THEN 0 WHEN initial BETWEEN '0' AND '9' THEN 1 ELSE 2 END, "
+            + "initial, title COLLATE NOCASE LIMIT :limit OFFSET :offset")
+    List<SongEntity> getSongsRangeLegacy(int limit, int offset);
+
+    // 仅扫描 sortKey 索引（不回表），用于在无锚点处定位分页起点
+    @Query("SELECT sortKey FROM songs ORDER BY sortKey LIMIT 1 OFFSET :skip")
+    String getSortKeyAt(int skip);
+
+    @Query("SELECT sortKey FROM songs WHERE sortKey > :afterKey ORDER BY sortKey LIMIT 1 OFFSET :skip")
+    String getSortKeyAfter(String afterKey, int skip);
 
     // 轻量方案新增：按 initial 分组计数（用于计算字母锚点的全局偏移）
     @Query("SELECT initial, COUNT(*) AS cnt FROM songs GROUP BY initial")
@@ -101,18 +146,25 @@ public interface SongDao {
     @Query("SELECT COUNT(*) FROM songs")
     int getTotalSongCount();
 
-    // 新增：精确计算某首歌在全局排序中的索引（之前的行数）
+    // 新增：精确计算某首歌在全局排序中的索引（之前的行数），仅扫描 sortKey 索引
+    @Query("SELECT COUNT(*) FROM songs WHERE sortKey < (SELECT sortKey FROM songs WHERE id = :songId)")
+    int getGlobalIndexOfSong(String songId);
+
+    // 排序键补齐前的兜底：按旧排序规则计算全局索引（与 getSongsRangeLegacy 一致）
     @Query("SELECT COUNT(*) FROM songs WHERE " +
            "(CASE WHEN initial = '#' THEN 0 WHEN initial BETWEEN '0' AND '9' THEN 1 ELSE 2 END) < :cat " +
            "OR ((CASE WHEN initial = '#' THEN 0 WHEN initial BETWEEN '0' AND '9' THEN 1 ELSE 2 END) = :cat AND (initial < :ini)) " +
            "OR ((CASE WHEN initial = '#' THEN 0 WHEN initial BETWEEN '0' AND '9' THEN 1 ELSE 2 END) = :cat AND (initial = :ini) AND (title COLLATE NOCASE < :title))")
-    int getGlobalIndex(int cat, String ini, String title);
+    int getGlobalIndexLegacy(int cat, String ini, String title);
 
-    // 新增：按艺术家名称聚合统计（去除首尾空白），保留原始展示名
+    // 归并键补齐前的艺术家聚合兜底（去除首尾空白），大小写归并在仓库中完成
     @Query("SELECT TRIM(artist) AS name, COUNT(*) AS songCount FROM songs GROUP BY TRIM(artist)")
-    List<ArtistCount> getArtistCounts();
+    List<ArtistCount> getArtistCountsLegacy();
 
-    // 新增：按艺术家精确（忽略大小写/空白）取歌，排序与列表一致
     @Query("SELECT * FROM songs WHERE LOWER(TRIM(artist)) = LOWER(TRIM(:artistName)) ORDER BY title COLLATE NOCASE")
-    List<SongEntity> getSongsByArtist(String artistName);
+    List<SongEntity> getSongsByArtistLegacy(String artistName);
+
+    // 新增：按艺术家归并键（ArtistEntity.keyOf）取歌，走 (artistKey, sortKey) 索引，排序与"所有歌曲"一致
+    @Query("SELECT * FROM songs WHERE artistKey = :artistKey ORDER BY sortKey")
+    List<SongEntity> getSongsByArtistKey(String artistKey);
 } 
\ No newline at end of file
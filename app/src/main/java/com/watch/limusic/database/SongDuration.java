@@ -0,0 +1,12 @@
+package com.watch.limusic.database;
+
+import androidx.annotation.NonNull;
+
+/**
+ * id -> duration（秒）的简单结果映射
+ */
+public class SongDuration {
+    @NonNull
+    public String id;
+    public int duration;
+}
@@ -11,7 +11,7 @@ import androidx.room.PrimaryKey;
  */
 @Entity(
     tableName = "songs",
-    indices = {@Index("albumId"), @Index("initial"), @Index(value = {"initial", "title"})},
+    indices = {@Index("albumId"), @Index("initial"), @Index(value = {"initial", "title"}), @Index("sortKey"), @Index(value = {"artistKey", "sortKey"})},
     foreignKeys = @ForeignKey(
         entity = AlbumEntity.class,
         parentColumns = "id",
@@ -35,6 +35,8 @@ public class SongEntity {
     private long lastUpdated; // 上次从服务器更新的时间戳
     private long cacheTimestamp; // 歌曲缓存的时间戳
     private String initial; // 标题首字母（与 UI 排序/索引一致）
+    private String sortKey; // "所有歌曲"排序键，见 SongSortKey
+    private String artistKey; // 艺术家归并键，见 ArtistEntity.keyOf
 
     public SongEntity(@NonNull String id, String title, String artist, String album,
                      String coverArt, String streamUrl, int duration, String albumId) {
@@ -160,4 +162,20 @@ public class SongEntity {
     public void setInitial(String initial) {
         this.initial = initial;
     }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public void setSortKey(String sortKey) {
+        this.sortKey = sortKey;
+    }
+
+    public String getArtistKey() {
+        return artistKey;
+    }
+
+    public void setArtistKey(String artistKey) {
+        this.artistKey = artistKey;
+    }
 } 
\ No newline at end of file
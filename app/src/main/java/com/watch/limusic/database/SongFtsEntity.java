@@ -0,0 +1,34 @@
+package com.watch.limusic.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * 歌曲全文检索表（FTS4）：rowid 与 songs 表的 rowid 一致，各列为 SongSearchTokens 生成的分词文本
+ * 由 SongSearchIndex 维护，不直接通过 DAO 写入
+ */
+@Fts4(tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "song_fts")
+public class SongFtsEntity {
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowid;
+    private String title;
+    private String artist;
+    private String album;
+
+    public long getRowid() { return rowid; }
+    public void setRowid(long rowid) { this.rowid = rowid; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getArtist() { return artist; }
+    public void setArtist(String artist) { this.artist = artist; }
+
+    public String getAlbum() { return album; }
+    public void setAlbum(String album) { this.album = album; }
+}
@@ -0,0 +1,68 @@
+package com.watch.limusic.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * "所有歌曲"按偏移取页的键集实现：调用方仍按 (limit, offset) 取页，内部换算为 "sortKey > ?" 的索引定位
+ * - 记录已读页边界的锚点（偏移 -> 该偏移前一行的 sortKey），顺序/相邻翻页直接命中锚点
+ * - 无锚点时从最近的较小锚点起只扫描 sortKey 索引跳过差值行，不回表、不逐行计算排序表达式
+ * - 歌曲表变化后锚点全部作废（由仓库监听 Room 失效通知调用 invalidate）
+ */
+final class SongKeysetPager {
+    private static final int MAX_ANCHORS = 512;
+
+    private final SongDao songDao;
+    private final TreeMap<Integer, String> anchors = new TreeMap<>();
+
+    SongKeysetPager(SongDao songDao) {
+        this.songDao = songDao;
+    }
+
+    List<SongEntity> page(int limit, int offset) {
+        if (limit <= 0 || offset < 0) return new ArrayList<>();
+        List<SongEntity> rows;
+        if (offset == 0) {
+            rows = songDao.getSongsFirstPage(limit);
+        } else {
+            String after = keyBefore(offset);
+            if (after == null) return new ArrayList<>();
+            rows = songDao.getSongsAfter(after, limit);
+        }
+        if (rows != null && !rows.isEmpty()) {
+            remember(offset + rows.size(), rows.get(rows.size() - 1).getSortKey());
+        }
+        return rows != null ? rows : new ArrayList<>();
+    }
+
+    synchronized void invalidate() {
+        anchors.clear();
+    }
+
+    // 偏移 offset 前一行（即 offset-1 行）的 sortKey，越界返回 null
+    private String keyBefore(int offset) {
+        Map.Entry<Integer, String> floor;
+        synchronized (this) {
+            floor = anchors.floorEntry(offset);
+        }
+        if (floor != null && floor.getKey() == offset) return floor.getValue();
+        String key = floor != null
+                ? songDao.getSortKeyAfter(floor.getValue(), offset - 1 - floor.getKey())
+                : songDao.getSortKeyAt(offset - 1);
+        if (key != null) remember(offset, key);
+        return key;
+    }
+
+    private synchronized void remember(int offset, String key) {
+        if (key == null) return;
+        if (anchors.size() >= MAX_ANCHORS && !anchors.containsKey(offset)) {
+            // 淘汰离新锚点最远的一端
+            int first = anchors.firstKey();
+            int last = anchors.lastKey();
+            if (offset - first > last - offset) anchors.pollFirstEntry(); else anchors.pollLastEntry();
+        }
+        anchors.put(offset, key);
+    }
+}
@@ -0,0 +1,153 @@
+package com.watch.limusic.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 维护 song_fts 全文检索表
+ * - 删除/改名由 songs 表上的触发器同步（删除对应 rowid 的索引行）
+ * - 拼音无法在 SQL 中计算，新增/改名后的索引行由写库方调用 index 补写
+ * - 启动时执行一次 indexMissing 补齐遗漏的行并清理孤儿行，完成前搜索退回 LIKE 查询
+ */
+public final class SongSearchIndex {
+    private static final String TAG = "SongSearchIndex";
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_BIND_ARGS = 900;
+
+    static final String CREATE_TABLE = "CREATE VIRTUAL TABLE IF NOT EXISTS `song_fts` USING FTS4("
+            + "`title` TEXT, `artist` TEXT, `album` TEXT, tokenize=unicode61)";
+    private static final String[] TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS songs_fts_delete BEFORE DELETE ON songs "
+                    + "BEGIN DELETE FROM song_fts WHERE rowid = old.rowid; END",
+            // 仅在文本确有变化时删除索引行：整行覆盖式更新（同步时批量 @Update）不应清空未变歌曲的索引
+            "CREATE TRIGGER IF NOT EXISTS songs_fts_update AFTER UPDATE OF title, artist, album ON songs "
+                    + "WHEN old.title IS NOT new.title OR old.artist IS NOT new.artist OR old.album IS NOT new.album "
+                    + "BEGIN DELETE FROM song_fts WHERE rowid = old.rowid; END"
+    };
+
+    private static volatile SongSearchIndex INSTANCE;
+
+    private final MusicDatabase database;
+    private volatile boolean ready;
+
+    public static SongSearchIndex getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (SongSearchIndex.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SongSearchIndex(MusicDatabase.getInstance(context));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    SongSearchIndex(MusicDatabase database) {
+        this.database = database;
+    }
+
+    static void createTriggers(SupportSQLiteDatabase db) {
+        for (String sql : TRIGGERS) db.execSQL(sql);
+    }
+
+    /**
+     * 启动补齐完成后才走全文检索
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 为刚写入 songs 表的歌曲（重新）建立索引，须在插入之后调用
+     */
+    public void index(List<SongEntity> songs) {
+        if (songs == null || songs.isEmpty()) return;
+        List<String[]> rows = new ArrayList<>(songs.size());
+        for (SongEntity s : songs) {
+            rows.add(new String[]{s.getId(), s.getTitle(), s.getArtist(), s.getAlbum()});
+        }
+        try {
+            writeRows(rows);
+        } catch (Exception e) {
+            Log.w(TAG, "写入搜索索引失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 只为给定歌曲中缺索引行的补写（新插入，或标题/艺术家/专辑变化后被触发器删除的行），供批量写库使用
+     */
+    public void indexMissing(List<String> songIds) {
+        if (songIds == null || songIds.isEmpty()) return;
+        try {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            List<String[]> rows = new ArrayList<>();
+            for (int i = 0; i < songIds.size(); i += MAX_BIND_ARGS) {
+                List<String> part = songIds.subList(i, Math.min(songIds.size(), i + MAX_BIND_ARGS));
+                StringBuilder sql = new StringBuilder("SELECT id, title, artist, album FROM songs s WHERE id IN (");
+                for (int j = 0; j < part.size(); j++) sql.append(j == 0 ? "?" : ",?");
+                sql.append(") AND NOT EXISTS (SELECT 1 FROM song_fts f WHERE f.rowid = s.rowid)");
+                try (Cursor c = db.query(sql.toString(), part.toArray())) {
+                    while (c.moveToNext()) {
+                        rows.add(new String[]{c.getString(0), c.getString(1), c.getString(2), c.getString(3)});
+                    }
+                }
+            }
+            if (!rows.isEmpty()) writeRows(rows);
+        } catch (Exception e) {
+            Log.w(TAG, "写入搜索索引失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 补齐没有索引行的歌曲并清理孤儿行（迁移后首建、其他写库路径遗漏时）
+     */
+    public void indexMissing() {
+        try {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            db.execSQL("DELETE FROM song_fts WHERE rowid NOT IN (SELECT rowid FROM songs)");
+            List<String[]> rows = new ArrayList<>();
+            try (Cursor c = db.query("SELECT id, title, artist, album FROM songs s "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM song_fts f WHERE f.rowid = s.rowid)")) {
+                while (c.moveToNext()) {
+                    rows.add(new String[]{c.getString(0), c.getString(1), c.getString(2), c.getString(3)});
+                }
+            }
+            for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+                writeRows(rows.subList(i, Math.min(rows.size(), i + BATCH_SIZE)));
+            }
+            if (!rows.isEmpty()) Log.d(TAG, "补齐搜索索引: " + rows.size() + " 首");
+            ready = true;
+        } catch (Exception e) {
+            Log.w(TAG, "补齐搜索索引失败: " + e.getMessage());
+        }
+    }
+
+    private void writeRows(List<String[]> rows) {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        database.runInTransaction(() -> {
+            try (SupportSQLiteStatement delete = db.compileStatement(
+                         "DELETE FROM song_fts WHERE rowid = (SELECT rowid FROM songs WHERE id = ?)");
+                 SupportSQLiteStatement insert = db.compileStatement(
+                         "INSERT INTO song_fts(rowid, title, artist, album) SELECT rowid, ?, ?, ? FROM songs WHERE id = ?")) {
+                for (String[] r : rows) {
+                    if (r[0] == null) continue;
+                    delete.bindString(1, r[0]);
+                    delete.executeUpdateDelete();
+                    insert.bindString(1, SongSearchTokens.indexText(r[1]));
+                    insert.bindString(2, SongSearchTokens.indexText(r[2]));
+                    insert.bindString(3, SongSearchTokens.indexText(r[3]));
+                    insert.bindString(4, r[0]);
+                    insert.executeInsert();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package com.watch.limusic.database;
+
+import com.watch.limusic.util.PinyinUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 全文检索的分词规则（索引侧与查询侧共用，保证两边一致）
+ * - 中文按单字切分（"周杰伦" -> "周 杰 伦"），查询时以短语匹配连续字，效果等同子串包含
+ * - 每段连续中文额外索引全拼与首字母，并包含从每个字起的后缀（"zhoujielun jielun lun zjl jl l"），
+ *   输入 "zjl"、"jielun"、"zhouj" 均可前缀命中
+ * - 其余文字交给 unicode61 分词器（按字母数字切分、折叠大小写）
+ */
+public final class SongSearchTokens {
+    // 单段中文参与拼音后缀展开的最大字数，限制长标题的索引体积
+    private static final int MAX_PINYIN_RUN = 16;
+
+    private SongSearchTokens() {}
+
+    /**
+     * 生成某个字段写入 FTS 表的文本
+     */
+    public static String indexText(String text) {
+        if (text == null || text.isEmpty()) return "";
+        String s = text.toLowerCase(Locale.ROOT);
+        StringBuilder out = new StringBuilder(s.length() * 2);
+        StringBuilder pinyin = new StringBuilder();
+        List<String> run = new ArrayList<>();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (PinyinUtil.isChinese(c)) {
+                out.append(' ').append(c).append(' ');
+                if (run.size() < MAX_PINYIN_RUN) {
+                    String py = PinyinUtil.toPinyin(c);
+                    if (py != null) run.add(py); else flushRun(run, pinyin);
+                }
+            } else {
+                flushRun(run, pinyin);
+                out.append(c);
+            }
+        }
+        flushRun(run, pinyin);
+        if (pinyin.length() > 0) out.append(' ').append(pinyin);
+        return out.toString();
+    }
+
+    /**
+     * 把用户输入转换为 FTS MATCH 表达式；column 非空时限定在该列匹配
+     * @return 无可检索内容时返回 null
+     */
+    public static String matchQuery(String input, String column) {
+        if (input == null) return null;
+        String s = input.toLowerCase(Locale.ROOT);
+        String prefix = column != null ? column + ":" : "";
+        StringBuilder match = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (PinyinUtil.isChinese(c)) {
+                appendWord(match, prefix, word);
+                if (phrase.length() > 0) phrase.append(' ');
+                phrase.append(c);
+            } else {
+                appendPhrase(match, prefix, phrase);
+                if (Character.isLetterOrDigit(c)) word.append(c); else appendWord(match, prefix, word);
+            }
+        }
+        appendWord(match, prefix, word);
+        appendPhrase(match, prefix, phrase);
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    private static void flushRun(List<String> run, StringBuilder pinyin) {
+        if (run.isEmpty()) return;
+        for (int from = 0; from < run.size(); from++) {
+            StringBuilder full = new StringBuilder();
+            StringBuilder initials = new StringBuilder();
+            for (int j = from; j < run.size(); j++) {
+                full.append(run.get(j));
+                initials.append(run.get(j).charAt(0));
+            }
+            pinyin.append(full).append(' ');
+            if (initials.length() > 1) pinyin.append(initials).append(' ');
+        }
+        run.clear();
+    }
+
+    private static void appendWord(StringBuilder match, String prefix, StringBuilder word) {
+        if (word.length() == 0) return;
+        if (match.length() > 0) match.append(' ');
+        match.append(prefix).append(word).append('*');
+        word.setLength(0);
+    }
+
+    private static void appendPhrase(StringBuilder match, String prefix, StringBuilder phrase) {
+        if (phrase.length() == 0) return;
+        if (match.length() > 0) match.append(' ');
+        match.append(prefix).append('"').append(phrase).append('"');
+        phrase.setLength(0);
+    }
+}
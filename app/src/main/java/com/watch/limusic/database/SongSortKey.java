@@ -0,0 +1,40 @@
+package com.watch.limusic.database;
+
+import com.watch.limusic.util.PinyinUtil;
+
+/**
+ * 持久化排序键："所有歌曲"列表与离线专辑列表共用：分类 + 首字母 + 比较文本 + ID
+ * - 分类与首字母规则同 UI：'#' 组在前，其次数字，最后 A-Z
+ * - 比较文本见 PinyinUtil.toCollationText：汉字按全拼、ASCII 折叠大小写，控制字符替换为空格，保证分隔符最小
+ * - 末尾拼接 ID 使键唯一，可直接用 "sortKey > ?" 做键集分页
+ * - 入库时计算一次，查询只按索引列排序
+ */
+public final class SongSortKey {
+    private static final char SEPARATOR = '\u0001';
+
+    private SongSortKey() {}
+
+    public static String of(String initial, String title, String id) {
+        String ini = initial != null && !initial.isEmpty() ? initial : "#";
+        String t = PinyinUtil.toCollationText(title);
+        StringBuilder sb = new StringBuilder(t.length() + (id != null ? id.length() : 0) + 4);
+        sb.append(categoryOf(ini)).append(ini.charAt(0)).append(t).append(SEPARATOR);
+        if (id != null) sb.append(id);
+        return sb.toString();
+    }
+
+    public static String of(SongEntity entity) {
+        return of(entity.getInitial(), entity.getTitle(), entity.getId());
+    }
+
+    public static String of(AlbumEntity entity) {
+        return of(PinyinUtil.getFirstLetter(entity.getName()), entity.getName(), entity.getId());
+    }
+
+    private static char categoryOf(String initial) {
+        char c = initial.charAt(0);
+        if (c == '#') return '0';
+        if (c >= '0' && c <= '9') return '1';
+        return '2';
+    }
+}
@@ -0,0 +1,123 @@
+package com.watch.limusic.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * 下载文件的容器识别与校验
+ * - 优先按文件头魔数识别（服务器 Content-Type 可能缺失或笼统），识别不了再看 Content-Type
+ * - 两者都不是音频时视为服务器返回了错误页/JSON，由调用方判定下载失败
+ * - 校验和使用 CRC32（手表 CPU 上比 SHA 系列快一个量级），格式 "crc32:xxxxxxxx"
+ */
+final class AudioContainer {
+    private static final int HEAD_BYTES = 64;
+    private static final int CHECKSUM_BUFFER = 256 * 1024;
+
+    private AudioContainer() {}
+
+    /**
+     * @return 扩展名（不含点）；无法确认是音频时返回 null
+     */
+    static String detectExtension(File file, String contentType) throws IOException {
+        String sniffed = sniff(readHead(file));
+        return sniffed != null ? sniffed : fromContentType(contentType);
+    }
+
+    static String sniff(byte[] h) {
+        if (h.length >= 4 && startsWith(h, 0, "fLaC")) return "flac";
+        if (h.length >= 4 && startsWith(h, 0, "OggS")) {
+            // Ogg 首页的第一个包头：OpusHead 为 Opus，否则按 Vorbis 处理
+            return indexOf(h, "OpusHead") >= 0 ? "opus" : "ogg";
+        }
+        if (h.length >= 12 && startsWith(h, 0, "RIFF") && startsWith(h, 8, "WAVE")) return "wav";
+        if (h.length >= 8 && startsWith(h, 4, "ftyp")) return "m4a";
+        if (h.length >= 3 && startsWith(h, 0, "ID3")) return "mp3";
+        if (h.length >= 2 && (h[0] & 0xFF) == 0xFF && (h[1] & 0xE0) == 0xE0) {
+            // 帧同步：layer 位为 00 的是 ADTS AAC，其余为 MPEG 音频
+            return (h[1] & 0x06) == 0 ? "aac" : "mp3";
+        }
+        return null;
+    }
+
+    static String fromContentType(String contentType) {
+        if (contentType == null) return null;
+        String ct = contentType.toLowerCase(Locale.ROOT);
+        int semi = ct.indexOf(';');
+        if (semi >= 0) ct = ct.substring(0, semi).trim();
+        switch (ct) {
+            case "audio/mpeg":
+            case "audio/mp3":
+                return "mp3";
+            case "audio/flac":
+            case "audio/x-flac":
+                return "flac";
+            case "audio/ogg":
+            case "audio/vorbis":
+                return "ogg";
+            case "audio/opus":
+                return "opus";
+            case "audio/aac":
+            case "audio/aacp":
+                return "aac";
+            case "audio/mp4":
+            case "audio/x-m4a":
+            case "audio/m4a":
+                return "m4a";
+            case "audio/wav":
+            case "audio/x-wav":
+            case "audio/wave":
+                return "wav";
+            default:
+                return null;
+        }
+    }
+
+    static String checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buf = ByteBuffer.allocateDirect(CHECKSUM_BUFFER);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel ch = raf.getChannel()) {
+            while (ch.read(buf) > 0) {
+                buf.flip();
+                crc.update(buf);
+                buf.clear();
+            }
+        }
+        return String.format(Locale.ROOT, "crc32:%08x", crc.getValue());
+    }
+
+    private static byte[] readHead(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            int n = (int) Math.min(HEAD_BYTES, raf.length());
+            byte[] head = new byte[n];
+            raf.readFully(head);
+            return head;
+        }
+    }
+
+    private static boolean startsWith(byte[] data, int offset, String magic) {
+        byte[] m = magic.getBytes(StandardCharsets.US_ASCII);
+        if (data.length < offset + m.length) return false;
+        for (int i = 0; i < m.length; i++) {
+            if (data[offset + i] != m[i]) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, String needle) {
+        byte[] n = needle.getBytes(StandardCharsets.US_ASCII);
+        outer:
+        for (int i = 0; i + n.length <= data.length; i++) {
+            for (int j = 0; j < n.length; j++) {
+                if (data[i + j] != n[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
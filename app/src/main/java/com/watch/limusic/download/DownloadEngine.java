@@ -0,0 +1,445 @@
+package com.watch.limusic.download;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * 下载传输引擎（与 DownloadManager 的任务/状态管理分离）
+ * - 复用 NavidromeApi 的 OkHttp 连接池与调度器，批量下载时连接保持复用
+ * - FileChannel 定位写入，每个线程复用一块大号直接缓冲区
+ * - 进度回调按时间限流，暂停标记每读满一块缓冲才检查一次
+ * - 可重试错误（网络异常、5xx/408/429）自动指数退避重试，并以 Range 从 .part 现有长度续传
+ * - 大文件（通常为 FLAC 等无损原档）且服务器支持 Range 时按字节区间并行分段下载，
+ *   分段进度写入 .part.segs，暂停/重试后按分段续传
+ */
+class DownloadEngine {
+    private static final String TAG = "DownloadEngine";
+
+    static final int MAX_ATTEMPTS = 4; // 首次 + 3 次重试
+    private static final long BACKOFF_BASE_MS = 1000L;
+    private static final long BACKOFF_MAX_MS = 15000L;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 250L;
+    private static final long SEGMENT_MIN_BYTES = 16L * 1024 * 1024;
+    private static final int SEGMENT_COUNT = 3;
+    private static final String SEGMENT_STATE_SUFFIX = ".segs";
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    interface Listener {
+        /** 是否应停止（暂停/取消）；每写完一块缓冲检查一次 */
+        boolean isStopped();
+
+        /** 进度（已限流）；totalBytes 未知时为 -1 */
+        void onProgress(long downloadedBytes, long totalBytes);
+    }
+
+    static final class Result {
+        final long totalBytes;
+        final String contentType;
+        final boolean stopped;
+        int retries;
+
+        Result(long totalBytes, String contentType, boolean stopped) {
+            this.totalBytes = totalBytes;
+            this.contentType = contentType;
+            this.stopped = stopped;
+        }
+    }
+
+    /** 非 2xx 响应 */
+    static final class HttpStatusException extends IOException {
+        final int code;
+
+        HttpStatusException(int code) {
+            super("HTTP错误: " + code);
+            this.code = code;
+        }
+    }
+
+    private final OkHttpClient client;
+    private final ExecutorService segmentPool;
+
+    DownloadEngine(OkHttpClient shared) {
+        // newBuilder 共享连接池与调度器，仅调整下载所需的超时
+        this.client = shared.newBuilder()
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build();
+        AtomicInteger seq = new AtomicInteger();
+        this.segmentPool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "Download-Segment-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 下载到 .part 文件（已有内容时续传），失败按退避重试
+     * @param allowSegments 是否允许大文件并行分段
+     */
+    Result download(String url, File part, boolean allowSegments, Listener listener) throws IOException {
+        int attempt = 0;
+        while (true) {
+            if (listener.isStopped()) return new Result(-1, null, true);
+            try {
+                Result r = segmentStateFile(part).exists()
+                        ? resumeSegmented(url, part, allowSegments, listener)
+                        : transferOnce(url, part, allowSegments, listener);
+                r.retries = attempt;
+                return r;
+            } catch (IOException e) {
+                if (listener.isStopped()) return new Result(-1, null, true);
+                if (Thread.currentThread().isInterrupted() || isCancellation(e)) throw e;
+                if (!isRetryable(e) || ++attempt >= MAX_ATTEMPTS) throw e;
+                long delay = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << (attempt - 1));
+                // 抖动：避免批量任务在同一时刻集中重试
+                delay += (long) (Math.random() * delay / 2);
+                Log.w(TAG, "下载中断，" + delay + "ms 后第 " + attempt + " 次重试: " + e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("下载已取消");
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除 .part 及其分段状态文件
+     */
+    static boolean deletePartial(File part) {
+        boolean deleted = false;
+        if (part.exists()) deleted = part.delete();
+        File state = segmentStateFile(part);
+        if (state.exists()) deleted = state.delete() || deleted;
+        return deleted;
+    }
+
+    private Result transferOnce(String url, File part, boolean allowSegments, Listener listener) throws IOException {
+        long existing = part.exists() ? part.length() : 0;
+        Request.Builder rb = new Request.Builder().url(url);
+        if (existing > 0) rb.header("Range", "bytes=" + existing + "-");
+        try (Response resp = client.newCall(rb.build()).execute()) {
+            int code = resp.code();
+            if (code == 416 && existing > 0) {
+                long total = parseTotal(resp.header("Content-Range"));
+                if (total == existing) return new Result(total, resp.header("Content-Type"), false);
+                // 本地残留比服务器文件还长：丢弃后从头重试
+                deletePartial(part);
+                throw new HttpStatusException(code);
+            }
+            if (code != 200 && code != 206) throw new HttpStatusException(code);
+            ResponseBody body = resp.body();
+            if (body == null) throw new IOException("响应体为空");
+            String contentType = resp.header("Content-Type");
+            long bodyLength = body.contentLength();
+            // 请求了 Range 但服务器返回 200：忽略旧内容从头写
+            long start = code == 206 ? existing : 0;
+            long total;
+            if (code == 206) {
+                long fromHeader = parseTotal(resp.header("Content-Range"));
+                total = fromHeader > 0 ? fromHeader : (bodyLength >= 0 ? existing + bodyLength : -1);
+            } else {
+                total = bodyLength;
+            }
+
+            if (allowSegments && code == 200 && total >= SEGMENT_MIN_BYTES
+                    && "bytes".equalsIgnoreCase(resp.header("Accept-Ranges"))) {
+                return downloadSegmented(url, part, body, total, contentType, listener);
+            }
+
+            try (RandomAccessFile raf = new RandomAccessFile(part, "rw"); FileChannel ch = raf.getChannel()) {
+                ch.truncate(start);
+                Progress progress = new Progress(listener, start, total);
+                long end = copy(body.source(), ch, start, -1, null, progress, listener);
+                progress.flush();
+                if (listener.isStopped()) return new Result(total, contentType, true);
+                if (total > 0 && end < total) throw new IOException("连接提前结束: " + end + "/" + total);
+                return new Result(total > 0 ? total : end, contentType, false);
+            }
+        }
+    }
+
+    private Result downloadSegmented(String url, File part, ResponseBody first, long total, String contentType,
+                                     Listener listener) throws IOException {
+        SegmentPlan plan = SegmentPlan.split(total, SEGMENT_COUNT);
+        try (RandomAccessFile raf = new RandomAccessFile(part, "rw"); FileChannel ch = raf.getChannel()) {
+            raf.setLength(total);
+            plan.save(segmentStateFile(part));
+            Log.d(TAG, "分段下载: " + part.getName() + " " + (total / 1024) + "KB x" + SEGMENT_COUNT);
+            return runSegments(url, part, ch, plan, first, contentType, listener);
+        }
+    }
+
+    private Result resumeSegmented(String url, File part, boolean allowSegments, Listener listener) throws IOException {
+        SegmentPlan plan = SegmentPlan.load(segmentStateFile(part));
+        if (plan == null || !part.exists() || part.length() != plan.total) {
+            // 状态文件损坏或与 .part 不符：丢弃后按普通流程从头下载
+            deletePartial(part);
+            return transferOnce(url, part, allowSegments, listener);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(part, "rw"); FileChannel ch = raf.getChannel()) {
+            return runSegments(url, part, ch, plan, null, null, listener);
+        }
+    }
+
+    private Result runSegments(String url, File part, FileChannel ch, SegmentPlan plan, ResponseBody first,
+                               String contentType, Listener listener) throws IOException {
+        Progress progress = new Progress(listener, plan.doneBytes(), plan.total);
+        List<Future<?>> futures = new ArrayList<>(plan.segments.length);
+        for (int i = 0; i < plan.segments.length; i++) {
+            Segment seg = plan.segments[i];
+            if (seg.isDone()) continue;
+            // 首段直接沿用已打开的整文件响应（从 0 开始读到首段末尾即止）
+            final ResponseBody reuse = (i == 0 && first != null && seg.written == 0) ? first : null;
+            futures.add(segmentPool.submit(() -> {
+                fetchSegment(url, ch, seg, reuse, progress, listener);
+                return null;
+            }));
+        }
+        IOException failure = null;
+        try {
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (failure == null) {
+                        failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> f : futures) f.cancel(true);
+            Thread.currentThread().interrupt();
+            failure = new InterruptedIOException("下载已取消");
+        } finally {
+            progress.flush();
+            plan.save(segmentStateFile(part));
+        }
+        // 暂停/取消时各分段因通道被关闭而抛出的异常不算失败
+        if (listener.isStopped() && !plan.isDone()) return new Result(plan.total, contentType, true);
+        if (failure != null) throw failure;
+        segmentStateFile(part).delete();
+        return new Result(plan.total, contentType, false);
+    }
+
+    private void fetchSegment(String url, FileChannel ch, Segment seg, ResponseBody reuse, Progress progress,
+                              Listener listener) throws IOException {
+        long from = seg.start + seg.written;
+        if (reuse != null) {
+            copy(reuse.source(), ch, from, seg.end, seg, progress, listener);
+        } else {
+            Request request = new Request.Builder().url(url)
+                    .header("Range", "bytes=" + from + "-" + (seg.end - 1))
+                    .build();
+            try (Response resp = client.newCall(request).execute()) {
+                if (resp.code() != 206) throw new HttpStatusException(resp.code());
+                ResponseBody body = resp.body();
+                if (body == null) throw new IOException("响应体为空");
+                copy(body.source(), ch, from, seg.end, seg, progress, listener);
+            }
+        }
+        if (!seg.isDone() && !listener.isStopped()) {
+            throw new IOException("分段提前结束: " + (seg.start + seg.written) + "/" + seg.end);
+        }
+    }
+
+    /**
+     * 从 source 读入复用的直接缓冲区，再定位写入文件
+     * @param limit 写到该位置为止（不含）；-1 表示读到 EOF
+     * @return 写入结束后的文件位置
+     */
+    private static long copy(BufferedSource source, FileChannel ch, long position, long limit, Segment seg,
+                             Progress progress, Listener listener) throws IOException {
+        ByteBuffer buf = BUFFERS.get();
+        long pos = position;
+        boolean eof = false;
+        while (!eof && (limit < 0 || pos < limit)) {
+            if (listener != null && listener.isStopped()) break;
+            buf.clear();
+            if (limit >= 0 && limit - pos < buf.capacity()) buf.limit((int) (limit - pos));
+            while (buf.hasRemaining()) {
+                if (source.read(buf) < 0) { eof = true; break; }
+            }
+            buf.flip();
+            int n = buf.remaining();
+            while (buf.hasRemaining()) {
+                pos += ch.write(buf, pos);
+            }
+            if (seg != null) seg.written = pos - seg.start;
+            if (progress != null && n > 0) progress.add(n);
+        }
+        return pos;
+    }
+
+    /**
+     * 取消会中断下载线程：OkHttp 读取抛 InterruptedIOException（超时除外），文件通道写入抛 ClosedByInterruptException，
+     * 共享同一通道的其他分段随后抛 AsynchronousCloseException/ClosedChannelException
+     */
+    static boolean isCancellation(Throwable e) {
+        if (e instanceof SocketTimeoutException) return false;
+        return e instanceof InterruptedIOException || e instanceof ClosedChannelException;
+    }
+
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof HttpStatusException) {
+            int code = ((HttpStatusException) e).code;
+            return code >= 500 || code == 408 || code == 429 || code == 416;
+        }
+        return true;
+    }
+
+    private static long parseTotal(String contentRange) {
+        if (contentRange == null) return -1;
+        int slash = contentRange.indexOf('/');
+        if (slash < 0) return -1;
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static File segmentStateFile(File part) {
+        return new File(part.getPath() + SEGMENT_STATE_SUFFIX);
+    }
+
+    /**
+     * 进度累计与限流：多个分段线程共享
+     */
+    private static final class Progress {
+        private final Listener listener;
+        private final AtomicLong done;
+        private final long total;
+        private final AtomicLong lastEmitMs = new AtomicLong();
+
+        Progress(Listener listener, long initial, long total) {
+            this.listener = listener;
+            this.done = new AtomicLong(initial);
+            this.total = total;
+        }
+
+        void add(long n) {
+            long d = done.addAndGet(n);
+            long now = SystemClock.uptimeMillis();
+            long last = lastEmitMs.get();
+            if (now - last >= PROGRESS_INTERVAL_MS && lastEmitMs.compareAndSet(last, now)) {
+                listener.onProgress(d, total);
+            }
+        }
+
+        void flush() {
+            listener.onProgress(done.get(), total);
+        }
+    }
+
+    private static final class Segment {
+        final long start;
+        final long end; // 不含
+        volatile long written;
+
+        Segment(long start, long end, long written) {
+            this.start = start;
+            this.end = end;
+            this.written = written;
+        }
+
+        boolean isDone() {
+            return start + written >= end;
+        }
+    }
+
+    /**
+     * 分段计划；持久化格式：首行总长度，其后每行 "start,end,written"
+     */
+    private static final class SegmentPlan {
+        final long total;
+        final Segment[] segments;
+
+        SegmentPlan(long total, Segment[] segments) {
+            this.total = total;
+            this.segments = segments;
+        }
+
+        static SegmentPlan split(long total, int count) {
+            Segment[] segs = new Segment[count];
+            long size = total / count;
+            for (int i = 0; i < count; i++) {
+                long start = i * size;
+                long end = i == count - 1 ? total : start + size;
+                segs[i] = new Segment(start, end, 0);
+            }
+            return new SegmentPlan(total, segs);
+        }
+
+        long doneBytes() {
+            long sum = 0;
+            for (Segment s : segments) sum += s.written;
+            return sum;
+        }
+
+        boolean isDone() {
+            for (Segment s : segments) if (!s.isDone()) return false;
+            return true;
+        }
+
+        void save(File file) {
+            try (FileWriter w = new FileWriter(file)) {
+                StringBuilder sb = new StringBuilder().append(total).append('\n');
+                for (Segment s : segments) {
+                    sb.append(s.start).append(',').append(s.end).append(',').append(s.written).append('\n');
+                }
+                w.write(sb.toString());
+            } catch (IOException e) {
+                Log.w(TAG, "保存分段状态失败: " + e.getMessage());
+            }
+        }
+
+        static SegmentPlan load(File file) {
+            try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+                long total = Long.parseLong(r.readLine().trim());
+                List<Segment> list = new ArrayList<>();
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (line.isEmpty()) continue;
+                    String[] p = line.split(",");
+                    list.add(new Segment(Long.parseLong(p[0]), Long.parseLong(p[1]), Long.parseLong(p[2])));
+                }
+                if (list.isEmpty()) return null;
+                return new SegmentPlan(total, list.toArray(new Segment[0]));
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
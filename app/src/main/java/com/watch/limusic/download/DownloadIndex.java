@@ -0,0 +1,203 @@
+package com.watch.limusic.download;
+
+import android.content.Context;
+import android.os.FileObserver;
+import android.util.Log;
+
+import com.watch.limusic.database.DbExecutors;
+import com.watch.limusic.database.DownloadEntity;
+import com.watch.limusic.database.DownloadRepository;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程级已下载文件索引：songId -> 文件绝对路径
+ * - 创建时即在后台读线程加载一次：扫描一遍 downloads/songs 目录登记实际存在的文件，并与下载记录核对（只记日志）
+ * - 之后由 DownloadManager 的完成/删除事件维护，另有 FileObserver 兜底捕获外部删除/移入
+ * - isDownloaded/pathFor 为内存查询，不触碰磁盘也从不等待加载：加载完成前按已扫描到的部分回答（未扫到视为未下载），
+ *   播放器构建窗口与列表绑定（常在主线程）可随意调用
+ */
+public class DownloadIndex {
+    private static final String TAG = "DownloadIndex";
+    private static final Set<String> SUPPORTED_EXTS = new HashSet<>(Arrays.asList(
+        "mp3", "flac", "ogg", "opus", "aac", "m4a", "wav"
+    ));
+
+    private static volatile DownloadIndex INSTANCE;
+
+    private final File songsDir;
+    private final DownloadRepository downloadRepository;
+    private final ConcurrentHashMap<String, String> paths = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    // 加载期间被移除的条目，避免目录扫描把刚删除的文件再登记回来
+    private final Set<String> removedWhileLoading = ConcurrentHashMap.newKeySet();
+    // 需保持强引用，否则被回收后停止监听
+    private FileObserver observer;
+
+    public static DownloadIndex getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (DownloadIndex.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DownloadIndex(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private DownloadIndex(Context context) {
+        File downloadDir = new File(context.getExternalFilesDir(null), "downloads");
+        this.songsDir = new File(downloadDir, "songs");
+        this.downloadRepository = DownloadRepository.getInstance(context);
+        DbExecutors.reader().execute(this::load);
+    }
+
+    /**
+     * 启动时的全量加载是否已完成；完成前的查询结果可能缺少尚未扫描到的条目
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean isDownloaded(String songId) {
+        if (songId == null || songId.isEmpty()) return false;
+        return paths.containsKey(songId);
+    }
+
+    /**
+     * 已下载文件的绝对路径；未下载返回 null
+     */
+    public String pathFor(String songId) {
+        if (songId == null || songId.isEmpty()) return null;
+        return paths.get(songId);
+    }
+
+    /**
+     * 全部已下载 songId 的快照
+     */
+    public List<String> snapshotIds() {
+        return new ArrayList<>(paths.keySet());
+    }
+
+    public int size() {
+        return paths.size();
+    }
+
+    /**
+     * 下载完成时登记
+     */
+    public void put(String songId, String path) {
+        if (songId == null || path == null) return;
+        removedWhileLoading.remove(songId);
+        paths.put(songId, path);
+    }
+
+    /**
+     * 删除下载时移除
+     */
+    public void remove(String songId) {
+        if (songId == null) return;
+        if (!loaded) removedWhileLoading.add(songId);
+        paths.remove(songId);
+    }
+
+    /**
+     * 一致性检查：移除文件已不存在的条目（每条一次 stat），返回移除的 songId
+     */
+    public List<String> pruneMissing() {
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, String> e : paths.entrySet()) {
+            File f = new File(e.getValue());
+            if (!f.exists() || f.length() == 0) missing.add(e.getKey());
+        }
+        for (String id : missing) paths.remove(id);
+        if (!missing.isEmpty()) Log.w(TAG, "索引中 " + missing.size() + " 个文件已不存在，已移除");
+        return missing;
+    }
+
+    // 只在后台读线程执行一次：边扫描目录边登记（部分结果即可供查询），再与下载记录核对
+    // 登记路径以目录中的实际文件为准，与记录一致时二者相同；加载期间的完成/删除事件优先
+    private void load() {
+        synchronized (this) {
+            if (loaded) return;
+            long start = System.currentTimeMillis();
+            startObserver();
+            Map<String, File> onDisk = scanSongsDir();
+            int recordOnly = 0;
+            int pathMismatch = 0;
+            try {
+                List<DownloadEntity> completed = downloadRepository.getCompletedDownloads();
+                if (completed != null) {
+                    for (DownloadEntity e : completed) {
+                        File f = onDisk.get(e.getSongId());
+                        if (f == null) {
+                            recordOnly++;
+                        } else if (!f.getAbsolutePath().equals(e.getFilePath())) {
+                            pathMismatch++;
+                        }
+                    }
+                }
+            } catch (Exception ex) {
+                Log.w(TAG, "读取下载记录失败，仅使用目录扫描结果: " + ex.getMessage());
+            }
+            loaded = true;
+            removedWhileLoading.clear();
+            Log.d(TAG, "下载索引已加载: " + paths.size() + " 首（记录存在但文件缺失 " + recordOnly + " 首，记录路径与文件不符 "
+                    + pathMismatch + " 首），耗时 " + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    private Map<String, File> scanSongsDir() {
+        Map<String, File> found = new HashMap<>();
+        File[] files = songsDir.listFiles();
+        if (files == null) return found;
+        for (File f : files) {
+            String songId = songIdOf(f.getName());
+            if (songId != null && f.length() > 0) {
+                found.put(songId, f);
+                if (!removedWhileLoading.contains(songId)) paths.putIfAbsent(songId, f.getAbsolutePath());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 由文件名解析 songId；非支持的音频扩展名（含 .part）返回 null
+     */
+    private static String songIdOf(String fileName) {
+        if (fileName == null) return null;
+        int dot = fileName.lastIndexOf('.');
+        if (dot <= 0) return null;
+        String ext = fileName.substring(dot + 1).toLowerCase();
+        return SUPPORTED_EXTS.contains(ext) ? fileName.substring(0, dot) : null;
+    }
+
+    @SuppressWarnings("deprecation") // File 版构造函数需要 API 29
+    private void startObserver() {
+        if (observer != null || !songsDir.exists()) return;
+        observer = new FileObserver(songsDir.getAbsolutePath(),
+                FileObserver.DELETE | FileObserver.MOVED_FROM | FileObserver.MOVED_TO) {
+            @Override
+            public void onEvent(int event, String name) {
+                String songId = songIdOf(name);
+                if (songId == null) return;
+                String path = new File(songsDir, name).getAbsolutePath();
+                if ((event & FileObserver.MOVED_TO) != 0) {
+                    paths.put(songId, path);
+                } else {
+                    // 仅当被删除的正是索引中的文件时移除（换容器重下时旧文件被删不影响新路径）
+                    paths.remove(songId, path);
+                }
+            }
+        };
+        observer.startWatching();
+    }
+}
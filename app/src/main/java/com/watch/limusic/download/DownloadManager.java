@@ -11,19 +11,14 @@ import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import com.watch.limusic.api.NavidromeApi;
 import com.watch.limusic.database.DownloadRepository;
 import com.watch.limusic.model.DownloadInfo;
+import com.watch.limusic.model.DownloadPriority;
 import com.watch.limusic.model.DownloadStatus;
 import com.watch.limusic.model.Song;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InterruptedIOException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import android.content.SharedPreferences;
 import java.util.Locale;
 import android.content.IntentFilter;
@@ -34,9 +29,10 @@ import android.content.BroadcastReceiver;
  */
 public class DownloadManager {
     private static final String TAG = "DownloadManager";
-    private static final int MAX_CONCURRENT_DOWNLOADS = 3;
-    private static final int MAX_RETRY_COUNT = 3;
-    private static final int BUFFER_SIZE = 8192;
+    // 是否允许大文件并行分段下载（player_prefs）
+    private static final String KEY_PARALLEL_SEGMENTS = "download_parallel_segments";
+    // 可能出现的歌曲容器扩展名（仅删除/清理时使用）
+    private static final String[] SONG_EXTS = {"mp3", "flac", "ogg", "opus", "aac", "m4a", "wav"};
     
     // 广播动作
     public static final String ACTION_DOWNLOAD_PROGRESS = "com.watch.limusic.DOWNLOAD_PROGRESS";
@@ -51,28 +47,27 @@ public class DownloadManager {
 
     private static DownloadManager INSTANCE;
     private final Context context;
-    private final ExecutorService downloadExecutor;
+    private final DownloadScheduler scheduler;
     private final Handler mainHandler;
     private final ConcurrentHashMap<String, DownloadInfo> activeDownloads;
-    private final ConcurrentHashMap<String, Future<?>> downloadTasks;
     private final ConcurrentHashMap<String, Boolean> pauseFlags;
-    private final java.util.concurrent.ConcurrentLinkedQueue<String> waitingQueue;
     private final File downloadDir;
     private final File songsDir;
     private final File coversDir;
     private final DownloadRepository downloadRepository;
+    private final DownloadIndex downloadIndex;
+    private final DownloadEngine engine;
     private BroadcastReceiver configUpdatedReceiver;
-    private volatile boolean globalPaused = false;
 
     private DownloadManager(Context context) {
         this.context = context.getApplicationContext();
-        this.downloadExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_DOWNLOADS);
+        this.scheduler = new DownloadScheduler(this.context);
         this.mainHandler = new Handler(Looper.getMainLooper());
         this.activeDownloads = new ConcurrentHashMap<>();
-        this.downloadTasks = new ConcurrentHashMap<>();
         this.pauseFlags = new ConcurrentHashMap<>();
-        this.waitingQueue = new java.util.concurrent.ConcurrentLinkedQueue<>();
         this.downloadRepository = DownloadRepository.getInstance(context);
+        this.downloadIndex = DownloadIndex.getInstance(context);
+        this.engine = new DownloadEngine(NavidromeApi.getInstance(this.context).getHttpClient());
         
         // 创建下载目录结构
         this.downloadDir = new File(context.getExternalFilesDir(null), "downloads");
@@ -113,22 +108,30 @@ public class DownloadManager {
     }
 
     /**
-     * 开始下载歌曲
+     * 开始下载歌曲（用户发起，批量优先级）
      */
     public void downloadSong(Song song) {
+        downloadSong(song, DownloadPriority.USER_BATCH);
+    }
+
+    /**
+     * 按指定优先级下载歌曲；已在队列中时仅提升优先级
+     */
+    public void downloadSong(Song song, DownloadPriority priority) {
         String songId = song.getId();
         
         // 检查是否已经在下载队列中
-        if (activeDownloads.containsKey(songId)) {
-            DownloadInfo exist = activeDownloads.get(songId);
-            if (exist != null && exist.getStatus() == DownloadStatus.DOWNLOAD_PAUSED) {
+        DownloadInfo exist = activeDownloads.get(songId);
+        if (exist != null) {
+            if (exist.getStatus() == DownloadStatus.DOWNLOAD_PAUSED) {
                 Log.i(TAG, "检测到暂停任务，自动恢复: " + song.getTitle());
                 resumeDownload(song);
-                return;
+            } else if (promote(songId, priority)) {
+                Log.i(TAG, "已提升下载优先级: " + song.getTitle() + " -> " + priority);
             } else {
                 Log.w(TAG, "歌曲已在下载队列中: " + song.getTitle());
-                return;
             }
+            return;
         }
         
         // 检查是否已经下载
@@ -137,37 +140,36 @@ public class DownloadManager {
             return;
         }
         
-        // 添加到数据库
-        downloadRepository.addDownload(song);
+        // 添加到数据库（状态 WAITING 与优先级一次写入）
+        downloadRepository.addDownload(song, priority);
         
         DownloadInfo downloadInfo = new DownloadInfo(song);
-        downloadInfo.setStatus(DownloadStatus.DOWNLOADING);
+        downloadInfo.setPriority(priority);
+        downloadInfo.setStatus(DownloadStatus.WAITING);
         activeDownloads.put(songId, downloadInfo);
         
-        // 更新数据库状态
-        downloadRepository.updateDownloadStatus(songId, DownloadStatus.DOWNLOADING);
-        
-        // 全局暂停时，不启动新任务，转为"已暂停"并入等待队列
-        if (globalPaused) {
-            // 全局暂停：仅入等待队列，保持 WAITING，统一由 resumeAll 恢复
-            downloadInfo.setStatus(DownloadStatus.WAITING);
-            downloadRepository.updateDownloadStatus(songId, DownloadStatus.WAITING);
-            waitingQueue.offer(songId);
-            Log.i(TAG, "全局暂停中，加入等待队列: " + song.getTitle());
-            return;
-        }
-        
-        // 若当前正在进行的任务已达上限，标记为 WAITING，否则提交
-        if (downloadTasks.size() >= MAX_CONCURRENT_DOWNLOADS) {
-            downloadInfo.setStatus(DownloadStatus.WAITING);
-            downloadRepository.updateDownloadStatus(songId, DownloadStatus.WAITING);
-            waitingQueue.offer(songId);
-        } else {
-            Future<?> task = downloadExecutor.submit(() -> performDownload(downloadInfo));
-            downloadTasks.put(songId, task);
-        }
-        
-        Log.i(TAG, "开始下载歌曲: " + song.getTitle());
+        // 全局暂停时调度器不会派发，任务保持 WAITING，统一由 resumeAll 恢复
+        scheduler.enqueue(songId, priority, false, () -> performDownload(downloadInfo));
+        Log.i(TAG, "加入下载队列: " + song.getTitle() + " (" + priority + ")");
+    }
+
+    /**
+     * 提升排队中任务的优先级（如切到该歌曲播放），不会新建任务
+     * @return 是否发生了提升
+     */
+    public boolean promote(String songId, DownloadPriority priority) {
+        DownloadInfo info = activeDownloads.get(songId);
+        if (info == null || !scheduler.promote(songId, priority)) return false;
+        info.setPriority(priority);
+        downloadRepository.updateDownloadState(songId, DownloadStatus.WAITING, priority);
+        return true;
+    }
+
+    /**
+     * 调度统计：排队数、进行数、总吞吐（字节/秒）
+     */
+    public DownloadScheduler.Stats getStats() {
+        return scheduler.getStats();
     }
 
     /**
@@ -180,26 +182,21 @@ public class DownloadManager {
             for (String id : ids) {
                 try { cancelDownload(id); } catch (Exception ignore) {}
             }
-            // 清理等待队列
-            waitingQueue.clear();
+            // 清理调度器中的排队与运行任务
+            scheduler.clear();
             // 将数据库中仍标记为活动态的任务（含 WAITING/PAUSED/FAILED/DOWNLOADING）统一设为 NOT_DOWNLOADED，并清理残留.part
             java.util.List<com.watch.limusic.database.DownloadEntity> act = downloadRepository.getActiveDownloads();
             if (act != null) {
                 for (com.watch.limusic.database.DownloadEntity e : act) {
                     String sid = e.getSongId();
-                    try {
-                        File part = new File(songsDir, sid + ".mp3.part");
-                        if (part.exists()) part.delete();
-                    } catch (Exception ignore) {}
+                    try { deletePartialFiles(sid); } catch (Exception ignore) {}
                     try { downloadRepository.updateDownloadStatus(sid, DownloadStatus.NOT_DOWNLOADED); } catch (Exception ignore) {}
                     try { sendDownloadCanceledBroadcast(sid); } catch (Exception ignore) {}
                 }
             }
             // 清空内存状态
             activeDownloads.clear();
-            downloadTasks.clear();
             pauseFlags.clear();
-            globalPaused = false;
         } catch (Exception e) {
             Log.w(TAG, "取消全部下载时发生异常: " + e.getMessage());
         }
@@ -210,6 +207,10 @@ public class DownloadManager {
      */
     private void performDownload(DownloadInfo downloadInfo) {
         String songId = downloadInfo.getSongId();
+        // 调度器派发后才真正进入下载态
+        downloadInfo.setStatus(DownloadStatus.DOWNLOADING);
+        downloadRepository.updateDownloadStatus(songId, DownloadStatus.DOWNLOADING);
+        try { sendDownloadProgressBroadcast(songId, downloadInfo.getProgressPercentage()); } catch (Exception ignore) {}
         
         try {
             // 获取下载URL，根据"下载强制转码"设置决定是否转码
@@ -225,15 +226,13 @@ public class DownloadManager {
                 throw new IOException("无法获取歌曲流URL");
             }
             
-            // 选择保存扩展名：若强制转码=mp3，否则保留原始容器（默认mp3兜底）
-            String targetExt = forceDownloadTranscode ? "mp3" : "mp3";
-            // TODO: 后续可通过HEAD获取Content-Type来动态选择更准确扩展名
-            // 使用.part临时文件进行下载，完成后按扩展名重命名
-            File partialFile = new File(songsDir, songId + "." + targetExt + ".part");
+            // 使用.part临时文件进行下载，完成后按实际容器确定扩展名再重命名
+            File partialFile = partialFile(songId);
             downloadInfo.setFilePath(partialFile.getAbsolutePath());
             
-            // 开始下载
-            downloadFile(streamUrl, partialFile, downloadInfo);
+            // 开始下载（引擎内部已做退避重试与续传）
+            boolean allowSegments = !forceDownloadTranscode && sp.getBoolean(KEY_PARALLEL_SEGMENTS, true);
+            DownloadEngine.Result result = downloadFile(streamUrl, partialFile, downloadInfo, allowSegments);
             
             // 若被暂停，退出而不做后续处理
             if (downloadInfo.getStatus() == DownloadStatus.DOWNLOAD_PAUSED) {
@@ -241,25 +240,39 @@ public class DownloadManager {
                 return;
             }
             
+            // 完整性校验：长度与服务器声明一致，且内容确为音频（Subsonic 出错时也可能以 200 返回 JSON）
+            long actualSize = partialFile.length();
+            if (result.totalBytes > 0 && actualSize != result.totalBytes) {
+                DownloadEngine.deletePartial(partialFile);
+                throw new IOException("文件大小不符: " + actualSize + "/" + result.totalBytes);
+            }
+            String targetExt = AudioContainer.detectExtension(partialFile, result.contentType);
+            if (targetExt == null) {
+                DownloadEngine.deletePartial(partialFile);
+                throw new IOException("服务器返回的不是音频数据: " + result.contentType);
+            }
+            String checksum = AudioContainer.checksum(partialFile);
+            
             // 下载完成
             downloadInfo.setStatus(DownloadStatus.DOWNLOADED);
             downloadInfo.setDownloadTimestamp(System.currentTimeMillis());
             
-            // 重命名为最终文件
+            // 重命名为最终文件（清理同一歌曲其他容器的旧文件）
             File finalFile = new File(songsDir, songId + "." + targetExt);
-            if (finalFile.exists()) {
-                // 防御性删除旧文件
-                finalFile.delete();
+            for (String ext : SONG_EXTS) {
+                File old = new File(songsDir, songId + "." + ext);
+                if (old.exists()) old.delete();
             }
-            boolean renamed = new File(downloadInfo.getFilePath()).renameTo(finalFile);
+            boolean renamed = partialFile.renameTo(finalFile);
             if (!renamed) {
-                // 如果重命名失败，直接写入到最终路径
                 throw new IOException("重命名下载文件失败");
             }
             downloadInfo.setFilePath(finalFile.getAbsolutePath());
             
             // 更新数据库
-            downloadRepository.markDownloadCompleted(songId, finalFile.getAbsolutePath(), finalFile.length());
+            String contentType = result.contentType != null ? result.contentType : "audio/" + targetExt;
+            downloadRepository.markDownloadCompleted(songId, finalFile.getAbsolutePath(), finalFile.length(), contentType, checksum);
+            downloadIndex.put(songId, finalFile.getAbsolutePath());
             
             // 尝试下载专辑封面，便于离线显示
             try {
@@ -277,154 +290,112 @@ public class DownloadManager {
             Log.i(TAG, "下载完成: " + downloadInfo.getTitle());
             
         } catch (Exception e) {
+            // 任务被取消（cancelDownload/cancelAll 已处理状态与残留文件）：取消会中断线程，
+            // 文件通道随之关闭并抛 ClosedByInterruptException，不能当作下载失败覆盖 NOT_DOWNLOADED
+            if (isCancelled(downloadInfo) || DownloadEngine.isCancellation(e)) {
+                Log.i(TAG, "下载已中断: " + downloadInfo.getTitle());
+                return;
+            }
+            // 走到这里说明引擎内的自动重试已用尽或错误不可重试
             Log.e(TAG, "下载失败: " + downloadInfo.getTitle(), e);
             
             downloadInfo.setStatus(DownloadStatus.DOWNLOAD_FAILED);
             downloadInfo.setErrorMessage(e.getMessage());
-            downloadInfo.incrementRetryCount();
             
             // 更新数据库
             downloadRepository.markDownloadFailed(songId, e.getMessage());
             
-            // 如果重试次数未超限，可以考虑重试
-            if (downloadInfo.getRetryCount() < MAX_RETRY_COUNT) {
-                Log.i(TAG, "准备重试下载: " + downloadInfo.getTitle() + 
-                          " (重试次数: " + downloadInfo.getRetryCount() + ")");
-                // 这里可以添加延迟重试逻辑
-            }
-            
             // 发送失败广播
             sendDownloadFailedBroadcast(songId, e.getMessage());
             
         } finally {
-            // 清理：暂停状态保留activeDownloads，移除任务引用；其他状态清空
-            if (activeDownloads.containsKey(songId)) {
-                if (activeDownloads.get(songId).getStatus() == DownloadStatus.DOWNLOAD_PAUSED || activeDownloads.get(songId).getStatus() == DownloadStatus.WAITING) {
-                    downloadTasks.remove(songId);
-                    // 若有空闲，尝试启动等待中的下一个（全局暂停时不触发）
-                    if (!globalPaused) tryStartNextIfPossible();
-                } else {
-                    activeDownloads.remove(songId);
-                    downloadTasks.remove(songId);
-                    pauseFlags.remove(songId);
-                    // 下载完成/失败/取消一个后，尝试启动等待队列（全局暂停时不触发）
-                    if (!globalPaused) tryStartNextIfPossible();
-                }
-            } else {
-                downloadTasks.remove(songId);
+            // 清理：暂停/重新排队的任务保留在 activeDownloads，其余移除；取消后重新加入的新任务不受影响；下一个任务由调度器派发
+            DownloadInfo current = activeDownloads.get(songId);
+            if (current == null) {
+                pauseFlags.remove(songId);
+            } else if (current == downloadInfo && current.getStatus() != DownloadStatus.DOWNLOAD_PAUSED && current.getStatus() != DownloadStatus.WAITING) {
+                activeDownloads.remove(songId);
                 pauseFlags.remove(songId);
-                if (!globalPaused) tryStartNextIfPossible();
             }
         }
     }
 
     /**
-     * 下载文件的核心方法
+     * 下载文件的核心方法：传输交给 DownloadEngine，这里只负责暂停标记与进度广播
      */
-    private void downloadFile(String urlString, File targetFile, DownloadInfo downloadInfo) throws IOException {
-        URL url = new URL(urlString);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        
-        try {
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(10000);
-            connection.setReadTimeout(30000);
-
-            // 断点续传：如果已有部分文件，使用Range
-            long existingBytes = targetFile.exists() ? targetFile.length() : 0;
-            if (existingBytes > 0) {
-                connection.setRequestProperty("Range", "bytes=" + existingBytes + "-");
+    private DownloadEngine.Result downloadFile(String urlString, File targetFile, DownloadInfo downloadInfo, boolean allowSegments) throws IOException {
+        final String songId = downloadInfo.getSongId();
+        DownloadEngine.Result result = engine.download(urlString, targetFile, allowSegments, new DownloadEngine.Listener() {
+            private int lastPercent = -1;
+            private long lastBytes = -1;
+
+            @Override
+            public boolean isStopped() {
+                return Boolean.TRUE.equals(pauseFlags.get(songId)) || isCancelled(downloadInfo);
             }
 
-            connection.connect();
-
-            int code = connection.getResponseCode();
-            if (!(code == HttpURLConnection.HTTP_OK || code == HttpURLConnection.HTTP_PARTIAL)) {
-                throw new IOException("HTTP错误: " + code);
-            }
-
-            long contentLength = connection.getContentLengthLong();
-            if (contentLength < 0) contentLength = 0;
-
-            long totalBytes;
-            if (code == HttpURLConnection.HTTP_PARTIAL) {
-                // 尝试从Content-Range解析总大小
-                String cr = connection.getHeaderField("Content-Range");
-                long totalFromHeader = -1;
-                if (cr != null && cr.contains("/")) {
-                    try {
-                        totalFromHeader = Long.parseLong(cr.substring(cr.indexOf('/') + 1));
-                    } catch (Exception ignore) {}
+            @Override
+            public void onProgress(long downloadedBytes, long totalBytes) {
+                if (totalBytes > 0) downloadInfo.setTotalBytes(totalBytes);
+                downloadInfo.setDownloadedBytes(downloadedBytes);
+                // 首次回调含续传前已有字节，不计入吞吐
+                if (lastBytes >= 0) scheduler.addTransferredBytes(downloadedBytes - lastBytes);
+                lastBytes = downloadedBytes;
+                int progress = downloadInfo.getProgressPercentage();
+                if (progress != lastPercent) {
+                    sendDownloadProgressBroadcast(songId, progress);
+                    lastPercent = progress;
                 }
-                totalBytes = totalFromHeader > 0 ? totalFromHeader : existingBytes + contentLength;
-            } else {
-                totalBytes = contentLength;
             }
-            downloadInfo.setTotalBytes(totalBytes);
-
-            try (InputStream input = connection.getInputStream();
-                 FileOutputStream output = new FileOutputStream(targetFile, existingBytes > 0)) {
-
-                byte[] buffer = new byte[BUFFER_SIZE];
-                long downloadedBytes = existingBytes;
-                int bytesRead;
-                long lastEmitMs = System.currentTimeMillis();
-                int lastPercent = -1;
-
-                while ((bytesRead = input.read(buffer)) != -1) {
-                    // 检查暂停标记
-                    if (Boolean.TRUE.equals(pauseFlags.get(downloadInfo.getSongId()))) {
-                        downloadInfo.setStatus(DownloadStatus.DOWNLOAD_PAUSED);
-                        downloadRepository.updateDownloadStatus(downloadInfo.getSongId(), DownloadStatus.DOWNLOAD_PAUSED);
-                        break;
-                    }
-
-                    output.write(buffer, 0, bytesRead);
-                    downloadedBytes += bytesRead;
-                    downloadInfo.setDownloadedBytes(downloadedBytes);
-
-                    // 限流发送进度更新：时间 >= 200ms 或 进度变化 >= 1%
-                    final int progress = downloadInfo.getProgressPercentage();
-                    long now = System.currentTimeMillis();
-                    if (progress != lastPercent || now - lastEmitMs >= 200) {
-                        sendDownloadProgressBroadcast(downloadInfo.getSongId(), progress);
-                        lastPercent = progress;
-                        lastEmitMs = now;
-                    }
-                }
-            }
-        } finally {
-            connection.disconnect();
+        });
+        for (int i = 0; i < result.retries; i++) downloadInfo.incrementRetryCount();
+        // 已取消的任务不能再写回 PAUSED
+        if (isCancelled(downloadInfo)) throw new InterruptedIOException("下载已取消");
+        if (result.stopped) {
+            downloadInfo.setStatus(DownloadStatus.DOWNLOAD_PAUSED);
+            downloadRepository.updateDownloadStatus(songId, DownloadStatus.DOWNLOAD_PAUSED);
         }
+        return result;
+    }
+
+    /**
+     * 任务已被取消：cancelDownload/cancelAll 会把它移出 activeDownloads（重新加入队列的是新的 DownloadInfo）
+     */
+    private boolean isCancelled(DownloadInfo downloadInfo) {
+        return activeDownloads.get(downloadInfo.getSongId()) != downloadInfo;
+    }
+
+    /**
+     * 下载中的临时文件：songId.part（容器类型在完成后才确定）；旧版本留下的 songId.mp3.part 顺延使用
+     */
+    private File partialFile(String songId) {
+        File part = new File(songsDir, songId + ".part");
+        File legacy = new File(songsDir, songId + ".mp3.part");
+        if (!part.exists() && legacy.exists() && !legacy.renameTo(part)) return legacy;
+        return part;
+    }
+
+    private void deletePartialFiles(String songId) {
+        DownloadEngine.deletePartial(new File(songsDir, songId + ".part"));
+        DownloadEngine.deletePartial(new File(songsDir, songId + ".mp3.part"));
     }
 
     /**
-     * 检查歌曲是否已下载
+     * 检查歌曲是否已下载（按数据库记录的路径判断，不再逐个扩展名探测）
      */
     public boolean isDownloaded(String songId) {
-        // 支持多扩展名检测
-        String[] exts = new String[]{"mp3","flac","ogg","opus","aac","m4a","wav"};
-        for (String ext : exts) {
-            File f = new File(songsDir, songId + "." + ext);
-            if (f.exists() && f.length() > 0) return true;
-        }
-        return false;
+        return getDownloadFilePath(songId) != null;
     }
 
     /**
      * 取消下载
      */
     public void cancelDownload(String songId) {
-        Future<?> task = downloadTasks.get(songId);
-        if (task != null) {
-            task.cancel(true);
-            downloadTasks.remove(songId);
-        }
-        // 若处于等待队列：直接从activeDownloads移除并标记 NOT_DOWNLOADED；若正在下载：同理处理
+        // 先移出 activeDownloads 再中断线程：运行中的任务据此把随后的异常识别为取消
         DownloadInfo info = activeDownloads.remove(songId);
+        scheduler.remove(songId);
         try {
-            File part = new File(songsDir, songId + ".mp3.part");
-            if (part.exists()) part.delete();
+            deletePartialFiles(songId);
         } catch (Exception ignore) {}
         try {
             downloadRepository.updateDownloadStatus(songId, DownloadStatus.NOT_DOWNLOADED);
@@ -443,6 +414,8 @@ public class DownloadManager {
         if (info == null) return;
         if (info.getStatus() == DownloadStatus.DOWNLOAD_PAUSED) return;
         pauseFlags.put(songId, true);
+        // 排队中的直接出队；运行中的由引擎检测暂停标记后退出
+        scheduler.dequeue(songId);
         info.setStatus(DownloadStatus.DOWNLOAD_PAUSED);
         downloadRepository.updateDownloadStatus(songId, DownloadStatus.DOWNLOAD_PAUSED);
         // 主动广播一次以驱动UI刷新（downloadsUiReceiver监听进度动作）
@@ -462,43 +435,12 @@ public class DownloadManager {
             activeDownloads.put(songId, info);
         }
         final DownloadInfo infoFinal = info;
-        // 全局暂停：允许单曲“显式恢复”成为一次性例外，临时解除暂停启动一个任务，然后立即恢复暂停
-        if (globalPaused) {
-            Log.i(TAG, "全局暂停中，单曲显式恢复：临时放行一次 -> " + song.getTitle());
-            boolean restored = false;
-            try {
-                globalPaused = false;
-                // 尝试直接启动（若线程已满则入等待）
-                if (downloadTasks.size() >= MAX_CONCURRENT_DOWNLOADS) {
-                    infoFinal.setStatus(DownloadStatus.WAITING);
-                    downloadRepository.updateDownloadStatus(songId, DownloadStatus.WAITING);
-                    waitingQueue.offer(songId);
-                } else {
-                    infoFinal.setStatus(DownloadStatus.DOWNLOADING);
-                    downloadRepository.updateDownloadStatus(songId, DownloadStatus.DOWNLOADING);
-                    Future<?> task = downloadExecutor.submit(() -> performDownload(infoFinal));
-                    downloadTasks.put(songId, task);
-                    restored = true;
-                }
-            } finally {
-                // 立即恢复全局暂停，避免其他等待任务被批量拉起
-                globalPaused = true;
-            }
-            if (!restored) Log.i(TAG, "已入等待队列(全局暂停生效)：" + song.getTitle());
-            return;
-        }
-        // 若已在等待中或线程已满，转 WAITING
-        if (downloadTasks.size() >= MAX_CONCURRENT_DOWNLOADS) {
-            infoFinal.setStatus(DownloadStatus.WAITING);
-            downloadRepository.updateDownloadStatus(songId, DownloadStatus.WAITING);
-            waitingQueue.offer(songId);
-        } else {
-        infoFinal.setStatus(DownloadStatus.DOWNLOADING);
-        downloadRepository.updateDownloadStatus(songId, DownloadStatus.DOWNLOADING);
-        Future<?> task = downloadExecutor.submit(() -> performDownload(infoFinal));
-        downloadTasks.put(songId, task);
-        }
-        Log.i(TAG, "继续下载: " + song.getTitle());
+        // 全局暂停时，单曲“显式恢复”作为一次性例外放行（其他等待任务不会被拉起）
+        boolean bypass = scheduler.isPaused();
+        infoFinal.setStatus(DownloadStatus.WAITING);
+        downloadRepository.updateDownloadState(songId, DownloadStatus.WAITING, infoFinal.getPriority());
+        scheduler.enqueue(songId, infoFinal.getPriority(), bypass, () -> performDownload(infoFinal));
+        Log.i(TAG, "继续下载: " + song.getTitle() + (bypass ? "（全局暂停中单曲放行）" : ""));
     }
 
     /**
@@ -506,8 +448,7 @@ public class DownloadManager {
      */
     public boolean deleteDownload(String songId) {
         boolean deleted = false;
-        String[] exts = new String[]{"mp3","flac","ogg","opus","aac","m4a","wav"};
-        for (String ext : exts) {
+        for (String ext : SONG_EXTS) {
             File f = new File(songsDir, songId + "." + ext);
             if (f.exists()) {
                 deleted = f.delete() || deleted;
@@ -515,10 +456,11 @@ public class DownloadManager {
         }
         // 额外清理残留的.part 文件
         try {
-            File part = new File(songsDir, songId + ".mp3.part");
-            if (part.exists()) deleted = part.delete() || deleted;
+            File part = partialFile(songId);
+            deleted = DownloadEngine.deletePartial(part) || deleted;
         } catch (Exception ignore) {}
         
+        downloadIndex.remove(songId);
         if (deleted) {
             try {
             downloadRepository.deleteDownload(songId);
@@ -540,12 +482,7 @@ public class DownloadManager {
      * 获取下载文件路径
      */
     public String getDownloadFilePath(String songId) {
-        String[] exts = new String[]{"mp3","flac","ogg","opus","aac","m4a","wav"};
-        for (String ext : exts) {
-            File f = new File(songsDir, songId + "." + ext);
-            if (f.exists() && f.length() > 0) return f.getAbsolutePath();
-        }
-        return null;
+        return downloadIndex.pathFor(songId);
     }
 
     // 广播发送方法
@@ -579,65 +516,53 @@ public class DownloadManager {
      * 释放资源
      */
     public void shutdown() {
-        downloadExecutor.shutdown();
+        scheduler.clear();
         try { if (configUpdatedReceiver != null) context.unregisterReceiver(configUpdatedReceiver); } catch (Exception ignore) {}
     }
 
     /**
-     * 如果未保存过该专辑封面，则下载保存到本地
+     * 如果未保存过该专辑封面，则经封面服务保存到本地（与列表预取合并，优先执行）
      */
     private void downloadCoverArtIfNeeded(String albumId) throws IOException {
         if (albumId == null || albumId.isEmpty()) return;
-        File coverFile = new File(coversDir, albumId + ".jpg");
-        if (coverFile.exists() && coverFile.length() > 0) return;
-
-        String coverUrl = NavidromeApi.getInstance(context).getCoverArtUrl(albumId);
-        if (coverUrl == null || coverUrl.isEmpty()) return;
-
-        HttpURLConnection conn = null;
-        try {
-            URL url = new URL(coverUrl);
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(10000);
-            conn.setReadTimeout(30000);
-            conn.connect();
-            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                throw new IOException("HTTP错误: " + conn.getResponseCode());
-            }
-            try (InputStream in = conn.getInputStream(); FileOutputStream out = new FileOutputStream(coverFile)) {
-                byte[] buf = new byte[BUFFER_SIZE];
-                int len;
-                while ((len = in.read(buf)) != -1) {
-                    out.write(buf, 0, len);
-                }
-            }
-            Log.d(TAG, "已保存专辑封面: " + coverFile.getAbsolutePath());
-        } finally {
-            if (conn != null) conn.disconnect();
+        if (!com.watch.limusic.cover.CoverArtService.getInstance(context).saveForOffline(albumId, albumId)) {
+            throw new IOException("封面未保存");
         }
+        Log.d(TAG, "已保存专辑封面: " + albumId);
     }
 
     /**
-     * 在应用被强杀/重启后，修复卡在 DOWNLOADING 状态的记录：
-     * - 若存在 .part 文件则标记为 DOWNLOAD_PAUSED（可继续/可取消）
-     * - 否则标记为 NOT_DOWNLOADED（无残留）
+     * 在应用被强杀/重启后，修复数据库中残留的活动态记录：
+     * - WAITING/DOWNLOADING：按持久化的优先级重新排队（.part 存在时自动续传）
+     * - 其他（暂停/失败）：若存在 .part 文件则标记为 DOWNLOAD_PAUSED（可继续/可取消），否则标记为 NOT_DOWNLOADED
      */
     public void reconcileStaleDownloads() {
         try {
             java.util.List<com.watch.limusic.database.DownloadEntity> act = downloadRepository.getActiveDownloads();
             if (act == null || act.isEmpty()) return;
+            int restored = 0;
             for (com.watch.limusic.database.DownloadEntity e : act) {
                 String songId = e.getSongId();
                 boolean inMemory = activeDownloads.containsKey(songId);
                 if (inMemory) continue;
-                File part = new File(songsDir, songId + ".mp3.part");
+                DownloadStatus st = e.getStatus();
+                if (st == DownloadStatus.WAITING || st == DownloadStatus.DOWNLOADING) {
+                    DownloadInfo info = DownloadRepository.toDownloadInfo(e);
+                    info.setStatus(DownloadStatus.WAITING);
+                    activeDownloads.put(songId, info);
+                    downloadRepository.updateDownloadStatus(songId, DownloadStatus.WAITING);
+                    scheduler.enqueue(songId, info.getPriority(), false, () -> performDownload(info));
+                    restored++;
+                    continue;
+                }
+                File part = partialFile(songId);
                 if (part.exists() && part.length() > 0) {
                     downloadRepository.updateDownloadStatus(songId, DownloadStatus.DOWNLOAD_PAUSED);
                 } else {
                     downloadRepository.updateDownloadStatus(songId, DownloadStatus.NOT_DOWNLOADED);
                 }
             }
+            if (restored > 0) Log.i(TAG, "已恢复排队中的下载任务: " + restored);
         } catch (Exception ex) {
             Log.w(TAG, "reconcileStaleDownloads 异常: " + ex.getMessage());
         }
@@ -647,7 +572,8 @@ public class DownloadManager {
      * 全局暂停：暂停当前运行并将等待中的任务标记为暂停，禁止新任务启动
      */
     public synchronized void pauseAll() {
-        globalPaused = true;
+        // 先关闭调度并清空等待队列，防止占位被释放后新的任务被自动拉起
+        scheduler.setPaused(true);
         try {
             // 统一处理所有活动项（包含运行中/等待中）：标记为暂停并广播一次以刷新UI
             java.util.List<String> allIds = new java.util.ArrayList<>(activeDownloads.keySet());
@@ -665,48 +591,28 @@ public class DownloadManager {
                     }
                 } catch (Exception ignore) {}
             }
-            // 清空等待队列，防止占位被释放后新的任务被自动拉起
-            waitingQueue.clear();
         } catch (Exception ignore) {}
     }
 
     /**
-     * 全局恢复：允许启动等待任务，将"已暂停"的任务转回 WAITING 并尝试启动
+     * 全局恢复：将"已暂停"的任务按原优先级重新排队，由调度器按并发上限派发
      */
     public synchronized void resumeAll() {
-        globalPaused = false;
         try {
-            // 将已暂停的任务转回 WAITING，并放入等待队列，同时清除暂停标记并更新内存状态
             for (String id : new java.util.ArrayList<>(activeDownloads.keySet())) {
                 try {
                     DownloadInfo info = activeDownloads.get(id);
                     if (info != null && info.getStatus() == DownloadStatus.DOWNLOAD_PAUSED) {
                         pauseFlags.remove(id);
                         info.setStatus(DownloadStatus.WAITING);
-                        downloadRepository.updateDownloadStatus(id, DownloadStatus.WAITING);
-                        waitingQueue.offer(id);
+                        downloadRepository.updateDownloadState(id, DownloadStatus.WAITING, info.getPriority());
+                        scheduler.enqueue(id, info.getPriority(), false, () -> performDownload(info));
                         // 通知一次UI刷新
                         try { sendDownloadProgressBroadcast(id, info.getProgressPercentage()); } catch (Exception ignore) {}
                     }
                 } catch (Exception ignore) {}
             }
-            tryStartNextIfPossible();
-        } catch (Exception ignore) {}
-    }
-
-    private void tryStartNextIfPossible() {
-        try {
-            if (globalPaused) return;
-            while (downloadTasks.size() < MAX_CONCURRENT_DOWNLOADS) {
-                String nextId = waitingQueue.poll();
-                if (nextId == null) break;
-                DownloadInfo info = activeDownloads.get(nextId);
-                if (info == null) continue;
-                info.setStatus(DownloadStatus.DOWNLOADING);
-                downloadRepository.updateDownloadStatus(nextId, DownloadStatus.DOWNLOADING);
-                Future<?> task = downloadExecutor.submit(() -> performDownload(info));
-                downloadTasks.put(nextId, task);
-            }
         } catch (Exception ignore) {}
+        scheduler.setPaused(false);
     }
 }
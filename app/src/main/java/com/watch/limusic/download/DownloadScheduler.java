@@ -0,0 +1,265 @@
+package com.watch.limusic.download;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.watch.limusic.model.DownloadPriority;
+import com.watch.limusic.util.NetworkUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 下载调度器：替代固定线程池 + 手工维护的等待队列
+ * - 等待队列按优先级（播放中 > 即将播放 > 用户批量 > 后台）再按入队顺序出队
+ * - 并发上限随网络类型变化：不计流量网络 3 个，计费网络 1 个；播放中优先级可额外占用 1 个名额，
+ *   保证大批量下载时正在播放的歌曲不被饿死
+ * - 排队/运行/全局暂停的状态变化都在同一把锁内完成，不存在检查与入队之间的竞态
+ */
+public class DownloadScheduler {
+    private static final String TAG = "DownloadScheduler";
+    private static final int MAX_CONCURRENT_UNMETERED = 3;
+    private static final int MAX_CONCURRENT_METERED = 1;
+    // 网络类型检测涉及 Binder 调用，短时间内复用结果
+    private static final long NETWORK_CHECK_TTL_MS = 5000L;
+    private static final long RATE_WINDOW_MS = 1000L;
+
+    /**
+     * 调度统计快照
+     */
+    public static final class Stats {
+        public final int queued;
+        public final int active;
+        public final long bytesPerSecond;
+
+        Stats(int queued, int active, long bytesPerSecond) {
+            this.queued = queued;
+            this.active = active;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+    }
+
+    private static final class Job implements Comparable<Job> {
+        final String songId;
+        final long seq;
+        final Runnable body;
+        DownloadPriority priority;
+        // 全局暂停时由用户显式恢复的单曲允许放行
+        boolean bypassPause;
+        Future<?> future;
+
+        Job(String songId, DownloadPriority priority, long seq, boolean bypassPause, Runnable body) {
+            this.songId = songId;
+            this.priority = priority;
+            this.seq = seq;
+            this.bypassPause = bypassPause;
+            this.body = body;
+        }
+
+        @Override
+        public int compareTo(Job o) {
+            int c = Integer.compare(priority.getLevel(), o.priority.getLevel());
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private final Context context;
+    private final ExecutorService workers;
+    private final PriorityQueue<Job> waiting = new PriorityQueue<>();
+    private final Map<String, Job> queued = new HashMap<>();
+    private final Map<String, Job> running = new HashMap<>();
+    private long nextSeq;
+    private boolean paused;
+    private int cachedLimit = MAX_CONCURRENT_METERED;
+    private long limitCheckedAtMs;
+
+    // 吞吐统计：累计字节 + 按窗口采样
+    private final AtomicLong transferredBytes = new AtomicLong();
+    private long rateSampleBytes;
+    private long rateSampleAtMs;
+    private long bytesPerSecond;
+
+    DownloadScheduler(Context context) {
+        this.context = context.getApplicationContext();
+        AtomicInteger seq = new AtomicInteger();
+        // 线程数由调度上限约束，这里只负责复用线程
+        this.workers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "Download-Worker-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 入队；已在排队则仅在优先级更高时提升，已在运行则忽略
+     * @return 是否处于排队或运行中
+     */
+    synchronized boolean enqueue(String songId, DownloadPriority priority, boolean bypassPause, Runnable body) {
+        if (running.containsKey(songId)) return true;
+        Job job = queued.get(songId);
+        if (job != null) {
+            job.bypassPause |= bypassPause;
+            reprioritize(job, priority);
+        } else {
+            job = new Job(songId, priority, nextSeq++, bypassPause, body);
+            queued.put(songId, job);
+            waiting.add(job);
+        }
+        dispatch();
+        return true;
+    }
+
+    /**
+     * 提升排队中任务的优先级（不降级）
+     * @return 是否发生了提升
+     */
+    synchronized boolean promote(String songId, DownloadPriority priority) {
+        Job job = queued.get(songId);
+        if (job == null || !reprioritize(job, priority)) return false;
+        dispatch();
+        return true;
+    }
+
+    private boolean reprioritize(Job job, DownloadPriority priority) {
+        if (priority.getLevel() >= job.priority.getLevel()) return false;
+        waiting.remove(job);
+        job.priority = priority;
+        waiting.add(job);
+        return true;
+    }
+
+    /**
+     * 仅从等待队列移除（运行中的任务由暂停标记自行退出）
+     */
+    synchronized boolean dequeue(String songId) {
+        Job job = queued.remove(songId);
+        if (job == null) return false;
+        waiting.remove(job);
+        return true;
+    }
+
+    /**
+     * 移除任务：排队中直接出队，运行中中断其线程
+     */
+    synchronized boolean remove(String songId) {
+        if (dequeue(songId)) return true;
+        Job job = running.remove(songId);
+        if (job == null) return false;
+        if (job.future != null) job.future.cancel(true);
+        dispatch();
+        return true;
+    }
+
+    /**
+     * 清空全部排队与运行任务
+     */
+    synchronized void clear() {
+        waiting.clear();
+        queued.clear();
+        for (Job job : running.values()) {
+            if (job.future != null) job.future.cancel(true);
+        }
+        running.clear();
+        paused = false;
+    }
+
+    /**
+     * 全局暂停时清空等待队列并返回被移出的 songId；恢复时重新派发
+     */
+    synchronized List<String> setPaused(boolean pause) {
+        paused = pause;
+        List<String> drained = new ArrayList<>();
+        if (pause) {
+            drained.addAll(queued.keySet());
+            waiting.clear();
+            queued.clear();
+        } else {
+            dispatch();
+        }
+        return drained;
+    }
+
+    synchronized boolean isPaused() {
+        return paused;
+    }
+
+    synchronized boolean isScheduled(String songId) {
+        return queued.containsKey(songId) || running.containsKey(songId);
+    }
+
+    /**
+     * 下载线程上报新写入的字节数（用于吞吐统计）
+     */
+    void addTransferredBytes(long bytes) {
+        if (bytes > 0) transferredBytes.addAndGet(bytes);
+    }
+
+    public synchronized Stats getStats() {
+        long now = SystemClock.elapsedRealtime();
+        long total = transferredBytes.get();
+        if (rateSampleAtMs == 0) {
+            rateSampleAtMs = now;
+            rateSampleBytes = total;
+        } else if (now - rateSampleAtMs >= RATE_WINDOW_MS) {
+            bytesPerSecond = (total - rateSampleBytes) * 1000L / (now - rateSampleAtMs);
+            rateSampleAtMs = now;
+            rateSampleBytes = total;
+        }
+        return new Stats(queued.size(), running.size(), running.isEmpty() ? 0 : bytesPerSecond);
+    }
+
+    // 调用方持有锁
+    private void dispatch() {
+        int limit = concurrencyLimit();
+        while (!waiting.isEmpty()) {
+            Job head = paused ? firstBypass() : waiting.peek();
+            if (head == null) break;
+            int slots = limit + (head.priority == DownloadPriority.PLAYING ? 1 : 0);
+            if (running.size() >= slots) break;
+            waiting.remove(head);
+            queued.remove(head.songId);
+            running.put(head.songId, head);
+            final Job job = head;
+            job.future = workers.submit(() -> run(job));
+        }
+    }
+
+    private Job firstBypass() {
+        Job best = null;
+        for (Job j : waiting) {
+            if (j.bypassPause && (best == null || j.compareTo(best) < 0)) best = j;
+        }
+        return best;
+    }
+
+    private void run(Job job) {
+        try {
+            job.body.run();
+        } catch (Throwable t) {
+            Log.e(TAG, "下载任务异常: " + job.songId, t);
+        } finally {
+            synchronized (this) {
+                if (running.get(job.songId) == job) running.remove(job.songId);
+                dispatch();
+            }
+        }
+    }
+
+    private int concurrencyLimit() {
+        long now = SystemClock.elapsedRealtime();
+        if (limitCheckedAtMs == 0 || now - limitCheckedAtMs >= NETWORK_CHECK_TTL_MS) {
+            cachedLimit = NetworkUtils.isUnmeteredNetwork(context) ? MAX_CONCURRENT_UNMETERED : MAX_CONCURRENT_METERED;
+            limitCheckedAtMs = now;
+        }
+        return cachedLimit;
+    }
+}
@@ -86,17 +86,15 @@ public class DownloadSystemValidator {
      */
     private boolean validateFileDetection() {
         try {
-            // 获取已下载的歌曲列表
-            List<String> downloadedSongs = localFileDetector.getAllDownloadedSongIds();
-            
-            // 验证每个文件是否真实存在
+            // 先剔除索引中文件已被外部删除的条目（每条一次 stat），再核对剩余条目
+            DownloadIndex index = DownloadIndex.getInstance(context);
+            List<String> missing = index.pruneMissing();
+            if (!missing.isEmpty()) {
+                Log.w(TAG, "已下载索引中有 " + missing.size() + " 个文件缺失，已从索引移除");
+            }
+            List<String> downloadedSongs = index.snapshotIds();
             for (String songId : downloadedSongs) {
-                if (!localFileDetector.isSongDownloaded(songId)) {
-                    Log.e(TAG, "文件检测不一致: " + songId);
-                    return false;
-                }
-                
-                String filePath = localFileDetector.getDownloadedSongPath(songId);
+                String filePath = index.pathFor(songId);
                 if (filePath == null || !new File(filePath).exists()) {
                     Log.e(TAG, "文件路径无效: " + songId);
                     return false;
@@ -3,6 +3,8 @@ package com.watch.limusic.download;
 import android.content.Context;
 import android.util.Log;
 
+import com.watch.limusic.database.DownloadEntity;
+import com.watch.limusic.database.DownloadRepository;
 import com.watch.limusic.model.Song;
 
 import java.io.File;
@@ -22,6 +24,8 @@ public class LocalFileDetector {
     private final Context context;
     private final File songsDir;
     private final File coversDir;
+    private final DownloadRepository downloadRepository;
+    private final DownloadIndex downloadIndex;
     
     private static final Set<String> SUPPORTED_EXTS = new HashSet<>(Arrays.asList(
         "mp3", "flac", "ogg", "opus", "aac", "m4a", "wav"
@@ -32,20 +36,32 @@ public class LocalFileDetector {
         File downloadDir = new File(context.getExternalFilesDir(null), "downloads");
         this.songsDir = new File(downloadDir, "songs");
         this.coversDir = new File(downloadDir, "covers");
+        this.downloadRepository = DownloadRepository.getInstance(this.context);
+        this.downloadIndex = DownloadIndex.getInstance(this.context);
     }
 
     /**
-     * 检查歌曲是否已下载
-     * 这是一个简单可靠的文件系统检查，比ExoPlayer缓存检测更可靠
+     * 检查歌曲是否已下载（查询进程内的 DownloadIndex，不访问数据库与磁盘）
      */
     public boolean isSongDownloaded(String songId) {
-        if (songId == null || songId.isEmpty()) {
-            return false;
-        }
-        return findExistingSongFile(songId) != null;
+        return downloadIndex.isDownloaded(songId);
     }
     
+    /**
+     * 按索引中的路径定位文件（仅对已下载的歌曲做一次 stat）
+     */
     private File findExistingSongFile(String songId) {
+        String path = downloadIndex.pathFor(songId);
+        if (path == null) return null;
+        File f = new File(path);
+        return f.exists() && f.length() > 0 ? f : null;
+    }
+
+    /**
+     * 直接在下载目录按扩展名探测文件（不依赖数据库记录，供迁移/修复数据库时使用）
+     */
+    public File probeSongFile(String songId) {
+        if (songId == null || songId.isEmpty()) return null;
         for (String ext : SUPPORTED_EXTS) {
             File f = new File(songsDir, songId + "." + ext);
             if (f.exists() && f.length() > 0) return f;
@@ -64,8 +80,7 @@ public class LocalFileDetector {
      * 获取已下载歌曲的文件路径
      */
     public String getDownloadedSongPath(String songId) {
-        File f = findExistingSongFile(songId);
-        return f != null ? f.getAbsolutePath() : null;
+        return downloadIndex.pathFor(songId);
     }
 
     /**
@@ -80,31 +95,7 @@ public class LocalFileDetector {
      * 获取所有已下载的歌曲ID列表
      */
     public List<String> getAllDownloadedSongIds() {
-        List<String> downloadedIds = new ArrayList<>();
-        
-        if (!songsDir.exists()) {
-            return downloadedIds;
-        }
-        
-        File[] files = songsDir.listFiles((dir, name) -> {
-            int dot = name.lastIndexOf('.');
-            if (dot <= 0) return false;
-            String ext = name.substring(dot + 1).toLowerCase();
-            return SUPPORTED_EXTS.contains(ext);
-        });
-        if (files != null) {
-            for (File file : files) {
-                if (file.length() > 0) {
-                    String fileName = file.getName();
-                    int dot = fileName.lastIndexOf('.');
-                    if (dot > 0) {
-                        String songId = fileName.substring(0, dot);
-                    downloadedIds.add(songId);
-                    }
-                }
-            }
-        }
-        
+        List<String> downloadedIds = downloadIndex.snapshotIds();
         Log.d(TAG, "找到 " + downloadedIds.size() + " 首已下载的歌曲");
         return downloadedIds;
     }
@@ -199,26 +190,45 @@ public class LocalFileDetector {
     }
 
     /**
-     * 验证下载文件的完整性
+     * 验证下载文件的完整性：文件存在、不过小，且与下载记录的大小一致
      */
     public boolean validateDownloadedFile(String songId) {
-        File songFile = new File(songsDir, songId + ".mp3");
-        
-        if (!songFile.exists()) {
-            return false;
-        }
-        
-        // 基本的文件完整性检查
+        File songFile = probeSongFile(songId);
+        return songFile != null && validateFile(songId, songFile);
+    }
+
+    private boolean validateFile(String songId, File songFile) {
         long fileSize = songFile.length();
         if (fileSize < 1024) { // 文件太小，可能损坏
             Log.w(TAG, "下载文件可能损坏，文件太小: " + songId + " (大小: " + fileSize + " bytes)");
             return false;
         }
-        
-        // 可以添加更多的完整性检查，比如文件头验证等
+        DownloadEntity e = downloadRepository.getDownload(songId);
+        if (e != null && e.getFileSize() > 0 && songFile.getAbsolutePath().equals(e.getFilePath())
+                && e.getFileSize() != fileSize) {
+            Log.w(TAG, "下载文件大小与记录不符: " + songId + " (" + fileSize + " / " + e.getFileSize() + ")");
+            return false;
+        }
         return true;
     }
 
+    /**
+     * 重新计算校验和并与下载记录比对（读取整个文件，仅在用户触发的检查中使用）
+     * 无记录校验和的旧下载视为通过
+     */
+    public boolean verifyChecksum(String songId) {
+        File songFile = findExistingSongFile(songId);
+        if (songFile == null) return false;
+        DownloadEntity e = downloadRepository.getDownload(songId);
+        if (e == null || e.getChecksum() == null) return true;
+        try {
+            return e.getChecksum().equals(AudioContainer.checksum(songFile));
+        } catch (java.io.IOException ex) {
+            Log.w(TAG, "计算校验和失败: " + songId + ", " + ex.getMessage());
+            return false;
+        }
+    }
+
     /**
      * 清理损坏的下载文件
      */
@@ -241,10 +251,11 @@ public class LocalFileDetector {
                 int dot = fileName.lastIndexOf('.');
                 if (dot > 0) {
                     String songId = fileName.substring(0, dot);
-                if (!validateDownloadedFile(songId)) {
-                    if (file.delete()) {
-                        cleanedCount++;
-                        Log.i(TAG, "清理损坏的下载文件: " + songId);
+                    if (!validateFile(songId, file)) {
+                        if (file.delete()) {
+                            downloadIndex.remove(songId);
+                            cleanedCount++;
+                            Log.i(TAG, "清理损坏的下载文件: " + songId);
                         }
                     }
                 }
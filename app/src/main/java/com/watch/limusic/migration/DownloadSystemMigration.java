@@ -167,9 +167,11 @@ public class DownloadSystemMigration {
                         if (foundSong != null) {
                             downloadRepository.addDownload(foundSong);
 
-                            String filePath = localFileDetector.getDownloadedSongPath(songId);
-                            long fileSize = localFileDetector.getDownloadedSongSize(songId);
-                            downloadRepository.markDownloadCompleted(songId, filePath, fileSize);
+                            // 此时数据库尚无记录，直接按文件探测
+                            java.io.File file = localFileDetector.probeSongFile(songId);
+                            if (file != null) {
+                                downloadRepository.markDownloadCompleted(songId, file.getAbsolutePath(), file.length());
+                            }
 
                             Log.d(TAG, "为现有下载文件创建数据库记录: " + foundSong.getTitle());
                         } else {
@@ -76,6 +76,11 @@ public class Album {
         return year;
     }
 
+    // ISO8601 字符串（服务器入库时间），用于增量同步的高水位比较
+    public String getCreated() {
+        return created;
+    }
+
     public List<String> getGenres() {
         return genres;
     }
@@ -16,9 +16,11 @@ public class DownloadInfo {
     private String filePath;
     private String errorMessage;
     private int retryCount;
+    private DownloadPriority priority;
 
     public DownloadInfo() {
         this.status = DownloadStatus.NOT_DOWNLOADED;
+        this.priority = DownloadPriority.USER_BATCH;
         this.downloadTimestamp = System.currentTimeMillis();
         this.retryCount = 0;
     }
@@ -45,6 +47,7 @@ public class DownloadInfo {
         this.filePath = other.filePath;
         this.errorMessage = other.errorMessage;
         this.retryCount = other.retryCount;
+        this.priority = other.priority;
     }
     
     // Getters and Setters
@@ -147,6 +150,14 @@ public class DownloadInfo {
     /**
      * 获取下载进度百分比
      */
+    public DownloadPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(DownloadPriority priority) {
+        this.priority = priority != null ? priority : DownloadPriority.USER_BATCH;
+    }
+
     public int getProgressPercentage() {
         if (totalBytes <= 0) return 0;
         return (int) ((downloadedBytes * 100) / totalBytes);
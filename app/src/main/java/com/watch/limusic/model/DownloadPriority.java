@@ -0,0 +1,28 @@
+package com.watch.limusic.model;
+
+/**
+ * 下载优先级（level 越小越先调度）
+ */
+public enum DownloadPriority {
+    PLAYING(0),     // 正在播放的歌曲
+    UP_NEXT(1),     // 播放队列中即将播放的歌曲
+    USER_BATCH(2),  // 用户手动发起的单曲/批量下载
+    BACKGROUND(3);  // 后台自动任务
+
+    private final int level;
+
+    DownloadPriority(int level) {
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public static DownloadPriority fromLevel(int level) {
+        for (DownloadPriority p : values()) {
+            if (p.level == level) return p;
+        }
+        return USER_BATCH;
+    }
+}
@@ -70,6 +70,13 @@ public class Song {
         return duration > 0 ? duration : DEFAULT_DURATION;
     }
 
+    /**
+     * 服务器是否给出了有效时长（getDuration 在未知时会返回默认值）
+     */
+    public boolean hasDuration() {
+        return duration > 0;
+    }
+
     public String getAlbumId() {
         return albumId;
     }
@@ -627,7 +627,8 @@ public class PlaylistRepository {
 					}
 					if (!placeholders.isEmpty()) db.albumDao().insertAlbumsIfAbsent(placeholders);
 					java.util.List<SongEntity> toInsert = com.watch.limusic.database.EntityConverter.toSongEntities(remoteEntries);
-					db.songDao().insertAllSongs(toInsert);
+					// 忽略冲突插入 + 已存在行整行更新（保留缓存标记与已知时长），不做 REPLACE 的删除重插
+					db.runInTransaction(() -> com.watch.limusic.database.MusicRepository.getInstance(appContext).upsertSongs(toInsert));
 				}
 			} catch (Exception ignore) {}
 
@@ -0,0 +1,88 @@
+package com.watch.limusic.service;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.MediaItem;
+import com.watch.limusic.database.MusicRepository;
+import com.watch.limusic.model.Song;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * "所有歌曲"全局队列的行数据：行号与 UI 列表的全局索引一致
+ * - 歌曲按固定大小的块从数据库懒加载，只保留最近访问的少量块
+ * - 媒体项（播放 URL、缓存键）在需要时由 ItemBuilder 现场构建，不预先为整块生成
+ */
+final class AllSongsQueue implements LazyQueueMediaSource.ItemSource {
+    interface ItemBuilder {
+        MediaItem build(Song song);
+    }
+
+    private static final int CHUNK_SIZE = 32;
+    private static final int MAX_CHUNKS = 8;
+
+    private final MusicRepository repository;
+    private final ItemBuilder builder;
+    private final int size;
+    // 块号 -> 该块歌曲（访问顺序 LRU）
+    private final LinkedHashMap<Integer, List<Song>> chunks = new LinkedHashMap<Integer, List<Song>>(MAX_CHUNKS, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Integer, List<Song>> eldest) {
+            return size() > MAX_CHUNKS;
+        }
+    };
+
+    AllSongsQueue(MusicRepository repository, int size, ItemBuilder builder) {
+        this.repository = repository;
+        this.size = Math.max(0, size);
+        this.builder = builder;
+    }
+
+    @Override public int size() {
+        return size;
+    }
+
+    /**
+     * 取指定行的歌曲，所在块未加载时同步读库
+     */
+    @Nullable Song songAt(int index) {
+        if (index < 0 || index >= size) return null;
+        Song s = peekSong(index);
+        if (s != null) return s;
+        int chunk = index / CHUNK_SIZE;
+        List<Song> loaded = repository.getSongsRange(CHUNK_SIZE, chunk * CHUNK_SIZE);
+        if (loaded == null || loaded.isEmpty()) return null;
+        synchronized (chunks) {
+            chunks.put(chunk, loaded);
+        }
+        int offset = index - chunk * CHUNK_SIZE;
+        return offset < loaded.size() ? loaded.get(offset) : null;
+    }
+
+    /**
+     * 仅查内存，所在块未加载时返回 null
+     */
+    @Nullable Song peekSong(int index) {
+        if (index < 0 || index >= size) return null;
+        List<Song> list;
+        synchronized (chunks) {
+            list = chunks.get(index / CHUNK_SIZE);
+        }
+        int offset = index % CHUNK_SIZE;
+        return list != null && offset < list.size() ? list.get(offset) : null;
+    }
+
+    @Nullable @Override public MediaItem resolve(int index) {
+        Song s = songAt(index);
+        return s != null ? builder.build(s) : null;
+    }
+
+    /**
+     * 非阻塞地构建媒体项（供主线程的预缓存规划使用），所在块未加载时返回 null
+     */
+    @Nullable MediaItem peekItem(int index) {
+        Song s = peekSong(index);
+        return s != null ? builder.build(s) : null;
+    }
+}
@@ -0,0 +1,256 @@
+package com.watch.limusic.service;
+
+import android.content.Context;
+import android.media.MediaMetadataRetriever;
+import android.util.Log;
+
+import com.watch.limusic.api.NavidromeApi;
+import com.watch.limusic.database.MusicDatabase;
+import com.watch.limusic.database.SongDao;
+import com.watch.limusic.database.SongEntity;
+import com.watch.limusic.download.DownloadIndex;
+import com.watch.limusic.model.Song;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 未知时长（多为转码流）的兜底解析：数据库 -> 本地下载文件 -> 服务器
+ * - 同一 songId 的并发请求合并为一次查找；短时间内的多个请求合批处理，服务器查询按专辑合并为一次 getAlbum
+ * - 解析结果回写 songs.duration（秒），后续直接命中数据库；内存中保留有界 LRU
+ * - 解析失败的歌曲在冷却期内不再重试，避免每个进度节拍都触发一次查找
+ */
+public final class DurationResolver {
+    private static final String TAG = "DurationResolver";
+    private static final int MAX_CACHE_ENTRIES = 256;
+    private static final long BATCH_DELAY_MS = 150L;
+    private static final long FAILURE_COOLDOWN_MS = 5 * 60 * 1000L;
+
+    public interface Callback {
+        /**
+         * 在解析线程回调，durationMs > 0
+         */
+        void onDurationResolved(String songId, long durationMs);
+    }
+
+    private static volatile DurationResolver INSTANCE;
+
+    private final Context context;
+    private final SongDao songDao;
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "DurationResolver");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Object lock = new Object();
+    // 访问顺序的 LRU：songId -> 时长（毫秒）
+    private final LinkedHashMap<String, Long> cache = new LinkedHashMap<String, Long>(64, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_CACHE_ENTRIES;
+        }
+    };
+    private final LinkedHashMap<String, Long> failedAt = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_CACHE_ENTRIES;
+        }
+    };
+    // 等待解析的请求：songId -> 回调列表（同时用作在途去重）
+    private final Map<String, List<Callback>> waiters = new HashMap<>();
+    private final Map<String, String> pendingAlbumIds = new HashMap<>();
+    private final Set<String> pending = new LinkedHashSet<>();
+    private boolean batchScheduled;
+
+    public static DurationResolver getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (DurationResolver.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DurationResolver(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private DurationResolver(Context context) {
+        this.context = context;
+        this.songDao = MusicDatabase.getInstance(context).songDao();
+    }
+
+    /**
+     * 仅查内存，未知返回 0
+     */
+    public long peek(String songId) {
+        if (songId == null) return 0L;
+        synchronized (lock) {
+            Long v = cache.get(songId);
+            return v != null ? v : 0L;
+        }
+    }
+
+    /**
+     * 异步解析时长；已在内存中则不回调（调用方应先 peek），在途或冷却期内的请求只登记回调/直接忽略
+     */
+    public void resolveAsync(String songId, String albumId, Callback callback) {
+        if (songId == null || songId.isEmpty()) return;
+        synchronized (lock) {
+            if (cache.containsKey(songId)) return;
+            Long failed = failedAt.get(songId);
+            if (failed != null && System.currentTimeMillis() - failed < FAILURE_COOLDOWN_MS) return;
+            List<Callback> list = waiters.get(songId);
+            if (list != null) {
+                if (callback != null && !list.contains(callback)) list.add(callback);
+                return;
+            }
+            list = new ArrayList<>(1);
+            if (callback != null) list.add(callback);
+            waiters.put(songId, list);
+            pending.add(songId);
+            if (albumId != null && !albumId.isEmpty()) pendingAlbumIds.put(songId, albumId);
+            if (!batchScheduled) {
+                batchScheduled = true;
+                worker.schedule(this::runBatch, BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void runBatch() {
+        List<String> ids;
+        Map<String, String> albums;
+        synchronized (lock) {
+            batchScheduled = false;
+            ids = new ArrayList<>(pending);
+            albums = new HashMap<>(pendingAlbumIds);
+            pending.clear();
+            pendingAlbumIds.clear();
+        }
+        if (ids.isEmpty()) return;
+        Map<String, Long> resolved = new HashMap<>();
+        List<String> unresolved = new ArrayList<>();
+        // 1) 数据库（含此前回写的结果）；顺带补全专辑 ID
+        for (String id : ids) {
+            try {
+                SongEntity se = songDao.getSongById(id);
+                if (se != null && se.getDuration() > 0) {
+                    resolved.put(id, se.getDuration() * 1000L);
+                    continue;
+                }
+                if (se != null && !albums.containsKey(id) && se.getAlbumId() != null && !se.getAlbumId().isEmpty()) {
+                    albums.put(id, se.getAlbumId());
+                }
+            } catch (Exception ignore) {}
+            unresolved.add(id);
+        }
+        // 2) 本地下载文件
+        for (int i = unresolved.size() - 1; i >= 0; i--) {
+            String id = unresolved.get(i);
+            long ms = probeLocalFile(id);
+            if (ms > 0) {
+                resolved.put(id, ms);
+                writeBack(id, ms);
+                unresolved.remove(i);
+            }
+        }
+        // 3) 服务器：同专辑的歌曲合并为一次 getAlbum，其余逐首 getSong
+        if (!unresolved.isEmpty()) resolveFromServer(unresolved, albums, resolved);
+
+        long now = System.currentTimeMillis();
+        Map<String, List<Callback>> toNotify = new HashMap<>();
+        synchronized (lock) {
+            for (String id : ids) {
+                Long ms = resolved.get(id);
+                if (ms != null && ms > 0) {
+                    cache.put(id, ms);
+                    failedAt.remove(id);
+                } else {
+                    failedAt.put(id, now);
+                }
+                List<Callback> cbs = waiters.remove(id);
+                if (ms != null && ms > 0 && cbs != null && !cbs.isEmpty()) toNotify.put(id, cbs);
+            }
+        }
+        for (Map.Entry<String, List<Callback>> e : toNotify.entrySet()) {
+            long ms = resolved.get(e.getKey());
+            for (Callback cb : e.getValue()) {
+                try { cb.onDurationResolved(e.getKey(), ms); } catch (Throwable ignore) {}
+            }
+        }
+        Log.d(TAG, "时长解析: 请求 " + ids.size() + " 首，成功 " + resolved.size() + " 首");
+    }
+
+    private void resolveFromServer(List<String> ids, Map<String, String> albums, Map<String, Long> resolved) {
+        NavidromeApi api = NavidromeApi.getInstance(context);
+        Map<String, List<String>> byAlbum = new LinkedHashMap<>();
+        List<String> single = new ArrayList<>();
+        for (String id : ids) {
+            String albumId = albums.get(id);
+            if (albumId != null) {
+                List<String> l = byAlbum.get(albumId);
+                if (l == null) { l = new ArrayList<>(); byAlbum.put(albumId, l); }
+                l.add(id);
+            } else {
+                single.add(id);
+            }
+        }
+        for (Map.Entry<String, List<String>> e : byAlbum.entrySet()) {
+            try {
+                List<Song> songs = api.getAlbumSongs(e.getKey());
+                Set<String> wanted = new LinkedHashSet<>(e.getValue());
+                Map<String, Long> albumDurations = new LinkedHashMap<>();
+                for (Song s : songs) {
+                    if (s == null || !s.hasDuration()) continue;
+                    long ms = s.getDuration() * 1000L;
+                    albumDurations.put(s.getId(), ms);
+                    if (wanted.remove(s.getId())) resolved.put(s.getId(), ms);
+                }
+                // 整张专辑的时长在一个事务内回写，同专辑后续曲目直接命中数据库
+                MusicDatabase.getInstance(context).runInTransaction(() -> {
+                    for (Map.Entry<String, Long> d : albumDurations.entrySet()) writeBack(d.getKey(), d.getValue());
+                });
+                single.addAll(wanted);
+            } catch (Exception ex) {
+                Log.w(TAG, "按专辑获取时长失败: " + e.getKey() + ", " + ex.getMessage());
+                single.addAll(e.getValue());
+            }
+        }
+        for (String id : single) {
+            try {
+                Integer secs = api.getSongDurationSeconds(id);
+                if (secs != null && secs > 0) {
+                    long ms = secs * 1000L;
+                    resolved.put(id, ms);
+                    writeBack(id, ms);
+                }
+            } catch (Exception ex) {
+                Log.w(TAG, "获取歌曲时长失败: " + id + ", " + ex.getMessage());
+            }
+        }
+    }
+
+    private long probeLocalFile(String songId) {
+        String local = DownloadIndex.getInstance(context).pathFor(songId);
+        if (local == null) return 0L;
+        MediaMetadataRetriever mmr = new MediaMetadataRetriever();
+        try {
+            mmr.setDataSource(local);
+            String s = mmr.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            return s != null ? Long.parseLong(s) : 0L;
+        } catch (Exception e) {
+            return 0L;
+        } finally {
+            try { mmr.release(); } catch (Throwable ignore) {}
+        }
+    }
+
+    private void writeBack(String songId, long durationMs) {
+        int secs = (int) Math.max(1L, (durationMs + 500L) / 1000L);
+        try { songDao.updateDurationIfUnknown(songId, secs); } catch (Exception ignore) {}
+    }
+}
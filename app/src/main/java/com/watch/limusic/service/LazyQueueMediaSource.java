@@ -0,0 +1,225 @@
+package com.watch.limusic.service;
+
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.source.CompositeMediaSource;
+import com.google.android.exoplayer2.source.MaskingMediaSource;
+import com.google.android.exoplayer2.source.MediaPeriod;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按行号懒解析的播放队列：整个队列是一个 MediaSource，时间线上每行一个窗口
+ * - 播放器只在准备某一行（createPeriod，播放线程）时才向 ItemSource 要该行的 URI 与缓存键并创建子源，
+ *   周期全部释放后子源随之释放；队列长度与已注入的媒体项数无关
+ * - 未准备的行以占位窗口表示（时长未知、不可定位），子源就绪后用真实时长刷新时间线
+ * - 行号即播放器的媒体索引，跳转到任意行只是一次 seekTo，无需重建队列或纠正索引
+ */
+final class LazyQueueMediaSource extends CompositeMediaSource<Integer> {
+    interface ItemSource {
+        int size();
+
+        /**
+         * 解析指定行的媒体项（可能读库，仅在播放线程/后台线程调用），失败返回 null
+         */
+        @Nullable MediaItem resolve(int index);
+    }
+
+    private static final MediaItem QUEUE_ITEM = new MediaItem.Builder().setMediaId("lazy-queue").build();
+    // 保留最近就绪行的时长信息，避免子源释放后窗口退回占位状态
+    private static final int MAX_ROW_INFO = 64;
+
+    private final ItemSource items;
+    private final MediaSource.Factory childFactory;
+    private final int size;
+    // 替换某行的媒体项（如转码回退），下次为该行创建子源时生效
+    private final Map<Integer, MediaItem> overrides = new ConcurrentHashMap<>();
+
+    // 以下仅在播放线程访问
+    private final Map<Integer, MaskingMediaSource> children = new HashMap<>();
+    private final Map<Integer, Integer> childPeriodCounts = new HashMap<>();
+    private final Map<MediaPeriod, Integer> periodRows = new IdentityHashMap<>();
+    private final LinkedHashMap<Integer, RowInfo> rowInfo = new LinkedHashMap<Integer, RowInfo>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Integer, RowInfo> eldest) {
+            return size() > MAX_ROW_INFO;
+        }
+    };
+    private final Timeline.Window scratchWindow = new Timeline.Window();
+
+    LazyQueueMediaSource(ItemSource items, MediaSource.Factory childFactory) {
+        this.items = items;
+        this.childFactory = childFactory;
+        this.size = Math.max(0, items.size());
+    }
+
+    int size() {
+        return size;
+    }
+
+    void overrideItem(int index, MediaItem item) {
+        if (index < 0 || index >= size || item == null) return;
+        overrides.put(index, item);
+    }
+
+    @Override public MediaItem getMediaItem() {
+        return QUEUE_ITEM;
+    }
+
+    @Override public boolean isSingleWindow() {
+        return false;
+    }
+
+    @Nullable @Override public Timeline getInitialTimeline() {
+        // 让播放器在准备前就拿到完整行数，setMediaSources 可直接以任意行起播
+        return new QueueTimeline(size, Collections.emptyMap());
+    }
+
+    @Override protected void prepareSourceInternal(@Nullable TransferListener mediaTransferListener) {
+        super.prepareSourceInternal(mediaTransferListener);
+        refreshSourceInfo(buildTimeline());
+    }
+
+    @Override public MediaPeriod createPeriod(MediaPeriodId id, Allocator allocator, long startPositionUs) {
+        int row = (Integer) id.periodUid;
+        MaskingMediaSource child = children.get(row);
+        if (child == null) {
+            MediaItem item = overrides.get(row);
+            if (item == null) item = items.resolve(row);
+            if (item == null) {
+                // 解析失败：交给子源在加载时报错，走统一的播放错误处理
+                item = new MediaItem.Builder().setUri(Uri.parse("unresolved://row/" + row)).build();
+            }
+            child = new MaskingMediaSource(childFactory.createMediaSource(item), /* useLazyPreparation= */ true);
+            children.put(row, child);
+            prepareChildSource(row, child);
+        }
+        Object childPeriodUid = child.getTimeline().getUidOfPeriod(0);
+        MediaPeriod period = child.createPeriod(id.copyWithPeriodUid(childPeriodUid), allocator, startPositionUs);
+        periodRows.put(period, row);
+        Integer count = childPeriodCounts.get(row);
+        childPeriodCounts.put(row, count == null ? 1 : count + 1);
+        return period;
+    }
+
+    @Override public void releasePeriod(MediaPeriod mediaPeriod) {
+        Integer row = periodRows.remove(mediaPeriod);
+        if (row == null) return;
+        MaskingMediaSource child = children.get(row);
+        if (child != null) child.releasePeriod(mediaPeriod);
+        Integer count = childPeriodCounts.get(row);
+        if (count == null || count <= 1) {
+            childPeriodCounts.remove(row);
+            if (children.remove(row) != null) releaseChildSource(row);
+        } else {
+            childPeriodCounts.put(row, count - 1);
+        }
+    }
+
+    @Override protected void releaseSourceInternal() {
+        super.releaseSourceInternal();
+        children.clear();
+        childPeriodCounts.clear();
+        periodRows.clear();
+        rowInfo.clear();
+    }
+
+    @Override protected void onChildSourceInfoRefreshed(Integer row, MediaSource mediaSource, Timeline timeline) {
+        if (timeline.isEmpty()) return;
+        timeline.getWindow(0, scratchWindow);
+        if (scratchWindow.isPlaceholder) return;
+        rowInfo.put(row, new RowInfo(scratchWindow.mediaItem, scratchWindow.durationUs,
+                scratchWindow.isSeekable, scratchWindow.isDynamic));
+        refreshSourceInfo(buildTimeline());
+    }
+
+    @Override protected int getWindowIndexForChildWindowIndex(Integer row, int windowIndex) {
+        return row;
+    }
+
+    @Nullable @Override protected MediaPeriodId getMediaPeriodIdForChildMediaPeriodId(Integer row, MediaPeriodId mediaPeriodId) {
+        return mediaPeriodId.copyWithPeriodUid(row);
+    }
+
+    private Timeline buildTimeline() {
+        return new QueueTimeline(size, new HashMap<>(rowInfo));
+    }
+
+    private static final class RowInfo {
+        final MediaItem mediaItem;
+        final long durationUs;
+        final boolean isSeekable;
+        final boolean isDynamic;
+
+        RowInfo(MediaItem mediaItem, long durationUs, boolean isSeekable, boolean isDynamic) {
+            this.mediaItem = mediaItem;
+            this.durationUs = durationUs;
+            this.isSeekable = isSeekable;
+            this.isDynamic = isDynamic;
+        }
+    }
+
+    /**
+     * 每行一个窗口、一个周期，窗口/周期 uid 均为行号；只持有已就绪行的快照，构建开销与队列长度无关
+     */
+    private static final class QueueTimeline extends Timeline {
+        private final int size;
+        private final Map<Integer, RowInfo> info;
+
+        QueueTimeline(int size, Map<Integer, RowInfo> info) {
+            this.size = size;
+            this.info = info;
+        }
+
+        @Override public int getWindowCount() {
+            return size;
+        }
+
+        @Override public Window getWindow(int windowIndex, Window window, long defaultPositionProjectionUs) {
+            RowInfo r = info.get(windowIndex);
+            if (r != null) {
+                window.set(windowIndex, r.mediaItem, null, C.TIME_UNSET, C.TIME_UNSET, C.TIME_UNSET,
+                        r.isSeekable, r.isDynamic, null, 0L, r.durationUs, windowIndex, windowIndex, 0L);
+            } else {
+                window.set(windowIndex, QUEUE_ITEM, null, C.TIME_UNSET, C.TIME_UNSET, C.TIME_UNSET,
+                        false, true, null, 0L, C.TIME_UNSET, windowIndex, windowIndex, 0L);
+                window.isPlaceholder = true;
+            }
+            return window;
+        }
+
+        @Override public int getPeriodCount() {
+            return size;
+        }
+
+        @Override public Period getPeriod(int periodIndex, Period period, boolean setIds) {
+            RowInfo r = info.get(periodIndex);
+            Object uid = setIds ? periodIndex : null;
+            period.set(uid, uid, periodIndex, r != null ? r.durationUs : C.TIME_UNSET, 0L);
+            period.isPlaceholder = r == null;
+            return period;
+        }
+
+        @Override public int getIndexOfPeriod(Object uid) {
+            if (!(uid instanceof Integer)) return C.INDEX_UNSET;
+            int row = (Integer) uid;
+            return row >= 0 && row < size ? row : C.INDEX_UNSET;
+        }
+
+        @Override public Object getUidOfPeriod(int periodIndex) {
+            return periodIndex;
+        }
+    }
+}
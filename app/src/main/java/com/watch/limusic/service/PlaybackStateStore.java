@@ -0,0 +1,208 @@
+package com.watch.limusic.service;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内播放状态流：替代 PlayerService 每 500ms 一次的全局 PLAYBACK_STATE_CHANGED 广播
+ * - 服务发布不可变快照；除进度外的字段未变、且进度与按上一快照外推的值误差在容差内时不发布
+ * - 进度由消费方按 (position, timestamp, speed) 自行外推，UI 节拍只是一次本地读取
+ * - 监听回调始终在主线程执行；注册时立即回调一次当前快照
+ */
+public final class PlaybackStateStore {
+    // 外推误差超过该值视为进度跳变（seek、卡顿），需要重新发布
+    private static final long POSITION_DRIFT_TOLERANCE_MS = 300L;
+
+    private static final PlaybackStateStore INSTANCE = new PlaybackStateStore();
+
+    public interface Listener {
+        void onPlaybackStateChanged(Snapshot snapshot);
+    }
+
+    /**
+     * 不可变的播放状态快照
+     */
+    public static final class Snapshot {
+        public static final Snapshot EMPTY = new Builder().build();
+
+        public final String songId;
+        public final String title;
+        public final String artist;
+        public final String albumId;
+        public final boolean isPlaying;
+        public final long positionMs;
+        // 采样 positionMs 时的 SystemClock.elapsedRealtime()，0 表示从未发布
+        public final long positionTimestampMs;
+        public final float speed;
+        public final long durationMs;
+        public final boolean durationUnset;
+        public final long fallbackDurationMs;
+        public final int playbackMode;
+        public final boolean isSeekable;
+        public final String audioType;
+        public final int audioSessionId;
+
+        private Snapshot(Builder b) {
+            songId = b.songId;
+            title = b.title;
+            artist = b.artist;
+            albumId = b.albumId;
+            isPlaying = b.isPlaying;
+            positionMs = b.positionMs;
+            positionTimestampMs = b.positionTimestampMs;
+            speed = b.speed;
+            durationMs = b.durationMs;
+            durationUnset = b.durationUnset;
+            fallbackDurationMs = b.fallbackDurationMs;
+            playbackMode = b.playbackMode;
+            isSeekable = b.isSeekable;
+            audioType = b.audioType;
+            audioSessionId = b.audioSessionId;
+        }
+
+        public boolean isEmpty() {
+            return positionTimestampMs == 0L;
+        }
+
+        /**
+         * 按快照外推指定时刻的播放进度（暂停时即为快照进度，已知时长时不超过时长）
+         */
+        public long estimatePositionMs(long nowElapsedMs) {
+            if (!isPlaying || positionTimestampMs == 0L) return Math.max(0L, positionMs);
+            long p = positionMs + (long) ((nowElapsedMs - positionTimestampMs) * speed);
+            long limit = !durationUnset && durationMs > 0 ? durationMs : fallbackDurationMs;
+            if (limit > 0 && p > limit) p = limit;
+            return Math.max(0L, p);
+        }
+
+        public long estimatePositionMs() {
+            return estimatePositionMs(SystemClock.elapsedRealtime());
+        }
+
+        // 除进度外的字段是否一致，且 other 的进度与本快照外推值相符
+        boolean sameAs(Snapshot other) {
+            if (isPlaying != other.isPlaying || speed != other.speed || durationMs != other.durationMs
+                    || durationUnset != other.durationUnset || fallbackDurationMs != other.fallbackDurationMs
+                    || playbackMode != other.playbackMode || isSeekable != other.isSeekable
+                    || audioSessionId != other.audioSessionId
+                    || !eq(songId, other.songId) || !eq(title, other.title) || !eq(artist, other.artist)
+                    || !eq(albumId, other.albumId) || !eq(audioType, other.audioType)) {
+                return false;
+            }
+            long expected = estimatePositionMs(other.positionTimestampMs);
+            return Math.abs(expected - other.positionMs) <= POSITION_DRIFT_TOLERANCE_MS;
+        }
+
+        private static boolean eq(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        public static final class Builder {
+            private String songId;
+            private String title;
+            private String artist;
+            private String albumId;
+            private boolean isPlaying;
+            private long positionMs;
+            private long positionTimestampMs;
+            private float speed = 1f;
+            private long durationMs;
+            private boolean durationUnset = true;
+            private long fallbackDurationMs;
+            private int playbackMode;
+            private boolean isSeekable;
+            private String audioType;
+            private int audioSessionId;
+
+            public Builder setSong(String songId, String title, String artist, String albumId) {
+                this.songId = songId;
+                this.title = title;
+                this.artist = artist;
+                this.albumId = albumId;
+                return this;
+            }
+
+            public Builder setPlaying(boolean isPlaying) { this.isPlaying = isPlaying; return this; }
+
+            public Builder setPosition(long positionMs, long timestampMs, float speed) {
+                this.positionMs = positionMs;
+                this.positionTimestampMs = timestampMs;
+                this.speed = speed > 0f ? speed : 1f;
+                return this;
+            }
+
+            public Builder setDuration(long durationMs, boolean unset, long fallbackDurationMs) {
+                this.durationMs = durationMs;
+                this.durationUnset = unset;
+                this.fallbackDurationMs = fallbackDurationMs;
+                return this;
+            }
+
+            public Builder setPlaybackMode(int playbackMode) { this.playbackMode = playbackMode; return this; }
+            public Builder setSeekable(boolean isSeekable) { this.isSeekable = isSeekable; return this; }
+            public Builder setAudioType(String audioType) { this.audioType = audioType; return this; }
+            public Builder setAudioSessionId(int audioSessionId) { this.audioSessionId = audioSessionId; return this; }
+
+            public Snapshot build() { return new Snapshot(this); }
+        }
+    }
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot current = Snapshot.EMPTY;
+
+    public static PlaybackStateStore getInstance() {
+        return INSTANCE;
+    }
+
+    private PlaybackStateStore() {}
+
+    public Snapshot current() {
+        return current;
+    }
+
+    public void addListener(Listener listener) {
+        if (listener == null || !listeners.addIfAbsent(listener)) return;
+        runOnMain(() -> {
+            if (listeners.contains(listener)) listener.onPlaybackStateChanged(current);
+        });
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 发布新快照；与当前快照等价（含进度外推）时忽略
+     * @return 是否发布
+     */
+    public boolean publish(Snapshot next) {
+        if (next == null) return false;
+        synchronized (this) {
+            if (!current.isEmpty() && current.sameAs(next)) return false;
+            current = next;
+        }
+        runOnMain(() -> dispatch(next));
+        return true;
+    }
+
+    /**
+     * 以当前快照重新通知一次（设置变化等需要重绘 UI 的场景）
+     */
+    public void notifyListeners() {
+        runOnMain(() -> dispatch(current));
+    }
+
+    private void dispatch(Snapshot snapshot) {
+        for (Listener l : listeners) {
+            try { l.onPlaybackStateChanged(snapshot); } catch (Throwable ignore) {}
+        }
+    }
+
+    private void runOnMain(Runnable r) {
+        if (Looper.myLooper() == Looper.getMainLooper()) r.run(); else main.post(r);
+    }
+}
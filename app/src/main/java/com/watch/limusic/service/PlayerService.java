@@ -29,6 +29,7 @@ import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.MediaItem;
 import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.Timeline;
 import com.google.android.exoplayer2.source.DefaultMediaSourceFactory;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
@@ -36,7 +37,9 @@ import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
 import com.google.android.exoplayer2.util.Util;
 import com.google.android.exoplayer2.analytics.AnalyticsListener;
 import com.google.android.exoplayer2.DefaultLoadControl;
+import com.watch.limusic.cache.QueuePrefetcher;
 import com.watch.limusic.cache.SmartDataSourceFactory;
+import com.watch.limusic.cache.StreamCacheKeyFactory;
 import com.google.android.exoplayer2.DefaultRenderersFactory;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.Tracks;
@@ -48,7 +51,9 @@ import com.watch.limusic.api.NavidromeApi;
 import com.watch.limusic.api.ListenReporter;
 import com.watch.limusic.model.Song;
 import com.watch.limusic.cache.CacheManager;
+import com.watch.limusic.download.DownloadManager;
 import com.watch.limusic.download.LocalFileDetector;
+import com.watch.limusic.model.DownloadPriority;
 import com.watch.limusic.util.NetworkUtils;
 
 import java.util.ArrayList;
@@ -60,14 +65,11 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.watch.limusic.database.MusicDatabase;
 import com.watch.limusic.database.SongEntity;
 import com.watch.limusic.database.EntityConverter;
 import com.watch.limusic.database.MusicRepository;
-import com.watch.limusic.audio.AudioLevelBus;
 import com.watch.limusic.audio.AudioTapProcessor;
 
 
@@ -81,7 +83,7 @@ public class PlayerService extends Service {
     public static final int PLAYBACK_MODE_REPEAT_ALL = 0;
     public static final int PLAYBACK_MODE_REPEAT_ONE = 1;
     public static final int PLAYBACK_MODE_SHUFFLE = 2;
-    public static final String ACTION_PLAYBACK_STATE_CHANGED = "com.watch.limusic.PLAYBACK_STATE_CHANGED";
+    private static final long STATE_RESYNC_INTERVAL_MS = 1000L;
 
     private final IBinder binder = new LocalBinder();
     private ExoPlayer player;
@@ -137,7 +139,17 @@ public class PlayerService extends Service {
 			}, "PlayerService-IO");
 		}
 	});
-	private final Map<String, Long> durationCacheMs = new HashMap<>();
+	private DurationResolver durationResolver;
+	// 时长解析完成后切回主线程补发一次状态
+	private final DurationResolver.Callback durationResolvedCallback = (sid, ms) -> handler.post(this::publishPlaybackState);
+	// 已由 Tracks 识别出音频类型的媒体项（仅主线程访问）
+	private MediaItem audioTypeItem;
+	private String audioTypeFromTracks;
+
+	// 播放队列预缓存：切歌/队列变化后延迟触发，避免与当前曲起播抢带宽
+	private QueuePrefetcher queuePrefetcher;
+	private static final long PREFETCH_DELAY_MS = 3000L;
+	private final Runnable prefetchRunnable = this::prefetchUpcoming;
 	
 	// 维护 ExoPlayer 媒体列表与全量播放列表的索引基准：player.mediaIndex=0 对应的全量 playlist 索引
 	private int mediaBasePlaylistIndex = 0;
@@ -147,14 +159,14 @@ public class PlayerService extends Service {
 	private long cachedForceTranscodeAtMs = 0L;
 	private static final long SETTINGS_TTL_MS = 30_000L;
 
-    // ====== 全局"所有歌曲"滑动窗口播放支持 ======
+    // ====== 全局"所有歌曲"懒解析队列播放支持 ======
     private boolean useGlobalAllSongsMode = false;
     private int globalTotalCount = 0;          // 数据库中的"所有歌曲"总数
-    private int windowStart = 0;               // 当前已注入播放器的全局起始索引（包含）
-    private int windowEnd = 0;                 // 当前已注入播放器的全局结束索引（不包含）
-    private static final int WINDOW_CHUNK = 60; // 每次扩边块大小
-    private static final int WINDOW_GUARD = 4;  // 触发扩边的临界保护区
-    private static final int WINDOW_MAX = 240;  // 窗口最大媒体项数量，超过后回收远端块
+    // 全局模式下播放器的唯一媒体源：媒体索引即全局索引，行数据按需解析
+    private AllSongsQueue allSongsQueue;
+    private LazyQueueMediaSource allSongsSource;
+    private DefaultMediaSourceFactory mediaSourceFactory;
+    private static final int WINDOW_GUARD = 4;  // 非全局歌单窗口：触发扩边的临界保护区
     private MusicRepository musicRepository;
     // 随机播放支持
     private final java.util.Random shuffleRandom = new java.util.Random();
@@ -193,6 +205,12 @@ public class PlayerService extends Service {
     private int localAppendedHeadCount = 0;
 
     private AudioTapProcessor audioTapProcessor;
+    // 可视化开关/低耗模式变化时同步到音频旁路（需保持强引用）
+    private final android.content.SharedPreferences.OnSharedPreferenceChangeListener visualizerPrefsListener = (sp, key) -> {
+        if ("visualizer_enabled".equals(key) || "low_power_mode_enabled".equals(key)) {
+            try { if (audioTapProcessor != null) audioTapProcessor.setEnabled(isVisualizerWanted()); } catch (Throwable ignore) {}
+        }
+    };
 
     public class LocalBinder extends Binder {
         public PlayerService getService() {
@@ -207,8 +225,6 @@ public class PlayerService extends Service {
         // 初始化Navidrome API
         navidromeApi = NavidromeApi.getInstance(this);
         try { musicRepository = MusicRepository.getInstance(this); } catch (Throwable ignore) {}
-        // 新增：初始化音频可视化总线
-        try { AudioLevelBus.init(getApplicationContext()); } catch (Throwable ignore) {}
 
         // 注册配置更新广播：立即切换到新服务器
         try {
@@ -216,6 +232,7 @@ public class PlayerService extends Service {
                 @Override public void onReceive(Context ctx, Intent intent) {
                     if (!com.watch.limusic.api.NavidromeApi.ACTION_NAVIDROME_CONFIG_UPDATED.equals(intent.getAction())) return;
                     try { navidromeApi.reloadCredentials(); } catch (Exception ignore) {}
+                    try { if (queuePrefetcher != null) queuePrefetcher.cancel(); } catch (Exception ignore) {}
                     try { if (player != null) { player.stop(); player.clearMediaItems(); } } catch (Exception ignore) {}
                     currentSong = null;
                     mediaItems.clear();
@@ -229,9 +246,12 @@ public class PlayerService extends Service {
 
         // 初始化本地文件检测器
         localFileDetector = new LocalFileDetector(this);
+        durationResolver = DurationResolver.getInstance(this);
+        try { getSharedPreferences("player_prefs", MODE_PRIVATE).registerOnSharedPreferenceChangeListener(visualizerPrefsListener); } catch (Throwable ignore) {}
         
         // 初始化播放器
         initializePlayer();
+        queuePrefetcher = new QueuePrefetcher(this);
         
         // 初始化媒体会话
         initializeMediaSession();
@@ -259,7 +279,7 @@ public class PlayerService extends Service {
         Context context = getApplicationContext();
         
 		// 创建数据源工厂：本地文件直读、网络走缓存
-        DefaultMediaSourceFactory mediaSourceFactory = new DefaultMediaSourceFactory(
+        mediaSourceFactory = new DefaultMediaSourceFactory(
 				new SmartDataSourceFactory(context)
         );
         
@@ -278,6 +298,7 @@ public class PlayerService extends Service {
                 try {
                     java.util.ArrayList<com.google.android.exoplayer2.audio.AudioProcessor> ps = new java.util.ArrayList<>();
                     audioTapProcessor = new com.watch.limusic.audio.AudioTapProcessor();
+                    audioTapProcessor.setEnabled(isVisualizerWanted());
                     ps.add(audioTapProcessor);
                     return new com.google.android.exoplayer2.audio.DefaultAudioSink.Builder()
                             .setAudioProcessors(ps.toArray(new com.google.android.exoplayer2.audio.AudioProcessor[0]))
@@ -333,9 +354,9 @@ public class PlayerService extends Service {
                         updatePlaybackState();
                         logPlaybackDiagnostics("STATE_READY");
                         // 补发一次心跳广播，确保前台/未绑定场景也能拿到正确的时长与进度
-                        sendPlaybackStateBroadcast();
+                        publishPlaybackState();
                         // 额外延迟补发一帧，增大拿到有效duration的概率（轻量，不影响性能）
-                        handler.postDelayed(new Runnable() { @Override public void run() { sendPlaybackStateBroadcast();
+                        handler.postDelayed(new Runnable() { @Override public void run() { publishPlaybackState();
                             // 若处于"播完本首后暂停"，且此前时长未知，这里重算一次剩余并覆盖定时
                             if (sleepType == SleepType.AFTER_CURRENT) {
                                 try {
@@ -352,6 +373,7 @@ public class PlayerService extends Service {
                         try { sendAudioSessionBroadcast(); } catch (Throwable ignore) {}
                         // 若刚开始播放且进度很小，尝试上报一次
                         try { maybeReportListenIfJustStarted(); } catch (Throwable ignore) {}
+                        requestPrefetch();
                         break;
                     case Player.STATE_BUFFERING:
                         Log.d(TAG, "正在缓冲");
@@ -371,11 +393,30 @@ public class PlayerService extends Service {
                 }
             }
 
+            @Override
+            public void onTimelineChanged(Timeline timeline, int reason) {
+                // 队列内容变化：旧的预缓存目标可能已不在接下来几首中，立即取消后重新规划
+                if (reason == Player.TIMELINE_CHANGE_REASON_PLAYLIST_CHANGED) {
+                    try { if (queuePrefetcher != null) queuePrefetcher.cancel(); } catch (Throwable ignore) {}
+                    requestPrefetch();
+                }
+            }
+
+            @Override
+            public void onShuffleModeEnabledChanged(boolean shuffleModeEnabled) {
+                requestPrefetch();
+            }
+
+            @Override
+            public void onRepeatModeChanged(int repeatMode) {
+                requestPrefetch();
+            }
+
             @Override
             public void onIsPlayingChanged(boolean isPlaying) {
                 updatePlaybackState();
                 try { if (audioTapProcessor != null) audioTapProcessor.setPlaying(isPlaying); } catch (Throwable ignore) {}
-                try { sendPlaybackStateBroadcast(); } catch (Throwable ignore) {}
+                try { publishPlaybackState(); } catch (Throwable ignore) {}
                 try { sendAudioSessionBroadcast(); } catch (Throwable ignore) {}
                 if (!isPlaying) {
                     releaseAudioFocus();
@@ -402,7 +443,15 @@ public class PlayerService extends Service {
                             String fallback = navidromeApi.getTranscodedStreamUrl(songId, "mp3", 320);
                             MediaItem item = buildStreamingMediaItem(songId, fallback);
                             int idx = player.getCurrentMediaItemIndex();
-                            if (idx >= 0 && idx < player.getMediaItemCount()) {
+                            if (useGlobalAllSongsMode && allSongsSource != null && idx >= 0 && idx < allSongsSource.size()) {
+                                // 全局队列：只替换该行的媒体项，重新准备时按新项创建子源
+                                allSongsSource.overrideItem(idx, item);
+                                player.seekTo(idx, resumePos);
+                                player.prepare();
+                                play();
+                                Log.w(TAG, "检测到解码异常，已回退为转码MP3重试(全局队列行替换): " + fallback);
+                                return;
+                            } else if (idx >= 0 && idx < player.getMediaItemCount()) {
                                 int count = player.getMediaItemCount();
                                 List<MediaItem> currentItems = new ArrayList<>(count);
                                 for (int i = 0; i < count; i++) {
@@ -435,6 +484,7 @@ public class PlayerService extends Service {
 
             @Override
             public void onMediaItemTransition(MediaItem mediaItem, int reason) {
+                requestPrefetch();
                 if (mediaItem != null) {
                     int newIndex = player.getCurrentMediaItemIndex();
                     // A修复：非全局+列表循环+自动切歌且此前位于歌单末尾，若回绕到窗口首项且窗口覆盖到歌单尾，则纠正为歌单首项
@@ -483,27 +533,14 @@ public class PlayerService extends Service {
                     }
                     if (mappedIndex >= 0 && (!useGlobalAllSongsMode ? (mappedIndex < playlist.size()) : (globalTotalCount > 0))) {
                         currentIndex = mappedIndex;
-                        // 在全局模式下，将全局索引映射到当前窗口的相对索引
+                        // 在全局模式下，媒体索引即全局索引，歌曲信息从队列行缓存读取
                         Song mappedSong = null;
                         if (useGlobalAllSongsMode) {
                             try {
-                                int baseLen = Math.max(0, windowEnd - windowStart);
-                                int appendedHead = Math.max(0, playlist.size() - baseLen);
-                                int rel;
-                                if (mappedIndex >= windowStart && mappedIndex < windowEnd) {
-                                    rel = mappedIndex - windowStart;
-                                } else if (appendedHead > 0 && mappedIndex >= 0 && mappedIndex < appendedHead) {
-                                    // 末尾追加了头块，mappedIndex 位于头块区
-                                    rel = baseLen + mappedIndex;
-                                } else {
-                                    rel = -1;
-                                }
-                                if (rel >= 0 && rel < playlist.size()) {
-                                    mappedSong = playlist.get(rel);
-                                } else if (musicRepository != null) {
-                                    // 兜底：直接从DB按全局索引拉取该首
-                                    java.util.List<Song> one = musicRepository.getSongsRange(1, Math.max(0, mappedIndex));
-                                    if (one != null && !one.isEmpty()) mappedSong = one.get(0);
+                                if (allSongsQueue != null) {
+                                    mappedSong = allSongsQueue.peekSong(mappedIndex);
+                                    // 该行所在块尚未预热：不在主线程读库，后台预热后再补发状态
+                                    if (mappedSong == null) warmCurrentGlobalSong(mappedIndex);
                                 }
                             } catch (Throwable ignore) {}
                         } else {
@@ -545,7 +582,7 @@ public class PlayerService extends Service {
                             return;
                         }
                         // 切歌时补发一次广播，避免未绑定场景下UI停在0:00
-                        sendPlaybackStateBroadcast();
+                        publishPlaybackState();
                         // 若自动切歌/重复等场景且当前处于播放状态，直接尝试一次上报（覆盖自动切歌不触发 READY/playing 变更的情况）
                         try {
                             if (sleepType != SleepType.AFTER_CURRENT && player != null && player.isPlaying()) {
@@ -560,7 +597,7 @@ public class PlayerService extends Service {
                             }
                         }
                         // 额外延迟补发一帧，增大拿到有效duration的概率（轻量，不影响性能）
-                        handler.postDelayed(new Runnable() { @Override public void run() { sendPlaybackStateBroadcast(); } }, 250);
+                        handler.postDelayed(new Runnable() { @Override public void run() { publishPlaybackState(); } }, 250);
                         
                         
                         // 非全局 + 随机：回到起点自动重洗
@@ -587,30 +624,9 @@ public class PlayerService extends Service {
                                 }
                             } catch (Throwable ignore) {}
                         }
-                        // 全局模式：在临界处按需扩边
+                        // 全局模式：后台预热前后相邻行，使下次切歌与预缓存规划直接命中内存
                         if (useGlobalAllSongsMode) {
-                            try {
-                                // 若已追加了头块且当前已进入头块区域，则将队列前部（基础窗口）裁剪掉，使队头对齐全局索引0
-                                int baseLen = Math.max(0, windowEnd - windowStart);
-                                int appendedHead = Math.max(0, playlist.size() - baseLen);
-                                int cur = player.getCurrentMediaItemIndex();
-                                if (appendedHead > 0 && cur >= baseLen && baseLen > 0) {
-                                    int removeFront = baseLen;
-                                    windowStart = 0;
-                                    windowEnd = appendedHead;
-                                    mediaBasePlaylistIndex = windowStart;
-                                    try {
-                                        if (removeFront <= playlist.size()) {
-                                            playlist.subList(0, removeFront).clear();
-                                        } else {
-                                            playlist.clear();
-                                        }
-                                    } catch (Throwable ignore) {}
-                                    final int rf = removeFront;
-                                    handler.post(() -> { try { player.removeMediaItems(0, rf); } catch (Throwable ignore) {} });
-                                }
-                                expandWindowIfNeeded(newIndex);
-                            } catch (Throwable t) { Log.w(TAG, "扩边失败: " + t.getMessage()); }
+                            warmGlobalNeighbours(mappedIndex);
                         }
                     }
                 }
@@ -750,131 +766,48 @@ public class PlayerService extends Service {
         persistPlaybackStateSafely();
     }
     
-    // 发送广播，只包含必要的信息
-    private void sendPlaybackStateBroadcast() {
+    // 发布播放状态快照到进程内 PlaybackStateStore（字段未变且进度可外推时由 store 去重）
+    private void publishPlaybackState() {
         if (player == null) return;
-        
-        Intent intent = new Intent(ACTION_PLAYBACK_STATE_CHANGED);
-        intent.putExtra("isPlaying", player.isPlaying());
-        intent.putExtra("position", player.getCurrentPosition());
-        try { intent.putExtra("audioSessionId", player.getAudioSessionId()); } catch (Throwable ignore) {}
         long dur = player.getDuration();
-        intent.putExtra("duration", dur);
-        intent.putExtra("isDurationUnset", (dur <= 0 || dur == com.google.android.exoplayer2.C.TIME_UNSET));
-        intent.putExtra("playbackMode", playbackMode);
-        intent.putExtra("isSeekable", player.isCurrentMediaItemSeekable());
-        // 音频类型（优先用Tracks.sampleMimeType识别）
-        try {
-            String audioType = detectCurrentAudioType();
-            if (audioType == null) {
-                com.google.android.exoplayer2.MediaItem ci = player.getCurrentMediaItem();
-                if (ci != null && ci.localConfiguration != null) {
-                    String mime = ci.localConfiguration.mimeType;
-                    if (mime != null) {
-                        String m = mime.toLowerCase();
-                        if (m.contains("flac")) audioType = "FLAC"; else if (m.contains("mpeg") || m.contains("mp3")) audioType = "MP3";
-                    }
-                    if (audioType == null) {
-                        String key = ci.localConfiguration.customCacheKey;
-                        if (key != null) {
-                            if (key.contains("_flac_")) audioType = "FLAC"; else if (key.contains("_mp3_")) audioType = "MP3";
-                        }
-                    }
-                }
+        boolean durationUnset = dur <= 0 || dur == C.TIME_UNSET;
+        long fallbackDurationMs = 0L;
+        if (durationUnset && currentSong != null) {
+            fallbackDurationMs = durationResolver.peek(currentSong.getId());
+            if (fallbackDurationMs <= 0) {
+                // 在途/冷却期内的重复请求由 resolver 合并或忽略
+                durationResolver.resolveAsync(currentSong.getId(), currentSong.getAlbumId(), durationResolvedCallback);
             }
-            if (audioType != null) intent.putExtra("audioType", audioType);
-        } catch (Throwable ignore) {}
-                                if (currentSong != null) {
-            intent.putExtra("songId", currentSong.getId());
-            intent.putExtra("title", currentSong.getTitle());
-            intent.putExtra("artist", currentSong.getArtist());
-            intent.putExtra("albumId", currentSong.getAlbumId());
         }
-        // 若时长未知，尝试使用内存缓存兜底（避免主线程查库）
-        if ((dur <= 0 || dur == com.google.android.exoplayer2.C.TIME_UNSET) && currentSong != null) {
-            Long cached = durationCacheMs.get(currentSong.getId());
-            if (cached != null && cached > 0) {
-                intent.putExtra("fallbackDurationMs", cached);
-                                } else {
-                // 异步多级兜底：本地文件 -> DB -> 服务器API
-                final String sid = currentSong.getId();
-                bgExecutor.execute(() -> {
-                    long fallback = 0L;
-                    try {
-                        // 1) 本地下载文件
-                        try {
-                            String local = new com.watch.limusic.download.LocalFileDetector(this).getDownloadedSongPath(sid);
-                            if (local != null) {
-                                android.media.MediaMetadataRetriever mmr = new android.media.MediaMetadataRetriever();
-                                mmr.setDataSource(local);
-                                String s = mmr.extractMetadata(android.media.MediaMetadataRetriever.METADATA_KEY_DURATION);
-                                if (s != null) fallback = Math.max(fallback, Long.parseLong(s));
-                                try { mmr.release(); } catch (Throwable ignore) {}
-                            }
-                        } catch (Throwable ignore) {}
-                        // 2) 数据库
-                        if (fallback <= 0) {
-                    try {
-                        com.watch.limusic.database.SongEntity se = com.watch.limusic.database.MusicDatabase.getInstance(this).songDao().getSongById(sid);
-                                if (se != null && se.getDuration() > 0) fallback = Math.max(fallback, (long) se.getDuration() * 1000L);
-                            } catch (Throwable ignore) {}
-                        }
-                        // 3) 服务器API（秒->毫秒）
-                        if (fallback <= 0) {
-                            try {
-                                Integer secs = NavidromeApi.getInstance(this).getSongDurationSeconds(sid);
-                                if (secs != null && secs > 0) fallback = Math.max(fallback, (long) secs * 1000L);
-                            } catch (Throwable ignore) {}
-                        }
-                    } catch (Throwable ignore) {}
-                    if (fallback > 0) {
-                            synchronized (durationCacheMs) { durationCacheMs.put(sid, fallback); }
-                        // 补发一次包含 fallback 的广播（切回主线程读取 player 状态）
-                        final long fb = fallback;
-                        handler.post(new Runnable() { @Override public void run() {
-                            try {
-                            Intent fix = new Intent(ACTION_PLAYBACK_STATE_CHANGED);
-                            fix.putExtra("isPlaying", player != null && player.isPlaying());
-                            fix.putExtra("position", player != null ? player.getCurrentPosition() : 0);
-                            fix.putExtra("duration", player != null ? player.getDuration() : 0);
-                            fix.putExtra("playbackMode", playbackMode);
-                                fix.putExtra("fallbackDurationMs", fb);
-                                fix.putExtra("isSeekable", player != null && player.isCurrentMediaItemSeekable());
-                                // 附带一次audioType
-                                try {
-                                    String audioType2 = detectCurrentAudioType();
-                                    if (audioType2 == null) {
-                                        com.google.android.exoplayer2.MediaItem ci2 = player != null ? player.getCurrentMediaItem() : null;
-                                        if (ci2 != null && ci2.localConfiguration != null) {
-                                            String mime2 = ci2.localConfiguration.mimeType;
-                                            if (mime2 != null) {
-                                                String m2 = mime2.toLowerCase();
-                                                if (m2.contains("flac")) audioType2 = "FLAC"; else if (m2.contains("mpeg") || m2.contains("mp3")) audioType2 = "MP3";
-                                            }
-                                            if (audioType2 == null) {
-                                                String key2 = ci2.localConfiguration.customCacheKey;
-                                                if (key2 != null) {
-                                                    if (key2.contains("_flac_")) audioType2 = "FLAC"; else if (key2.contains("_mp3_")) audioType2 = "MP3";
-                                                }
-                                            }
-                                        }
-                                    }
-                                    if (audioType2 != null) fix.putExtra("audioType", audioType2);
-                                } catch (Throwable ignore2) {}
-                            if (currentSong != null) {
-                                fix.putExtra("songId", currentSong.getId());
-                                fix.putExtra("title", currentSong.getTitle());
-                                fix.putExtra("artist", currentSong.getArtist());
-                                fix.putExtra("albumId", currentSong.getAlbumId());
-                            }
-                            sendBroadcast(fix);
-                            } catch (Throwable ignore) {}
-                        }});
-                }
-                });
+        PlaybackStateStore.Snapshot.Builder b = new PlaybackStateStore.Snapshot.Builder()
+                .setPlaying(player.isPlaying())
+                .setPosition(player.getCurrentPosition(), android.os.SystemClock.elapsedRealtime(), player.getPlaybackParameters().speed)
+                .setDuration(dur, durationUnset, fallbackDurationMs)
+                .setPlaybackMode(playbackMode)
+                .setSeekable(player.isCurrentMediaItemSeekable())
+                .setAudioType(resolveAudioTypeCached());
+        try { b.setAudioSessionId(player.getAudioSessionId()); } catch (Throwable ignore) {}
+        if (currentSong != null) {
+            b.setSong(currentSong.getId(), currentSong.getTitle(), currentSong.getArtist(), currentSong.getAlbumId());
+        }
+        PlaybackStateStore.getInstance().publish(b.build());
+    }
+
+    // 音频类型：轨道选定后按媒体项缓存，避免每次发布都遍历 Tracks；未选定前用 mime/缓存键推断
+    private String resolveAudioTypeCached() {
+        try {
+            MediaItem item = player != null ? player.getCurrentMediaItem() : null;
+            if (item != null && item == audioTypeItem && audioTypeFromTracks != null) return audioTypeFromTracks;
+            String t = detectCurrentAudioType();
+            if (t != null) {
+                audioTypeItem = item;
+                audioTypeFromTracks = t;
+                return t;
             }
+            return getCurrentAudioType();
+        } catch (Throwable ignore) {
+            return null;
         }
-        sendBroadcast(intent);
     }
 
     // 当开始播放且进度很小（<=2s）时尝试上报一次（仅一次）
@@ -933,20 +866,13 @@ public class PlayerService extends Service {
 		}
 	}
     
-    // 用于UI更新的Runnable
+    // 用于UI更新的Runnable：仅做漂移校正（进度由消费方外推），store 去重后通常不产生通知
     private final Runnable uiUpdateRunnable = new Runnable() {
         @Override
         public void run() {
-            // 只要UI可见就发送广播，不管是否播放
             if (isUiVisible && player != null) {
-                sendPlaybackStateBroadcast();
-                long intervalMs = 500; // 默认 0.5s
-                try {
-                    android.content.SharedPreferences sp = getSharedPreferences("player_prefs", MODE_PRIVATE);
-                    int mode = sp.getInt("progress_broadcast_mode", 0);
-                    if (mode == 1) intervalMs = 1500; else if (mode == 2) intervalMs = 2500;
-                } catch (Exception ignore) {}
-                handler.postDelayed(this, intervalMs);
+                publishPlaybackState();
+                handler.postDelayed(this, STATE_RESYNC_INTERVAL_MS);
             }
         }
     };
@@ -1018,7 +944,7 @@ public class PlayerService extends Service {
             startService(new Intent(this, PlayerService.class));
             updateNotification();
             // 立即发送一次更新，确保UI马上响应
-            sendPlaybackStateBroadcast();
+            publishPlaybackState();
             startUiUpdate();
 			logPlaybackDiagnostics("play()");
         }
@@ -1031,12 +957,12 @@ public class PlayerService extends Service {
         }
         stopForeground(false); // 暂停时，允许通知被划掉
         // 立即发送一次更新，确保UI马上响应
-        sendPlaybackStateBroadcast();
+        publishPlaybackState();
         stopUiUpdate();
     }
 
     public void next() {
-        if (playlist.isEmpty()) {
+        if (!useGlobalAllSongsMode && playlist.isEmpty()) {
             return;
         }
         // 全局"所有歌曲"模式：
@@ -1048,14 +974,14 @@ public class PlayerService extends Service {
                 try { player.seekToNextMediaItem(); } catch (Throwable ignore) {}
             }
             Log.d(TAG, "播放下一首: 索引 " + currentIndex);
-            sendPlaybackStateBroadcast();
+            publishPlaybackState();
             return;
         }
         // 非全局 + 随机：使用队列跳转
         if (playbackMode == PLAYBACK_MODE_SHUFFLE) {
             try { player.seekToNextMediaItem(); } catch (Throwable ignore) {}
             Log.d(TAG, "播放下一首(随机): 当前mediaIndex=" + player.getCurrentMediaItemIndex());
-            sendPlaybackStateBroadcast();
+            publishPlaybackState();
             return;
         }
         
@@ -1099,7 +1025,7 @@ public class PlayerService extends Service {
         player.seekTo(targetMediaIndex, 0);
         }
         Log.d(TAG, "播放下一首: 索引 " + currentIndex);
-        sendPlaybackStateBroadcast();
+        publishPlaybackState();
     }
 
     public void previous() {
@@ -1107,7 +1033,7 @@ public class PlayerService extends Service {
     }
 
     private void previousInternal(boolean forceToPrevious) {
-        if (playlist.isEmpty()) {
+        if (!useGlobalAllSongsMode && playlist.isEmpty()) {
             return;
         }
         
@@ -1128,14 +1054,14 @@ public class PlayerService extends Service {
                 try { player.seekToPreviousMediaItem(); } catch (Throwable ignore) {}
             }
             Log.d(TAG, "播放上一首: 索引 " + currentIndex + (forceToPrevious ? " (forced)" : ""));
-            sendPlaybackStateBroadcast();
+            publishPlaybackState();
             return;
         }
         // 非全局 + 随机：使用队列跳转
         if (playbackMode == PLAYBACK_MODE_SHUFFLE) {
             try { player.seekToPreviousMediaItem(); } catch (Throwable ignore) {}
             Log.d(TAG, "播放上一首(随机): 当前mediaIndex=" + player.getCurrentMediaItemIndex() + (forceToPrevious ? " (forced)" : ""));
-            sendPlaybackStateBroadcast();
+            publishPlaybackState();
             return;
         }
         
@@ -1178,7 +1104,7 @@ public class PlayerService extends Service {
         player.seekTo(targetMediaIndex, 0);
         }
         Log.d(TAG, "播放上一首: 索引 " + currentIndex + (forceToPrevious ? " (forced)" : ""));
-        sendPlaybackStateBroadcast();
+        publishPlaybackState();
     }
 
     public boolean isPlaying() {
@@ -1187,6 +1113,7 @@ public class PlayerService extends Service {
 
     public void playSong(String streamUrl, Song song) {
         // 单曲播放模式
+        leaveGlobalMode();
         currentSong = song;
 
         // 更新播放列表，只包含当前一首歌
@@ -1279,7 +1206,7 @@ public class PlayerService extends Service {
     // 私有实现：原有重逻辑迁移至此（仅在服务内部线程调用）
     private void setPlaylistInternal(List<Song> songs, int startIndex) {
         // 普通模式：使用传入列表。若此前处于全局模式，退出之。
-        useGlobalAllSongsMode = false;
+        leaveGlobalMode();
         // 重置本地窗口扩边与随机锚点状态
         localBaseLenAtHeadAppend = -1;
         localAppendedHeadCount = 0;
@@ -1623,6 +1550,7 @@ public class PlayerService extends Service {
         super.onDestroy();
 		// 退出时保存一次播放状态
 		persistPlaybackStateSafely();
+        try { if (queuePrefetcher != null) queuePrefetcher.release(); } catch (Exception ignore) {}
         if (player != null) {
             handler.removeCallbacksAndMessages(null);
             player.release();
@@ -1638,9 +1566,15 @@ public class PlayerService extends Service {
         stopForeground(true); // 服务销毁时，移除通知
         stopUiUpdate(); // 服务销毁时，确保停止更新
         try { if (configUpdatedReceiver != null) unregisterReceiver(configUpdatedReceiver); } catch (Exception ignore) {}
+        try { getSharedPreferences("player_prefs", MODE_PRIVATE).unregisterOnSharedPreferenceChangeListener(visualizerPrefsListener); } catch (Throwable ignore) {}
         Log.d(TAG, "PlayerService销毁");
     }
 
+    private boolean isVisualizerWanted() {
+        android.content.SharedPreferences sp = getSharedPreferences("player_prefs", MODE_PRIVATE);
+        return sp.getBoolean("visualizer_enabled", false) && !sp.getBoolean("low_power_mode_enabled", false);
+    }
+
     // 新增方法，供Activity调用
     public void setUiVisible(boolean visible) {
         this.isUiVisible = visible;
@@ -1703,6 +1637,7 @@ public class PlayerService extends Service {
 	}
 
 	// 恢复上次播放状态（若有）
+	// 偏好读取在主线程，读库在后台线程，播放器装载回到主线程；装载前若已开始新的播放则放弃恢复
 	private void restorePlaybackStateIfAvailable() {
 		try {
 			SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
@@ -1716,104 +1651,199 @@ public class PlayerService extends Service {
 			String albumId = prefs.getString(KEY_ALBUM_ID, "");
 			long position = prefs.getLong(KEY_POSITION, 0L);
 			int savedMode = prefs.getInt(KEY_PLAYBACK_MODE, PLAYBACK_MODE_REPEAT_ALL);
-			// 始终以暂停状态恢复
-			boolean wasPlaying = false;
-
-			// 优先处理全局"所有歌曲"模式的恢复
 			boolean wasGlobal = prefs.getBoolean(KEY_GLOBAL_ALL_SONGS, false);
-			if (wasGlobal) {
-				int center = Math.max(0, prefs.getInt(KEY_GLOBAL_INDEX, 0));
-				// 初始化全局窗口但不自动播放
-				try {
-					playAllSongsFromGlobalRestore(center, Math.max(position, 0));
-					this.playbackMode = savedMode;
-					applyPlaybackMode();
-					player.pause();
-					updatePlaybackState();
-					Log.d(TAG, "已恢复上次播放状态(全局所有歌曲): index=" + center + ", pos=" + position + ", playing=false");
-					return;
-				} catch (Throwable t) {
-					Log.w(TAG, "恢复全局所有歌曲失败，回退普通路径", t);
-				}
-			}
-
-			// 恢复播放列表
+			int center = Math.max(0, prefs.getInt(KEY_GLOBAL_INDEX, 0));
 			String idList = prefs.getString(KEY_PLAYLIST_IDS, null);
 			int savedIndex = prefs.getInt(KEY_PLAYLIST_INDEX, -1);
-			List<Song> restoredList = new ArrayList<>();
-			if (idList != null && !idList.isEmpty()) {
-				String[] ids = idList.split(",");
-				// 尝试从数据库还原每首歌的信息
-				MusicDatabase db = MusicDatabase.getInstance(this);
-				for (String id : ids) {
-					SongEntity se = db.songDao().getSongById(id);
-					if (se != null) {
-						restoredList.add(EntityConverter.toSong(se));
-					} else {
-						// 数据库没有命中时，降级用最小 Song，仅含必要字段
-						Song s = new Song(id, "", "", "", null, navidromeApi.getStreamUrl(id), 0);
-						restoredList.add(s);
+
+			bgExecutor.execute(() -> {
+				// 优先处理全局"所有歌曲"模式的恢复
+				if (wasGlobal) {
+					try {
+						if (musicRepository == null) musicRepository = MusicRepository.getInstance(this);
+						int total = Math.max(0, musicRepository.getSongCount());
+						if (total > 0) {
+							int c = Math.min(center, total - 1);
+							AllSongsQueue queue = new AllSongsQueue(musicRepository, total, this::buildQueueItem);
+							Song first = queue.songAt(c);
+							handler.post(() -> {
+								if (!canRestore()) return;
+								// 初始化全局队列但不自动播放
+								installGlobalQueue(queue, c, first, Math.max(position, 0));
+								this.playbackMode = savedMode;
+								applyPlaybackMode();
+								player.pause();
+								updatePlaybackState();
+								Log.d(TAG, "已恢复上次播放状态(全局所有歌曲): index=" + c + ", pos=" + position + ", playing=false");
+							});
+							return;
+						}
+					} catch (Throwable t) {
+						Log.w(TAG, "恢复全局所有歌曲失败，回退普通路径", t);
 					}
 				}
-			}
 
-			this.playbackMode = savedMode;
-			applyPlaybackMode();
-
-			if (!restoredList.isEmpty() && savedIndex >= 0 && savedIndex < restoredList.size()) {
-				// 有列表且索引有效：按列表恢复
-				this.playlist.clear();
-				this.playlist.addAll(restoredList);
-				this.currentIndex = savedIndex;
-				this.currentSong = playlist.get(currentIndex);
-				// 重建媒体项
-				List<MediaItem> items = new ArrayList<>();
-				for (Song s : playlist) {
-					String optimalUrl = getOptimalPlayUrl(s, navidromeApi.getStreamUrl(s.getId()));
-					items.add(buildStreamingMediaItem(s.getId(), optimalUrl));
+				// 恢复播放列表：尝试从数据库还原每首歌的信息
+				List<Song> restoredList = new ArrayList<>();
+				if (idList != null && !idList.isEmpty()) {
+					MusicDatabase db = MusicDatabase.getInstance(this);
+					for (String id : idList.split(",")) {
+						SongEntity se = db.songDao().getSongById(id);
+						if (se != null) {
+							restoredList.add(EntityConverter.toSong(se));
+						} else {
+							// 数据库没有命中时，降级用最小 Song，仅含必要字段
+							restoredList.add(new Song(id, "", "", "", null, navidromeApi.getStreamUrl(id), 0));
+						}
+					}
 				}
-				player.setMediaItems(items, currentIndex, /*startPositionMs*/ Math.max(position, 0));
-				player.prepare();
-				mediaBasePlaylistIndex = 0;
-			} else {
-				// 仅恢复单曲
-				Song restored = new Song(songId, title, artist, /*album*/ "", /*coverArt*/ null,
-					/*streamUrl*/ navidromeApi.getStreamUrl(songId), /*duration*/ 0);
-				restored.setAlbumId(albumId);
-				this.currentSong = restored;
-				String optimalUrl = getOptimalPlayUrl(restored, navidromeApi.getStreamUrl(songId));
-				MediaItem item = buildStreamingMediaItem(restored.getId(), optimalUrl);
-				player.setMediaItem(item);
-				player.prepare();
-				if (position > 0) player.seekTo(position);
-				mediaBasePlaylistIndex = 0;
-			}
-
-			// 始终暂停启动，等待用户主动播放
-			player.pause();
-			updatePlaybackState();
-			Log.d(TAG, "已恢复上次播放状态(含列表): ids=" + (idList != null ? idList.length() : 0) + ", index=" + savedIndex + ", pos=" + position + ", mode=" + savedMode + ", playing=false");
+				handler.post(() -> {
+					if (!canRestore()) return;
+					try {
+						applyRestoredPlaylist(restoredList, savedIndex, songId, title, artist, albumId, position, savedMode);
+						Log.d(TAG, "已恢复上次播放状态(含列表): ids=" + (idList != null ? idList.length() : 0) + ", index=" + savedIndex + ", pos=" + position + ", mode=" + savedMode + ", playing=false");
+					} catch (Exception ex) {
+						Log.e(TAG, "恢复播放状态失败", ex);
+					}
+				});
+			});
 		} catch (Exception ex) {
 			Log.e(TAG, "恢复播放状态失败", ex);
 		}
 	}
 
+	// 后台读库期间用户已开始播放时不再覆盖
+	private boolean canRestore() {
+		if (player == null || player.getMediaItemCount() > 0) {
+			Log.d(TAG, "已有新的播放队列，跳过恢复");
+			return false;
+		}
+		return true;
+	}
+
+	private void applyRestoredPlaylist(List<Song> restoredList, int savedIndex, String songId, String title,
+			String artist, String albumId, long position, int savedMode) {
+		this.playbackMode = savedMode;
+		applyPlaybackMode();
+
+		if (!restoredList.isEmpty() && savedIndex >= 0 && savedIndex < restoredList.size()) {
+			// 有列表且索引有效：按列表恢复
+			this.playlist.clear();
+			this.playlist.addAll(restoredList);
+			this.currentIndex = savedIndex;
+			this.currentSong = playlist.get(currentIndex);
+			// 重建媒体项
+			List<MediaItem> items = new ArrayList<>();
+			for (Song s : playlist) {
+				String optimalUrl = getOptimalPlayUrl(s, navidromeApi.getStreamUrl(s.getId()));
+				items.add(buildStreamingMediaItem(s.getId(), optimalUrl));
+			}
+			player.setMediaItems(items, currentIndex, /*startPositionMs*/ Math.max(position, 0));
+			player.prepare();
+			mediaBasePlaylistIndex = 0;
+		} else {
+			// 仅恢复单曲
+			Song restored = new Song(songId, title, artist, /*album*/ "", /*coverArt*/ null,
+				/*streamUrl*/ navidromeApi.getStreamUrl(songId), /*duration*/ 0);
+			restored.setAlbumId(albumId);
+			this.currentSong = restored;
+			String optimalUrl = getOptimalPlayUrl(restored, navidromeApi.getStreamUrl(songId));
+			MediaItem item = buildStreamingMediaItem(restored.getId(), optimalUrl);
+			player.setMediaItem(item);
+			player.prepare();
+			if (position > 0) player.seekTo(position);
+			mediaBasePlaylistIndex = 0;
+		}
+
+		// 始终暂停启动，等待用户主动播放
+		player.pause();
+		updatePlaybackState();
+	}
+
     private MediaItem buildStreamingMediaItem(String songId, String url) {
         MediaItem.Builder b = new MediaItem.Builder().setUri(url);
-        // 根据URL是否为转码MP3设置MIME与自定义缓存键，避免与原始FLAC缓存混用
+        // 根据URL是否为转码MP3设置MIME与自定义缓存键（统一由 StreamCacheKeyFactory 派生），避免与原始FLAC缓存混用
         String lower = url != null ? url.toLowerCase() : "";
         if (lower.contains("format=mp3") || lower.endsWith(".mp3")) {
             b.setMimeType(MimeTypes.AUDIO_MPEG)
-             .setCustomCacheKey("stream_mp3_" + songId);
+             .setCustomCacheKey(StreamCacheKeyFactory.forSong(songId, "mp3", transcodeKbpsOf(url)));
         } else if (lower.contains("format=flac") || lower.endsWith(".flac") || lower.contains("audio/flac")) {
             b.setMimeType(MimeTypes.AUDIO_FLAC)
-             .setCustomCacheKey("stream_flac_" + songId);
+             .setCustomCacheKey(StreamCacheKeyFactory.forSong(songId, "flac", 0));
         } else {
-            b.setCustomCacheKey("stream_raw_" + songId);
+            b.setCustomCacheKey(StreamCacheKeyFactory.forSong(songId, null, 0));
         }
         return b.build();
     }
 
+    // 防抖：多次切歌/改队列只在稳定后规划一次预缓存
+    private void requestPrefetch() {
+        handler.removeCallbacks(prefetchRunnable);
+        handler.postDelayed(prefetchRunnable, PREFETCH_DELAY_MS);
+    }
+
+    /**
+     * 按播放器实际顺序（含内建随机顺序与列表循环回绕）取接下来 N 首的流媒体项交给预缓存器
+     * 全局自定义随机的下一首在切歌时才确定，无法预测，跳过；单曲循环无需预缓存
+     */
+    private void prefetchUpcoming() {
+        if (queuePrefetcher == null || player == null) return;
+        promoteQueuedDownloads();
+        int count = queuePrefetcher.getPrefetchCount();
+        if (count <= 0 || playbackMode == PLAYBACK_MODE_REPEAT_ONE
+                || (useGlobalAllSongsMode && playbackMode == PLAYBACK_MODE_SHUFFLE)) {
+            queuePrefetcher.cancel();
+            return;
+        }
+        Timeline timeline = player.getCurrentTimeline();
+        int current = player.getCurrentMediaItemIndex();
+        if (timeline.isEmpty() || current == C.INDEX_UNSET) return;
+        boolean shuffle = player.getShuffleModeEnabled();
+        int repeatMode = player.getRepeatMode() == Player.REPEAT_MODE_ALL ? Player.REPEAT_MODE_ALL : Player.REPEAT_MODE_OFF;
+        List<QueuePrefetcher.Target> targets = new ArrayList<>(count);
+        int idx = current;
+        for (int i = 0; i < count; i++) {
+            idx = timeline.getNextWindowIndex(idx, repeatMode, shuffle);
+            if (idx == C.INDEX_UNSET || idx == current) break;
+            MediaItem item = queueItemAt(idx);
+            MediaItem.LocalConfiguration cfg = item != null ? item.localConfiguration : null;
+            if (cfg == null || cfg.customCacheKey == null) continue;
+            String scheme = cfg.uri.getScheme();
+            // 已下载的本地文件无需预缓存
+            if (scheme == null || !scheme.startsWith("http")) continue;
+            String url = cfg.uri.toString();
+            int kbps = MimeTypes.AUDIO_FLAC.equals(cfg.mimeType) ? 1000 : transcodeKbpsOf(url);
+            targets.add(new QueuePrefetcher.Target(url, cfg.customCacheKey, kbps));
+        }
+        queuePrefetcher.prefetch(targets);
+    }
+
+    /**
+     * 若当前曲/下一曲已在下载队列中排队，提升其下载优先级（不新建下载任务）
+     */
+    private void promoteQueuedDownloads() {
+        try {
+            DownloadManager dm = DownloadManager.getInstance(this);
+            if (currentSong != null) dm.promote(currentSong.getId(), DownloadPriority.PLAYING);
+            int next = player.getNextMediaItemIndex();
+            if (next != C.INDEX_UNSET) {
+                MediaItem item = queueItemAt(next);
+                MediaItem.LocalConfiguration cfg = item != null ? item.localConfiguration : null;
+                String nextId = cfg != null ? StreamCacheKeyFactory.songIdOf(cfg.customCacheKey) : null;
+                if (nextId != null) dm.promote(nextId, DownloadPriority.UP_NEXT);
+            }
+        } catch (Throwable ignore) {}
+    }
+
+    private static int transcodeKbpsOf(String url) {
+        try {
+            String br = android.net.Uri.parse(url).getQueryParameter("maxBitRate");
+            return br != null ? Integer.parseInt(br) : 0;
+        } catch (Exception ignore) {
+            return 0;
+        }
+    }
+
     // 仅对当前真正要播放的歌曲输出详细日志，批量构建播放列表时不打印
     private boolean isCurrentSong(Song s) {
         try {
@@ -1823,7 +1853,7 @@ public class PlayerService extends Service {
         }
     }
 
-    // ============ 全局"所有歌曲"播放入口（滑动窗口） ============
+    // ============ 全局"所有歌曲"播放入口（懒解析队列） ============
     public void playAllSongsFromGlobal(int globalIndex) {
         // 将重操作转移到服务内部后台线程，避免通过本地Binder在UI线程执行
         bgExecutor.execute(() -> {
@@ -1831,7 +1861,7 @@ public class PlayerService extends Service {
         });
     }
 
-    // 私有实现：原有重逻辑迁移至此（仅在服务内部线程调用）
+    // 私有实现：仅在服务内部线程调用；这里只读起播行所在的一块，其余行由播放器按需解析
     private void playAllSongsFromGlobalInternal(int globalIndex) {
         try {
             if (musicRepository == null) musicRepository = MusicRepository.getInstance(this);
@@ -1844,169 +1874,82 @@ public class PlayerService extends Service {
             setPlaylistInternal(one, 0);
             return;
         }
-        useGlobalAllSongsMode = true;
-        globalTotalCount = Math.max(0, musicRepository.getSongCount());
-        if (globalTotalCount <= 0) return;
-        int center = Math.min(Math.max(0, globalIndex), globalTotalCount - 1);
-        windowStart = Math.max(0, center - WINDOW_GUARD - (WINDOW_CHUNK / 2));
-        windowEnd = Math.min(globalTotalCount, windowStart + WINDOW_CHUNK);
-        mediaBasePlaylistIndex = windowStart;
-
-        // 构建首块媒体项
-        List<Song> songs = musicRepository.getSongsRange(Math.max(0, windowEnd - windowStart), windowStart);
-        if (songs == null) songs = new ArrayList<>();
-        playlist.clear();
-        playlist.addAll(songs);
-        currentIndex = center;
-        currentSong = playlist.get(Math.max(0, center - windowStart));
-
-        List<MediaItem> items = new ArrayList<>();
-        for (Song s : songs) {
-            String url = navidromeApi.getStreamUrl(s.getId());
-            String opt = getOptimalPlayUrl(s, url);
-            items.add(buildStreamingMediaItem(s.getId(), opt));
-        }
-        int startInWindow = center - windowStart;
+        int total = Math.max(0, musicRepository.getSongCount());
+        if (total <= 0) return;
+        int center = Math.min(Math.max(0, globalIndex), total - 1);
+        AllSongsQueue queue = new AllSongsQueue(musicRepository, total, this::buildQueueItem);
+        Song first = queue.songAt(center);
         // 在主线程应用到 ExoPlayer，避免跨线程潜在风险
         handler.post(() -> {
             try {
-        player.stop();
-        player.clearMediaItems();
-        player.setMediaItems(items, Math.max(0, startInWindow), 0);
-        player.prepare();
-        applyPlaybackMode();
-        play();
-            } catch (Throwable t) { Log.e(TAG, "apply global media items failed", t); }
+                installGlobalQueue(queue, center, first, 0L);
+                play();
+            } catch (Throwable t) { Log.e(TAG, "apply global queue failed", t); }
         });
-        Log.d(TAG, "全局所有歌曲：初始化窗口[" + windowStart + "," + windowEnd + "] center=" + center + " startInWindow=" + startInWindow);
-    }
-
-    private void expandWindowIfNeeded(int playerIndex) {
-        try {
-            if (!useGlobalAllSongsMode || musicRepository == null) return;
-            int mediaCount = player.getMediaItemCount();
-            if (mediaCount <= 0) return;
-            // 前向扩边
-            if (playerIndex >= Math.max(0, mediaCount - 1 - WINDOW_GUARD)) {
-                // 计算全局下一段
-                int needFrom = windowEnd;
-                if (needFrom < globalTotalCount) {
-                    int needTo = Math.min(globalTotalCount, needFrom + WINDOW_CHUNK);
-                    List<Song> more = musicRepository.getSongsRange(Math.max(0, needTo - needFrom), needFrom);
-                    if (more != null && !more.isEmpty()) {
-                        List<MediaItem> after = new ArrayList<>();
-                        for (Song s : more) {
-                            String url = navidromeApi.getStreamUrl(s.getId());
-                            after.add(buildStreamingMediaItem(s.getId(), getOptimalPlayUrl(s, url)));
-                        }
-                        playlist.addAll(more);
-                        int add = more.size();
-                        windowEnd += add;
-                        handler.post(() -> { try { player.addMediaItems(after); } catch (Throwable ignore) {} });
-                    }
-                } else {
-                    // 已到全局末尾：为循环模式预追加头块
-                    if (globalTotalCount > 0) {
-                        int headTo = Math.min(globalTotalCount, WINDOW_CHUNK);
-                        List<Song> head = musicRepository.getSongsRange(headTo, 0);
-                        if (head != null && !head.isEmpty()) {
-                            List<MediaItem> after = new ArrayList<>();
-                            for (Song s : head) {
-                                String url = navidromeApi.getStreamUrl(s.getId());
-                                after.add(buildStreamingMediaItem(s.getId(), getOptimalPlayUrl(s, url)));
-                            }
-                            playlist.addAll(head); // 注意：playlist 此时可能超过 totalCount（仅用于映射方便）
-                            handler.post(() -> { try { player.addMediaItems(after); } catch (Throwable ignore) {} });
-                        }
-                    }
-                }
-            }
-            // 后向扩边
-            if (playerIndex <= WINDOW_GUARD) {
-                if (windowStart > 0) {
-                    int needTo = windowStart;
-                    int needFrom = Math.max(0, needTo - WINDOW_CHUNK);
-                    List<Song> more = musicRepository.getSongsRange(Math.max(0, needTo - needFrom), needFrom);
-                    if (more != null && !more.isEmpty()) {
-                        List<MediaItem> before = new ArrayList<>();
-                        for (Song s : more) {
-                            String url = navidromeApi.getStreamUrl(s.getId());
-                            before.add(buildStreamingMediaItem(s.getId(), getOptimalPlayUrl(s, url)));
-                        }
-                        playlist.addAll(0, more);
-                        int add = more.size();
-                        windowStart -= add;
-                        mediaBasePlaylistIndex = windowStart;
-                        int p = player.getCurrentMediaItemIndex();
-                        handler.post(() -> {
-                            try {
-                                player.addMediaItems(0, before);
-                                // 维持当前曲目：头插后当前media索引需要后移 add 位
-                                player.seekTo(p + add, Math.max(0, player.getCurrentPosition()));
-                            } catch (Throwable ignore) {}
-                        });
-                    }
-                }
-            }
-            // 回收：窗口过大时移除远端块
-            int newCount = player.getMediaItemCount();
-            if (newCount > WINDOW_MAX) {
-                int removeFront = Math.max(0, newCount - WINDOW_MAX);
-                // 不移除保护区与当前附近
-                int cur = player.getCurrentMediaItemIndex();
-                removeFront = Math.min(removeFront, Math.max(0, cur - WINDOW_GUARD));
-                if (removeFront > 0) {
-                    int finalRemoveFront = removeFront;
-                    windowStart += finalRemoveFront;
-                    mediaBasePlaylistIndex = windowStart;
-                    // 同步移除内存窗口列表前段，保持与播放器一致
-                    try {
-                        if (finalRemoveFront <= playlist.size()) {
-                            playlist.subList(0, finalRemoveFront).clear();
-                        } else {
-                            playlist.clear();
-                        }
-                    } catch (Throwable ignore) {}
-                    handler.post(() -> { try { player.removeMediaItems(0, finalRemoveFront); } catch (Throwable ignore) {} });
-                }
-            }
-        } catch (Throwable t) {
-            Log.w(TAG, "expandWindowIfNeeded 异常", t);
-        }
+        Log.d(TAG, "全局所有歌曲：懒解析队列 total=" + total + " center=" + center);
     }
 
-    // 全局所有歌曲：用于恢复（不自动播放，按position定位）
-    private void playAllSongsFromGlobalRestore(int globalIndex, long positionMs) {
-        try { if (musicRepository == null) musicRepository = MusicRepository.getInstance(this); } catch (Throwable ignore) {}
-        if (musicRepository == null) return;
+    // 以整库懒解析源替换播放器队列（主线程）
+    private void installGlobalQueue(AllSongsQueue queue, int center, Song first, long positionMs) {
+        allSongsQueue = queue;
+        allSongsSource = new LazyQueueMediaSource(queue, mediaSourceFactory);
         useGlobalAllSongsMode = true;
-        globalTotalCount = Math.max(0, musicRepository.getSongCount());
-        if (globalTotalCount <= 0) return;
-        int center = Math.min(Math.max(0, globalIndex), Math.max(0, globalTotalCount - 1));
-        windowStart = Math.max(0, center - WINDOW_GUARD - (WINDOW_CHUNK / 2));
-        windowEnd = Math.min(globalTotalCount, windowStart + WINDOW_CHUNK);
-        mediaBasePlaylistIndex = windowStart;
-
-        List<Song> songs = musicRepository.getSongsRange(Math.max(0, windowEnd - windowStart), windowStart);
-        if (songs == null) songs = new ArrayList<>();
+        globalTotalCount = queue.size();
+        mediaBasePlaylistIndex = 0;
         playlist.clear();
-        playlist.addAll(songs);
         currentIndex = center;
-        int startInWindow = center - windowStart;
-        currentSong = playlist.isEmpty() ? null : playlist.get(Math.max(0, startInWindow));
-
-        List<MediaItem> items = new ArrayList<>();
-        for (Song s : songs) {
-            String url = navidromeApi.getStreamUrl(s.getId());
-            items.add(buildStreamingMediaItem(s.getId(), getOptimalPlayUrl(s, url)));
-        }
+        currentSong = first;
         player.stop();
-        player.clearMediaItems();
-        player.setMediaItems(items, Math.max(0, startInWindow), Math.max(0, positionMs));
+        player.setMediaSources(Collections.singletonList(allSongsSource), center, Math.max(0, positionMs));
         player.prepare();
         applyPlaybackMode();
     }
 
+    private void leaveGlobalMode() {
+        useGlobalAllSongsMode = false;
+        allSongsQueue = null;
+        allSongsSource = null;
+    }
+
+    // 全局队列行 -> 媒体项：在播放线程按需调用，与普通列表使用同一套 URL/缓存键规则
+    private MediaItem buildQueueItem(Song s) {
+        return buildStreamingMediaItem(s.getId(), getOptimalPlayUrl(s, navidromeApi.getStreamUrl(s.getId())));
+    }
+
+    private void warmGlobalNeighbours(int index) {
+        final AllSongsQueue queue = allSongsQueue;
+        if (queue == null || queue.size() <= 0) return;
+        final int n = queue.size();
+        bgExecutor.execute(() -> {
+            try {
+                queue.songAt((index + 1) % n);
+                queue.songAt((index - 1 + n) % n);
+            } catch (Throwable ignore) {}
+        });
+    }
+
+    // 切歌时当前行未在行缓存中：后台读库，回主线程后若仍停在该行则更新当前歌曲并补发状态
+    private void warmCurrentGlobalSong(int index) {
+        final AllSongsQueue queue = allSongsQueue;
+        if (queue == null) return;
+        bgExecutor.execute(() -> {
+            final Song song;
+            try { song = queue.songAt(index); } catch (Throwable e) { return; }
+            if (song == null) return;
+            handler.post(() -> {
+                if (queue != allSongsQueue || !useGlobalAllSongsMode || currentIndex != index) return;
+                currentSong = song;
+                publishPlaybackState();
+            });
+        });
+    }
+
+    // 预缓存/下载提升读取的队列项：全局模式下未预热的行返回 null，不在主线程读库
+    private MediaItem queueItemAt(int index) {
+        if (useGlobalAllSongsMode && allSongsQueue != null) return allSongsQueue.peekItem(index);
+        return player.getMediaItemAt(index);
+    }
+
     // ============ 全局随机播放：工具方法 ============
     private int pickRandomGlobalIndexAvoidingCurrent() {
         if (globalTotalCount <= 1) return Math.max(0, currentIndex);
@@ -2019,43 +1962,21 @@ public class PlayerService extends Service {
     }
 
     private void jumpToGlobalIndex(int targetGlobalIndex, long positionMs, boolean recordHistory) {
-        if (!useGlobalAllSongsMode || musicRepository == null || globalTotalCount <= 0) return;
+        final AllSongsQueue queue = allSongsQueue;
+        if (!useGlobalAllSongsMode || queue == null || globalTotalCount <= 0) return;
         int t = ((targetGlobalIndex % globalTotalCount) + globalTotalCount) % globalTotalCount;
-        // 若目标在现有窗口内，直接 seek；否则重建窗口以目标为中心
-        if (t >= windowStart && t < windowEnd) {
-            int mediaIdx = Math.max(0, t - mediaBasePlaylistIndex);
-            mediaIdx = Math.min(mediaIdx, Math.max(0, player.getMediaItemCount() - 1));
-            final int m = mediaIdx;
-            handler.post(() -> { try { player.seekTo(m, Math.max(0, positionMs)); } catch (Throwable ignore) {} });
-        } else {
-            int center = t;
-            int wStart = Math.max(0, center - WINDOW_GUARD - (WINDOW_CHUNK / 2));
-            int wEnd = Math.min(globalTotalCount, wStart + WINDOW_CHUNK);
-            List<Song> songs = musicRepository.getSongsRange(Math.max(0, wEnd - wStart), wStart);
-            if (songs == null) songs = new ArrayList<>();
-            playlist.clear();
-            playlist.addAll(songs);
-            windowStart = wStart;
-            windowEnd = wEnd;
-            mediaBasePlaylistIndex = windowStart;
-            currentIndex = center;
-            int startInWindow = center - windowStart;
-            List<MediaItem> items = new ArrayList<>();
-            for (Song s : songs) {
-                String url = navidromeApi.getStreamUrl(s.getId());
-                items.add(buildStreamingMediaItem(s.getId(), getOptimalPlayUrl(s, url)));
-            }
+        // 媒体索引即全局索引：任意跳转都只是一次 seek。目标行可能需要读库，先在后台预热再回主线程定位
+        bgExecutor.execute(() -> {
+            try { queue.songAt(t); } catch (Throwable ignore) {}
             handler.post(() -> {
+                if (queue != allSongsQueue) return;
                 try {
-                    player.stop();
-                    player.clearMediaItems();
-                    player.setMediaItems(items, Math.max(0, startInWindow), Math.max(0, positionMs));
                     player.setShuffleModeEnabled(false);
-                    player.prepare();
-                    play();
+                    player.seekTo(t, Math.max(0, positionMs));
+                    if (player.getPlaybackState() == Player.STATE_IDLE) player.prepare();
                 } catch (Throwable ignore) {}
             });
-        }
+        });
         if (recordHistory) {
             // 记录历史，便于未来做"上一首"在随机模式下回退
             if (shuffleHistory.size() >= 64) shuffleHistory.pollFirst();
@@ -2159,14 +2080,10 @@ public class PlayerService extends Service {
         try { if (player != null) pos = Math.max(0, player.getCurrentPosition()); } catch (Throwable ignore) {}
         try { if (player != null) dur = Math.max(0, player.getDuration()); } catch (Throwable ignore) {}
         if (dur <= 0) {
-            // 尝试读取数据库缓存时长
+            // 播放器尚未给出时长：使用当前歌曲（恢复/入队时已由库中读出）的时长，调用方在主线程，不再读库
             try {
-                SharedPreferences sp = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-                String sid = sp.getString(KEY_SONG_ID, null);
-                if (sid != null) {
-                    SongEntity se = MusicDatabase.getInstance(this).songDao().getSongById(sid);
-                    if (se != null && se.getDuration() > 0) dur = (long) se.getDuration() * 1000L;
-                }
+                Song cur = currentSong;
+                if (cur != null && cur.getDuration() > 0) dur = (long) cur.getDuration() * 1000L;
             } catch (Throwable ignore) {}
         }
         return Math.max(0, dur - pos) + 500L; // 余量
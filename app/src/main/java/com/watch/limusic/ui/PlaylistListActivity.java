@@ -14,11 +14,13 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.watch.limusic.R;
 import com.watch.limusic.adapter.PlaylistAdapter;
+import com.watch.limusic.database.DbExecutors;
 import com.watch.limusic.database.MusicDatabase;
 import com.watch.limusic.database.PlaylistEntity;
 import com.watch.limusic.repository.PlaylistRepository;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 
 public class PlaylistListActivity extends AppCompatActivity implements PlaylistAdapter.OnPlaylistListener {
 	private RecyclerView recyclerView;
@@ -49,8 +51,25 @@ public class PlaylistListActivity extends AppCompatActivity implements PlaylistA
 	}
 
 	private void loadData() {
-		List<PlaylistEntity> list = MusicDatabase.getInstance(this).playlistDao().getAll();
-		adapter.submitList(list);
+		DbExecutors.reader().execute(() -> {
+			List<PlaylistEntity> list = MusicDatabase.getInstance(this).playlistDao().getAll();
+			runOnUiThread(() -> { if (!isFinishing() && !isDestroyed()) adapter.submitList(list); });
+		});
+	}
+
+	// 写库放到单写线程，完成后刷新列表；失败时提示异常信息
+	private void write(Callable<?> op, String doneTip) {
+		DbExecutors.writer().execute(() -> {
+			try {
+				op.call();
+				runOnUiThread(() -> {
+					if (doneTip != null) Toast.makeText(this, doneTip, Toast.LENGTH_SHORT).show();
+					loadData();
+				});
+			} catch (Exception e) {
+				runOnUiThread(() -> Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show());
+			}
+		});
 	}
 
 	private void promptCreate() {
@@ -61,13 +80,7 @@ public class PlaylistListActivity extends AppCompatActivity implements PlaylistA
 				.setView(input)
 				.setPositiveButton("创建", (dialog, which) -> {
 					String name = input.getText() != null ? input.getText().toString() : "";
-					try {
-						repository.createPlaylist(name, false);
-						Toast.makeText(this, "已创建", Toast.LENGTH_SHORT).show();
-						loadData();
-					} catch (Exception e) {
-						Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
-					}
+					write(() -> repository.createPlaylist(name, false), "已创建");
 				})
 				.setNegativeButton("取消", null)
 				.show();
@@ -89,7 +102,7 @@ public class PlaylistListActivity extends AppCompatActivity implements PlaylistA
 				.setTitle(playlist.getName())
 				.setItems(items, (dialog, which) -> {
 					if (which == 0) { confirmDelete(playlist); }
-					else if (which == 1) { repository.setPublic(playlist.getLocalId(), !playlist.isPublic()); loadData(); }
+					else if (which == 1) { write(() -> { repository.setPublic(playlist.getLocalId(), !playlist.isPublic()); return null; }, null); }
 					else if (which == 2) { promptRename(playlist); }
 				})
 				.show();
@@ -99,7 +112,7 @@ public class PlaylistListActivity extends AppCompatActivity implements PlaylistA
 		new AlertDialog.Builder(this)
 				.setTitle("确认删除")
 				.setMessage("确认删除歌单‘" + playlist.getName() + "’吗？")
-				.setPositiveButton("删除", (d, w) -> { repository.delete(playlist.getLocalId()); loadData(); })
+				.setPositiveButton("删除", (d, w) -> write(() -> { repository.delete(playlist.getLocalId()); return null; }, null))
 				.setNegativeButton("取消", null)
 				.show();
 	}
@@ -111,8 +124,8 @@ public class PlaylistListActivity extends AppCompatActivity implements PlaylistA
 				.setTitle("重命名")
 				.setView(input)
 				.setPositiveButton("确定", (d, w) -> {
-					try { repository.rename(playlist.getLocalId(), input.getText().toString()); loadData(); }
-					catch (Exception e) { Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show(); }
+					String newName = input.getText().toString();
+					write(() -> repository.rename(playlist.getLocalId(), newName), null);
 				})
 				.setNegativeButton("取消", null)
 				.show();
@@ -89,4 +89,24 @@ public class NetworkUtils {
                    activeNetworkInfo.getType() == ConnectivityManager.TYPE_WIFI;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 检查当前网络是否不计流量（如普通WiFi；热点共享等计费WiFi返回false）
+     * @param context 上下文
+     * @return 是否为不计流量网络
+     */
+    public static boolean isUnmeteredNetwork(Context context) {
+        if (context == null) return false;
+        ConnectivityManager connectivityManager = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        if (connectivityManager == null) return false;
+
+        try {
+            return isNetworkAvailable(context) && !connectivityManager.isActiveNetworkMetered();
+        } catch (Exception e) {
+            Log.w(TAG, "检测计费网络失败: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.watch.limusic.util;
+
+import android.util.Log;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 汉字 -> 全拼的紧凑查表（按码位下标的 short 数组 + 去重后的音节表，约 55KB）
+ * - 首次使用时一次性从 pinyin4j 自带的码表资源解析（多音字取第一个读音、去声调、ü 写作 v），
+ *   此后每个字只是一次数组访问，不再经过 pinyin4j 的 Properties 查找与格式化
+ * - 资源不可用时退回逐字调用 pinyin4j 构建，结果一致
+ */
+final class PinyinTable {
+    private static final String TAG = "PinyinTable";
+    private static final String RESOURCE = "/pinyindb/unicode_to_hanyu_pinyin.txt";
+    // 覆盖 CJK 扩展 A 与基本区（U+3400 - U+9FFF），兼容区字符不在表内
+    private static final int FIRST = 0x3400;
+    private static final int LAST = 0x9FFF;
+
+    private final short[] codes = new short[LAST - FIRST + 1]; // 0 表示无读音，其余为音节下标 + 1
+    private final List<String> syllables = new ArrayList<>();
+
+    private static final class Holder {
+        static final PinyinTable INSTANCE = new PinyinTable();
+    }
+
+    static PinyinTable get() {
+        return Holder.INSTANCE;
+    }
+
+    private PinyinTable() {
+        Map<String, Short> ids = new HashMap<>();
+        if (!loadResource(ids)) loadFromHelper(ids);
+    }
+
+    /**
+     * @return 全拼（小写、无声调），表外字符或无读音时返回 null
+     */
+    String syllableOf(char ch) {
+        if (ch < FIRST || ch > LAST) return null;
+        short code = codes[ch - FIRST];
+        return code > 0 ? syllables.get(code - 1) : null;
+    }
+
+    private boolean loadResource(Map<String, Short> ids) {
+        int count = 0;
+        try (InputStream in = PinyinTable.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) return false;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            // 行格式：4E00 (yi1,yi2)；无读音为 (none0)
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                int open = line.indexOf('(');
+                if (space <= 0 || open < 0) continue;
+                int cp;
+                try {
+                    cp = Integer.parseInt(line.substring(0, space).trim(), 16);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (cp < FIRST || cp > LAST) continue;
+                int end = open + 1;
+                while (end < line.length() && line.charAt(end) != ',' && line.charAt(end) != ')') end++;
+                String syllable = normalize(line.substring(open + 1, end));
+                if (syllable != null) {
+                    codes[cp - FIRST] = idOf(syllable, ids);
+                    count++;
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "解析拼音码表失败: " + e.getMessage());
+            return false;
+        }
+        return count > 0;
+    }
+
+    private void loadFromHelper(Map<String, Short> ids) {
+        HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
+        format.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        format.setVCharType(HanyuPinyinVCharType.WITH_V);
+        for (int cp = FIRST; cp <= LAST; cp++) {
+            try {
+                String[] pinyins = PinyinHelper.toHanyuPinyinStringArray((char) cp, format);
+                if (pinyins != null && pinyins.length > 0 && !pinyins[0].isEmpty()) {
+                    codes[cp - FIRST] = idOf(pinyins[0], ids);
+                }
+            } catch (Exception ignore) {
+            }
+        }
+    }
+
+    // 去掉声调数字，u: 转为 v；none 视为无读音
+    private static String normalize(String raw) {
+        String s = raw.trim();
+        while (!s.isEmpty() && Character.isDigit(s.charAt(s.length() - 1))) s = s.substring(0, s.length() - 1);
+        if (s.isEmpty() || "none".equals(s)) return null;
+        return s.replace("u:", "v").toLowerCase(Locale.ROOT);
+    }
+
+    private short idOf(String syllable, Map<String, Short> ids) {
+        Short id = ids.get(syllable);
+        if (id == null) {
+            syllables.add(syllable);
+            id = (short) syllables.size();
+            ids.put(syllable, id);
+        }
+        return id;
+    }
+}
@@ -4,12 +4,21 @@ import net.sourceforge.pinyin4j.PinyinHelper;
 import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
 import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
 import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
 import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
 
 /**
  * 拼音工具类，用于提取中文首字母，支持中英文混合
  */
 public class PinyinUtil {
+
+    // 全拼输出格式：小写、无声调、ü 写作 v（与拼音输入法习惯一致）；仅用于码表未覆盖的兼容区汉字
+    private static final HanyuPinyinOutputFormat FULL_FORMAT = new HanyuPinyinOutputFormat();
+    static {
+        FULL_FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FULL_FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FULL_FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
     
     /**
      * 获取字符串的首字母（大写）
@@ -55,10 +64,30 @@ public class PinyinUtil {
         return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
     }
     
+    /**
+     * 获取单个中文字符的全拼（小写、无声调，多音字取第一个读音）
+     * @return 全拼，非中文或无读音时返回 null
+     */
+    public static String toPinyin(char ch) {
+        if (!isChinese(ch)) {
+            return null;
+        }
+        String syllable = PinyinTable.get().syllableOf(ch);
+        if (syllable != null) {
+            return syllable;
+        }
+        try {
+            String[] pinyins = PinyinHelper.toHanyuPinyinStringArray(ch, FULL_FORMAT);
+            return pinyins != null && pinyins.length > 0 && !pinyins[0].isEmpty() ? pinyins[0] : null;
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return null;
+        }
+    }
+    
     /**
      * 判断是否为中文字符
      */
-    private static boolean isChinese(char ch) {
+    public static boolean isChinese(char ch) {
         Character.UnicodeBlock ub = Character.UnicodeBlock.of(ch);
         return ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
                 || ub == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
@@ -66,22 +95,35 @@ public class PinyinUtil {
     }
     
     /**
-     * 获取中文字符的拼音首字母
+     * 生成排序用的比较文本：汉字替换为全拼并以空格结尾（"晴天" -> "qing tian "），ASCII 字母转小写，
+     * 控制字符替换为空格，其余字符原样保留。同组内中文标题按拼音排序并与同音的英文标题相邻
      */
-    private static String getPinyinFirstLetter(char ch) {
-        HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
-        format.setCaseType(HanyuPinyinCaseType.UPPERCASE);
-        format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
-        
-        try {
-            String[] pinyins = PinyinHelper.toHanyuPinyinStringArray(ch, format);
-            if (pinyins != null && pinyins.length > 0) {
-                return String.valueOf(pinyins[0].charAt(0));
+    public static String toCollationText(String str) {
+        if (str == null || str.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(str.length() * 3);
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                sb.append((char) (c + ('a' - 'A')));
+            } else if (c < ' ') {
+                sb.append(' ');
+            } else if (isChinese(c)) {
+                String py = toPinyin(c);
+                if (py != null) sb.append(py).append(' '); else sb.append(c);
             } else {
-                return "#";
+                sb.append(c);
             }
-        } catch (BadHanyuPinyinOutputFormatCombination e) {
-            return "#";
         }
+        return sb.toString();
+    }
+    
+    /**
+     * 获取中文字符的拼音首字母
+     */
+    private static String getPinyinFirstLetter(char ch) {
+        String pinyin = toPinyin(ch);
+        return pinyin != null ? String.valueOf(Character.toUpperCase(pinyin.charAt(0))) : "#";
     }
-} 
\ No newline at end of file
+}
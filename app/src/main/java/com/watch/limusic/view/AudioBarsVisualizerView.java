@@ -10,9 +10,11 @@ import android.media.audiofx.Visualizer;
 import android.util.AttributeSet;
 import android.view.View;
 
+import com.watch.limusic.audio.AudioLevelBus;
+
 /**
  * 轻量柱状可视化视图（手表优先，低功耗）
- * - 优先使用外部数据驱动（PCM抽头 levels），否则回退 Visualizer 绑定到 audioSessionId
+ * - 优先使用外部数据驱动（PCM抽头经 AudioLevelBus 发布的 levels，在 frameTick 中拉取），否则回退 Visualizer 绑定到 audioSessionId
  * - 初始化或运行失败时自动降级为拟真模式（基于随机抖动 + 指数平滑）
  * - 仅在"可见 + 设置开启 + 播放中"时刷新
  */
@@ -54,6 +56,7 @@ public class AudioBarsVisualizerView extends View {
 		@Override public void run() {
 			if (!shouldRender()) return;
 			// 更新数据
+			pollExternalLevels();
 			updateLevels();
 			// 请求绘制
 			try { postInvalidateOnAnimation(); } catch (Throwable ignore) { invalidate(); }
@@ -124,20 +127,17 @@ public class AudioBarsVisualizerView extends View {
 	}
 	public int getRenderStyle() { return renderStyle; }
 
-	// 新增：接收外部可视化数据
-	public void setLevels(float[] levels) {
-		if (levels == null) return;
-		useExternalLevels = true;
-		// 切换到外部驱动时释放Visualizer，避免额外耗电
-		releaseVisualizer();
-		visualizerWorking = false;
-		int n = Math.min(levels.length, barLevels.length);
-		for (int i = 0; i < n; i++) {
-			float target = levels[i];
-			barTargets[i] = clamp01(target);
+	// 从 AudioLevelBus 拉取最新一帧（无新数据时保持上一帧目标）
+	private void pollExternalLevels() {
+		int n = AudioLevelBus.poll(barTargets);
+		if (n < 0) return;
+		if (!useExternalLevels) {
+			useExternalLevels = true;
+			// 切换到外部驱动时释放Visualizer，避免额外耗电
+			releaseVisualizer();
+			visualizerWorking = false;
 		}
-		// 若未在渲染循环中，触发一次绘制
-		try { postInvalidateOnAnimation(); } catch (Throwable ignore) { invalidate(); }
+		for (int i = 0; i < n; i++) barTargets[i] = clamp01(barTargets[i]);
 	}
 
 	public void bindAudioSession(int sessionId) {
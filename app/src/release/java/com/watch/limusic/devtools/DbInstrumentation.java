@@ -0,0 +1,9 @@
+package com.watch.limusic.devtools;
+
+import androidx.room.RoomDatabase;
+
+public final class DbInstrumentation {
+	// release 不计时；保留主线程查询兜底，避免遗漏的调用点直接崩溃（debug 构建会暴露这些调用点）
+	public static void install(RoomDatabase.Builder<?> builder) { builder.allowMainThreadQueries(); }
+	private DbInstrumentation() {}
+}
@@ -0,0 +1,36 @@
+package com.watch.limusic;
+
+import java.util.Locale;
+
+/**
+ * 本地单元测试里的简易微基准：预热若干轮后多轮计时，取最快一轮折算 ns/op 并打印
+ * 只用于同一台机器上新旧实现的量级对比，不做断言阈值（结果随机器波动）
+ */
+public final class Microbench {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+
+    public interface Op {
+        Object run(int i);
+    }
+
+    // 防止结果被 JIT 当作死代码消除
+    private static volatile Object sink;
+
+    private Microbench() {}
+
+    public static double nsPerOp(String name, int opsPerRound, Op op) {
+        for (int r = 0; r < WARMUP_ROUNDS; r++) round(opsPerRound, op);
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < MEASURE_ROUNDS; r++) best = Math.min(best, round(opsPerRound, op));
+        double ns = (double) best / opsPerRound;
+        System.out.println(String.format(Locale.US, "%-48s %12.1f ns/op", name, ns));
+        return ns;
+    }
+
+    private static long round(int ops, Op op) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) sink = op.run(i);
+        return System.nanoTime() - start;
+    }
+}
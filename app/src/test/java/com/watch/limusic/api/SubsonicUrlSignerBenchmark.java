@@ -0,0 +1,111 @@
+package com.watch.limusic.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import com.watch.limusic.Microbench;
+
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.util.Random;
+
+import okhttp3.HttpUrl;
+
+/**
+ * 签名 URL 构建：SubsonicUrlSigner 与改造前的逐次构建路径（新 Random、新 MessageDigest、
+ * 每字节 String.format、每次重新解析服务器地址）对比，模拟 PlayerService 构建 200 首的窗口
+ */
+public class SubsonicUrlSignerBenchmark {
+    private static final String SERVER = "https://music.example.com/navidrome";
+    private static final int PORT = 4533;
+    private static final String USER = "watch";
+    private static final String PASSWORD = "s3cret-pass";
+    private static final String CLIENT = "LiMusic";
+    private static final String VERSION = "1.16.1";
+    private static final int WINDOW = 200;
+
+    private final SubsonicUrlSigner signer = SubsonicUrlSigner.create(SERVER, PORT, USER, PASSWORD, CLIENT, VERSION);
+    private final String[] songIds = new String[WINDOW];
+
+    public SubsonicUrlSignerBenchmark() {
+        for (int i = 0; i < WINDOW; i++) songIds[i] = "3f2a9c" + Integer.toHexString(0x100000 + i * 7919);
+    }
+
+    @Test
+    public void tokenMatchesLegacyDigest() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            String salt = SubsonicUrlSigner.newSalt();
+            assertEquals(legacyToken(PASSWORD, salt), SubsonicUrlSigner.token(PASSWORD, salt));
+        }
+    }
+
+    @Test
+    public void streamUrlCarriesValidSessionSignature() {
+        HttpUrl url = HttpUrl.parse(signer.streamUrl(songIds[0]));
+        assertNotNull(url);
+        assertEquals("/rest/stream", url.encodedPath());
+        assertEquals(PORT, url.port());
+        assertEquals(songIds[0], url.queryParameter("id"));
+        assertEquals(USER, url.queryParameter("u"));
+        assertEquals(SubsonicUrlSigner.token(PASSWORD, url.queryParameter("s")), url.queryParameter("t"));
+        // 同一会话内 URL 稳定
+        assertEquals(signer.streamUrl(songIds[0]), signer.streamUrl(songIds[0]));
+    }
+
+    @Test
+    public void benchmarkWindowOfStreamUrls() throws Exception {
+        double legacy = Microbench.nsPerOp("legacy stream url (per song)", WINDOW * 20,
+                i -> legacyStreamUrl(songIds[i % WINDOW]));
+        double session = Microbench.nsPerOp("SubsonicUrlSigner.streamUrl (per song)", WINDOW * 20,
+                i -> signer.streamUrl(songIds[i % WINDOW]));
+        double perRequest = Microbench.nsPerOp("SubsonicUrlSigner.newSignedRequest (per call)", WINDOW * 20,
+                i -> signer.newSignedRequest("getSong").addQueryParameter("id", songIds[i % WINDOW]).build());
+        System.out.println(String.format(java.util.Locale.US,
+                "window of %d: legacy %.2fms, session %.2fms (%.1fx), per-request signing %.2fms",
+                WINDOW, legacy * WINDOW / 1e6, session * WINDOW / 1e6, legacy / session, perRequest * WINDOW / 1e6));
+    }
+
+    // ---- 改造前的实现（摘自原 NavidromeApi，去掉 Android 日志） ----
+
+    private static String legacyStreamUrl(String songId) {
+        String salt = String.valueOf(new Random().nextInt(900000000) + 100000000);
+        String token;
+        try {
+            token = legacyToken(PASSWORD, salt);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return legacyBaseUrlBuilder()
+                .addPathSegment("stream")
+                .addQueryParameter("u", USER)
+                .addQueryParameter("t", token)
+                .addQueryParameter("s", salt)
+                .addQueryParameter("v", VERSION)
+                .addQueryParameter("c", CLIENT)
+                .addQueryParameter("id", songId)
+                .build()
+                .toString();
+    }
+
+    private static String legacyToken(String password, String salt) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        byte[] bytes = md.digest((password + salt).getBytes());
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    private static HttpUrl.Builder legacyBaseUrlBuilder() {
+        String hostOnly = SERVER.replace("http://", "").replace("https://", "");
+        int slashIdx = hostOnly.indexOf('/');
+        if (slashIdx >= 0) hostOnly = hostOnly.substring(0, slashIdx);
+        int colonIdx = hostOnly.indexOf(':');
+        if (colonIdx >= 0) hostOnly = hostOnly.substring(0, colonIdx);
+        return new HttpUrl.Builder()
+                .scheme(SERVER.startsWith("https") ? "https" : "http")
+                .host(hostOnly)
+                .port(PORT)
+                .addPathSegment("rest");
+    }
+}
@@ -0,0 +1,100 @@
+package com.watch.limusic.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.AudioProcessor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 按 DefaultAudioSink 的调用顺序驱动旁路：queueInput → getOutput → 下游写出（推进 position）→ 写空后再次 queueInput
+ * 分析帧为 512 个采样；发布按 AudioLevelBus 的帧率节流，两次送入之间留出一个发布间隔
+ */
+public class AudioTapProcessorTest {
+	private static final int SAMPLE_RATE = 44100;
+	private static final int CHANNELS = 2;
+	private static final int FRAME_SAMPLES = 512;
+	private static final int BYTES_PER_FRAME = 2 * CHANNELS;
+	private static final long PUBLISH_GAP_MS = 1000L / 60 + 10;
+
+	private final float[] levels = new float[64];
+	private AudioTapProcessor tap;
+
+	@Before
+	public void setUp() throws Exception {
+		AudioLevelBus.setMaxFps(60);
+		tap = new AudioTapProcessor();
+		tap.setPlaying(true);
+		tap.configure(new AudioProcessor.AudioFormat(SAMPLE_RATE, CHANNELS, C.ENCODING_PCM_16BIT));
+		AudioLevelBus.poll(levels);
+	}
+
+	@Test
+	public void reusedBufferWithNewContentsIsAnalyzedAgain() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(FRAME_SAMPLES * BYTES_PER_FRAME).order(ByteOrder.LITTLE_ENDIAN);
+
+		fill(buffer, 0f);
+		queueAndDrain(buffer);
+		int bars = AudioLevelBus.poll(levels);
+		assertTrue(bars > 0);
+		assertEquals(0f, max(levels, bars), 0f);
+
+		// 上游在同一个缓冲对象里装入下一段音频（position/limit 与上次相同）
+		Thread.sleep(PUBLISH_GAP_MS);
+		fill(buffer, 0.5f);
+		queueAndDrain(buffer);
+		bars = AudioLevelBus.poll(levels);
+		assertTrue("第二帧未被分析", bars > 0);
+		assertTrue(max(levels, bars) > 0.1f);
+	}
+
+	@Test
+	public void partiallyWrittenBufferIsNotAnalyzedTwice() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(2 * FRAME_SAMPLES * BYTES_PER_FRAME).order(ByteOrder.LITTLE_ENDIAN);
+		fill(buffer, 0.5f);
+		tap.queueInput(buffer);
+		ByteBuffer out = tap.getOutput();
+		assertSame(buffer, out);
+		assertTrue(AudioLevelBus.poll(levels) > 0);
+
+		// AudioTrack 只写了一半，AudioSink 把剩余部分原样再次送入
+		Thread.sleep(PUBLISH_GAP_MS);
+		out.position(out.position() + FRAME_SAMPLES * BYTES_PER_FRAME);
+		tap.queueInput(out);
+		assertSame(buffer, tap.getOutput());
+		assertEquals(-1, AudioLevelBus.poll(levels));
+	}
+
+	private void queueAndDrain(ByteBuffer buffer) {
+		tap.queueInput(buffer);
+		ByteBuffer out = tap.getOutput();
+		assertSame(buffer, out);
+		out.position(out.limit());
+		tap.queueInput(out);
+		tap.getOutput();
+	}
+
+	// 1kHz 正弦（两个声道相同），amplitude 为 0 时为静音
+	private static void fill(ByteBuffer buffer, float amplitude) {
+		buffer.clear();
+		int frames = buffer.capacity() / BYTES_PER_FRAME;
+		for (int i = 0; i < frames; i++) {
+			short v = (short) (amplitude * 32767 * Math.sin(2.0 * Math.PI * 1000.0 * i / SAMPLE_RATE));
+			for (int c = 0; c < CHANNELS; c++) buffer.putShort(v);
+		}
+		buffer.flip();
+	}
+
+	private static float max(float[] values, int count) {
+		float m = 0f;
+		for (int i = 0; i < count; i++) m = Math.max(m, values[i]);
+		return m;
+	}
+}
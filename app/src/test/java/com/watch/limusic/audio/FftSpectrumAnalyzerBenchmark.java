@@ -0,0 +1,122 @@
+package com.watch.limusic.audio;
+
+import static org.junit.Assert.assertEquals;
+
+import com.watch.limusic.Microbench;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * 频谱引擎：FftSpectrumAnalyzer 与改造前的逐带 Goertzel（每带对整帧做一次二阶递推）对比
+ * 帧长、采样率与频带中心的取法同 AudioTapProcessor（512 点、44.1kHz、50Hz~6kHz 对数分布）
+ */
+public class FftSpectrumAnalyzerBenchmark {
+	private static final int FRAME_SIZE = 512;
+	private static final int SAMPLE_RATE = 44100;
+	private static final int[] BAR_COUNTS = {1, 2, 3, 4, 8, 16, 32, 64};
+
+	@Test
+	public void pureToneLandsInSameBandAsGoertzel() {
+		int bars = 32;
+		float[] centers = bandCenters(bars);
+		FftSpectrumAnalyzer fft = new FftSpectrumAnalyzer();
+		fft.configure(FRAME_SIZE, SAMPLE_RATE, centers);
+		LegacyGoertzel goertzel = new LegacyGoertzel();
+		goertzel.configure(FRAME_SIZE, SAMPLE_RATE, centers);
+		float[] fftDb = new float[bars];
+		float[] goertzelDb = new float[bars];
+		// 低频带窄于频点间隔（约 86Hz）时 FFT 退化为最近频点，只比较能分辨的频带
+		for (int b = bars / 2; b < bars; b++) {
+			float[] frame = windowedTone(centers[b], 0.5f);
+			fft.analyze(frame, fftDb);
+			goertzel.analyze(frame, goertzelDb);
+			assertEquals("band " + b, b, argMax(goertzelDb));
+			assertEquals("band " + b, b, argMax(fftDb));
+			// 频点与带中心不重合时 Hann 窗的扇贝损失在 1.5dB 以内
+			assertEquals("band " + b, goertzelDb[b], fftDb[b], 2f);
+		}
+	}
+
+	@Test
+	public void benchmarkFrameAnalysis() {
+		float[] frame = windowedTone(1000f, 0.5f);
+		StringBuilder summary = new StringBuilder("ns/frame (fft / goertzel):");
+		for (int bars : BAR_COUNTS) {
+			float[] centers = bandCenters(bars);
+			float[] out = new float[bars];
+			FftSpectrumAnalyzer fft = new FftSpectrumAnalyzer();
+			fft.configure(FRAME_SIZE, SAMPLE_RATE, centers);
+			LegacyGoertzel goertzel = new LegacyGoertzel();
+			goertzel.configure(FRAME_SIZE, SAMPLE_RATE, centers);
+			double f = Microbench.nsPerOp("fft " + bars + " bars", 2000, i -> {
+				fft.analyze(frame, out);
+				return out;
+			});
+			double g = Microbench.nsPerOp("goertzel " + bars + " bars", 2000, i -> {
+				goertzel.analyze(frame, out);
+				return out;
+			});
+			summary.append(String.format(Locale.US, " %d=%.0f/%.0f", bars, f, g));
+		}
+		System.out.println(summary);
+	}
+
+	private static float[] bandCenters(int bars) {
+		float[] centers = new float[bars];
+		float fMin = 50f;
+		float fMax = Math.min(6000f, SAMPLE_RATE * 0.5f * 0.98f);
+		double ratio = Math.pow(fMax / fMin, 1.0 / Math.max(1, bars - 1));
+		for (int i = 0; i < bars; i++) centers[i] = (float) (fMin * Math.pow(ratio, i));
+		return centers;
+	}
+
+	private static float[] windowedTone(float hz, float amplitude) {
+		float[] frame = new float[FRAME_SIZE];
+		for (int i = 0; i < FRAME_SIZE; i++) {
+			double hann = 0.5 * (1.0 - Math.cos(2.0 * Math.PI * i / (FRAME_SIZE - 1.0)));
+			frame[i] = (float) (amplitude * Math.sin(2.0 * Math.PI * hz * i / SAMPLE_RATE) * hann);
+		}
+		return frame;
+	}
+
+	private static int argMax(float[] values) {
+		int best = 0;
+		for (int i = 1; i < values.length; i++) if (values[i] > values[best]) best = i;
+		return best;
+	}
+
+	// ---- 改造前的实现（原 GoertzelAnalyzer） ----
+
+	private static final class LegacyGoertzel {
+		private float[] coeff = new float[0];
+		private int frameSize;
+		private float normDb;
+
+		void configure(int frameSize, int sampleRateHz, float[] bandCentersHz) {
+			this.frameSize = frameSize;
+			coeff = new float[bandCentersHz.length];
+			for (int b = 0; b < bandCentersHz.length; b++) {
+				double w = 2.0 * Math.PI * (bandCentersHz[b] / sampleRateHz);
+				coeff[b] = (float) (2.0 * Math.cos(w));
+			}
+			normDb = (float) (20.0 * Math.log10(frameSize * 0.5));
+		}
+
+		void analyze(float[] frame, float[] outDb) {
+			final int n = frameSize;
+			for (int b = 0; b < coeff.length; b++) {
+				final float c = coeff[b];
+				float s0, s1 = 0f, s2 = 0f;
+				for (int i = 0; i < n; i++) {
+					s0 = frame[i] + c * s1 - s2;
+					s2 = s1;
+					s1 = s0;
+				}
+				float power = s1 * s1 + s2 * s2 - c * s1 * s2;
+				outDb[b] = FftSpectrumAnalyzer.powerToDb(power, normDb);
+			}
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.watch.limusic.util;
+
+import static org.junit.Assert.assertEquals;
+
+import com.watch.limusic.Microbench;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 拼音比较文本与首字母：PinyinTable 查表与逐字调用 pinyin4j（改造前的路径）对比
+ * 5 万个中英混合标题，模拟一次全量同步计算 sortKey/initial 的工作量
+ */
+public class PinyinCollationBenchmark {
+    private static final int TITLES = 50_000;
+    private static final String[] WORDS = {"Love", "Night", "River", "Blue", "Summer", "Dream", "Rain", "Tonight",
+            "Home", "Moon", "feat.", "Live", "(Remix)", "2019", "Vol.2", "-", "&"};
+
+    private static final HanyuPinyinOutputFormat FULL_FORMAT = new HanyuPinyinOutputFormat();
+    static {
+        FULL_FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FULL_FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FULL_FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private final String[] titles = new String[TITLES];
+
+    public PinyinCollationBenchmark() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < TITLES; i++) {
+            sb.setLength(0);
+            int kind = random.nextInt(10);
+            // 约四成纯中文、四成英文、两成中英混合
+            if (kind < 4 || kind >= 8) {
+                int n = 2 + random.nextInt(6);
+                for (int j = 0; j < n; j++) sb.append((char) (0x4E00 + random.nextInt(0x9FA5 - 0x4E00 + 1)));
+            }
+            if (kind >= 4) {
+                int n = 1 + random.nextInt(4);
+                for (int j = 0; j < n; j++) sb.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            titles[i] = sb.toString().trim();
+        }
+    }
+
+    @Test
+    public void tableMatchesPinyin4jFirstReading() throws Exception {
+        for (int cp = 0x3400; cp <= 0x9FFF; cp++) {
+            char c = (char) cp;
+            if (!PinyinUtil.isChinese(c)) continue;
+            assertEquals(Integer.toHexString(cp), legacyPinyin(c), PinyinTable.get().syllableOf(c));
+        }
+    }
+
+    @Test
+    public void collationTextMatchesLegacy() throws Exception {
+        for (String title : titles) {
+            assertEquals(title, legacyCollationText(title), PinyinUtil.toCollationText(title));
+            assertEquals(title, legacyFirstLetter(title), PinyinUtil.getFirstLetter(title));
+        }
+    }
+
+    @Test
+    public void benchmarkFiftyThousandTitles() {
+        double legacyText = Microbench.nsPerOp("legacy collation text (pinyin4j)", TITLES,
+                i -> legacyCollationTextUnchecked(titles[i]));
+        double text = Microbench.nsPerOp("PinyinUtil.toCollationText", TITLES,
+                i -> PinyinUtil.toCollationText(titles[i]));
+        double legacyInitial = Microbench.nsPerOp("legacy first letter (pinyin4j)", TITLES,
+                i -> legacyFirstLetterUnchecked(titles[i]));
+        double initial = Microbench.nsPerOp("PinyinUtil.getFirstLetter", TITLES,
+                i -> PinyinUtil.getFirstLetter(titles[i]));
+        System.out.println(String.format(Locale.US,
+                "%d titles: collation text %.1fms -> %.1fms (%.1fx), first letter %.1fms -> %.1fms (%.1fx)",
+                TITLES, legacyText * TITLES / 1e6, text * TITLES / 1e6, legacyText / text,
+                legacyInitial * TITLES / 1e6, initial * TITLES / 1e6, legacyInitial / initial));
+    }
+
+    // ---- 改造前的实现：每个汉字经 pinyin4j 的 Properties 查找与格式化 ----
+
+    private static String legacyPinyin(char c) throws Exception {
+        String[] pinyins = PinyinHelper.toHanyuPinyinStringArray(c, FULL_FORMAT);
+        return pinyins != null && pinyins.length > 0 && !pinyins[0].isEmpty() ? pinyins[0] : null;
+    }
+
+    private static String legacyCollationText(String str) throws Exception {
+        StringBuilder sb = new StringBuilder(str.length() * 3);
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                sb.append((char) (c + ('a' - 'A')));
+            } else if (c < ' ') {
+                sb.append(' ');
+            } else if (PinyinUtil.isChinese(c)) {
+                String py = legacyPinyin(c);
+                if (py != null) sb.append(py).append(' '); else sb.append(c);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // 原 getPinyinFirstLetter：每次调用新建输出格式
+    private static String legacyFirstLetter(String str) throws Exception {
+        String s = str.trim();
+        if (s.isEmpty()) return "#";
+        char c = s.charAt(0);
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) return String.valueOf(Character.toUpperCase(c));
+        if (Character.isDigit(c)) return String.valueOf(c);
+        if (!PinyinUtil.isChinese(c)) return "#";
+        HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
+        format.setCaseType(HanyuPinyinCaseType.UPPERCASE);
+        format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        String[] pinyins = PinyinHelper.toHanyuPinyinStringArray(c, format);
+        return pinyins != null && pinyins.length > 0 ? String.valueOf(pinyins[0].charAt(0)) : "#";
+    }
+
+    private static String legacyCollationTextUnchecked(String str) {
+        try {
+            return legacyCollationText(str);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String legacyFirstLetterUnchecked(String str) {
+        try {
+            return legacyFirstLetter(str);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}